@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 播放界面每次刷新都会用到的纯计算逻辑：进度换算、循环判断、按扩展名判断媒体类型、输出设备分类
+ *
+ * 不依赖Android框架，属于MPDemoCore库，可以在主机JVM上用MPDemoCoreBench做基准测试。
+ */
+public final class PlaybackLogic {
+    /** 播放位置距末尾小于该值时视为到达末尾 */
+    public static final int LOOP_TOLERANCE_MS = 1000;
+
+    private static final Set<String> AUDIO_EXTENSIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "mp3", "wav", "aac", "flac", "m4a", "ogg", "wma")));
+    private static final Set<String> VIDEO_EXTENSIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "mp4", "mkv", "ts", "webm", "3gp", "mov", "avi", "flv", "m2ts")));
+
+    // 与android.media.AudioDeviceInfo中的TYPE_*取值相同
+    public static final int TYPE_BUILTIN_SPEAKER = 2;
+    public static final int TYPE_WIRED_HEADSET = 3;
+    public static final int TYPE_WIRED_HEADPHONES = 4;
+    public static final int TYPE_BLUETOOTH_SCO = 7;
+    public static final int TYPE_BLUETOOTH_A2DP = 8;
+    public static final int TYPE_HDMI = 9;
+    public static final int TYPE_USB_DEVICE = 11;
+    public static final int TYPE_USB_HEADSET = 22;
+
+    /**
+     * 界面上显示的输出设备类别
+     */
+    public enum DeviceCategory {
+        SPEAKER,
+        HEADPHONE,
+        BLUETOOTH,
+        HDMI,
+        USB,
+        OTHER
+    }
+
+    private PlaybackLogic() {
+    }
+
+    /**
+     * 播放位置换算为0~100的进度，按long计算，时长超过21分钟时不会溢出
+     */
+    public static int progressPercent(int positionMs, int durationMs) {
+        if (durationMs <= 0) {
+            return 0;
+        }
+        return (int) ((long) positionMs * 100 / durationMs);
+    }
+
+    /**
+     * 0~100的进度换算为播放位置
+     */
+    public static int positionForProgress(int progress, int durationMs) {
+        return (int) (((float) progress / 100) * durationMs);
+    }
+
+    /**
+     * 到达末尾、开启了循环且播放列表只有一项时从头重新播放
+     */
+    public static boolean shouldLoop(int positionMs, int durationMs, boolean looping, int playlistSize) {
+        return looping && playlistSize <= 1 && durationMs > 0 && positionMs >= durationMs - LOOP_TOLERANCE_MS;
+    }
+
+    /**
+     * URI字符串中最后一个'.'之后的部分，转为小写，没有时返回空字符串
+     */
+    public static String getFileExtension(String uri) {
+        int dotIndex = uri.lastIndexOf('.');
+        if (dotIndex > 0) {
+            return uri.substring(dotIndex + 1).toLowerCase(Locale.ROOT);
+        }
+        return "";
+    }
+
+    public static boolean isAudioFile(String extension) {
+        return AUDIO_EXTENSIONS.contains(extension);
+    }
+
+    public static boolean isVideoFile(String extension) {
+        return VIDEO_EXTENSIONS.contains(extension);
+    }
+
+    public static DeviceCategory getDeviceCategory(int deviceType) {
+        switch (deviceType) {
+            case TYPE_BUILTIN_SPEAKER:
+                return DeviceCategory.SPEAKER;
+            case TYPE_WIRED_HEADPHONES:
+            case TYPE_WIRED_HEADSET:
+                return DeviceCategory.HEADPHONE;
+            case TYPE_BLUETOOTH_A2DP:
+            case TYPE_BLUETOOTH_SCO:
+                return DeviceCategory.BLUETOOTH;
+            case TYPE_HDMI:
+                return DeviceCategory.HDMI;
+            case TYPE_USB_HEADSET:
+            case TYPE_USB_DEVICE:
+                return DeviceCategory.USB;
+            default:
+                return DeviceCategory.OTHER;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+/**
+ * 黑胶唱片视图(RecordView)的尺寸计算
+ *
+ * 结果保存在字段中，视图大小不变时update()直接返回，每帧绘制不分配对象。
+ */
+public final class RecordGeometry {
+    public static final int GROOVE_COUNT = 15;
+    private static final float RADIUS_RATIO = 0.8f;   // 唱片半径占视图大小的80%
+
+    private int width;
+    private int height;
+
+    /** 唱片位图边长，取视图宽高中较小的一个 */
+    public int size;
+    public float radius;
+    public int centerX;
+    public int centerY;
+    /** 中心盖位图边长 */
+    public int capSize;
+    /** 同心圆沟槽的半径，从外到内 */
+    public final float[] grooveRadii = new float[GROOVE_COUNT];
+
+    /**
+     * 按视图大小重新计算，大小没有变化时返回false
+     */
+    public boolean update(int width, int height) {
+        if (width == this.width && height == this.height) {
+            return false;
+        }
+        this.width = width;
+        this.height = height;
+        size = Math.min(width, height);
+        radius = size / 2f * RADIUS_RATIO;
+        centerX = width / 2;
+        centerY = height / 2;
+        capSize = size / 8;
+        for (int i = 1; i <= GROOVE_COUNT; i++) {
+            grooveRadii[i - 1] = radius * (0.9f - 0.05f * i);
+        }
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 位图左上角在视图中的坐标，使位图中心与视图中心重合
+     */
+    public float centeredLeft(int bitmapWidth) {
+        return centerX - bitmapWidth / 2;
+    }
+
+    public float centeredTop(int bitmapHeight) {
+        return centerY - bitmapHeight / 2;
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.AudioDeviceInfo;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.util.Locale;
+
+/**
+ * 从PcmClipCache中的内存PCM直接循环播放短片段
+ *
+ * 写入线程把片段数据连续写入流模式的AudioTrack，到达末尾后紧接着从头写入，
+ * 循环边界处没有seek和解码造成的间隙，循环过程中不占用解码器。
+ * 输出设备不支持片段的采样率时，写入前在应用内重采样到设备支持的采样率。
+ */
+public class ClipPlayer implements PcmPlayback {
+    private static final String TAG = "ClipPlayer";
+    private static final int WRITE_BYTES = 8192;
+
+    private final Context context;
+    private final PcmClipCache cache;
+    private final Uri uri;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Object lock = new Object();
+    private final int playerNumber;
+    private final UnderrunCounter underruns; // 只在写入线程使用
+
+    private Thread thread;
+    private volatile PcmClipCache.Clip clip;
+    private volatile AudioTrack track;
+    private volatile AudioDeviceInfo device;
+    private volatile boolean running;
+    private volatile boolean playing;
+    private volatile boolean looping;
+    private volatile long pendingSeekFrame = -1;
+    private volatile float volume = 1.0f;
+    private volatile long segmentStartFrame; // 当前片段起点在clip中的帧位置
+    private volatile int outputRate;         // AudioTrack的采样率
+    private volatile String outputPath;
+    private volatile long loops;
+    private OnCompletionListener completionListener;
+
+    public ClipPlayer(Context context, int playerNumber, PcmClipCache cache, Uri uri) {
+        this.context = context.getApplicationContext();
+        this.playerNumber = playerNumber;
+        this.underruns = new UnderrunCounter(playerNumber, EventJournal.SOURCE_CLIP);
+        this.cache = cache;
+        this.uri = uri;
+    }
+
+    @Override
+    public void start() {
+        synchronized (lock) {
+            playing = true;
+            if (thread == null || !thread.isAlive()) {
+                running = true;
+                thread = new Thread(this::writeLoop, "ClipPlayer");
+                thread.start();
+            } else {
+                AudioTrack current = track;
+                if (current != null) {
+                    current.play();
+                }
+            }
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public void pause() {
+        synchronized (lock) {
+            playing = false;
+            AudioTrack current = track;
+            if (current != null) {
+                current.pause();
+            }
+        }
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        PcmClipCache.Clip current = clip;
+        long played;
+        // 播放线程在同一个锁内释放AudioTrack，这里不会用到已释放的AudioTrack
+        synchronized (lock) {
+            AudioTrack currentTrack = track;
+            if (current == null || currentTrack == null || outputRate == 0) {
+                return 0;
+            }
+            played = (currentTrack.getPlaybackHeadPosition() & 0xFFFFFFFFL) * current.sampleRate / outputRate;
+        }
+        long frame = (segmentStartFrame + played) % current.frameCount;
+        return (int) (frame * 1000 / current.sampleRate);
+    }
+
+    @Override
+    public int getDuration() {
+        PcmClipCache.Clip current = clip;
+        return current != null ? (int) (current.getDurationUs() / 1000) : 0;
+    }
+
+    @Override
+    public void seekTo(int positionMs) {
+        PcmClipCache.Clip current = clip;
+        long frame = current != null ? positionMs * (long) current.sampleRate / 1000 : 0;
+        synchronized (lock) {
+            pendingSeekFrame = frame;
+            AudioTrack currentTrack = track;
+            if (currentTrack != null) {
+                // 丢弃已写入的数据，阻塞中的write立即返回
+                currentTrack.pause();
+                currentTrack.flush();
+            }
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public void setVolume(float volume) {
+        this.volume = volume;
+        synchronized (lock) {
+            AudioTrack current = track;
+            if (current != null) {
+                current.setVolume(volume);
+            }
+        }
+    }
+
+    @Override
+    public void setLooping(boolean looping) {
+        this.looping = looping;
+    }
+
+    @Override
+    public void setPreferredDevice(AudioDeviceInfo device) {
+        this.device = device;
+        synchronized (lock) {
+            AudioTrack current = track;
+            if (current != null) {
+                current.setPreferredDevice(device);
+            }
+        }
+    }
+
+    @Override
+    public void setOnCompletionListener(OnCompletionListener listener) {
+        this.completionListener = listener;
+    }
+
+    @Override
+    public void release() {
+        synchronized (lock) {
+            running = false;
+            playing = false;
+            AudioTrack current = track;
+            if (current != null) {
+                current.pause();
+                current.flush();
+            }
+            lock.notifyAll();
+        }
+        if (thread != null) {
+            try {
+                thread.join(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+        completionListener = null;
+    }
+
+    private void writeLoop() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+        PcmClipCache.Clip current = clip;
+        if (current == null) {
+            // 第一次播放时取得片段，未缓存时在这里解码
+            current = cache.getOrDecode(uri);
+            if (current == null) {
+                Log.e(TAG, "无法取得片段: " + uri);
+                playing = false;
+                return;
+            }
+            clip = current;
+        }
+        OutputFormatMatcher.Decision decision = OutputFormatMatcher.choose(context, device,
+                current.sampleRate, current.channelCount);
+        outputRate = decision.outputRate;
+        outputPath = decision.describe();
+        SincResampler resampler = null;
+        short[] input = null;
+        short[] resampled = null;
+        ShortBuffer samples = null;
+        if (decision.needsResample()) {
+            resampler = new SincResampler(current.sampleRate, outputRate, current.channelCount);
+            input = new short[WRITE_BYTES / 2];
+            resampled = new short[resampler.maxOutputSamples(input.length)];
+            samples = current.data.duplicate().order(current.data.order()).asShortBuffer();
+        }
+        AudioTrack created = createTrack(current);
+        if (created == null) {
+            playing = false;
+            return;
+        }
+        track = created;
+
+        // 每个播放器使用独立的视图，互不影响读取位置
+        ByteBuffer data = current.data.duplicate();
+        int frameBytes = current.channelCount * 2;
+        long startFrame = pendingSeekFrame >= 0 ? pendingSeekFrame : 0;
+        pendingSeekFrame = -1;
+        data.position((int) (startFrame * frameBytes));
+        segmentStartFrame = startFrame;
+        try {
+            while (running) {
+                synchronized (lock) {
+                    while (running && !playing && pendingSeekFrame < 0) {
+                        lock.wait();
+                    }
+                    if (!running) {
+                        break;
+                    }
+                    if (pendingSeekFrame >= 0) {
+                        long frame = Math.min(pendingSeekFrame, current.frameCount - 1);
+                        pendingSeekFrame = -1;
+                        data.position((int) (frame * frameBytes));
+                        segmentStartFrame = frame;
+                        if (resampler != null) {
+                            resampler.reset();
+                        }
+                    }
+                    if (playing && created.getPlayState() != AudioTrack.PLAYSTATE_PLAYING) {
+                        created.play();
+                    }
+                }
+                if (!playing) {
+                    continue;
+                }
+
+                if (!data.hasRemaining()) {
+                    if (!looping) {
+                        drainAndComplete(created, current);
+                        break;
+                    }
+                    // 直接从头继续写入，循环边界没有间隙
+                    data.position(0);
+                    loops++;
+                    EventJournal.record(EventJournal.Type.LOOP, playerNumber, EventJournal.SOURCE_CLIP, loops);
+                }
+                int size = Math.min(WRITE_BYTES, data.remaining());
+                int written;
+                if (resampler != null) {
+                    // 循环时重采样的滤波历史保持连续，边界处同样没有间隙
+                    samples.position(data.position() / 2);
+                    samples.get(input, 0, size / 2);
+                    data.position(data.position() + size);
+                    written = created.write(resampled, 0, resampler.process(input, size / 2, resampled),
+                            AudioTrack.WRITE_BLOCKING);
+                } else {
+                    written = created.write(data, size, AudioTrack.WRITE_BLOCKING);
+                }
+                if (written < 0) {
+                    Log.e(TAG, "写入失败: " + written);
+                    break;
+                }
+                underruns.check(created);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            synchronized (lock) {
+                track = null;
+                created.release();
+            }
+        }
+    }
+
+    private AudioTrack createTrack(PcmClipCache.Clip current) {
+        int channelMask = PcmDecoder.channelMaskFor(current.channelCount);
+        try {
+            int minBuffer = AudioTrack.getMinBufferSize(outputRate, channelMask,
+                    AudioFormat.ENCODING_PCM_16BIT);
+            AudioTrack created = new AudioTrack.Builder()
+                    .setAudioAttributes(new AudioAttributes.Builder()
+                            .setUsage(AudioAttributes.USAGE_MEDIA)
+                            .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
+                            .build())
+                    .setAudioFormat(new AudioFormat.Builder()
+                            .setSampleRate(outputRate)
+                            .setChannelMask(channelMask)
+                            .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                            .build())
+                    .setBufferSizeInBytes(Math.max(minBuffer, WRITE_BYTES) * 2)
+                    .setTransferMode(AudioTrack.MODE_STREAM)
+                    .build();
+            created.setVolume(volume);
+            if (device != null) {
+                created.setPreferredDevice(device);
+            }
+            return created;
+        } catch (Exception e) {
+            Log.e(TAG, "创建AudioTrack失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // 非循环播放结束时等待缓冲区播放完再通知
+    private void drainAndComplete(AudioTrack created, PcmClipCache.Clip current) throws InterruptedException {
+        long target = (current.frameCount - segmentStartFrame) * outputRate / current.sampleRate;
+        long deadline = SystemClock.uptimeMillis() + 2000;
+        while (running && (created.getPlaybackHeadPosition() & 0xFFFFFFFFL) < target
+                && SystemClock.uptimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        created.stop();
+        playing = false;
+        mainHandler.post(() -> {
+            if (completionListener != null) {
+                completionListener.onCompletion(this);
+            }
+        });
+    }
+
+    @Override
+    public String getStatsSummary() {
+        PcmClipCache.Clip current = clip;
+        String format = current != null
+                ? current.sampleRate + "Hz " + current.channelCount + "声道 " + current.getDurationUs() / 1000 + "ms"
+                : "准备中";
+        String path = outputPath != null ? "\n输出格式: " + outputPath : "";
+        return String.format(Locale.US, "内存循环播放: %s 已循环 %d 次%s\n%s", format, loops, path,
+                cache.getStatsSummary());
+    }
+}
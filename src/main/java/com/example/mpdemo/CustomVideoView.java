@@ -17,15 +17,26 @@
 package com.example.mpdemo;
 
 import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
 import android.media.AudioDeviceInfo;
 import android.media.MediaPlayer;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.util.Size;
+import android.view.Surface;
+import android.view.SurfaceHolder;
 import android.widget.VideoView;
 
 import java.lang.reflect.Field;
 
 public class CustomVideoView extends VideoView {
+    private RenderResolutionPolicy renderPolicy = RenderResolutionPolicy.FULL;
+    private PolicyHolder policyHolder;  // 在父类构造函数中创建，不能有初始值
+    private int sourceWidth;
+    private int sourceHeight;
+    private Size bufferSize;
+
     public CustomVideoView(Context context) {
         super(context);
     }
@@ -38,13 +49,132 @@ public class CustomVideoView extends VideoView {
         super(context, attrs, defStyleAttr);
     }
 
-    // 提供方法访问内部的MediaPlayer
-    public void setPreferredDevice(AudioDeviceInfo deviceInfo) {
+    // 使用反射获取VideoView内部的MediaPlayer实例，未打开视频时返回null
+    public MediaPlayer getMediaPlayer() {
         try {
-            // 使用反射获取内部MediaPlayer实例
             Field field = VideoView.class.getDeclaredField("mMediaPlayer");
             field.setAccessible(true);
-            MediaPlayer mediaPlayer = (MediaPlayer) field.get(this);
+            return (MediaPlayer) field.get(this);
+        } catch (Exception e) {
+            Log.e("CustomVideoView", "获取内部MediaPlayer失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // VideoView在准备完成和视频尺寸变化时用getHolder().setFixedSize()设为源分辨率，
+    // 这里返回包装的SurfaceHolder，按缓冲区尺寸策略调整后再设置
+    @Override
+    public SurfaceHolder getHolder() {
+        if (policyHolder == null) {
+            policyHolder = new PolicyHolder(super.getHolder());
+        }
+        return policyHolder;
+    }
+
+    // 设置缓冲区尺寸策略，已经在播放时立即按新策略调整
+    public void setRenderPolicy(RenderResolutionPolicy policy) {
+        renderPolicy = policy;
+        if (sourceWidth > 0 && sourceHeight > 0) {
+            getHolder().setFixedSize(sourceWidth, sourceHeight);
+        }
+    }
+
+    public RenderResolutionPolicy getRenderPolicy() {
+        return renderPolicy;
+    }
+
+    // 当前缓冲区尺寸与源分辨率的对比，未播放视频时返回空字符串
+    public String getRenderStatsSummary() {
+        if (bufferSize == null) {
+            return "";
+        }
+        return "缓冲区策略: " + renderPolicy + " 源 " + sourceWidth + "x" + sourceHeight
+                + " 缓冲区 " + bufferSize.getWidth() + "x" + bufferSize.getHeight();
+    }
+
+    private class PolicyHolder implements SurfaceHolder {
+        private final SurfaceHolder holder;
+
+        PolicyHolder(SurfaceHolder holder) {
+            this.holder = holder;
+        }
+
+        @Override
+        public void setFixedSize(int width, int height) {
+            sourceWidth = width;
+            sourceHeight = height;
+            RenderResolutionPolicy policy = renderPolicy != null ? renderPolicy : RenderResolutionPolicy.FULL;
+            bufferSize = policy.bufferSize(width, height, getWidth(), getHeight());
+            holder.setFixedSize(bufferSize.getWidth(), bufferSize.getHeight());
+            Log.d("CustomVideoView", "缓冲区尺寸: " + getRenderStatsSummary());
+        }
+
+        @Override
+        public void addCallback(Callback callback) {
+            holder.addCallback(callback);
+        }
+
+        @Override
+        public void removeCallback(Callback callback) {
+            holder.removeCallback(callback);
+        }
+
+        @Override
+        public boolean isCreating() {
+            return holder.isCreating();
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public void setType(int type) {
+            holder.setType(type);
+        }
+
+        @Override
+        public void setSizeFromLayout() {
+            holder.setSizeFromLayout();
+        }
+
+        @Override
+        public void setFormat(int format) {
+            holder.setFormat(format);
+        }
+
+        @Override
+        public void setKeepScreenOn(boolean screenOn) {
+            holder.setKeepScreenOn(screenOn);
+        }
+
+        @Override
+        public Canvas lockCanvas() {
+            return holder.lockCanvas();
+        }
+
+        @Override
+        public Canvas lockCanvas(Rect dirty) {
+            return holder.lockCanvas(dirty);
+        }
+
+        @Override
+        public void unlockCanvasAndPost(Canvas canvas) {
+            holder.unlockCanvasAndPost(canvas);
+        }
+
+        @Override
+        public Rect getSurfaceFrame() {
+            return holder.getSurfaceFrame();
+        }
+
+        @Override
+        public Surface getSurface() {
+            return holder.getSurface();
+        }
+    }
+
+    // 提供方法访问内部的MediaPlayer
+    public void setPreferredDevice(AudioDeviceInfo deviceInfo) {
+        try {
+            MediaPlayer mediaPlayer = getMediaPlayer();
 
             if (mediaPlayer != null) {
                 boolean success = mediaPlayer.setPreferredDevice(deviceInfo);
@@ -60,10 +190,7 @@ public class CustomVideoView extends VideoView {
     // 设置视频音量
     public void setVideoVolume(float volume) {
         try {
-            // 使用反射获取内部MediaPlayer实例
-            Field field = VideoView.class.getDeclaredField("mMediaPlayer");
-            field.setAccessible(true);
-            MediaPlayer mediaPlayer = (MediaPlayer) field.get(this);
+            MediaPlayer mediaPlayer = getMediaPlayer();
 
             if (mediaPlayer != null) {
                 // 设置音量 (左右声道相同)
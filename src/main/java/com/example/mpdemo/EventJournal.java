@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 长时间拷机用的二进制事件日志
+ *
+ * 播放相关线程调用record()把定长事件写入无锁环形缓冲区：一次CAS占位、三个long写入、一次发布，
+ * 不分配对象也不做IO。后台线程每隔FLUSH_INTERVAL_MS把已发布的事件批量追加到内存映射文件，
+ * 文件头中的事件数在每批之后更新，进程异常退出时已写入的事件仍然完整。
+ * 缓冲区满时事件被丢弃并计数，下一批写入一条DROPPED事件记录丢弃数量。
+ *
+ * 文件格式(小端)：32字节文件头 {int MAGIC, short VERSION, short RECORD_SIZE,
+ * long 打开时的墙上时间ms, long 打开时的System.nanoTime(), long 事件数}，
+ * 之后每条事件24字节 {long nanoTime, short 类型, short 播放器编号, int arg, long value}。
+ * 只依赖Java标准库，主机上的解码工具MPDemoJournalDecode直接使用这里的格式定义。
+ */
+public final class EventJournal {
+    public static final int MAGIC = 0x4A45504D; // 小端写入后文件开头为"MPEJ"
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+    public static final int RECORD_SIZE = 24;
+    public static final int OFFSET_WALL_CLOCK_MS = 8;
+    public static final int OFFSET_BASE_NANOS = 16;
+    public static final int OFFSET_RECORD_COUNT = 24;
+
+    // UNDERRUN和LOOP事件的arg：事件来源
+    public static final int SOURCE_ACTIVITY = 0;
+    public static final int SOURCE_CLIP = 1;
+    public static final int SOURCE_FANOUT = 2;
+    public static final int SOURCE_OFFLOAD = 3;
+    public static final int SOURCE_MIXER = 4;
+
+    /**
+     * 事件类型，按ordinal写入文件，只能在末尾追加
+     */
+    public enum Type {
+        PICK,       // 选择了新的媒体
+        PREPARED,   // value: 选择到准备完成的毫秒数
+        SEEK,       // value: seek耗时毫秒
+        LOOP,       // arg: 来源
+        ROUTE,      // arg: 输出设备id
+        ERROR,      // arg: what, value: extra
+        UNDERRUN,   // arg: 来源, value: 新增的underrun次数, 播放器编号0表示软件混音器的共用输出
+        COMPLETION,
+        DROPPED     // value: 缓冲区满时丢弃的事件数
+    }
+
+    private static final int CAPACITY = 4096;  // 必须是2的幂
+    private static final int MASK = CAPACITY - 1;
+    private static final long FLUSH_INTERVAL_MS = 500;
+    private static final int RECORDS_PER_CHUNK = 1 << 15;  // 每次映射768KB
+    private static final long MAX_RECORDS = (256L << 20) / RECORD_SIZE;
+
+    private static volatile EventJournal active;
+
+    // 环形缓冲区：按序号取模存放，published[i]等于序号时该位置的数据已写完
+    private final long[] times = new long[CAPACITY];
+    private final long[] codes = new long[CAPACITY];
+    private final long[] values = new long[CAPACITY];
+    private final AtomicLongArray published = new AtomicLongArray(CAPACITY);
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    // 以下只在刷写线程访问
+    private MappedByteBuffer chunk;
+    private long recordCount;
+    private long totalDropped;
+
+    private EventJournal(File file) throws IOException {
+        this.file = file;
+        for (int i = 0; i < CAPACITY; i++) {
+            published.set(i, -1);
+        }
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0, MAGIC);
+        header.putShort(4, VERSION);
+        header.putShort(6, (short) RECORD_SIZE);
+        header.putLong(OFFSET_WALL_CLOCK_MS, System.currentTimeMillis());
+        header.putLong(OFFSET_BASE_NANOS, System.nanoTime());
+        header.putLong(OFFSET_RECORD_COUNT, 0);
+        flusher = new Thread(this::flushLoop, "EventJournal");
+        flusher.setPriority(Thread.MIN_PRIORITY);
+    }
+
+    /**
+     * 创建日志文件并开始记录，已有正在记录的日志时先关闭
+     */
+    public static synchronized EventJournal open(File file) throws IOException {
+        close();
+        EventJournal journal = new EventJournal(file);
+        journal.flusher.start();
+        active = journal;
+        return journal;
+    }
+
+    /**
+     * 停止记录，写入剩余事件并关闭文件
+     */
+    public static synchronized void close() {
+        EventJournal journal = active;
+        if (journal == null) {
+            return;
+        }
+        active = null;
+        journal.running = false;
+        LockSupport.unpark(journal.flusher);
+        try {
+            journal.flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static EventJournal getActive() {
+        return active;
+    }
+
+    /**
+     * 记录一条事件，没有打开日志时直接返回。任意线程可调用
+     */
+    public static void record(Type type, int slot, int arg, long value) {
+        EventJournal journal = active;
+        if (journal != null) {
+            journal.append(type, slot, arg, value);
+        }
+    }
+
+    private void append(Type type, int slot, int arg, long value) {
+        long now = System.nanoTime();
+        long seq;
+        do {
+            seq = head.get();
+            if (seq - tail.get() >= CAPACITY) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!head.compareAndSet(seq, seq + 1));
+        int index = (int) seq & MASK;
+        times[index] = now;
+        codes[index] = pack(type, slot, arg);
+        values[index] = value;
+        published.lazySet(index, seq);
+    }
+
+    private static long pack(Type type, int slot, int arg) {
+        return ((long) type.ordinal() << 48) | ((long) (slot & 0xFFFF) << 32) | (arg & 0xFFFFFFFFL);
+    }
+
+    private void flushLoop() {
+        try {
+            while (running) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MS));
+                drain();
+            }
+            drain();
+            header.force();
+            if (chunk != null) {
+                chunk.force();
+            }
+        } catch (IOException e) {
+            System.err.println("EventJournal: 写入失败: " + e.getMessage());
+        } finally {
+            try {
+                raf.close();
+            } catch (IOException ignored) {
+                // 关闭失败时已写入的事件仍在文件中
+            }
+        }
+    }
+
+    // 按序号依次取出已发布的事件，遇到尚未写完的位置时留到下一批
+    private void drain() throws IOException {
+        long seq = tail.get();
+        boolean wrote = false;
+        while (true) {
+            int index = (int) seq & MASK;
+            if (published.get(index) != seq) {
+                break;
+            }
+            writeRecord(times[index], codes[index], values[index]);
+            seq++;
+            tail.lazySet(seq);
+            wrote = true;
+        }
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            totalDropped += lost;
+            writeRecord(System.nanoTime(), pack(Type.DROPPED, 0, 0), lost);
+            wrote = true;
+        }
+        if (wrote) {
+            header.putLong(OFFSET_RECORD_COUNT, recordCount);
+        }
+    }
+
+    private void writeRecord(long time, long code, long value) throws IOException {
+        if (recordCount >= MAX_RECORDS) {
+            totalDropped++;
+            return;
+        }
+        if (chunk == null || !chunk.hasRemaining()) {
+            long position = HEADER_SIZE + recordCount * RECORD_SIZE;
+            chunk = channel.map(FileChannel.MapMode.READ_WRITE, position, (long) RECORDS_PER_CHUNK * RECORD_SIZE);
+            chunk.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        chunk.putLong(time);
+        chunk.putShort((short) (code >>> 48));
+        chunk.putShort((short) (code >>> 32));
+        chunk.putInt((int) code);
+        chunk.putLong(value);
+        recordCount++;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public String getStatsSummary() {
+        // recordCount和totalDropped由刷写线程更新，这里读到的是近似值
+        return String.format(Locale.US, "事件记录: 已记录 %d 条 缓冲中 %d 条 丢弃 %d 条\n文件: %s",
+                recordCount, head.get() - tail.get(), totalDropped + dropped.get(), file.getAbsolutePath());
+    }
+}
@@ -0,0 +1,486 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.AudioDeviceInfo;
+import android.media.AudioFormat;
+import android.media.AudioTimestamp;
+import android.media.AudioTrack;
+import android.net.Uri;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 一次解码、同时输出到多个设备的音频播放
+ *
+ * 解码线程用PcmDecoder解码一次，把同一块PCM依次写入每个输出设备各自的AudioTrack，
+ * CPU占用只和音源数量有关，与输出数量无关。各路增益通过AudioTrack.setVolume设置，不额外处理样本。
+ * 各设备的硬件时钟存在细微差异，解码线程定期用AudioTimestamp比较各路实际输出到的帧位置，
+ * 以第一路为基准，对超前或落后的输出插入或丢弃少量帧，保持各路样本对齐。
+ * 输出采样率取所有设备共同支持的采样率，与源不同时在写入前统一重采样一次，各路共用结果。
+ */
+public class FanOutPlayer implements PcmPlayback {
+    private static final String TAG = "FanOutPlayer";
+
+    private static final int CHUNK_FRAMES = 1024;
+    private static final long ALIGN_INTERVAL_MS = 500;  // 对齐检查周期，需要大于AudioTrack缓冲延迟
+    private static final int MAX_ADJUST_FRAMES = 8;     // 每次最多插入或丢弃的帧数
+
+    private final Context context;
+    private final Uri uri;
+    private final AudioDeviceInfo[] devices;
+    private final float[] gains;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Object lock = new Object();
+    private final int playerNumber;
+    private final UnderrunCounter underruns; // 只在写入线程使用
+
+    private Thread thread;
+    private volatile AudioTrack[] tracks;
+    private volatile boolean running;
+    private volatile boolean playing;
+    private volatile boolean looping;
+    private volatile long pendingSeekUs = -1;
+    private volatile float volume = 1.0f;
+    private volatile int sampleRate;       // AudioTrack的采样率
+    private volatile String outputPath;
+    private volatile long durationUs;
+    private OnCompletionListener completionListener;
+
+    // 播放位置：当前片段起点的媒体时间和第一路对应的已播放帧数
+    private volatile long segmentStartUs;
+
+    // 对齐统计
+    private final long[] adjustedFrames;   // 各路累计插入(正)或丢弃(负)的帧数
+    private final int[] pendingAdjust;     // 下一次写入时需要插入或丢弃的帧数
+    private long framesWrittenFirst;       // 当前片段写入第一路的帧数
+    private volatile long alignCorrections;
+    private volatile long lastMaxSkewFrames;
+    private volatile long decodeCpuNs;
+    private volatile long decodeWallNs;
+
+    public FanOutPlayer(Context context, int playerNumber, Uri uri, List<AudioDeviceInfo> outputs) {
+        this.context = context.getApplicationContext();
+        this.playerNumber = playerNumber;
+        this.underruns = new UnderrunCounter(playerNumber, EventJournal.SOURCE_FANOUT);
+        this.uri = uri;
+        this.devices = outputs.toArray(new AudioDeviceInfo[0]);
+        this.gains = new float[devices.length];
+        this.adjustedFrames = new long[devices.length];
+        this.pendingAdjust = new int[devices.length];
+        for (int i = 0; i < gains.length; i++) {
+            gains[i] = 1.0f;
+        }
+    }
+
+    /**
+     * 设置某一路输出的增益(0~1)，与整体音量相乘
+     */
+    public void setOutputGain(int index, float gain) {
+        gains[index] = gain;
+        applyVolume();
+    }
+
+    public int getOutputCount() {
+        return devices.length;
+    }
+
+    @Override
+    public void start() {
+        if (thread == null || !thread.isAlive()) {
+            // 首次启动或非循环播放结束后重新开始
+            running = true;
+            playing = true;
+            if (pendingSeekUs < 0) {
+                segmentStartUs = 0;
+            }
+            thread = new Thread(this::decodeLoop, "FanOutPlayer");
+            thread.start();
+            return;
+        }
+        synchronized (lock) {
+            playing = true;
+            AudioTrack[] current = tracks;
+            if (current != null) {
+                for (AudioTrack track : current) {
+                    track.play();
+                }
+            }
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public void pause() {
+        synchronized (lock) {
+            playing = false;
+            AudioTrack[] current = tracks;
+            if (current != null) {
+                for (AudioTrack track : current) {
+                    track.pause();
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        long played;
+        // 播放线程在同一个锁内释放AudioTrack，这里不会用到已释放的AudioTrack
+        synchronized (lock) {
+            AudioTrack[] current = tracks;
+            if (current == null || sampleRate == 0) {
+                return (int) (segmentStartUs / 1000);
+            }
+            played = current[0].getPlaybackHeadPosition() & 0xFFFFFFFFL;
+        }
+        long positionUs = segmentStartUs + played * 1000000L / sampleRate;
+        if (looping && durationUs > 0) {
+            positionUs %= durationUs;
+        }
+        return (int) (Math.min(positionUs, durationUs > 0 ? durationUs : positionUs) / 1000);
+    }
+
+    @Override
+    public int getDuration() {
+        return (int) (durationUs / 1000);
+    }
+
+    @Override
+    public void seekTo(int positionMs) {
+        synchronized (lock) {
+            pendingSeekUs = positionMs * 1000L;
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public void setVolume(float volume) {
+        this.volume = volume;
+        applyVolume();
+    }
+
+    private void applyVolume() {
+        synchronized (lock) {
+            AudioTrack[] current = tracks;
+            if (current != null) {
+                for (int i = 0; i < current.length; i++) {
+                    current[i].setVolume(volume * gains[i]);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void setLooping(boolean looping) {
+        this.looping = looping;
+    }
+
+    @Override
+    public void setPreferredDevice(AudioDeviceInfo device) {
+        // 输出设备在创建时指定，这里不改变
+        Log.d(TAG, "扇出模式忽略单一输出设备设置");
+    }
+
+    @Override
+    public void setOnCompletionListener(OnCompletionListener listener) {
+        this.completionListener = listener;
+    }
+
+    @Override
+    public void release() {
+        synchronized (lock) {
+            running = false;
+            playing = false;
+            lock.notifyAll();
+            AudioTrack[] current = tracks;
+            if (current != null) {
+                // 停止后阻塞中的write会立即返回
+                for (AudioTrack track : current) {
+                    track.pause();
+                    track.flush();
+                }
+            }
+        }
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+        completionListener = null;
+    }
+
+    private void decodeLoop() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+        PcmDecoder decoder = new PcmDecoder();
+        AudioTrack[] created = null;
+        try {
+            decoder.open(context, uri);
+            durationUs = decoder.getDurationUs();
+
+            // 第一块数据之后解码器才给出实际的输出格式
+            short[] chunk = new short[CHUNK_FRAMES * 8];
+            int count = decoder.read(chunk, 0, CHUNK_FRAMES * decoder.getChannelCount());
+            int channels = decoder.getChannelCount();
+            OutputFormatMatcher.Decision decision = OutputFormatMatcher.choose(context, devices,
+                    decoder.getSampleRate(), channels);
+            sampleRate = decision.outputRate;
+            outputPath = decision.describe();
+            SincResampler resampler = null;
+            short[] resampled = null;
+            if (decision.needsResample()) {
+                resampler = new SincResampler(decision.sourceRate, decision.outputRate, channels);
+                resampled = new short[resampler.maxOutputSamples(chunk.length)];
+            }
+            created = createTracks(sampleRate, channels);
+            if (created == null) {
+                return;
+            }
+            synchronized (lock) {
+                tracks = created;
+            }
+            applyVolume();
+
+            long cpuStart = Debug.threadCpuTimeNanos();
+            long wallStart = SystemClock.elapsedRealtimeNanos();
+            long lastAlign = SystemClock.uptimeMillis();
+            boolean started = false;
+            while (running) {
+                if (!waitWhilePaused()) {
+                    break;
+                }
+                long seekUs = pendingSeekUs;
+                if (seekUs >= 0) {
+                    pendingSeekUs = -1;
+                    seekTracks(created, decoder, seekUs);
+                    count = 0;
+                    if (resampler != null) {
+                        resampler.reset();
+                    }
+                }
+
+                if (count > 0) {
+                    if (resampler != null) {
+                        writeToAll(created, resampled, resampler.process(chunk, count, resampled), channels);
+                    } else {
+                        writeToAll(created, chunk, count, channels);
+                    }
+                    underruns.check(created);
+                    if (!started) {
+                        // 各路预先写入同一块数据后再一起启动
+                        for (AudioTrack track : created) {
+                            track.play();
+                        }
+                        started = true;
+                    }
+                }
+
+                count = decoder.read(chunk, 0, CHUNK_FRAMES * channels);
+                if (count < 0) {
+                    if (looping) {
+                        decoder.seekTo(0);
+                        count = 0;
+                        continue;
+                    }
+                    drainAndComplete(created);
+                    break;
+                }
+
+                long now = SystemClock.uptimeMillis();
+                if (now - lastAlign >= ALIGN_INTERVAL_MS) {
+                    lastAlign = now;
+                    checkAlignment(created);
+                    decodeCpuNs = Debug.threadCpuTimeNanos() - cpuStart;
+                    decodeWallNs = SystemClock.elapsedRealtimeNanos() - wallStart;
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "扇出播放失败: " + e.getMessage());
+        } finally {
+            decoder.release();
+            synchronized (lock) {
+                tracks = null;
+                if (created != null) {
+                    for (AudioTrack track : created) {
+                        track.release();
+                    }
+                }
+            }
+        }
+    }
+
+    private AudioTrack[] createTracks(int rate, int channels) {
+        int channelMask = PcmDecoder.channelMaskFor(channels);
+        int minBuffer = AudioTrack.getMinBufferSize(rate, channelMask, AudioFormat.ENCODING_PCM_16BIT);
+        AudioTrack[] result = new AudioTrack[devices.length];
+        try {
+            for (int i = 0; i < devices.length; i++) {
+                // 各路缓冲区大小相同，写入节奏一致
+                result[i] = new AudioTrack.Builder()
+                        .setAudioAttributes(new AudioAttributes.Builder()
+                                .setUsage(AudioAttributes.USAGE_MEDIA)
+                                .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
+                                .build())
+                        .setAudioFormat(new AudioFormat.Builder()
+                                .setSampleRate(rate)
+                                .setChannelMask(channelMask)
+                                .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                                .build())
+                        .setBufferSizeInBytes(Math.max(minBuffer, CHUNK_FRAMES * channels * 2) * 2)
+                        .setTransferMode(AudioTrack.MODE_STREAM)
+                        .build();
+                result[i].setPreferredDevice(devices[i]);
+            }
+            Log.d(TAG, "创建 " + devices.length + " 路输出: " + rate + "Hz " + channels + "声道");
+            return result;
+        } catch (Exception e) {
+            Log.e(TAG, "创建AudioTrack失败: " + e.getMessage());
+            for (AudioTrack track : result) {
+                if (track != null) {
+                    track.release();
+                }
+            }
+            return null;
+        }
+    }
+
+    // 暂停时等待，返回false表示已释放
+    private boolean waitWhilePaused() throws InterruptedException {
+        synchronized (lock) {
+            while (running && !playing && pendingSeekUs < 0) {
+                lock.wait();
+            }
+        }
+        return running;
+    }
+
+    private void writeToAll(AudioTrack[] created, short[] chunk, int count, int channels) {
+        for (int i = 0; i < created.length; i++) {
+            int offset = 0;
+            long adjust = adjustedFrames[i];
+            if (pendingAdjust[i] > 0) {
+                // 该路超前：重复写入开头几帧，让它晚一点
+                int frames = Math.min(pendingAdjust[i], count / channels);
+                created[i].write(chunk, 0, frames * channels);
+                adjust += frames;
+            } else if (pendingAdjust[i] < 0) {
+                // 该路落后：跳过开头几帧
+                offset = Math.min(-pendingAdjust[i] * channels, count);
+                adjust += pendingAdjust[i];
+            }
+            pendingAdjust[i] = 0;
+            adjustedFrames[i] = adjust;
+            created[i].write(chunk, offset, count - offset);
+        }
+        framesWrittenFirst += count / channels;
+    }
+
+    // 以第一路为基准比较此刻各路实际输出的内容帧位置
+    private void checkAlignment(AudioTrack[] created) {
+        if (created.length < 2) {
+            return;
+        }
+        AudioTimestamp timestamp = new AudioTimestamp();
+        long now = System.nanoTime();
+        if (!created[0].getTimestamp(timestamp)) {
+            return;
+        }
+        long reference = presentedFrameAt(timestamp, now);
+        long maxSkew = 0;
+        for (int i = 1; i < created.length; i++) {
+            if (!created[i].getTimestamp(timestamp)) {
+                continue;
+            }
+            // 扣除该路累计插入或丢弃的帧，得到内容上的帧位置
+            long skew = presentedFrameAt(timestamp, now) - adjustedFrames[i] - reference;
+            maxSkew = Math.max(maxSkew, Math.abs(skew));
+            if (Math.abs(skew) > sampleRate / 1000) {
+                int frames = (int) Math.max(-MAX_ADJUST_FRAMES, Math.min(MAX_ADJUST_FRAMES, skew));
+                pendingAdjust[i] = frames;
+                alignCorrections++;
+            }
+        }
+        lastMaxSkewFrames = maxSkew;
+    }
+
+    private long presentedFrameAt(AudioTimestamp timestamp, long nowNanos) {
+        return timestamp.framePosition + (nowNanos - timestamp.nanoTime) * sampleRate / 1000000000L;
+    }
+
+    private void seekTracks(AudioTrack[] created, PcmDecoder decoder, long seekUs) {
+        for (AudioTrack track : created) {
+            track.pause();
+            track.flush();
+        }
+        decoder.seekTo(seekUs);
+        segmentStartUs = seekUs;
+        framesWrittenFirst = 0;
+        for (int i = 0; i < adjustedFrames.length; i++) {
+            adjustedFrames[i] = 0;
+        }
+        if (playing) {
+            for (AudioTrack track : created) {
+                track.play();
+            }
+        }
+    }
+
+    // 非循环播放结束时等待缓冲区播放完再通知
+    private void drainAndComplete(AudioTrack[] created) throws InterruptedException {
+        long deadline = SystemClock.uptimeMillis() + 2000;
+        while (running && (created[0].getPlaybackHeadPosition() & 0xFFFFFFFFL) < framesWrittenFirst
+                && SystemClock.uptimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        for (AudioTrack track : created) {
+            track.stop();
+        }
+        playing = false;
+        mainHandler.post(() -> {
+            if (completionListener != null) {
+                completionListener.onCompletion(this);
+            }
+        });
+    }
+
+    @Override
+    public String getStatsSummary() {
+        double cpuPercent = decodeWallNs > 0 ? decodeCpuNs * 100.0 / decodeWallNs : 0;
+        return String.format(Locale.US,
+                "扇出播放: 解码1路 输出%d路 解码线程CPU %.1f%% 最大偏差 %d帧 对齐调整 %d 次\n输出格式: %s",
+                devices.length, cpuPercent, lastMaxSkewFrames, alignCorrections,
+                outputPath != null ? outputPath : "准备中");
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.provider.DocumentsContract;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 并行扫描通过ACTION_OPEN_DOCUMENT_TREE选择的文件夹
+ *
+ * 每个子目录作为一个独立任务提交到与CPU核数相同的线程池，
+ * 发现的可播放文件先放入无锁队列，再批量投递到主线程，
+ * 这样第一个可播放文件找到后即可开始播放，不需要等整个目录树扫描完成。
+ */
+public class FolderScanner {
+    private static final String TAG = "FolderScanner";
+
+    private static final String[] PROJECTION = {
+            DocumentsContract.Document.COLUMN_DOCUMENT_ID,
+            DocumentsContract.Document.COLUMN_MIME_TYPE,
+            DocumentsContract.Document.COLUMN_DISPLAY_NAME,
+    };
+
+    /**
+     * 扫描结果回调，均在主线程调用
+     */
+    public interface Listener {
+        void onMediaFound(List<Uri> items);
+
+        void onScanFinished(int totalCount);
+    }
+
+    private final ContentResolver resolver;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Scan current;   // 只在主线程访问
+
+    /**
+     * 一次扫描的全部状态。每次scan()创建新的实例，已取消的扫描中仍在运行的任务
+     * 只会修改自己的计数和队列，投递到主线程的结果在扫描已被替换或取消时丢弃
+     */
+    private final class Scan {
+        final ExecutorService pool;
+        final Uri treeUri;
+        final Listener listener;
+        final ConcurrentLinkedQueue<Uri> found = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean drainScheduled = new AtomicBoolean();
+        final AtomicInteger pendingDirs = new AtomicInteger(1);
+        final AtomicInteger totalFound = new AtomicInteger();
+        volatile boolean cancelled;
+
+        Scan(ExecutorService pool, Uri treeUri, Listener listener) {
+            this.pool = pool;
+            this.treeUri = treeUri;
+            this.listener = listener;
+        }
+
+        void scanDirectory(String documentId) {
+            try {
+                if (cancelled) {
+                    return;
+                }
+                Uri childrenUri = DocumentsContract.buildChildDocumentsUriUsingTree(treeUri, documentId);
+                try (Cursor cursor = resolver.query(childrenUri, PROJECTION, null, null, null)) {
+                    if (cursor == null) {
+                        return;
+                    }
+                    while (cursor.moveToNext() && !cancelled) {
+                        String childId = cursor.getString(0);
+                        String mimeType = cursor.getString(1);
+                        String name = cursor.getString(2);
+
+                        if (DocumentsContract.Document.MIME_TYPE_DIR.equals(mimeType)) {
+                            // 子目录交给线程池并行扫描
+                            pendingDirs.incrementAndGet();
+                            pool.execute(() -> scanDirectory(childId));
+                        } else if (isPlayable(mimeType, name)) {
+                            found.add(DocumentsContract.buildDocumentUriUsingTree(treeUri, childId));
+                            totalFound.incrementAndGet();
+                            scheduleDrain();
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "扫描目录失败: " + documentId + " " + e.getMessage());
+            } finally {
+                if (pendingDirs.decrementAndGet() == 0 && !cancelled) {
+                    scheduleDrain();
+                    mainHandler.post(this::finish);
+                }
+            }
+        }
+
+        // 合并多次发现，一次投递到主线程
+        void scheduleDrain() {
+            if (drainScheduled.compareAndSet(false, true)) {
+                mainHandler.post(this::drain);
+            }
+        }
+
+        boolean isCurrent() {
+            return !cancelled && current == this;
+        }
+
+        void drain() {
+            drainScheduled.set(false);
+            if (!isCurrent()) {
+                return;
+            }
+            List<Uri> batch = new ArrayList<>();
+            Uri uri;
+            while ((uri = found.poll()) != null) {
+                batch.add(uri);
+            }
+            if (!batch.isEmpty()) {
+                listener.onMediaFound(batch);
+            }
+        }
+
+        void finish() {
+            if (!isCurrent()) {
+                return;
+            }
+            drain();
+            Log.d(TAG, "扫描完成，共 " + totalFound.get() + " 个媒体文件");
+            current = null;
+            pool.shutdown();
+            listener.onScanFinished(totalFound.get());
+        }
+    }
+
+    public FolderScanner(Context context) {
+        this.resolver = context.getApplicationContext().getContentResolver();
+    }
+
+    /**
+     * 开始扫描文件夹，会取消之前未完成的扫描
+     */
+    public void scan(Uri treeUri, Listener listener) {
+        cancel();
+
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                r.run();
+            }, "FolderScanner-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        String rootId = DocumentsContract.getTreeDocumentId(treeUri);
+        Log.d(TAG, "开始扫描: " + treeUri + " 线程数: " + threads);
+        Scan scan = new Scan(pool, treeUri, listener);
+        current = scan;
+        pool.execute(() -> scan.scanDirectory(rootId));
+    }
+
+    public void cancel() {
+        Scan scan = current;
+        current = null;
+        if (scan != null) {
+            scan.cancelled = true;
+            scan.pool.shutdownNow();
+        }
+    }
+
+    // 优先使用文档提供者给出的mime类型，未知类型再看扩展名，扩展名列表与播放时的判断相同
+    static boolean isPlayable(String mimeType, String name) {
+        if (mimeType != null && (mimeType.startsWith("audio/") || mimeType.startsWith("video/"))) {
+            return true;
+        }
+        if (name == null) {
+            return false;
+        }
+        String extension = PlaybackLogic.getFileExtension(name);
+        return PlaybackLogic.isAudioFile(extension) || PlaybackLogic.isVideoFile(extension);
+    }
+}
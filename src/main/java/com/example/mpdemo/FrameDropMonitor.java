@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.app.Activity;
+import android.media.MediaPlayer;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.PersistableBundle;
+import android.os.SystemClock;
+import android.util.SparseArray;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Locale;
+
+/**
+ * 视频丢帧与界面卡顿监测
+ *
+ * 视频：VideoView内部是MediaPlayer，拿不到MediaCodec的逐帧渲染回调，
+ * 因此每秒读取一次getMetrics()中的已渲染帧数和丢帧数，按区间统计丢帧率，
+ * 并用每秒实际渲染帧数与内容帧率的偏差衡量输出节奏的抖动。
+ * 界面：通过Window.OnFrameMetricsAvailableListener统计主窗口每一帧的耗时，
+ * 超过一个刷新周期的帧按主线程(输入、动画、布局、绘制)和渲染线程(同步、提交、交换)分别计数，
+ * 用来区分解码跟不上和MainActivity界面代码导致的卡顿。
+ */
+public class FrameDropMonitor implements Window.OnFrameMetricsAvailableListener {
+    private static final long SAMPLE_INTERVAL_MS = 1000;
+
+    private static class VideoSlot {
+        final String droppedCounter;
+        MediaPlayer player;         // 用于判断播放器是否已经更换
+        float contentFps;
+        long lastFrames = -1;
+        long lastDropped;
+        long lastSampleMs;
+        long rendered;
+        long dropped;
+        long intervals;
+        long droppingIntervals;     // 有丢帧的区间数
+        double worstDropPercent;
+        double sumSquareFpsError;
+        double maxFpsError;
+
+        VideoSlot(int slot) {
+            droppedCounter = "MPDemo Player" + slot + " droppedFrames";
+        }
+    }
+
+    private final Activity activity;
+    private final PlaybackSyncGroup.PlayerProvider provider;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final SparseArray<VideoSlot> videoSlots = new SparseArray<>();
+    private HandlerThread metricsThread;
+    private boolean running;
+
+    // 界面帧统计，在FrameMetrics线程写入，dump时在主线程读取
+    private final PlaybackMetrics.Histogram uiFrameMs = new PlaybackMetrics.Histogram();
+    private long refreshPeriodNs = 16666667;
+    private long uiFrames;
+    private long uiJanky;
+    private long uiMainThreadSlow;
+    private long uiRenderThreadSlow;
+    private long uiMaxFrameNs;
+
+    private final Runnable sampler = new Runnable() {
+        @Override
+        public void run() {
+            for (int i = 0; i < videoSlots.size(); i++) {
+                sample(videoSlots.keyAt(i), videoSlots.valueAt(i));
+            }
+            handler.postDelayed(this, SAMPLE_INTERVAL_MS);
+        }
+    };
+
+    public FrameDropMonitor(Activity activity, PlaybackSyncGroup.PlayerProvider provider) {
+        this.activity = activity;
+        this.provider = provider;
+    }
+
+    /**
+     * 开始监测，在主线程调用
+     */
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        handler.postDelayed(sampler, SAMPLE_INTERVAL_MS);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            float refreshRate = activity.getWindowManager().getDefaultDisplay().getRefreshRate();
+            if (refreshRate > 0) {
+                refreshPeriodNs = (long) (1e9 / refreshRate);
+            }
+            metricsThread = new HandlerThread("FrameMetrics");
+            metricsThread.start();
+            activity.getWindow().addOnFrameMetricsAvailableListener(this, new Handler(metricsThread.getLooper()));
+        }
+    }
+
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        handler.removeCallbacks(sampler);
+        if (metricsThread != null) {
+            activity.getWindow().removeOnFrameMetricsAvailableListener(this);
+            metricsThread.quitSafely();
+            metricsThread = null;
+        }
+    }
+
+    /**
+     * 播放器开始播放视频时调用，fps为0表示内容帧率未知
+     */
+    public void onVideoStarted(int slot, float fps) {
+        VideoSlot state = videoSlots.get(slot);
+        if (state == null) {
+            state = new VideoSlot(slot);
+            videoSlots.put(slot, state);
+        }
+        state.contentFps = fps;
+    }
+
+    private void sample(int slot, VideoSlot state) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return;
+        }
+        MediaPlayer player = provider.getMediaPlayer(slot);
+        long frames;
+        long dropped;
+        try {
+            if (player == null || !player.isPlaying()) {
+                state.lastFrames = -1;
+                return;
+            }
+            PersistableBundle metrics = player.getMetrics();
+            Object framesValue = metrics.get(MediaPlayer.MetricsConstants.FRAMES);
+            Object droppedValue = metrics.get(MediaPlayer.MetricsConstants.FRAMES_DROPPED);
+            if (!(framesValue instanceof Number) || !(droppedValue instanceof Number)) {
+                state.lastFrames = -1;  // 音频播放器或系统不提供
+                return;
+            }
+            frames = ((Number) framesValue).longValue();
+            dropped = ((Number) droppedValue).longValue();
+        } catch (IllegalStateException e) {
+            state.lastFrames = -1;
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        if (player != state.player || state.lastFrames < 0 || frames < state.lastFrames) {
+            // 新的播放器或计数被重置，从这一次开始计算区间
+            state.player = player;
+            state.lastFrames = frames;
+            state.lastDropped = dropped;
+            state.lastSampleMs = now;
+            return;
+        }
+        long renderedDelta = frames - state.lastFrames;
+        long droppedDelta = Math.max(0, dropped - state.lastDropped);
+        double seconds = (now - state.lastSampleMs) / 1000.0;
+        state.lastFrames = frames;
+        state.lastDropped = dropped;
+        state.lastSampleMs = now;
+        if (seconds <= 0) {
+            return;
+        }
+
+        state.rendered += renderedDelta;
+        state.dropped += droppedDelta;
+        state.intervals++;
+        if (droppedDelta > 0) {
+            state.droppingIntervals++;
+            long total = renderedDelta + droppedDelta;
+            state.worstDropPercent = Math.max(state.worstDropPercent, droppedDelta * 100.0 / total);
+        }
+        if (state.contentFps > 0) {
+            double error = renderedDelta / seconds - state.contentFps;
+            state.sumSquareFpsError += error * error;
+            state.maxFpsError = Math.max(state.maxFpsError, Math.abs(error));
+        }
+        PlaybackTrace.counter(state.droppedCounter, state.dropped);
+    }
+
+    @Override
+    public void onFrameMetricsAvailable(Window window, FrameMetrics frameMetrics, int dropCountSinceLastInvocation) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N
+                || frameMetrics.getMetric(FrameMetrics.FIRST_DRAW_FRAME) != 0) {
+            return;
+        }
+        long total = frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION);
+        long mainThread = frameMetrics.getMetric(FrameMetrics.UNKNOWN_DELAY_DURATION)
+                + frameMetrics.getMetric(FrameMetrics.INPUT_HANDLING_DURATION)
+                + frameMetrics.getMetric(FrameMetrics.ANIMATION_DURATION)
+                + frameMetrics.getMetric(FrameMetrics.LAYOUT_MEASURE_DURATION)
+                + frameMetrics.getMetric(FrameMetrics.DRAW_DURATION);
+        long renderThread = frameMetrics.getMetric(FrameMetrics.SYNC_DURATION)
+                + frameMetrics.getMetric(FrameMetrics.COMMAND_ISSUE_DURATION)
+                + frameMetrics.getMetric(FrameMetrics.SWAP_BUFFERS_DURATION);
+        synchronized (uiFrameMs) {
+            uiFrames++;
+            uiFrameMs.add(total / 1000000);
+            uiMaxFrameNs = Math.max(uiMaxFrameNs, total);
+            if (total > refreshPeriodNs) {
+                uiJanky++;
+                if (mainThread > refreshPeriodNs) {
+                    uiMainThreadSlow++;
+                } else if (renderThread > refreshPeriodNs) {
+                    uiRenderThreadSlow++;
+                }
+            }
+        }
+    }
+
+    /**
+     * 视频统计在主线程更新，dumpsys的binder线程调用时转到主线程生成；界面帧统计由uiFrameMs的锁保护
+     */
+    public void dump(String prefix, PrintWriter writer) {
+        StringWriter buffer = new StringWriter();
+        if (PlaybackMetrics.runOnMainThread(handler, () -> dumpOnMain(prefix, new PrintWriter(buffer)))) {
+            writer.print(buffer);
+        } else {
+            writer.println(prefix + "FrameDropMonitor: 主线程没有响应");
+        }
+    }
+
+    private void dumpOnMain(String prefix, PrintWriter writer) {
+        writer.println(prefix + "FrameDropMonitor:");
+        for (int i = 0; i < videoSlots.size(); i++) {
+            VideoSlot state = videoSlots.valueAt(i);
+            writer.println(prefix + "  Player " + videoSlots.keyAt(i) + " 视频:");
+            if (state.intervals == 0) {
+                writer.println(prefix + "    无数据(未播放视频或系统不提供帧统计)");
+                continue;
+            }
+            long total = state.rendered + state.dropped;
+            writer.println(String.format(Locale.US, "%s    渲染 %d 帧 丢帧 %d 帧(%.2f%%) 有丢帧的秒数 %d/%d 最差一秒丢帧 %.1f%%",
+                    prefix, state.rendered, state.dropped, total > 0 ? state.dropped * 100.0 / total : 0,
+                    state.droppingIntervals, state.intervals, state.worstDropPercent));
+            if (state.contentFps > 0) {
+                writer.println(String.format(Locale.US, "%s    内容帧率 %.3f 每秒渲染帧数偏差 RMS %.2f 最大 %.2f",
+                        prefix, state.contentFps, Math.sqrt(state.sumSquareFpsError / state.intervals),
+                        state.maxFpsError));
+            }
+        }
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            writer.println(prefix + "  界面帧: 系统不支持FrameMetrics");
+            writer.flush();
+            return;
+        }
+        synchronized (uiFrameMs) {
+            writer.println(String.format(Locale.US,
+                    "%s  界面帧: %d 帧 超过刷新周期(%.1fms) %d 帧，其中主线程慢 %d 渲染线程慢 %d 最长 %.1fms",
+                    prefix, uiFrames, refreshPeriodNs / 1e6, uiJanky, uiMainThreadSlow, uiRenderThreadSlow,
+                    uiMaxFrameNs / 1e6));
+            uiFrameMs.dump(prefix + "    ", writer);
+        }
+        writer.flush();
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.app.Activity;
+import android.content.Context;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.media.MediaPlayer;
+import android.net.Uri;
+import android.os.Build;
+import android.os.PersistableBundle;
+import android.util.Log;
+import android.util.SparseArray;
+import android.view.Display;
+import android.view.Surface;
+import android.view.SurfaceView;
+import android.view.WindowManager;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * 视频内容帧率与显示刷新率匹配
+ *
+ * 视频准备完成后读取内容帧率，通过Surface.setFrameRate()告诉合成器这是固定帧率的视频内容；
+ * 显示设备支持时再把窗口的preferredDisplayModeId设为同分辨率下刷新率为帧率整数倍的模式，
+ * 例如24fps内容在HDMI上切换到24Hz/48Hz，避免60Hz下的3:2抖动。
+ * 两个播放器同时播放视频时，只选择对两者都是整数倍的模式，没有时保持默认模式。
+ * 所有方法在主线程调用，probeFrameRate()除外。
+ */
+public class FrameRateMatcher {
+    private static final String TAG = "FrameRateMatcher";
+    private static final float RATE_TOLERANCE = 0.002f;  // 23.976与24等NTSC/整数帧率视为一致
+    private static final int PROBE_SAMPLES = 32;
+
+    private final Activity activity;
+    private final SparseArray<Float> slotRates = new SparseArray<>();
+    private String surfaceHint = "未设置";
+    private String requestedMode = "默认";
+
+    public FrameRateMatcher(Activity activity) {
+        this.activity = activity;
+    }
+
+    /**
+     * 读取视频轨的帧率，容器没有记录时按前若干帧的时间戳估算；失败时返回0。会读取文件，需要在后台线程调用
+     */
+    public static float probeFrameRate(Context context, Uri uri) {
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(context, uri, null);
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                MediaFormat format = extractor.getTrackFormat(i);
+                String mime = format.getString(MediaFormat.KEY_MIME);
+                if (mime == null || !mime.startsWith("video/")) {
+                    continue;
+                }
+                if (format.containsKey(MediaFormat.KEY_FRAME_RATE)) {
+                    try {
+                        return format.getInteger(MediaFormat.KEY_FRAME_RATE);
+                    } catch (ClassCastException e) {
+                        return format.getFloat(MediaFormat.KEY_FRAME_RATE);
+                    }
+                }
+                extractor.selectTrack(i);
+                return estimateFromTimestamps(extractor);
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "读取帧率失败: " + e.getMessage());
+        } finally {
+            extractor.release();
+        }
+        return 0;
+    }
+
+    // 取相邻帧时间差的中位数，B帧导致的乱序先排序消除
+    private static float estimateFromTimestamps(MediaExtractor extractor) {
+        long[] times = new long[PROBE_SAMPLES];
+        int count = 0;
+        while (count < PROBE_SAMPLES && extractor.getSampleTime() >= 0) {
+            times[count++] = extractor.getSampleTime();
+            extractor.advance();
+        }
+        if (count < 3) {
+            return 0;
+        }
+        Arrays.sort(times, 0, count);
+        long[] deltas = new long[count - 1];
+        for (int i = 1; i < count; i++) {
+            deltas[i - 1] = times[i] - times[i - 1];
+        }
+        Arrays.sort(deltas);
+        long median = deltas[deltas.length / 2];
+        return median > 0 ? 1000000f / median : 0;
+    }
+
+    /**
+     * 视频准备完成后调用，fps为0表示未知
+     */
+    public void onVideoPrepared(int slot, SurfaceView view, float fps) {
+        if (fps <= 0) {
+            slotRates.remove(slot);
+            updateDisplayMode();
+            return;
+        }
+        slotRates.put(slot, fps);
+        applySurfaceFrameRate(view.getHolder().getSurface(), fps);
+        updateDisplayMode();
+    }
+
+    /**
+     * 播放器不再显示视频时调用
+     */
+    public void onVideoStopped(int slot) {
+        if (slotRates.indexOfKey(slot) < 0) {
+            return;
+        }
+        slotRates.remove(slot);
+        updateDisplayMode();
+    }
+
+    private void applySurfaceFrameRate(Surface surface, float fps) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.R || surface == null || !surface.isValid()) {
+            surfaceHint = "系统不支持";
+            return;
+        }
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+                // 视频允许非无缝切换，HDMI切换模式时短暂黑屏可以接受
+                surface.setFrameRate(fps, Surface.FRAME_RATE_COMPATIBILITY_FIXED_SOURCE,
+                        Surface.CHANGE_FRAME_RATE_ALWAYS);
+            } else {
+                surface.setFrameRate(fps, Surface.FRAME_RATE_COMPATIBILITY_FIXED_SOURCE);
+            }
+            surfaceHint = String.format(Locale.US, "%.3ffps FIXED_SOURCE", fps);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            surfaceHint = "设置失败: " + e.getMessage();
+        }
+        Log.d(TAG, "Surface帧率: " + surfaceHint);
+    }
+
+    private void updateDisplayMode() {
+        Display display = activity.getWindowManager().getDefaultDisplay();
+        Display.Mode chosen = slotRates.size() > 0 ? chooseMode(display) : null;
+        int modeId = chosen != null ? chosen.getModeId() : 0;
+        WindowManager.LayoutParams params = activity.getWindow().getAttributes();
+        if (params.preferredDisplayModeId != modeId) {
+            params.preferredDisplayModeId = modeId;
+            activity.getWindow().setAttributes(params);
+        }
+        requestedMode = chosen != null ? describe(chosen) : "默认";
+        Log.d(TAG, "显示模式: " + requestedMode + " 内容帧率: " + describeRates());
+    }
+
+    // 同分辨率下刷新率是所有内容帧率整数倍的模式中刷新率最低的一个
+    private Display.Mode chooseMode(Display display) {
+        Display.Mode current = display.getMode();
+        Display.Mode best = null;
+        for (Display.Mode mode : display.getSupportedModes()) {
+            if (mode.getPhysicalWidth() != current.getPhysicalWidth()
+                    || mode.getPhysicalHeight() != current.getPhysicalHeight()) {
+                continue;
+            }
+            boolean matchesAll = true;
+            for (int i = 0; i < slotRates.size(); i++) {
+                matchesAll &= isMultiple(mode.getRefreshRate(), slotRates.valueAt(i));
+            }
+            if (matchesAll && (best == null || mode.getRefreshRate() < best.getRefreshRate())) {
+                best = mode;
+            }
+        }
+        return best;
+    }
+
+    private static boolean isMultiple(float refreshRate, float fps) {
+        float ratio = refreshRate / fps;
+        int whole = Math.round(ratio);
+        return whole >= 1 && Math.abs(ratio - whole) <= whole * RATE_TOLERANCE;
+    }
+
+    private static String describe(Display.Mode mode) {
+        return String.format(Locale.US, "%dx%d@%.3fHz", mode.getPhysicalWidth(), mode.getPhysicalHeight(),
+                mode.getRefreshRate());
+    }
+
+    private String describeRates() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < slotRates.size(); i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(String.format(Locale.US, "Player%d %.3f", slotRates.keyAt(i), slotRates.valueAt(i)));
+        }
+        return builder.length() > 0 ? builder.toString() : "无";
+    }
+
+    /**
+     * 视频解码的总帧数和丢帧数，系统不提供时返回空字符串
+     */
+    public static String describeFrames(MediaPlayer mediaPlayer) {
+        if (mediaPlayer == null || Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return "";
+        }
+        try {
+            PersistableBundle metrics = mediaPlayer.getMetrics();
+            Object frames = metrics.get(MediaPlayer.MetricsConstants.FRAMES);
+            Object dropped = metrics.get(MediaPlayer.MetricsConstants.FRAMES_DROPPED);
+            if (frames instanceof Number && dropped instanceof Number) {
+                return "帧数 " + frames + " 丢帧 " + dropped;
+            }
+        } catch (IllegalStateException e) {
+            Log.w(TAG, "读取播放统计失败: " + e.getMessage());
+        }
+        return "";
+    }
+
+    public String getStatsSummary() {
+        Display display = activity.getWindowManager().getDefaultDisplay();
+        return "内容帧率: " + describeRates()
+                + "\nSurface帧率: " + surfaceHint
+                + "\n请求的显示模式: " + requestedMode
+                + "\n当前显示模式: " + describe(display.getMode());
+    }
+}
@@ -0,0 +1,457 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.graphics.RectF;
+import android.graphics.SurfaceTexture;
+import android.opengl.EGL14;
+import android.opengl.EGLConfig;
+import android.opengl.EGLContext;
+import android.opengl.EGLDisplay;
+import android.opengl.EGLExt;
+import android.opengl.EGLSurface;
+import android.opengl.GLES11Ext;
+import android.opengl.GLES20;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.Surface;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * 把多个播放器的视频合成到一个输出Surface的OpenGL ES合成器
+ *
+ * 每个播放器的解码输出是一个SurfaceTexture(外部纹理)，合成线程在每个VSYNC检查是否有新帧，
+ * 有新帧时按布局把所有纹理在一次绘制中画到输出Surface上，再设置呈现时间提交。
+ * 这样SurfaceFlinger只需要合成一个图层，分屏、画中画等布局不再依赖多个SurfaceView。
+ * 每帧提交GL命令的CPU耗时计入统计(不等待GPU执行完)。所有GL调用都在合成线程中。
+ */
+public class GlCompositor implements Choreographer.FrameCallback {
+    private static final String TAG = "GlCompositor";
+    private static final int MAX_SLOTS = 4;
+
+    private static final String VERTEX_SHADER =
+            "attribute vec4 aPosition;\n"
+            + "attribute vec4 aTexCoord;\n"
+            + "uniform mat4 uTexMatrix;\n"
+            + "varying vec2 vTexCoord;\n"
+            + "void main() {\n"
+            + "    gl_Position = aPosition;\n"
+            + "    vTexCoord = (uTexMatrix * aTexCoord).xy;\n"
+            + "}\n";
+    private static final String FRAGMENT_SHADER =
+            "#extension GL_OES_EGL_image_external : require\n"
+            + "precision mediump float;\n"
+            + "varying vec2 vTexCoord;\n"
+            + "uniform samplerExternalOES sTexture;\n"
+            + "void main() {\n"
+            + "    gl_FragColor = texture2D(sTexture, vTexCoord);\n"
+            + "}\n";
+    private static final float[] TEX_COORDS = {0f, 0f, 1f, 0f, 0f, 1f, 1f, 1f};
+
+    /**
+     * 预设布局，区域为输出上的归一化坐标(左上角为原点)
+     */
+    public enum Layout {
+        SPLIT(new RectF(0f, 0f, 0.5f, 1f), new RectF(0.5f, 0f, 1f, 1f)),
+        PICTURE_IN_PICTURE(new RectF(0f, 0f, 1f, 1f), new RectF(0.65f, 0.65f, 0.97f, 0.97f));
+
+        final RectF[] regions;
+
+        Layout(RectF... regions) {
+            this.regions = regions;
+        }
+    }
+
+    private static class Slot {
+        int textureId;
+        SurfaceTexture texture;
+        Surface surface;
+        RectF region;
+        int videoWidth;
+        int videoHeight;
+        volatile boolean frameAvailable;
+        boolean hasFrame;
+        final float[] texMatrix = new float[16];
+    }
+
+    private final HandlerThread thread = new HandlerThread("GlCompositor", Process.THREAD_PRIORITY_DISPLAY);
+    private final Handler handler;
+    private final Slot[] slots = new Slot[MAX_SLOTS];
+    private final Surface output;
+    private final int outputWidth;
+    private final int outputHeight;
+
+    private EGLDisplay eglDisplay = EGL14.EGL_NO_DISPLAY;
+    private EGLContext eglContext = EGL14.EGL_NO_CONTEXT;
+    private EGLSurface eglSurface = EGL14.EGL_NO_SURFACE;
+    private int program;
+    private int positionHandle;
+    private int texCoordHandle;
+    private int texMatrixHandle;
+    private final FloatBuffer positionBuffer = allocateFloats(8);
+    private final FloatBuffer texCoordBuffer = allocateFloats(8);
+    private volatile boolean running;
+    private volatile boolean layoutChanged;
+    private long vsyncPeriodNs = 16666667;
+    private long lastFrameTimeNs;
+
+    // 统计
+    private volatile long composedFrames;
+    private volatile long vsyncs;
+    private volatile long totalComposeNs;
+    private volatile long maxComposeNs;
+    private volatile long lastComposeNs;
+
+    /**
+     * 在output上合成，宽高为output的像素尺寸
+     */
+    public GlCompositor(Surface output, int width, int height) {
+        this.output = output;
+        this.outputWidth = width;
+        this.outputHeight = height;
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        texCoordBuffer.put(TEX_COORDS).position(0);
+    }
+
+    /**
+     * 初始化EGL并开始按VSYNC合成，失败时返回false
+     */
+    public boolean start() {
+        final boolean[] result = new boolean[1];
+        final CountDownLatch latch = new CountDownLatch(1);
+        handler.post(() -> {
+            result[0] = initGl();
+            if (result[0]) {
+                running = true;
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+            latch.countDown();
+        });
+        awaitQuietly(latch);
+        return result[0];
+    }
+
+    /**
+     * 取得某个播放器的输入Surface，交给MediaPlayer.setSurface()，在合成线程中创建
+     */
+    public Surface getInputSurface(int index) {
+        final Surface[] result = new Surface[1];
+        final CountDownLatch latch = new CountDownLatch(1);
+        handler.post(() -> {
+            if (running) {
+                result[0] = obtainSlot(index).surface;
+            }
+            latch.countDown();
+        });
+        awaitQuietly(latch);
+        return result[0];
+    }
+
+    /**
+     * 应用预设布局，第i个区域对应第i个播放器
+     */
+    public void setLayout(Layout layout) {
+        handler.post(() -> {
+            if (!running) {
+                return;
+            }
+            for (int i = 0; i < layout.regions.length && i < MAX_SLOTS; i++) {
+                obtainSlot(i).region = layout.regions[i];
+            }
+            layoutChanged = true;
+        });
+    }
+
+    /**
+     * 视频宽高，用于在区域内保持宽高比
+     */
+    public void setVideoSize(int index, int width, int height) {
+        handler.post(() -> {
+            if (!running) {
+                return;
+            }
+            Slot slot = obtainSlot(index);
+            slot.videoWidth = width;
+            slot.videoHeight = height;
+            layoutChanged = true;
+        });
+    }
+
+    public void release() {
+        final CountDownLatch latch = new CountDownLatch(1);
+        handler.post(() -> {
+            running = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+            releaseGl();
+            latch.countDown();
+        });
+        awaitQuietly(latch);
+        thread.quitSafely();
+    }
+
+    private Slot obtainSlot(int index) {
+        Slot slot = slots[index];
+        if (slot == null) {
+            slot = new Slot();
+            int[] textures = new int[1];
+            GLES20.glGenTextures(1, textures, 0);
+            slot.textureId = textures[0];
+            GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, slot.textureId);
+            GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+            GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+            GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_WRAP_S,
+                    GLES20.GL_CLAMP_TO_EDGE);
+            GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_WRAP_T,
+                    GLES20.GL_CLAMP_TO_EDGE);
+            slot.texture = new SurfaceTexture(slot.textureId);
+            final Slot target = slot;
+            // 新帧到达只做标记，统一在下一个VSYNC合成
+            slot.texture.setOnFrameAvailableListener(texture -> target.frameAvailable = true, handler);
+            slot.surface = new Surface(slot.texture);
+            slot.region = index < Layout.SPLIT.regions.length ? Layout.SPLIT.regions[index] : new RectF(0f, 0f, 1f, 1f);
+            slots[index] = slot;
+        }
+        return slot;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running) {
+            return;
+        }
+        Choreographer.getInstance().postFrameCallback(this);
+        if (lastFrameTimeNs > 0) {
+            long period = frameTimeNanos - lastFrameTimeNs;
+            if (period > 4000000 && period < 50000000) {
+                vsyncPeriodNs = (vsyncPeriodNs * 7 + period) / 8;  // 平滑估计VSYNC周期
+            }
+        }
+        lastFrameTimeNs = frameTimeNanos;
+        vsyncs++;
+
+        boolean dirty = layoutChanged;
+        for (Slot slot : slots) {
+            if (slot != null && slot.frameAvailable) {
+                slot.frameAvailable = false;
+                slot.texture.updateTexImage();
+                slot.texture.getTransformMatrix(slot.texMatrix);
+                slot.hasFrame = true;
+                dirty = true;
+            }
+        }
+        if (!dirty) {
+            return; // 没有新帧时不重画，输出保持上一帧
+        }
+        layoutChanged = false;
+
+        // 只统计CPU提交GL命令的耗时，不用glFinish等待GPU，避免阻塞合成线程增加延迟
+        long begin = System.nanoTime();
+        compose();
+        long elapsed = System.nanoTime() - begin;
+        // 在下一个VSYNC呈现，避免同一周期内提交多帧
+        EGLExt.eglPresentationTimeANDROID(eglDisplay, eglSurface, frameTimeNanos + vsyncPeriodNs);
+        EGL14.eglSwapBuffers(eglDisplay, eglSurface);
+
+        lastComposeNs = elapsed;
+        totalComposeNs += elapsed;
+        maxComposeNs = Math.max(maxComposeNs, elapsed);
+        composedFrames++;
+    }
+
+    private void compose() {
+        GLES20.glViewport(0, 0, outputWidth, outputHeight);
+        GLES20.glClearColor(0f, 0f, 0f, 1f);
+        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+        GLES20.glUseProgram(program);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glEnableVertexAttribArray(positionHandle);
+        GLES20.glEnableVertexAttribArray(texCoordHandle);
+        GLES20.glVertexAttribPointer(texCoordHandle, 2, GLES20.GL_FLOAT, false, 0, texCoordBuffer);
+        // 按顺序绘制，后面的播放器叠在前面的上面(画中画)
+        for (Slot slot : slots) {
+            if (slot == null || !slot.hasFrame) {
+                continue;
+            }
+            fillPosition(slot);
+            GLES20.glVertexAttribPointer(positionHandle, 2, GLES20.GL_FLOAT, false, 0, positionBuffer);
+            GLES20.glUniformMatrix4fv(texMatrixHandle, 1, false, slot.texMatrix, 0);
+            GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, slot.textureId);
+            GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+        }
+        GLES20.glDisableVertexAttribArray(positionHandle);
+        GLES20.glDisableVertexAttribArray(texCoordHandle);
+    }
+
+    // 区域内按视频宽高比居中，换算成归一化设备坐标
+    private void fillPosition(Slot slot) {
+        float left = slot.region.left * outputWidth;
+        float top = slot.region.top * outputHeight;
+        float width = slot.region.width() * outputWidth;
+        float height = slot.region.height() * outputHeight;
+        if (slot.videoWidth > 0 && slot.videoHeight > 0) {
+            float scale = Math.min(width / slot.videoWidth, height / slot.videoHeight);
+            left += (width - slot.videoWidth * scale) / 2;
+            top += (height - slot.videoHeight * scale) / 2;
+            width = slot.videoWidth * scale;
+            height = slot.videoHeight * scale;
+        }
+        float x0 = left / outputWidth * 2 - 1;
+        float x1 = (left + width) / outputWidth * 2 - 1;
+        float y0 = 1 - (top + height) / outputHeight * 2;
+        float y1 = 1 - top / outputHeight * 2;
+        positionBuffer.position(0);
+        positionBuffer.put(x0).put(y0).put(x1).put(y0).put(x0).put(y1).put(x1).put(y1);
+        positionBuffer.position(0);
+    }
+
+    private boolean initGl() {
+        eglDisplay = EGL14.eglGetDisplay(EGL14.EGL_DEFAULT_DISPLAY);
+        int[] version = new int[2];
+        if (!EGL14.eglInitialize(eglDisplay, version, 0, version, 1)) {
+            Log.e(TAG, "eglInitialize失败");
+            return false;
+        }
+        int[] attributes = {
+                EGL14.EGL_RED_SIZE, 8,
+                EGL14.EGL_GREEN_SIZE, 8,
+                EGL14.EGL_BLUE_SIZE, 8,
+                EGL14.EGL_RENDERABLE_TYPE, EGL14.EGL_OPENGL_ES2_BIT,
+                EGL14.EGL_NONE
+        };
+        EGLConfig[] configs = new EGLConfig[1];
+        int[] count = new int[1];
+        if (!EGL14.eglChooseConfig(eglDisplay, attributes, 0, configs, 0, 1, count, 0) || count[0] == 0) {
+            Log.e(TAG, "没有合适的EGLConfig");
+            return false;
+        }
+        eglContext = EGL14.eglCreateContext(eglDisplay, configs[0], EGL14.EGL_NO_CONTEXT,
+                new int[] {EGL14.EGL_CONTEXT_CLIENT_VERSION, 2, EGL14.EGL_NONE}, 0);
+        eglSurface = EGL14.eglCreateWindowSurface(eglDisplay, configs[0], output,
+                new int[] {EGL14.EGL_NONE}, 0);
+        if (eglContext == EGL14.EGL_NO_CONTEXT || eglSurface == EGL14.EGL_NO_SURFACE
+                || !EGL14.eglMakeCurrent(eglDisplay, eglSurface, eglSurface, eglContext)) {
+            Log.e(TAG, "创建EGL上下文失败: 0x" + Integer.toHexString(EGL14.eglGetError()));
+            releaseGl();
+            return false;
+        }
+        program = createProgram();
+        if (program == 0) {
+            releaseGl();
+            return false;
+        }
+        positionHandle = GLES20.glGetAttribLocation(program, "aPosition");
+        texCoordHandle = GLES20.glGetAttribLocation(program, "aTexCoord");
+        texMatrixHandle = GLES20.glGetUniformLocation(program, "uTexMatrix");
+        Log.d(TAG, "合成输出: " + outputWidth + "x" + outputHeight + " EGL " + version[0] + "." + version[1]);
+        return true;
+    }
+
+    private void releaseGl() {
+        for (int i = 0; i < slots.length; i++) {
+            Slot slot = slots[i];
+            if (slot != null) {
+                slot.surface.release();
+                slot.texture.release();
+                GLES20.glDeleteTextures(1, new int[] {slot.textureId}, 0);
+                slots[i] = null;
+            }
+        }
+        if (program != 0) {
+            GLES20.glDeleteProgram(program);
+            program = 0;
+        }
+        if (eglDisplay != EGL14.EGL_NO_DISPLAY) {
+            EGL14.eglMakeCurrent(eglDisplay, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_CONTEXT);
+            if (eglSurface != EGL14.EGL_NO_SURFACE) {
+                EGL14.eglDestroySurface(eglDisplay, eglSurface);
+            }
+            if (eglContext != EGL14.EGL_NO_CONTEXT) {
+                EGL14.eglDestroyContext(eglDisplay, eglContext);
+            }
+            EGL14.eglTerminate(eglDisplay);
+        }
+        eglSurface = EGL14.EGL_NO_SURFACE;
+        eglContext = EGL14.EGL_NO_CONTEXT;
+        eglDisplay = EGL14.EGL_NO_DISPLAY;
+    }
+
+    private static int createProgram() {
+        int vertex = loadShader(GLES20.GL_VERTEX_SHADER, VERTEX_SHADER);
+        int fragment = loadShader(GLES20.GL_FRAGMENT_SHADER, FRAGMENT_SHADER);
+        if (vertex == 0 || fragment == 0) {
+            return 0;
+        }
+        int program = GLES20.glCreateProgram();
+        GLES20.glAttachShader(program, vertex);
+        GLES20.glAttachShader(program, fragment);
+        GLES20.glLinkProgram(program);
+        GLES20.glDeleteShader(vertex);
+        GLES20.glDeleteShader(fragment);
+        int[] status = new int[1];
+        GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, status, 0);
+        if (status[0] != GLES20.GL_TRUE) {
+            Log.e(TAG, "链接着色器失败: " + GLES20.glGetProgramInfoLog(program));
+            GLES20.glDeleteProgram(program);
+            return 0;
+        }
+        return program;
+    }
+
+    private static int loadShader(int type, String source) {
+        int shader = GLES20.glCreateShader(type);
+        GLES20.glShaderSource(shader, source);
+        GLES20.glCompileShader(shader);
+        int[] status = new int[1];
+        GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, status, 0);
+        if (status[0] == 0) {
+            Log.e(TAG, "编译着色器失败: " + GLES20.glGetShaderInfoLog(shader));
+            GLES20.glDeleteShader(shader);
+            return 0;
+        }
+        return shader;
+    }
+
+    private static FloatBuffer allocateFloats(int count) {
+        return ByteBuffer.allocateDirect(count * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public String getStatsSummary() {
+        long frames = composedFrames;
+        double average = frames > 0 ? totalComposeNs / 1e6 / frames : 0;
+        return String.format(Locale.US,
+                "GL合成: 输出 %dx%d VSYNC %.2fms 合成 %d 帧/%d 个VSYNC\n每帧GL命令提交耗时(CPU) 最近 %.2fms 平均 %.2fms 最大 %.2fms",
+                outputWidth, outputHeight, vsyncPeriodNs / 1e6, frames, vsyncs,
+                lastComposeNs / 1e6, average, maxComposeNs / 1e6);
+    }
+}
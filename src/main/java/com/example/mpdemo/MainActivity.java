@@ -18,6 +18,8 @@ package com.example.mpdemo;
 
 import android.Manifest;
 import android.app.AlertDialog;
+import android.app.Dialog;
+import android.app.Presentation;
 import android.content.Context;
 import android.content.DialogInterface;
 import android.content.Intent;
@@ -26,6 +28,9 @@ import android.content.res.Configuration;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.Color;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.hardware.display.DisplayManager;
 import android.media.AudioAttributes;
 import android.media.AudioDeviceInfo;
 import android.media.AudioManager;
@@ -34,11 +39,18 @@ import android.media.MediaPlayer;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Debug;
 import android.os.Handler;
 import android.os.Looper;
 import android.provider.MediaStore;
 import android.util.Log;
+import android.util.Size;
+import android.view.Display;
+import android.view.Surface;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
 import android.view.View;
+import android.view.WindowManager;
 import android.widget.Button;
 import android.widget.ImageButton;
 import android.widget.ImageView;
@@ -47,28 +59,53 @@ import android.widget.SeekBar;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.annotation.RequiresApi;
+import androidx.annotation.VisibleForTesting;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
+import java.io.File;
+import java.io.FileDescriptor;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MainActivity extends AppCompatActivity {
 
     private static final int REQUEST_MEDIA_PICK = 100;
     private static final int REQUEST_PERMISSION = 200;
+    private static final int REQUEST_FOLDER_PICK = 300;
 
     // Player 1
     private CustomVideoView player1VideoView;
     private ImageView player1AlbumArt;         // 专辑封面ImageView
     private RecordView player1RecordView;      // 黑胶唱片View
+    private ImageView player1SeekPreview;      // 拖动进度条时的预览缩略图
+    private SeekPreviewThumbnailer player1Thumbnailer;
+    private WaveformView player1Waveform;            // 音频波形概览
+    private WaveformGenerator player1WaveformGenerator;
     private SeekBar player1SeekBar;
     private SeekBar player1VolumeBar; // 音量控制条
     private MediaPlayer player1MediaPlayer;
+    private PcmPlayback player1PcmPlayback; // 应用内解码、AudioTrack输出的播放方式(扇出等)
+    private List<AudioDeviceInfo> player1FanOutDevices = new ArrayList<>(); // 扇出模式的输出设备
     private Uri player1CurrentMediaUri;
+    private MediaIndex.Entry player1MediaEntry; // 当前媒体在索引中的记录
+    private int player1PickSerial; // 每次选择媒体加一，用于丢弃过期的索引查询结果
+    private boolean player1AudioOnly = false; // 视频文件只播放声音，不创建视频解码器
+    private VideoPresentation player1Presentation; // 视频直接输出到副屏时的Presentation
+    private final PlaylistQueue player1Playlist = new PlaylistQueue(); // 播放列表
+    private FolderScanner player1FolderScanner;
+    private final NextItemPrebuffer player1Prebuffer = new NextItemPrebuffer(); // 下一条预缓冲
     private AudioDeviceInfo player1SelectedDevice;
     private boolean isPlayer1Playing = false; // 是否Player1正在播放
     private boolean player1IsPrepared = false; // Player1是否已准备好
@@ -78,10 +115,23 @@ public class MainActivity extends AppCompatActivity {
     private CustomVideoView player2VideoView;
     private ImageView player2AlbumArt;         // 专辑封面ImageView
     private RecordView player2RecordView;      // 黑胶唱片View
+    private ImageView player2SeekPreview;      // 拖动进度条时的预览缩略图
+    private SeekPreviewThumbnailer player2Thumbnailer;
+    private WaveformView player2Waveform;            // 音频波形概览
+    private WaveformGenerator player2WaveformGenerator;
     private SeekBar player2SeekBar;
     private SeekBar player2VolumeBar; // 音量控制条
     private MediaPlayer player2MediaPlayer;
+    private PcmPlayback player2PcmPlayback; // 应用内解码、AudioTrack输出的播放方式(扇出等)
+    private List<AudioDeviceInfo> player2FanOutDevices = new ArrayList<>(); // 扇出模式的输出设备
     private Uri player2CurrentMediaUri;
+    private MediaIndex.Entry player2MediaEntry; // 当前媒体在索引中的记录
+    private int player2PickSerial; // 每次选择媒体加一，用于丢弃过期的索引查询结果
+    private boolean player2AudioOnly = false; // 视频文件只播放声音，不创建视频解码器
+    private VideoPresentation player2Presentation; // 视频直接输出到副屏时的Presentation
+    private final PlaylistQueue player2Playlist = new PlaylistQueue(); // 播放列表
+    private FolderScanner player2FolderScanner;
+    private final NextItemPrebuffer player2Prebuffer = new NextItemPrebuffer(); // 下一条预缓冲
     private AudioDeviceInfo player2SelectedDevice;
     private boolean isPlayer2Playing = false; // 是否Player2正在播放
 
@@ -105,6 +155,25 @@ public class MainActivity extends AppCompatActivity {
     private MediaController player2MediaController;
 
     private AudioManager audioManager;
+    private MediaIndex mediaIndex; // 已播放媒体的元数据索引
+    private PlaybackSyncGroup syncGroup; // 多播放器同步启动和漂移校正
+    private NetworkClockSync networkSync; // 多台设备之间的网络时钟同步
+    private OutputLatencyCalibrator latencyCalibrator; // 各输出设备的延迟校准结果
+    private FrameRateMatcher frameRateMatcher; // 视频帧率与显示刷新率匹配
+    private final PlaybackMetrics playbackMetrics = new PlaybackMetrics(); // 播放延迟统计，dumpsys查看
+    private Runnable snapshotMetrics;
+    private FrameDropMonitor frameDropMonitor; // 视频丢帧与界面卡顿，dumpsys查看
+    private SoakTest soakTest; // intent参数启动的拷机测试
+    private GlCompositor glCompositor; // 多路视频合成到一个输出Surface
+    private Dialog compositorHost;     // 合成输出所在的窗口(副屏Presentation或主屏全屏对话框)
+    private GlCompositor.Layout compositorLayout; // 最近选择的合成布局，窗口Surface就绪前选择的也会生效
+    private SoftwareMixer.Pool mixerPool; // 同一输出设备的播放器合并混音
+    private boolean softwareMixEnabled = false;
+    private PcmClipCache clipCache; // 短片段解码后的内存PCM缓存
+    private boolean clipCacheEnabled = false;
+    private boolean offloadEnabled = false; // 支持时使用压缩音频卸载播放
+    private final ExecutorService backgroundExecutor = Executors.newSingleThreadExecutor(); // 探测下一条媒体等后台任务
+    private final ExecutorService indexExecutor = Executors.newSingleThreadExecutor(); // 媒体索引的查询和写入，按提交顺序执行
     private boolean isPlayer1Looping = true; // Player 1 循环播放状态
     private boolean isPlayer2Looping = true; // Player 2 循环播放状态
     private Handler handler = new Handler(Looper.getMainLooper());
@@ -126,9 +195,18 @@ public class MainActivity extends AppCompatActivity {
 
         // 首先初始化AudioManager，避免后续使用时为null
         audioManager = (AudioManager) getSystemService(Context.AUDIO_SERVICE);
+        mediaIndex = new MediaIndex(this);
+        latencyCalibrator = new OutputLatencyCalibrator(this);
+        frameRateMatcher = new FrameRateMatcher(this);
+        PlaybackTrace.init(this);
+        mixerPool = new SoftwareMixer.Pool(this);
+        clipCache = new PcmClipCache(this);
 
         initViews();
         setupClickListeners();
+        syncGroup = new PlaybackSyncGroup(this::getSlotMediaPlayer, this::onSlotStartedBySyncGroup);
+        frameDropMonitor = new FrameDropMonitor(this, this::getSlotMediaPlayer);
+        frameDropMonitor.start();
         checkPermission();
 
         // 初始化进度条更新任务
@@ -137,12 +215,33 @@ public class MainActivity extends AppCompatActivity {
             public void run() {
                 updatePlayer1SeekBar();
                 updatePlayer2SeekBar();
+                if (PlaybackTrace.isTracing()) {
+                    PlaybackTrace.counter("MPDemo Player1 positionMs", getPlayer1CurrentPosition());
+                    PlaybackTrace.counter("MPDemo Player2 positionMs", getPlayer2CurrentPosition());
+                    if (networkSync != null) {
+                        PlaybackTrace.counter("MPDemo sync driftUs", networkSync.getLastDriftUs());
+                    }
+                }
 
                 // 继续下一帧更新
                 handler.postDelayed(this, 1000); // 每秒更新一次
             }
         };
 
+        // 定期保存播放器的getMetrics()快照，释放后仍可在dumpsys中查看最后一次的数据
+        snapshotMetrics = new Runnable() {
+            @Override
+            public void run() {
+                playbackMetrics.snapshot(1, getSlotMediaPlayer(1));
+                playbackMetrics.snapshot(2, getSlotMediaPlayer(2));
+                handler.postDelayed(this, 5000);
+            }
+        };
+        handler.postDelayed(snapshotMetrics, 5000);
+
+        // 带有拷机参数启动时自动开始测试
+        startSoakTest(getIntent());
+
         // 初始化播放按钮图标
         if (player1PlayPauseButton != null) {
             player1PlayPauseButton.setImageResource(R.drawable.ic_play_arrow);
@@ -157,6 +256,11 @@ public class MainActivity extends AppCompatActivity {
         player1VideoView = findViewById(R.id.player1_video_view);
         player1AlbumArt = findViewById(R.id.player1_album_art); // 初始化专辑封面ImageView
         player1RecordView = findViewById(R.id.player1_record_view); // 初始化黑胶唱片View
+        player1SeekPreview = findViewById(R.id.player1_seek_preview); // 初始化预览缩略图
+        player1Thumbnailer = new SeekPreviewThumbnailer(this);
+        player1Waveform = findViewById(R.id.player1_waveform); // 初始化波形视图
+        player1WaveformGenerator = new WaveformGenerator(this);
+        player1FolderScanner = new FolderScanner(this);
         player1SeekBar = findViewById(R.id.player1_seek_bar);
         player1VolumeBar = findViewById(R.id.player1_volume_bar); // 初始化音量控制条
         player1MediaController = new MediaController(this);
@@ -166,6 +270,11 @@ public class MainActivity extends AppCompatActivity {
         player2VideoView = findViewById(R.id.player2_video_view);
         player2AlbumArt = findViewById(R.id.player2_album_art); // 初始化专辑封面ImageView
         player2RecordView = findViewById(R.id.player2_record_view); // 初始化黑胶唱片View
+        player2SeekPreview = findViewById(R.id.player2_seek_preview); // 初始化预览缩略图
+        player2Thumbnailer = new SeekPreviewThumbnailer(this);
+        player2Waveform = findViewById(R.id.player2_waveform); // 初始化波形视图
+        player2WaveformGenerator = new WaveformGenerator(this);
+        player2FolderScanner = new FolderScanner(this);
         player2SeekBar = findViewById(R.id.player2_seek_bar);
         player2VolumeBar = findViewById(R.id.player2_volume_bar); // 初始化音量控制条
         player2MediaController = new MediaController(this);
@@ -232,16 +341,22 @@ public class MainActivity extends AppCompatActivity {
             @Override
             public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
                 if (fromUser) { // 用户拖动进度条时才处理
-                    if (player1MediaPlayer != null) {
+                    if (player1PcmPlayback != null) {
+                        int newPosition = PlaybackLogic.positionForProgress(progress, player1PcmPlayback.getDuration());
+                        player1PcmPlayback.seekTo(newPosition);
+                    } else if (player1MediaPlayer != null) {
                         // 计算实际播放位置
                         int duration = player1MediaPlayer.getDuration();
-                        int newPosition = (int) (((float) progress / 100) * duration);
+                        int newPosition = PlaybackLogic.positionForProgress(progress, duration);
+                        playbackMetrics.onSeekStarted(1);
                         player1MediaPlayer.seekTo(newPosition);
                     } else if (player1VideoView != null && player1VideoView.isPlaying()) {
                         // 计算实际播放位置
                         int duration = player1VideoView.getDuration();
-                        int newPosition = (int) (((float) progress / 100) * duration);
+                        int newPosition = PlaybackLogic.positionForProgress(progress, duration);
+                        playbackMetrics.onSeekStarted(1);
                         player1VideoView.seekTo(newPosition);
+                        showSeekPreview(player1SeekPreview, player1Thumbnailer, newPosition);
                     }
                 }
             }
@@ -256,6 +371,9 @@ public class MainActivity extends AppCompatActivity {
             public void onStopTrackingTouch(SeekBar seekBar) {
                 // 用户结束拖动进度条时恢复自动更新
                 handler.post(updateSeekBars);
+                if (player1SeekPreview != null) {
+                    player1SeekPreview.setVisibility(View.GONE);
+                }
             }
         });
 
@@ -264,16 +382,22 @@ public class MainActivity extends AppCompatActivity {
             @Override
             public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
                 if (fromUser) { // 用户拖动进度条时才处理
-                    if (player2MediaPlayer != null) {
+                    if (player2PcmPlayback != null) {
+                        int newPosition = PlaybackLogic.positionForProgress(progress, player2PcmPlayback.getDuration());
+                        player2PcmPlayback.seekTo(newPosition);
+                    } else if (player2MediaPlayer != null) {
                         // 计算实际播放位置
                         int duration = player2MediaPlayer.getDuration();
-                        int newPosition = (int) (((float) progress / 100) * duration);
+                        int newPosition = PlaybackLogic.positionForProgress(progress, duration);
+                        playbackMetrics.onSeekStarted(2);
                         player2MediaPlayer.seekTo(newPosition);
                     } else if (player2VideoView != null && player2VideoView.isPlaying()) {
                         // 计算实际播放位置
                         int duration = player2VideoView.getDuration();
-                        int newPosition = (int) (((float) progress / 100) * duration);
+                        int newPosition = PlaybackLogic.positionForProgress(progress, duration);
+                        playbackMetrics.onSeekStarted(2);
                         player2VideoView.seekTo(newPosition);
+                        showSeekPreview(player2SeekPreview, player2Thumbnailer, newPosition);
                     }
                 }
             }
@@ -288,6 +412,9 @@ public class MainActivity extends AppCompatActivity {
             public void onStopTrackingTouch(SeekBar seekBar) {
                 // 用户结束拖动进度条时恢复自动更新
                 handler.post(updateSeekBars);
+                if (player2SeekPreview != null) {
+                    player2SeekPreview.setVisibility(View.GONE);
+                }
             }
         });
 
@@ -306,24 +433,42 @@ public class MainActivity extends AppCompatActivity {
         float volume = volumePercent / 100.0f;
 
         if (playerNumber == 1) {
-            if (player1MediaPlayer != null) {
+            if (player1PcmPlayback != null) {
+                player1PcmPlayback.setVolume(volume);
+                if (PlaybackTrace.isDebugLogging()) {
+                    Log.d("MPDemo", "Player 1 (PCM) 音量设置为: " + volumePercent + "%");
+                }
+            } else if (player1MediaPlayer != null) {
                 player1MediaPlayer.setVolume(volume, volume);
-                Log.d("MPDemo", "Player 1 音量设置为: " + volumePercent + "%");
+                if (PlaybackTrace.isDebugLogging()) {
+                    Log.d("MPDemo", "Player 1 音量设置为: " + volumePercent + "%");
+                }
             } else if (player1VideoView != null) {
                 // 使用CustomVideoView的setVideoVolume方法设置音量
                 player1VideoView.setVideoVolume(volume);
-                Log.d("MPDemo", "Player 1 (VideoView) 音量设置为: " + volumePercent + "%");
+                if (PlaybackTrace.isDebugLogging()) {
+                    Log.d("MPDemo", "Player 1 (VideoView) 音量设置为: " + volumePercent + "%");
+                }
             }
             // 保存Player1的音量值
             player1Volume = volumePercent;
         } else if (playerNumber == 2) {
-            if (player2MediaPlayer != null) {
+            if (player2PcmPlayback != null) {
+                player2PcmPlayback.setVolume(volume);
+                if (PlaybackTrace.isDebugLogging()) {
+                    Log.d("MPDemo", "Player 2 (PCM) 音量设置为: " + volumePercent + "%");
+                }
+            } else if (player2MediaPlayer != null) {
                 player2MediaPlayer.setVolume(volume, volume);
-                Log.d("MPDemo", "Player 2 音量设置为: " + volumePercent + "%");
+                if (PlaybackTrace.isDebugLogging()) {
+                    Log.d("MPDemo", "Player 2 音量设置为: " + volumePercent + "%");
+                }
             } else if (player2VideoView != null) {
                 // 使用CustomVideoView的setVideoVolume方法设置音量
                 player2VideoView.setVideoVolume(volume);
-                Log.d("MPDemo", "Player 2 (VideoView) 音量设置为: " + volumePercent + "%");
+                if (PlaybackTrace.isDebugLogging()) {
+                    Log.d("MPDemo", "Player 2 (VideoView) 音量设置为: " + volumePercent + "%");
+                }
             }
             // 保存Player2的音量值
             player2Volume = volumePercent;
@@ -334,38 +479,71 @@ public class MainActivity extends AppCompatActivity {
         // Player 1 按钮点击事件
         if (player1SelectButton != null) {
             player1SelectButton.setOnClickListener(v -> selectMediaForPlayer1());
+            // 长按选择整个文件夹
+            player1SelectButton.setOnLongClickListener(v -> {
+                selectFolderForPlayer(1);
+                return true;
+            });
         }
         if (player1PlayPauseButton != null) {
             player1PlayPauseButton.setOnClickListener(v -> togglePlayer1PlayPause());
         }
         if (player1LoopButton != null) {
             player1LoopButton.setOnClickListener(v -> togglePlayer1Looping());
+            // 长按切换播放列表随机播放
+            player1LoopButton.setOnLongClickListener(v -> {
+                togglePlaylistShuffle(1);
+                return true;
+            });
         }
         if (player1DeviceButton != null) {
             player1DeviceButton.setOnClickListener(v -> showDeviceSelectionDialogForPlayer1());
+            // 长按打开播放器选项
+            player1DeviceButton.setOnLongClickListener(v -> {
+                showSlotOptionsDialog(1);
+                return true;
+            });
         }
 
         // Player 2 按钮点击事件
         if (player2SelectButton != null) {
             player2SelectButton.setOnClickListener(v -> selectMediaForPlayer2());
+            // 长按选择整个文件夹
+            player2SelectButton.setOnLongClickListener(v -> {
+                selectFolderForPlayer(2);
+                return true;
+            });
         }
         if (player2PlayPauseButton != null) {
             player2PlayPauseButton.setOnClickListener(v -> togglePlayer2PlayPause());
         }
         if (player2LoopButton != null) {
             player2LoopButton.setOnClickListener(v -> togglePlayer2Looping());
+            // 长按切换播放列表随机播放
+            player2LoopButton.setOnLongClickListener(v -> {
+                togglePlaylistShuffle(2);
+                return true;
+            });
         }
         if (player2DeviceButton != null) {
             player2DeviceButton.setOnClickListener(v -> showDeviceSelectionDialogForPlayer2());
+            // 长按打开播放器选项
+            player2DeviceButton.setOnLongClickListener(v -> {
+                showSlotOptionsDialog(2);
+                return true;
+            });
         }
     }
 
     private void togglePlayer1Looping() {
         isPlayer1Looping = !isPlayer1Looping;
         updatePlayer1LoopButtonState();
+        prebufferNext(1); // 列表循环状态影响最后一条之后的下一条
 
         // 仅更新Player 1的循环状态，不影响输出设备
-        if (player1MediaPlayer != null) {
+        if (player1PcmPlayback != null) {
+            player1PcmPlayback.setLooping(isPlayer1Looping && player1Playlist.size() <= 1);
+        } else if (player1MediaPlayer != null) {
             player1MediaPlayer.setLooping(isPlayer1Looping);
             // 不再重新应用音频设备，避免循环时频繁触发设备切换
         }
@@ -374,9 +552,12 @@ public class MainActivity extends AppCompatActivity {
     private void togglePlayer2Looping() {
         isPlayer2Looping = !isPlayer2Looping;
         updatePlayer2LoopButtonState();
+        prebufferNext(2); // 列表循环状态影响最后一条之后的下一条
 
         // 仅更新Player 2的循环状态，不影响输出设备
-        if (player2MediaPlayer != null) {
+        if (player2PcmPlayback != null) {
+            player2PcmPlayback.setLooping(isPlayer2Looping && player2Playlist.size() <= 1);
+        } else if (player2MediaPlayer != null) {
             player2MediaPlayer.setLooping(isPlayer2Looping);
             // 不再重新应用音频设备，避免循环时频繁触发设备切换
         }
@@ -429,21 +610,7 @@ public class MainActivity extends AppCompatActivity {
                    .setItems(deviceNames, new DialogInterface.OnClickListener() {
                        @Override
                        public void onClick(DialogInterface dialog, int which) {
-                           player1SelectedDevice = deviceArray[which];
-                           if (player1DeviceButton != null) {
-                               player1DeviceButton.setText(getDeviceName(player1SelectedDevice));
-                               player1DeviceButton.setContentDescription("设备: " + getDeviceName(player1SelectedDevice));
-                           }
-
-                           // 应用到Player 1
-                           if (player1MediaPlayer != null) {
-                               applyPreferredDevice(player1MediaPlayer, player1SelectedDevice);
-                           } else if (player1VideoView != null) {
-                               player1VideoView.setPreferredDevice(player1SelectedDevice);
-                           }
-
-                           // 更新音量条以反映当前设备的音量
-                           updateVolumeBarForDevice(player1VolumeBar, player1SelectedDevice);
+                           selectOutputDeviceForPlayer1(deviceArray[which]);
                        }
                    });
 
@@ -451,6 +618,33 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    // 设置Player 1的输出设备并应用到当前的播放方式
+    @RequiresApi(api = Build.VERSION_CODES.M)
+    private void selectOutputDeviceForPlayer1(AudioDeviceInfo device) {
+        player1SelectedDevice = device;
+        EventJournal.record(EventJournal.Type.ROUTE, 1, player1SelectedDevice.getId(), 0);
+        if (player1DeviceButton != null) {
+            player1DeviceButton.setText(getDeviceName(player1SelectedDevice));
+            player1DeviceButton.setContentDescription("设备: " + getDeviceName(player1SelectedDevice));
+        }
+
+        // 应用到Player 1
+        if (isOutputRateFixed(player1PcmPlayback)) {
+            // 输出采样率在创建时按设备选定，换设备后按新设备重新选择
+            playMediaInPlayer1(player1CurrentMediaUri);
+        } else if (player1PcmPlayback != null) {
+            player1PcmPlayback.setPreferredDevice(player1SelectedDevice);
+        } else if (player1MediaPlayer != null) {
+            applyPreferredDevice(player1MediaPlayer, player1SelectedDevice);
+        } else if (player1VideoView != null) {
+            player1VideoView.setPreferredDevice(player1SelectedDevice);
+        }
+
+        // 更新音量条以反映当前设备的音量
+        updateVolumeBarForDevice(player1VolumeBar, player1SelectedDevice);
+        updateSlotOutputLatency(1);
+    }
+
     private void showDeviceSelectionDialogForPlayer2() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
             // 获取可用的音频输出设备
@@ -474,21 +668,7 @@ public class MainActivity extends AppCompatActivity {
                    .setItems(deviceNames, new DialogInterface.OnClickListener() {
                        @Override
                        public void onClick(DialogInterface dialog, int which) {
-                           player2SelectedDevice = deviceArray[which];
-                           if (player2DeviceButton != null) {
-                               player2DeviceButton.setText(getDeviceName(player2SelectedDevice));
-                               player2DeviceButton.setContentDescription("设备: " + getDeviceName(player2SelectedDevice));
-                           }
-
-                           // 应用到Player 2
-                           if (player2MediaPlayer != null) {
-                               applyPreferredDevice(player2MediaPlayer, player2SelectedDevice);
-                           } else if (player2VideoView != null) {
-                               player2VideoView.setPreferredDevice(player2SelectedDevice);
-                           }
-
-                           // 更新音量条以反映当前设备的音量
-                           updateVolumeBarForDevice(player2VolumeBar, player2SelectedDevice);
+                           selectOutputDeviceForPlayer2(deviceArray[which]);
                        }
                    });
 
@@ -496,6 +676,33 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    // 设置Player 2的输出设备并应用到当前的播放方式
+    @RequiresApi(api = Build.VERSION_CODES.M)
+    private void selectOutputDeviceForPlayer2(AudioDeviceInfo device) {
+        player2SelectedDevice = device;
+        EventJournal.record(EventJournal.Type.ROUTE, 2, player2SelectedDevice.getId(), 0);
+        if (player2DeviceButton != null) {
+            player2DeviceButton.setText(getDeviceName(player2SelectedDevice));
+            player2DeviceButton.setContentDescription("设备: " + getDeviceName(player2SelectedDevice));
+        }
+
+        // 应用到Player 2
+        if (isOutputRateFixed(player2PcmPlayback)) {
+            // 输出采样率在创建时按设备选定，换设备后按新设备重新选择
+            playMediaInPlayer2(player2CurrentMediaUri);
+        } else if (player2PcmPlayback != null) {
+            player2PcmPlayback.setPreferredDevice(player2SelectedDevice);
+        } else if (player2MediaPlayer != null) {
+            applyPreferredDevice(player2MediaPlayer, player2SelectedDevice);
+        } else if (player2VideoView != null) {
+            player2VideoView.setPreferredDevice(player2SelectedDevice);
+        }
+
+        // 更新音量条以反映当前设备的音量
+        updateVolumeBarForDevice(player2VolumeBar, player2SelectedDevice);
+        updateSlotOutputLatency(2);
+    }
+
     // 更新音量条以匹配当前设备的音量
     private void updateVolumeBarForDevice(SeekBar volumeBar, AudioDeviceInfo device) {
         if (volumeBar == null || device == null) return;
@@ -557,26 +764,25 @@ public class MainActivity extends AppCompatActivity {
 
     @RequiresApi(api = Build.VERSION_CODES.M)
     private String getDeviceName(AudioDeviceInfo deviceInfo) {
-        if (deviceInfo.getType() == AudioDeviceInfo.TYPE_BUILTIN_SPEAKER) {
-            return getString(R.string.device_speaker);
-        } else if (deviceInfo.getType() == AudioDeviceInfo.TYPE_WIRED_HEADPHONES ||
-                   deviceInfo.getType() == AudioDeviceInfo.TYPE_WIRED_HEADSET) {
-            return getString(R.string.device_headphone);
-        } else if (deviceInfo.getType() == AudioDeviceInfo.TYPE_BLUETOOTH_A2DP ||
-                   deviceInfo.getType() == AudioDeviceInfo.TYPE_BLUETOOTH_SCO) {
-            return getString(R.string.device_bluetooth);
-        } else if (deviceInfo.getType() == AudioDeviceInfo.TYPE_HDMI) {
-            return getString(R.string.device_hdmi);
-        } else if (deviceInfo.getType() == AudioDeviceInfo.TYPE_USB_HEADSET ||
-                   deviceInfo.getType() == AudioDeviceInfo.TYPE_USB_DEVICE) {
-            return getString(R.string.device_usb);
-        } else {
-            return "其他设备";
+        switch (PlaybackLogic.getDeviceCategory(deviceInfo.getType())) {
+            case SPEAKER:
+                return getString(R.string.device_speaker);
+            case HEADPHONE:
+                return getString(R.string.device_headphone);
+            case BLUETOOTH:
+                return getString(R.string.device_bluetooth);
+            case HDMI:
+                return getString(R.string.device_hdmi);
+            case USB:
+                return getString(R.string.device_usb);
+            default:
+                return "其他设备";
         }
     }
 
     @RequiresApi(api = Build.VERSION_CODES.M)
     private void applyPreferredDevice(MediaPlayer player, AudioDeviceInfo deviceInfo) {
+        PlaybackTrace.begin("applyPreferredDevice");
         try {
             // 检查设备是否支持
             if (deviceInfo == null) {
@@ -584,14 +790,20 @@ public class MainActivity extends AppCompatActivity {
                 return;
             }
 
-            Log.d("MPDemo", "尝试设置首选输出设备: " + getDeviceName(deviceInfo));
+            if (PlaybackTrace.isDebugLogging()) {
+                Log.d("MPDemo", "尝试设置首选输出设备: " + getDeviceName(deviceInfo));
+            }
 
             // 设置首选设备
             boolean success = player.setPreferredDevice(deviceInfo);
-            Log.d("MPDemo", "设备设置" + (success ? "成功" : "失败") + ": " + getDeviceName(deviceInfo));
+            if (PlaybackTrace.isDebugLogging()) {
+                Log.d("MPDemo", "设备设置" + (success ? "成功" : "失败") + ": " + getDeviceName(deviceInfo));
+            }
         } catch (Exception e) {
             Log.e("MPDemo", "设置首选输出设备异常: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            PlaybackTrace.end();
         }
     }
 
@@ -623,6 +835,7 @@ public class MainActivity extends AppCompatActivity {
         // 明确指定支持的文件类型
         intent.setType("*/*"); // 支持所有文件类型
         intent.putExtra(Intent.EXTRA_MIME_TYPES, new String[]{"video/*", "audio/*", "application/octet-stream"});
+        intent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true); // 多选时按选择顺序组成播放列表
         intent.setAction(Intent.ACTION_GET_CONTENT);
         intent.addCategory(Intent.CATEGORY_OPENABLE);
 
@@ -664,6 +877,7 @@ public class MainActivity extends AppCompatActivity {
         // 明确指定支持的文件类型
         intent.setType("*/*"); // 支持所有文件类型
         intent.putExtra(Intent.EXTRA_MIME_TYPES, new String[]{"video/*", "audio/*", "application/octet-stream"});
+        intent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true); // 多选时按选择顺序组成播放列表
         intent.setAction(Intent.ACTION_GET_CONTENT);
         intent.addCategory(Intent.CATEGORY_OPENABLE);
 
@@ -689,7 +903,9 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void pausePlayer1() {
-        if (player1MediaPlayer != null) {
+        if (player1PcmPlayback != null) {
+            player1PcmPlayback.pause();
+        } else if (player1MediaPlayer != null) {
             player1MediaPlayer.pause();
         } else if (player1VideoView != null) {
             player1VideoView.pause();
@@ -697,7 +913,9 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void pausePlayer2() {
-        if (player2MediaPlayer != null) {
+        if (player2PcmPlayback != null) {
+            player2PcmPlayback.pause();
+        } else if (player2MediaPlayer != null) {
             player2MediaPlayer.pause();
         } else if (player2VideoView != null) {
             player2VideoView.pause();
@@ -705,6 +923,10 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void stopPlayer1() {
+        if (player1PcmPlayback != null) {
+            player1PcmPlayback.release();
+            player1PcmPlayback = null;
+        }
         if (player1MediaPlayer != null) {
             player1MediaPlayer.stop();
             player1MediaPlayer.release();
@@ -714,6 +936,8 @@ public class MainActivity extends AppCompatActivity {
             player1VideoView.stopPlayback();
         }
         isPlayer1Playing = false;
+        player1Thumbnailer.cancel();
+        hideWaveform(player1Waveform, player1WaveformGenerator);
         if (player1PlayPauseButton != null) {
             player1PlayPauseButton.setImageResource(R.drawable.ic_play_arrow);
         }
@@ -725,6 +949,10 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void stopPlayer2() {
+        if (player2PcmPlayback != null) {
+            player2PcmPlayback.release();
+            player2PcmPlayback = null;
+        }
         if (player2MediaPlayer != null) {
             player2MediaPlayer.stop();
             player2MediaPlayer.release();
@@ -734,6 +962,8 @@ public class MainActivity extends AppCompatActivity {
             player2VideoView.stopPlayback();
         }
         isPlayer2Playing = false;
+        player2Thumbnailer.cancel();
+        hideWaveform(player2Waveform, player2WaveformGenerator);
         if (player2PlayPauseButton != null) {
             player2PlayPauseButton.setImageResource(R.drawable.ic_play_arrow);
         }
@@ -745,7 +975,15 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void resumePlayer1FromPosition(int position) {
-        if (player1MediaPlayer != null) {
+        if (player1PcmPlayback != null) {
+            player1PcmPlayback.seekTo(position);
+            player1PcmPlayback.start();
+            isPlayer1Playing = true;
+
+            if (player1PlayPauseButton != null) {
+                player1PlayPauseButton.setImageResource(R.drawable.ic_pause);
+            }
+        } else if (player1MediaPlayer != null) {
             player1MediaPlayer.seekTo(position);
             player1MediaPlayer.start();
             isPlayer1Playing = true;
@@ -765,7 +1003,15 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void resumePlayer2FromPosition(int position) {
-        if (player2MediaPlayer != null) {
+        if (player2PcmPlayback != null) {
+            player2PcmPlayback.seekTo(position);
+            player2PcmPlayback.start();
+            isPlayer2Playing = true;
+
+            if (player2PlayPauseButton != null) {
+                player2PlayPauseButton.setImageResource(R.drawable.ic_pause);
+            }
+        } else if (player2MediaPlayer != null) {
             player2MediaPlayer.seekTo(position);
             player2MediaPlayer.start();
             isPlayer2Playing = true;
@@ -805,9 +1051,13 @@ public class MainActivity extends AppCompatActivity {
 
         if ((requestCode == REQUEST_MEDIA_PICK + 1) && resultCode == RESULT_OK) {
             if (data != null) {
-                Uri selectedMediaUri = data.getData();
+                List<Uri> selectedUris = getSelectedUris(data);
+                Uri selectedMediaUri = selectedUris.isEmpty() ? null : selectedUris.get(0);
                 if (selectedMediaUri != null) {
                     Log.d("MPDemo", "Player1 选择文件: " + selectedMediaUri.toString());
+                    player1FolderScanner.cancel();
+                    player1Playlist.clear();
+                    player1Playlist.addAll(selectedUris);
                     // 在Player 1中播放新选择的文件
                     playMediaInPlayer1(selectedMediaUri);
 
@@ -833,9 +1083,13 @@ public class MainActivity extends AppCompatActivity {
             }
         } else if ((requestCode == REQUEST_MEDIA_PICK + 2) && resultCode == RESULT_OK) {
             if (data != null) {
-                Uri selectedMediaUri = data.getData();
+                List<Uri> selectedUris = getSelectedUris(data);
+                Uri selectedMediaUri = selectedUris.isEmpty() ? null : selectedUris.get(0);
                 if (selectedMediaUri != null) {
                     Log.d("MPDemo", "Player2 选择文件: " + selectedMediaUri.toString());
+                    player2FolderScanner.cancel();
+                    player2Playlist.clear();
+                    player2Playlist.addAll(selectedUris);
                     // 在Player 2中播放新选择的文件
                     playMediaInPlayer2(selectedMediaUri);
 
@@ -859,155 +1113,1144 @@ public class MainActivity extends AppCompatActivity {
                     }
                 }
             }
+        } else if ((requestCode == REQUEST_FOLDER_PICK + 1) && resultCode == RESULT_OK) {
+            if (data != null && data.getData() != null) {
+                startFolderPlayback(1, data.getData());
+            }
+        } else if ((requestCode == REQUEST_FOLDER_PICK + 2) && resultCode == RESULT_OK) {
+            if (data != null && data.getData() != null) {
+                startFolderPlayback(2, data.getData());
+            }
         }
     }
 
-    private int getPlayer1CurrentPosition() {
-        if (player1MediaPlayer != null) {
-            return player1MediaPlayer.getCurrentPosition();
-        } else if (player1VideoView != null) {
-            return player1VideoView.getCurrentPosition();
+    private void selectFolderForPlayer(int playerNumber) {
+        Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT_TREE);
+        intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_GRANT_PERSISTABLE_URI_PERMISSION);
+        if (intent.resolveActivity(getPackageManager()) != null) {
+            startActivityForResult(intent, REQUEST_FOLDER_PICK + playerNumber);
+        } else {
+            Toast.makeText(this, "系统不支持选择文件夹", Toast.LENGTH_SHORT).show();
         }
-        return 0;
     }
 
-    private int getPlayer2CurrentPosition() {
-        if (player2MediaPlayer != null) {
-            return player2MediaPlayer.getCurrentPosition();
-        } else if (player2VideoView != null) {
-            return player2VideoView.getCurrentPosition();
+    // 扫描文件夹并逐步构建播放列表，找到第一个可播放文件后立即开始播放
+    private void startFolderPlayback(int playerNumber, Uri treeUri) {
+        try {
+            getContentResolver().takePersistableUriPermission(treeUri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        } catch (SecurityException e) {
+            Log.w("MPDemo", "无法持久化文件夹权限: " + e.getMessage());
         }
-        return 0;
+
+        final PlaylistQueue playlist = playerNumber == 1 ? player1Playlist : player2Playlist;
+        FolderScanner scanner = playerNumber == 1 ? player1FolderScanner : player2FolderScanner;
+        playlist.clear();
+        Log.d("MPDemo", "Player" + playerNumber + " 选择文件夹: " + treeUri);
+
+        scanner.scan(treeUri, new FolderScanner.Listener() {
+            @Override
+            public void onMediaFound(List<Uri> items) {
+                if (playlist.addAll(items)) {
+                    if (playerNumber == 1) {
+                        playMediaInPlayer1(playlist.current());
+                    } else {
+                        playMediaInPlayer2(playlist.current());
+                    }
+                }
+            }
+
+            @Override
+            public void onScanFinished(int totalCount) {
+                Toast.makeText(MainActivity.this,
+                        "Player" + playerNumber + " 文件夹扫描完成，共 " + totalCount + " 个媒体文件",
+                        Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
-    private boolean isMediaPlayerPlaying(MediaPlayer mediaPlayer) {
-        if (mediaPlayer != null) {
-            try {
-                return mediaPlayer.isPlaying();
-            } catch (IllegalStateException e) {
-                // MediaPlayer可能处于错误状态
-                return false;
+    // 播放列表中有多个条目时切换到下一条，返回是否已切换
+    private boolean playNextInPlaylist(int playerNumber) {
+        PlaylistQueue playlist = playerNumber == 1 ? player1Playlist : player2Playlist;
+        boolean looping = playerNumber == 1 ? isPlayer1Looping : isPlayer2Looping;
+        if (playlist.size() <= 1) {
+            return false;
+        }
+
+        // 开启循环时列表整体循环，否则播放到最后一条后停止
+        final Uri next = playlist.advance(looping);
+        if (next == null) {
+            return false;
+        }
+        // 下一条已预缓冲时直接接管，否则重新创建播放器
+        final MediaPlayer prepared = (playerNumber == 1 ? player1Prebuffer : player2Prebuffer).take(next);
+        // 不在播放器自身的回调中释放它
+        handler.post(() -> {
+            if (playerNumber == 1) {
+                if (prepared != null) {
+                    adoptPrebufferedAudioInPlayer1(next, prepared);
+                } else {
+                    playMediaInPlayer1(next);
+                }
+            } else {
+                if (prepared != null) {
+                    adoptPrebufferedAudioInPlayer2(next, prepared);
+                } else {
+                    playMediaInPlayer2(next);
+                }
             }
+        });
+        return true;
+    }
+
+    // 预缓冲播放列表中的下一条：下一条是音频时提前准备好MediaPlayer，
+    // 是视频时只提前探测并写入媒体索引(VideoView内部的播放器无法提前创建)
+    private void prebufferNext(int playerNumber) {
+        final PlaylistQueue playlist = playerNumber == 1 ? player1Playlist : player2Playlist;
+        final NextItemPrebuffer prebuffer = playerNumber == 1 ? player1Prebuffer : player2Prebuffer;
+        boolean looping = playerNumber == 1 ? isPlayer1Looping : isPlayer2Looping;
+
+        final Uri next = playlist.size() > 1 ? playlist.peekNext(looping) : null;
+        if (next == null) {
+            prebuffer.release();
+            return;
+        }
+
+        // 媒体探测放到后台线程，避免阻塞界面
+        final MediaPlayer scheduledFor = playerNumber == 1 ? player1MediaPlayer : player2MediaPlayer;
+        backgroundExecutor.execute(() -> {
+            MediaIndex.Entry entry = mediaIndex.lookupOrProbe(next);
+            final boolean isAudio = entry != null ? !entry.hasVideo : PlaybackLogic.isAudioFile(PlaybackLogic.getFileExtension(next.toString()));
+            handler.post(() -> {
+                MediaPlayer current = playerNumber == 1 ? player1MediaPlayer : player2MediaPlayer;
+                boolean currentLooping = playerNumber == 1 ? isPlayer1Looping : isPlayer2Looping;
+                if (current != scheduledFor || !next.equals(playlist.peekNext(currentLooping))) {
+                    return; // 探测期间已经切换了媒体或播放列表，结果作废，由新的prebufferNext处理
+                }
+                if (!isAudio || current == null || isFinishing()) {
+                    prebuffer.release();
+                    return;
+                }
+                AudioDeviceInfo device = playerNumber == 1 ? player1SelectedDevice : player2SelectedDevice;
+                int volume = playerNumber == 1 ? player1Volume : player2Volume;
+                prebuffer.prepare(MainActivity.this, next, current, device, volume / 100.0f);
+            });
+        });
+    }
+
+    private void togglePlaylistShuffle(int playerNumber) {
+        PlaylistQueue playlist = playerNumber == 1 ? player1Playlist : player2Playlist;
+        playlist.setShuffle(!playlist.isShuffle());
+        Toast.makeText(this, "Player" + playerNumber + " 随机播放: " + (playlist.isShuffle() ? "开" : "关"),
+                Toast.LENGTH_SHORT).show();
+
+        // 播放顺序改变，重新预缓冲
+        (playerNumber == 1 ? player1Prebuffer : player2Prebuffer).release();
+        prebufferNext(playerNumber);
+    }
+
+    // 播放器选项对话框，各项功能按需追加
+    private void showSlotOptionsDialog(int playerNumber) {
+        List<String> options = new ArrayList<>();
+        List<Runnable> actions = new ArrayList<>();
+
+        options.add(syncGroup.isEnabled() ? "关闭同步启动" : "同步启动两个播放器");
+        actions.add(this::toggleSyncGroup);
+        options.add("查看同步统计");
+        actions.add(() -> Toast.makeText(this, syncGroup.getStatsSummary(), Toast.LENGTH_LONG).show());
+        options.add("校准输出设备延迟");
+        actions.add(() -> calibrateOutputLatency(playerNumber));
+        options.add("扇出到多个输出设备...");
+        actions.add(() -> selectFanOutDevices(playerNumber));
+        options.add(softwareMixEnabled ? "关闭软件混音" : "软件混音(同设备合并输出)");
+        actions.add(this::toggleSoftwareMix);
+        options.add(clipCacheEnabled ? "关闭短片段内存循环" : "短片段内存循环(30秒以内)");
+        actions.add(this::toggleClipCache);
+        options.add(offloadEnabled ? "关闭压缩音频卸载" : "压缩音频卸载播放");
+        actions.add(this::toggleOffload);
+        EventJournal journal = EventJournal.getActive();
+        if (journal == null) {
+            options.add("开始记录事件日志(拷机)");
+            actions.add(this::startEventJournal);
+        } else {
+            options.add("停止记录事件日志");
+            actions.add(this::stopEventJournal);
+            options.add("查看事件日志统计");
+            actions.add(() -> Toast.makeText(this, journal.getStatsSummary(), Toast.LENGTH_LONG).show());
+        }
+        VideoPresentation presentation = playerNumber == 1 ? player1Presentation : player2Presentation;
+        if (presentation == null) {
+            options.add("视频输出到副屏...");
+            actions.add(() -> selectPresentationDisplay(playerNumber));
+        } else {
+            options.add("停止副屏输出(" + presentation.getDescription() + ")");
+            actions.add(presentation::dismiss);
+        }
+        if (glCompositor == null) {
+            options.add("GL合成两路视频: 分屏");
+            actions.add(() -> startCompositor(GlCompositor.Layout.SPLIT));
+            options.add("GL合成两路视频: 画中画");
+            actions.add(() -> startCompositor(GlCompositor.Layout.PICTURE_IN_PICTURE));
+        } else {
+            GlCompositor compositor = glCompositor;
+            options.add("停止GL合成");
+            actions.add(this::stopCompositor);
+            options.add("查看GL合成统计");
+            actions.add(() -> Toast.makeText(this, compositor.getStatsSummary(), Toast.LENGTH_LONG).show());
+        }
+        CustomVideoView videoView = playerNumber == 1 ? player1VideoView : player2VideoView;
+        boolean preview = videoView.getRenderPolicy() == RenderResolutionPolicy.PREVIEW;
+        options.add(preview ? "视频缓冲区: 改为全分辨率" : "视频缓冲区: 改为面板预览尺寸");
+        actions.add(() -> setRenderPolicy(videoView, preview ? RenderResolutionPolicy.FULL : RenderResolutionPolicy.PREVIEW));
+        if (videoView.getVisibility() == View.VISIBLE) {
+            options.add("查看视频输出统计");
+            actions.add(() -> showVideoOutputStats(videoView));
+        }
+        boolean audioOnly = playerNumber == 1 ? player1AudioOnly : player2AudioOnly;
+        options.add(audioOnly ? "关闭仅音频模式" : "仅音频模式(视频文件不解码画面)");
+        actions.add(() -> setAudioOnly(playerNumber, !audioOnly));
+        options.add("测量仅音频模式节省的资源");
+        actions.add(() -> measureAudioOnlySaving(playerNumber));
+        PcmPlayback pcmPlayback = playerNumber == 1 ? player1PcmPlayback : player2PcmPlayback;
+        if (pcmPlayback != null) {
+            options.add("查看播放方式统计");
+            actions.add(() -> Toast.makeText(this, pcmPlayback.getStatsSummary(), Toast.LENGTH_LONG).show());
+        }
+        if (networkSync == null) {
+            options.add("网络同步: 作为主机");
+            actions.add(() -> startNetworkSync(NetworkClockSync.Role.LEADER, playerNumber));
+            options.add("网络同步: 作为从机");
+            actions.add(() -> startNetworkSync(NetworkClockSync.Role.FOLLOWER, playerNumber));
+        } else {
+            options.add("关闭网络同步");
+            actions.add(this::stopNetworkSync);
+            options.add("查看网络同步统计");
+            actions.add(() -> Toast.makeText(this, networkSync.getStatsSummary(), Toast.LENGTH_LONG).show());
         }
-        return false;
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("播放器选项(Player " + playerNumber + ")")
+               .setItems(options.toArray(new String[0]), (dialog, which) -> actions.get(which).run());
+        builder.create().show();
     }
 
-    private boolean isVideoViewPlaying(CustomVideoView videoView) {
-        if (videoView != null) {
-            // 由于VideoView没有isPlaying方法，我们通过播放状态变量来判断
-            return true; // 实际上我们依赖isPlayerXPlaying标志
+    // 开启时两个播放器重新加载当前媒体，准备完成后按共同时钟同时启动
+    private void toggleSyncGroup() {
+        if (syncGroup.isEnabled()) {
+            Log.d("MPDemo", syncGroup.getStatsSummary());
+            Toast.makeText(this, syncGroup.getStatsSummary(), Toast.LENGTH_LONG).show();
+            syncGroup.disable();
+            return;
         }
-        return false;
+        if (player1CurrentMediaUri == null || player2CurrentMediaUri == null) {
+            Toast.makeText(this, "请先为两个播放器选择媒体", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        syncGroup.enable(1, 2);
+        updateSlotOutputLatency(1);
+        updateSlotOutputLatency(2);
+        playMediaInPlayer1(player1CurrentMediaUri);
+        playMediaInPlayer2(player2CurrentMediaUri);
+    }
+
+    // 在后台测量该播放器当前输出设备的延迟，保存后立即用于同步补偿
+    private void calibrateOutputLatency(int playerNumber) {
+        final AudioDeviceInfo device = playerNumber == 1 ? player1SelectedDevice : player2SelectedDevice;
+        Toast.makeText(this, "正在校准输出延迟...", Toast.LENGTH_SHORT).show();
+        backgroundExecutor.execute(() -> {
+            long latencyUs = latencyCalibrator.calibrate(device);
+            handler.post(() -> {
+                if (latencyUs < 0) {
+                    Toast.makeText(this, "校准失败", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                String deviceName = device != null ? getDeviceName(device) : "默认设备";
+                Log.d("MPDemo", "Player " + playerNumber + " " + deviceName + " 输出延迟: " + latencyUs / 1000 + "ms");
+                Toast.makeText(this, deviceName + " 输出延迟: " + latencyUs / 1000 + "ms", Toast.LENGTH_LONG).show();
+                updateSlotOutputLatency(1);
+                updateSlotOutputLatency(2);
+            });
+        });
+    }
+
+    // 把播放器当前输出设备的已校准延迟交给同步组
+    private void updateSlotOutputLatency(int playerNumber) {
+        AudioDeviceInfo device = playerNumber == 1 ? player1SelectedDevice : player2SelectedDevice;
+        syncGroup.setOutputLatencyUs(playerNumber, latencyCalibrator.getLatencyUs(device));
+    }
+
+    // 应用内解码并按输出设备选择采样率的播放方式，切换设备时需要重新打开
+    private boolean isOutputRateFixed(PcmPlayback playback) {
+        return playback instanceof ClipPlayer
+                || (playback instanceof OffloadPlayer && !((OffloadPlayer) playback).isOffloadActive());
     }
 
-    private String getFileExtension(Uri uri) {
-        String fileName = uri.toString();
-        int dotIndex = fileName.lastIndexOf('.');
-        if (dotIndex > 0) {
-            return fileName.substring(dotIndex + 1).toLowerCase();
+    // 根据播放器的设置选择应用内解码的播放方式，返回null表示使用MediaPlayer
+    private PcmPlayback createPcmPlayback(int playerNumber, Uri audioUri) {
+        List<AudioDeviceInfo> fanOutDevices = playerNumber == 1 ? player1FanOutDevices : player2FanOutDevices;
+        if (fanOutDevices.size() > 1) {
+            return new FanOutPlayer(this, playerNumber, audioUri, fanOutDevices);
         }
-        return "";
+        MediaIndex.Entry entry = playerNumber == 1 ? player1MediaEntry : player2MediaEntry;
+        if (clipCacheEnabled && entry != null && clipCache.accepts(entry.durationMs)) {
+            ClipPlayer clipPlayer = new ClipPlayer(this, playerNumber, clipCache, audioUri);
+            clipPlayer.setPreferredDevice(playerNumber == 1 ? player1SelectedDevice : player2SelectedDevice);
+            return clipPlayer;
+        }
+        if (offloadEnabled) {
+            OffloadPlayer offloadPlayer = new OffloadPlayer(this, playerNumber, audioUri);
+            offloadPlayer.setPreferredDevice(playerNumber == 1 ? player1SelectedDevice : player2SelectedDevice);
+            return offloadPlayer;
+        }
+        if (softwareMixEnabled) {
+            AudioDeviceInfo device = playerNumber == 1 ? player1SelectedDevice : player2SelectedDevice;
+            return mixerPool.openChannel(audioUri, device);
+        }
+        return null;
     }
 
-    private boolean isAudioFile(String extension) {
-        String[] audioExtensions = {"mp3", "wav", "aac", "flac", "m4a", "ogg", "wma"};
-        for (String ext : audioExtensions) {
-            if (ext.equals(extension)) {
-                return true;
-            }
+    // 切换软件混音后，正在播放音频的播放器按新的方式重新播放
+    private void toggleSoftwareMix() {
+        softwareMixEnabled = !softwareMixEnabled;
+        Log.d("MPDemo", "软件混音: " + (softwareMixEnabled ? "开" : "关"));
+        Toast.makeText(this, "软件混音: " + (softwareMixEnabled ? "开" : "关"), Toast.LENGTH_SHORT).show();
+        replayAudioSlots();
+    }
+
+    // 短片段内存循环：不超过30秒的音频解码一次后从内存循环播放
+    private void toggleClipCache() {
+        clipCacheEnabled = !clipCacheEnabled;
+        if (!clipCacheEnabled) {
+            clipCache.clear();
         }
-        return false;
+        Log.d("MPDemo", "短片段内存循环: " + (clipCacheEnabled ? "开" : "关"));
+        Toast.makeText(this, "短片段内存循环: " + (clipCacheEnabled ? "开" : "关"), Toast.LENGTH_SHORT).show();
+        replayAudioSlots();
     }
 
-    private void playMediaInPlayer1(Uri mediaUri) {
-        // 获取文件扩展名来判断类型
-        String fileExtension = getFileExtension(mediaUri);
+    // 压缩音频卸载：设备支持时由音频DSP解码，不支持时自动改用软件解码
+    private void toggleOffload() {
+        offloadEnabled = !offloadEnabled;
+        Log.d("MPDemo", "压缩音频卸载: " + (offloadEnabled ? "开" : "关"));
+        Toast.makeText(this, "压缩音频卸载: " + (offloadEnabled ? "开" : "关"), Toast.LENGTH_SHORT).show();
+        replayAudioSlots();
+    }
 
-        if (isAudioFile(fileExtension)) {
-            // 停止并释放当前的视频播放器
-            if (player1VideoView != null) {
-                player1VideoView.stopPlayback();
-            }
-            // 停止并释放当前的音频播放器（如果存在）
-            if (player1MediaPlayer != null) {
-                player1MediaPlayer.stop();
-                player1MediaPlayer.release();
-                player1MediaPlayer = null;
-            }
+    // 循环重新开始播放后调用：统计循环间隙，拷机测试计数
+    private void onSlotLooped(int playerNumber, PlaybackMetrics.PositionSource source) {
+        playbackMetrics.onLoop(playerNumber, source);
+        if (soakTest != null) {
+            soakTest.onLoop(playerNumber);
+        }
+    }
 
-            // 播放音频文件在Player 1
-            playAudioInPlayer1(mediaUri);
-        } else {
-            // 停止并释放当前的音频播放器
-            if (player1MediaPlayer != null) {
-                player1MediaPlayer.stop();
-                player1MediaPlayer.release();
-                player1MediaPlayer = null;
+    // 按intent参数为每个播放器设置设备和媒体并开启循环，同时记录事件日志和拷机报告
+    private void startSoakTest(Intent intent) {
+        SoakTest test = SoakTest.fromIntent(intent);
+        if (test == null) {
+            return;
+        }
+        for (SoakTest.SlotConfig config : test.getSlots()) {
+            if (config.device != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                AudioDeviceInfo target = null;
+                for (AudioDeviceInfo device : getAvailableOutputDevices()) {
+                    if (SoakTest.matchesDevice(device, config.device)) {
+                        target = device;
+                        break;
+                    }
+                }
+                if (target == null) {
+                    Log.w("MPDemo", "拷机测试: 没有找到设备 " + config.device + "，使用默认输出");
+                } else if (config.slot == 1) {
+                    selectOutputDeviceForPlayer1(target);
+                } else {
+                    selectOutputDeviceForPlayer2(target);
+                }
             }
-            // 停止当前的视频播放
-            if (player1VideoView != null) {
-                player1VideoView.stopPlayback();
+            if (config.slot == 1) {
+                isPlayer1Looping = true;
+                updatePlayer1LoopButtonState();
+            } else {
+                isPlayer2Looping = true;
+                updatePlayer2LoopButtonState();
             }
+            playMedia(config.slot, config.uri);
+        }
 
-            // 播放视频文件在Player 1
-            playVideoInPlayer1(mediaUri);
+        File base = getExternalFilesDir(null);
+        File dir = new File(base != null ? base : getFilesDir(), "soak");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.e("MPDemo", "拷机测试: 无法创建目录 " + dir);
+            return;
         }
-    }
+        final boolean ownsJournal = EventJournal.getActive() == null;
+        if (ownsJournal) {
+            startEventJournal();
+        }
+        String name = "soak-" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date()) + ".csv";
+        try {
+            test.start(new SoakTest.Host() {
+                @Override
+                public void stopSlot(int slot) {
+                    if (slot == 1) {
+                        stopPlayer1();
+                    } else {
+                        stopPlayer2();
+                    }
+                }
 
-    private void playMediaInPlayer2(Uri mediaUri) {
-        // 获取文件扩展名来判断类型
-        String fileExtension = getFileExtension(mediaUri);
+                @Override
+                public long getBitmapBytes() {
+                    return getDisplayedBitmapBytes();
+                }
 
-        if (isAudioFile(fileExtension)) {
-            // 停止并释放当前的视频播放器
-            if (player2VideoView != null) {
-                player2VideoView.stopPlayback();
-            }
-            // 停止并释放当前的音频播放器（如果存在）
-            if (player2MediaPlayer != null) {
-                player2MediaPlayer.stop();
-                player2MediaPlayer.release();
-                player2MediaPlayer = null;
-            }
+                @Override
+                public void onSoakFinished(SoakTest finished) {
+                    getWindow().clearFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
+                    if (ownsJournal) {
+                        stopEventJournal();
+                    }
+                    Toast.makeText(MainActivity.this, finished.getStatsSummary(), Toast.LENGTH_LONG).show();
+                }
+            }, playbackMetrics, new File(dir, name));
+        } catch (IOException e) {
+            Log.e("MPDemo", "拷机测试: 创建报告失败: " + e.getMessage());
+            return;
+        }
+        soakTest = test;
+        getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
+        Toast.makeText(this, "拷机测试已开始，报告: " + test.getReportFile(), Toast.LENGTH_LONG).show();
+    }
 
-            // 播放音频文件在Player 2
-            playAudioInPlayer2(mediaUri);
-        } else {
-            // 停止并释放当前的音频播放器
-            if (player2MediaPlayer != null) {
-                player2MediaPlayer.stop();
-                player2MediaPlayer.release();
-                player2MediaPlayer = null;
-            }
-            // 停止当前的视频播放
-            if (player2VideoView != null) {
-                player2VideoView.stopPlayback();
+    // 封面、黑胶唱片等界面上持有的位图字节数
+    private long getDisplayedBitmapBytes() {
+        long bytes = player1RecordView.getBitmapBytes() + player2RecordView.getBitmapBytes();
+        for (ImageView view : new ImageView[] {player1AlbumArt, player2AlbumArt}) {
+            Drawable drawable = view != null ? view.getDrawable() : null;
+            if (drawable instanceof BitmapDrawable && ((BitmapDrawable) drawable).getBitmap() != null) {
+                bytes += ((BitmapDrawable) drawable).getBitmap().getAllocationByteCount();
             }
+        }
+        return bytes;
+    }
 
-            // 播放视频文件在Player 2
-            playVideoInPlayer2(mediaUri);
+    // 事件日志写到应用外部目录，可以直接adb pull后用MPDemoJournalDecode转换为CSV
+    private void startEventJournal() {
+        File base = getExternalFilesDir(null);
+        File dir = new File(base != null ? base : getFilesDir(), "journal");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Toast.makeText(this, "无法创建目录: " + dir, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        String name = "events-" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date()) + ".bin";
+        try {
+            EventJournal journal = EventJournal.open(new File(dir, name));
+            Log.d("MPDemo", "事件日志已开始: " + journal.getFile());
+            Toast.makeText(this, "事件日志: " + journal.getFile(), Toast.LENGTH_LONG).show();
+        } catch (IOException e) {
+            Log.e("MPDemo", "打开事件日志失败: " + e.getMessage());
+            Toast.makeText(this, "打开事件日志失败: " + e.getMessage(), Toast.LENGTH_SHORT).show();
         }
     }
 
-    private void playVideoInPlayer1(Uri videoUri) {
-        Log.d("MPDemo", "Player1 开始播放视频: " + videoUri.toString());
-        player1CurrentMediaUri = videoUri;
-        player1VideoView.setVisibility(View.VISIBLE); // 确保视频视图可见
+    private void stopEventJournal() {
+        EventJournal journal = EventJournal.getActive();
+        if (journal == null) {
+            return;
+        }
+        Log.d("MPDemo", journal.getStatsSummary());
+        EventJournal.close();
+        Toast.makeText(this, "事件日志已保存: " + journal.getFile(), Toast.LENGTH_LONG).show();
+    }
 
-        // 隐藏专辑封面和黑胶唱片视图，因为正在播放视频
-        player1AlbumArt.setVisibility(View.GONE);
-        player1RecordView.setVisibility(View.GONE);
-        // 停止黑胶唱片旋转动画
-        player1RecordView.stopRotation();
+    // 选择一个副屏，视频以副屏原生分辨率直接输出，主屏不再合成这一路视频
+    private void selectPresentationDisplay(int playerNumber) {
+        DisplayManager displayManager = (DisplayManager) getSystemService(Context.DISPLAY_SERVICE);
+        final Display[] displays = displayManager.getDisplays(DisplayManager.DISPLAY_CATEGORY_PRESENTATION);
+        if (displays.length == 0) {
+            Toast.makeText(this, "没有可用的副屏", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        String[] names = new String[displays.length];
+        for (int i = 0; i < displays.length; i++) {
+            names[i] = displays[i].getName() + " (id " + displays[i].getDisplayId() + ")";
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("选择副屏(Player " + playerNumber + ")")
+                .setItems(names, (dialog, which) -> startPresentation(playerNumber, displays[which]))
+                .show();
+    }
 
-        player1VideoView.setVideoURI(videoUri);
+    private void startPresentation(int playerNumber, Display display) {
+        VideoPresentation presentation = new VideoPresentation(this, display, new VideoPresentation.Listener() {
+            @Override
+            public void onSurfaceReady(VideoPresentation target, SurfaceHolder holder) {
+                routeVideoOutput(playerNumber);
+            }
 
-        // 设置循环播放
-        player1VideoView.setOnCompletionListener(new MediaPlayer.OnCompletionListener() {
+            @Override
+            public void onSurfaceGone(VideoPresentation target) {
+                // 副屏Surface销毁前切回主屏，播放不中断
+                routeVideoOutput(playerNumber);
+            }
+        });
+        presentation.setOnDismissListener(dialog -> {
+            if (playerNumber == 1 && player1Presentation == presentation) {
+                player1Presentation = null;
+            } else if (playerNumber == 2 && player2Presentation == presentation) {
+                player2Presentation = null;
+            }
+            Log.d("MPDemo", "Player" + playerNumber + " 停止副屏输出");
+            routeVideoOutput(playerNumber);
+        });
+        try {
+            presentation.show();
+        } catch (WindowManager.InvalidDisplayException e) {
+            Log.e("MPDemo", "副屏不可用: " + e.getMessage());
+            Toast.makeText(this, "副屏不可用", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        VideoPresentation previous = playerNumber == 1 ? player1Presentation : player2Presentation;
+        if (playerNumber == 1) {
+            player1Presentation = presentation;
+        } else {
+            player2Presentation = presentation;
+        }
+        if (previous != null) {
+            previous.dismiss();
+        }
+        Log.d("MPDemo", "Player" + playerNumber + " 视频输出到副屏: " + presentation.getDescription());
+    }
+
+    // 副屏Surface可用时视频输出到副屏，否则输出到主屏上的VideoView
+    private void routeVideoOutput(int playerNumber) {
+        CustomVideoView videoView = playerNumber == 1 ? player1VideoView : player2VideoView;
+        VideoPresentation presentation = playerNumber == 1 ? player1Presentation : player2Presentation;
+        MediaPlayer mediaPlayer = videoView.getMediaPlayer();
+        SurfaceHolder remote = presentation != null ? presentation.getReadyHolder() : null;
+        try {
+            Surface composed = glCompositor != null && mediaPlayer != null
+                    ? glCompositor.getInputSurface(playerNumber - 1) : null;
+            if (composed != null) {
+                // GL合成优先，解码输出作为合成器的一路纹理
+                glCompositor.setVideoSize(playerNumber - 1, mediaPlayer.getVideoWidth(), mediaPlayer.getVideoHeight());
+                mediaPlayer.setSurface(composed);
+                videoView.setBackgroundColor(Color.BLACK);
+            } else if (remote != null) {
+                if (mediaPlayer != null) {
+                    presentation.setVideoSize(mediaPlayer.getVideoWidth(), mediaPlayer.getVideoHeight());
+                    mediaPlayer.setDisplay(remote);
+                }
+                // 主屏只留黑色背景，遮住Surface上残留的最后一帧
+                videoView.setBackgroundColor(Color.BLACK);
+            } else {
+                videoView.setBackground(null);
+                if (mediaPlayer != null && videoView.getHolder().getSurface().isValid()) {
+                    mediaPlayer.setDisplay(videoView.getHolder());
+                }
+            }
+        } catch (IllegalStateException e) {
+            Log.e("MPDemo", "切换视频输出失败: " + e.getMessage());
+        }
+    }
+
+    // 两路视频由GL合成到一个输出：有副屏时输出到副屏，否则输出到主屏上的全屏窗口
+    private void startCompositor(GlCompositor.Layout layout) {
+        compositorLayout = layout;
+        if (glCompositor != null) {
+            glCompositor.setLayout(layout);
+            return;
+        }
+        if (compositorHost != null) {
+            return; // 窗口已创建，等待surfaceChanged时按最新布局启动，不再创建第二个窗口
+        }
+        DisplayManager displayManager = (DisplayManager) getSystemService(Context.DISPLAY_SERVICE);
+        Display[] displays = displayManager.getDisplays(DisplayManager.DISPLAY_CATEGORY_PRESENTATION);
+        final Dialog host = displays.length > 0
+                ? new Presentation(this, displays[0])
+                : new Dialog(this, android.R.style.Theme_Black_NoTitleBar_Fullscreen);
+        SurfaceView surfaceView = new SurfaceView(host.getContext());
+        surfaceView.setOnClickListener(v -> host.dismiss());
+        surfaceView.getHolder().addCallback(new SurfaceHolder.Callback() {
+            @Override
+            public void surfaceCreated(SurfaceHolder holder) {
+            }
+
+            @Override
+            public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+                if (glCompositor != null) {
+                    return;
+                }
+                GlCompositor compositor = new GlCompositor(holder.getSurface(), width, height);
+                if (!compositor.start()) {
+                    compositor.release();
+                    Toast.makeText(MainActivity.this, "GL合成初始化失败", Toast.LENGTH_SHORT).show();
+                    host.dismiss();
+                    return;
+                }
+                glCompositor = compositor;
+                compositor.setLayout(compositorLayout);
+                Log.d("MPDemo", "GL合成输出: " + width + "x" + height + " " + compositorLayout);
+                routeVideoOutput(1);
+                routeVideoOutput(2);
+            }
+
+            @Override
+            public void surfaceDestroyed(SurfaceHolder holder) {
+                // 输出Surface销毁前释放EGL
+                stopCompositor();
+            }
+        });
+        host.setContentView(surfaceView);
+        host.setOnDismissListener(dialog -> stopCompositor());
+        compositorHost = host;
+        try {
+            host.show();
+        } catch (WindowManager.InvalidDisplayException e) {
+            Log.e("MPDemo", "合成输出窗口不可用: " + e.getMessage());
+            compositorHost = null;
+        }
+    }
+
+    private void stopCompositor() {
+        GlCompositor compositor = glCompositor;
+        glCompositor = null;
+        if (compositor != null) {
+            Log.d("MPDemo", compositor.getStatsSummary());
+            // 先把解码输出切回各自的Surface，再释放合成器的输入Surface
+            routeVideoOutput(1);
+            routeVideoOutput(2);
+            compositor.release();
+        }
+        Dialog host = compositorHost;
+        compositorHost = null;
+        if (host != null) {
+            host.dismiss();
+        }
+    }
+
+    // 在后台读取内容帧率，读完时该播放器仍在播放同一视频才应用
+    private void matchVideoFrameRate(int playerNumber, Uri videoUri) {
+        final CustomVideoView videoView = playerNumber == 1 ? player1VideoView : player2VideoView;
+        backgroundExecutor.execute(() -> {
+            float fps = FrameRateMatcher.probeFrameRate(this, videoUri);
+            handler.post(() -> {
+                Uri current = playerNumber == 1 ? player1CurrentMediaUri : player2CurrentMediaUri;
+                if (videoUri.equals(current) && videoView.getVisibility() == View.VISIBLE) {
+                    Log.d("MPDemo", "Player" + playerNumber + " 视频帧率: " + fps);
+                    frameRateMatcher.onVideoPrepared(playerNumber, videoView, fps);
+                    frameDropMonitor.onVideoStarted(playerNumber, fps);
+                }
+            });
+        });
+    }
+
+    private void showVideoOutputStats(CustomVideoView videoView) {
+        String summary = frameRateMatcher.getStatsSummary();
+        String frames = FrameRateMatcher.describeFrames(videoView.getMediaPlayer());
+        if (!frames.isEmpty()) {
+            summary += "\n" + frames;
+        }
+        String render = videoView.getRenderStatsSummary();
+        if (!render.isEmpty()) {
+            summary += "\n" + render;
+        }
+        // 4K内容按当前窗口尺寸估算预览缓冲区能节省的内存(YUV420每像素1.5字节)，
+        // 只是公式估算，同时给出实测的进程图形内存供对照
+        Size full = new Size(3840, 2160);
+        Size preview = RenderResolutionPolicy.PREVIEW.bufferSize(3840, 2160, videoView.getWidth(), videoView.getHeight());
+        summary += "\n" + RenderResolutionPolicy.describeSaving("4K预览", full, preview, 1.5f);
+        Debug.MemoryInfo memoryInfo = new Debug.MemoryInfo();
+        Debug.getMemoryInfo(memoryInfo);
+        String graphicsKb = memoryInfo.getMemoryStat("summary.graphics");
+        if (graphicsKb != null) {
+            summary += "\n当前进程图形内存(实测): " + Integer.parseInt(graphicsKb) / 1024 + "MB";
+        }
+        Log.d("MPDemo", summary);
+        new AlertDialog.Builder(this)
+                .setTitle("视频输出统计")
+                .setMessage(summary)
+                .setPositiveButton("确定", null)
+                .show();
+    }
+
+    // 全分辨率用于实际输出，面板上的小窗口只需要与窗口相当的缓冲区
+    private void setRenderPolicy(CustomVideoView videoView, RenderResolutionPolicy policy) {
+        videoView.setRenderPolicy(policy);
+        Log.d("MPDemo", "视频缓冲区策略: " + policy + " " + videoView.getRenderStatsSummary());
+        Toast.makeText(this, "视频缓冲区: " + (policy == RenderResolutionPolicy.FULL ? "全分辨率" : "面板预览尺寸"),
+                Toast.LENGTH_SHORT).show();
+    }
+
+    // 切换仅音频模式，当前是视频文件时按新的方式重新播放
+    private void setAudioOnly(int playerNumber, boolean audioOnly) {
+        MediaIndex.Entry entry;
+        Uri uri;
+        if (playerNumber == 1) {
+            player1AudioOnly = audioOnly;
+            entry = player1MediaEntry;
+            uri = player1CurrentMediaUri;
+        } else {
+            player2AudioOnly = audioOnly;
+            entry = player2MediaEntry;
+            uri = player2CurrentMediaUri;
+        }
+        Log.d("MPDemo", "Player" + playerNumber + " 仅音频模式: " + (audioOnly ? "开" : "关"));
+        if (uri == null || entry == null || !entry.hasVideo) {
+            return;
+        }
+        if (playerNumber == 1) {
+            playMediaInPlayer1(uri);
+        } else {
+            playMediaInPlayer2(uri);
+        }
+    }
+
+    // 同一视频文件先完整播放再仅音频播放，各采样一段时间比较资源占用
+    private void measureAudioOnlySaving(int playerNumber) {
+        MediaIndex.Entry entry = playerNumber == 1 ? player1MediaEntry : player2MediaEntry;
+        if (entry == null || !entry.hasVideo) {
+            Toast.makeText(this, "请先在该播放器中播放视频文件", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        final boolean original = playerNumber == 1 ? player1AudioOnly : player2AudioOnly;
+        final long warmupMs = 3000;   // 等待切换后的解码和渲染稳定
+        final long measureMs = 10000;
+        Toast.makeText(this, "正在测量，约需 " + (warmupMs + measureMs) * 2 / 1000 + " 秒", Toast.LENGTH_LONG).show();
+        setAudioOnly(playerNumber, false);
+        new Thread(() -> {
+            try {
+                Thread.sleep(warmupMs);
+                ResourceSampler.Result video = ResourceSampler.measure(measureMs);
+                handler.post(() -> setAudioOnly(playerNumber, true));
+                Thread.sleep(warmupMs);
+                ResourceSampler.Result audio = ResourceSampler.measure(measureMs);
+                String summary = ResourceSampler.compare("完整视频播放", video, "仅音频播放", audio);
+                Log.d("MPDemo", "Player" + playerNumber + " 仅音频模式测量:\n" + summary);
+                handler.post(() -> {
+                    if (isFinishing() || isDestroyed()) {
+                        return;
+                    }
+                    setAudioOnly(playerNumber, original);
+                    new AlertDialog.Builder(this)
+                            .setTitle("仅音频模式资源占用(Player " + playerNumber + ")")
+                            .setMessage(summary)
+                            .setPositiveButton("确定", null)
+                            .show();
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "ResourceMeasure").start();
+    }
+
+    // 播放方式改变后，正在播放音频的播放器重新加载当前媒体
+    private void replayAudioSlots() {
+        if (player1CurrentMediaUri != null && player1VideoView.getVisibility() != View.VISIBLE) {
+            playMediaInPlayer1(player1CurrentMediaUri);
+        }
+        if (player2CurrentMediaUri != null && player2VideoView.getVisibility() != View.VISIBLE) {
+            playMediaInPlayer2(player2CurrentMediaUri);
+        }
+    }
+
+    // 选择多个输出设备，同一音源只解码一次同时输出到这些设备
+    private void selectFanOutDevices(int playerNumber) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return;
+        }
+        final List<AudioDeviceInfo> devices = getAvailableOutputDevices();
+        final List<AudioDeviceInfo> selected = playerNumber == 1 ? player1FanOutDevices : player2FanOutDevices;
+        String[] names = new String[devices.size()];
+        final boolean[] checked = new boolean[devices.size()];
+        for (int i = 0; i < devices.size(); i++) {
+            names[i] = getDeviceName(devices.get(i)) + " (" + devices.get(i).getProductName() + ")";
+            for (AudioDeviceInfo device : selected) {
+                checked[i] |= device.getId() == devices.get(i).getId();
+            }
+        }
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("扇出输出设备(Player " + playerNumber + ")")
+               .setMultiChoiceItems(names, checked, (dialog, which, isChecked) -> checked[which] = isChecked)
+               .setPositiveButton("确定", (dialog, which) -> {
+                   selected.clear();
+                   for (int i = 0; i < devices.size(); i++) {
+                       if (checked[i]) {
+                           selected.add(devices.get(i));
+                       }
+                   }
+                   Log.d("MPDemo", "Player " + playerNumber + " 扇出设备数: " + selected.size());
+                   Toast.makeText(this, selected.size() > 1 ? "扇出到 " + selected.size() + " 个设备"
+                           : "已关闭扇出播放", Toast.LENGTH_SHORT).show();
+                   // 当前是音频时按新的设置重新播放
+                   Uri current = playerNumber == 1 ? player1CurrentMediaUri : player2CurrentMediaUri;
+                   boolean videoPlaying = playerNumber == 1 ? player1VideoView.getVisibility() == View.VISIBLE
+                           : player2VideoView.getVisibility() == View.VISIBLE;
+                   if (current != null && !videoPlaying) {
+                       if (playerNumber == 1) {
+                           playMediaInPlayer1(current);
+                       } else {
+                           playMediaInPlayer2(current);
+                       }
+                   }
+               })
+               .setNegativeButton("取消", null);
+        builder.create().show();
+    }
+
+    // 主机广播该播放器的媒体时钟，从机调整该播放器的播放速度跟随主机
+    private void startNetworkSync(NetworkClockSync.Role role, int playerNumber) {
+        stopNetworkSync();
+        InetSocketAddress address = role == NetworkClockSync.Role.LEADER
+                ? new InetSocketAddress("255.255.255.255", NetworkClockSync.DEFAULT_PORT)
+                : null; // 从机从收到的第一个信标中获取主机地址
+        NetworkClockSync sync = new NetworkClockSync(role,
+                new MediaPlayerClock(this::getSlotMediaPlayer, playerNumber),
+                NetworkClockSync.DEFAULT_PORT, address);
+        try {
+            sync.start();
+        } catch (SocketException e) {
+            Log.e("MPDemo", "启动网络同步失败: " + e.getMessage());
+            Toast.makeText(this, "启动网络同步失败: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            return;
+        }
+        networkSync = sync;
+        Log.d("MPDemo", "网络同步已启动: " + role + " Player " + playerNumber);
+        Toast.makeText(this, role == NetworkClockSync.Role.LEADER ? "网络同步: 主机" : "网络同步: 从机",
+                Toast.LENGTH_SHORT).show();
+    }
+
+    private void stopNetworkSync() {
+        if (networkSync != null) {
+            Log.d("MPDemo", networkSync.getStatsSummary());
+            networkSync.stop();
+            networkSync = null;
+        }
+    }
+
+    // 供同步组获取各播放器当前的MediaPlayer
+    private MediaPlayer getSlotMediaPlayer(int slot) {
+        if (slot == 1) {
+            return player1MediaPlayer != null ? player1MediaPlayer : player1VideoView.getMediaPlayer();
+        } else {
+            return player2MediaPlayer != null ? player2MediaPlayer : player2VideoView.getMediaPlayer();
+        }
+    }
+
+    // 同步组统一启动某个播放器后更新界面状态
+    private void onSlotStartedBySyncGroup(int slot) {
+        if (slot == 1) {
+            isPlayer1Playing = true;
+            if (player1PlayPauseButton != null) {
+                player1PlayPauseButton.setImageResource(R.drawable.ic_pause);
+            }
+            player1SeekBar.setMax(100);
+        } else {
+            isPlayer2Playing = true;
+            if (player2PlayPauseButton != null) {
+                player2PlayPauseButton.setImageResource(R.drawable.ic_pause);
+            }
+            player2SeekBar.setMax(100);
+        }
+        handler.removeCallbacks(updateSeekBars);
+        handler.post(updateSeekBars);
+        prebufferNext(slot);
+    }
+
+    // 获取文件选择器返回的Uri，支持多选
+    private List<Uri> getSelectedUris(Intent data) {
+        List<Uri> uris = new ArrayList<>();
+        if (data.getClipData() != null) {
+            for (int i = 0; i < data.getClipData().getItemCount(); i++) {
+                Uri uri = data.getClipData().getItemAt(i).getUri();
+                if (uri != null) {
+                    uris.add(uri);
+                }
+            }
+        } else if (data.getData() != null) {
+            uris.add(data.getData());
+        }
+        return uris;
+    }
+
+    private int getPlayer1CurrentPosition() {
+        if (player1PcmPlayback != null) {
+            return player1PcmPlayback.getCurrentPosition();
+        } else if (player1MediaPlayer != null) {
+            return player1MediaPlayer.getCurrentPosition();
+        } else if (player1VideoView != null) {
+            return player1VideoView.getCurrentPosition();
+        }
+        return 0;
+    }
+
+    private int getPlayer2CurrentPosition() {
+        if (player2PcmPlayback != null) {
+            return player2PcmPlayback.getCurrentPosition();
+        } else if (player2MediaPlayer != null) {
+            return player2MediaPlayer.getCurrentPosition();
+        } else if (player2VideoView != null) {
+            return player2VideoView.getCurrentPosition();
+        }
+        return 0;
+    }
+
+    // 与选择单个文件的流程相同：替换播放列表并在指定播放器中播放，拷机测试和基准测试使用
+    @VisibleForTesting
+    void playMedia(int playerNumber, Uri mediaUri) {
+        if (playerNumber == 1) {
+            player1FolderScanner.cancel();
+            player1Playlist.setSingle(mediaUri);
+            playMediaInPlayer1(mediaUri);
+        } else {
+            player2FolderScanner.cancel();
+            player2Playlist.setSingle(mediaUri);
+            playMediaInPlayer2(mediaUri);
+        }
+    }
+
+    // 与拖动进度条的处理相同
+    @VisibleForTesting
+    void seekSlot(int playerNumber, int positionMs) {
+        PcmPlayback pcmPlayback = playerNumber == 1 ? player1PcmPlayback : player2PcmPlayback;
+        MediaPlayer mediaPlayer = playerNumber == 1 ? player1MediaPlayer : player2MediaPlayer;
+        CustomVideoView videoView = playerNumber == 1 ? player1VideoView : player2VideoView;
+        if (pcmPlayback != null) {
+            // PCM引擎没有seek完成回调，不计入PlaybackMetrics，见isPcmSlot()
+            pcmPlayback.seekTo(positionMs);
+        } else if (mediaPlayer != null) {
+            playbackMetrics.onSeekStarted(playerNumber);
+            mediaPlayer.seekTo(positionMs);
+        } else if (videoView != null) {
+            playbackMetrics.onSeekStarted(playerNumber);
+            videoView.seekTo(positionMs);
+        }
+    }
+
+    /**
+     * 该播放器是否由PCM引擎播放，此时seekSlot()不会产生seek耗时记录
+     */
+    @VisibleForTesting
+    boolean isPcmSlot(int playerNumber) {
+        return (playerNumber == 1 ? player1PcmPlayback : player2PcmPlayback) != null;
+    }
+
+    @VisibleForTesting
+    PlaybackMetrics getPlaybackMetrics() {
+        return playbackMetrics;
+    }
+
+    private boolean isMediaPlayerPlaying(MediaPlayer mediaPlayer) {
+        if (mediaPlayer != null) {
+            try {
+                return mediaPlayer.isPlaying();
+            } catch (IllegalStateException e) {
+                // MediaPlayer可能处于错误状态
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private boolean isVideoViewPlaying(CustomVideoView videoView) {
+        if (videoView != null) {
+            // 由于VideoView没有isPlaying方法，我们通过播放状态变量来判断
+            return true; // 实际上我们依赖isPlayerXPlaying标志
+        }
+        return false;
+    }
+
+    // 位置在主线程读取，写入数据库放到索引线程，与之后对同一文件的查询保持先后顺序
+    private void savePositionInBackground(Uri uri, int positionMs) {
+        if (uri == null || indexExecutor.isShutdown()) return;
+        indexExecutor.execute(() -> mediaIndex.savePosition(uri, positionMs));
+    }
+
+    // 在后台探测媒体并写入索引，完成时该播放器仍在播放同一媒体才更新当前记录
+    private void probeMediaInBackground(int playerNumber, Uri mediaUri) {
+        backgroundExecutor.execute(() -> {
+            MediaIndex.Entry entry = mediaIndex.lookupOrProbe(mediaUri);
+            if (entry == null) {
+                return;
+            }
+            handler.post(() -> {
+                if (playerNumber == 1 && mediaUri.equals(player1CurrentMediaUri)) {
+                    player1MediaEntry = entry;
+                } else if (playerNumber == 2 && mediaUri.equals(player2CurrentMediaUri)) {
+                    player2MediaEntry = entry;
+                }
+            });
+        });
+    }
+
+    private void playMediaInPlayer1(Uri mediaUri) {
+        playbackMetrics.onPick(1);
+        player1Prebuffer.release(); // 非预缓冲的切换，丢弃已准备的下一条
+        // 保存上一个文件的播放位置
+        if (player1CurrentMediaUri != null) {
+            savePositionInBackground(player1CurrentMediaUri, getPlayer1CurrentPosition());
+        }
+        if (player1PcmPlayback != null) {
+            player1PcmPlayback.release();
+            player1PcmPlayback = null;
+        }
+
+        // 查询索引要读取文件信息和数据库，放到后台线程，完成后回到主线程继续；期间又选择了其他媒体时结果作废
+        final int serial = ++player1PickSerial;
+        indexExecutor.execute(() -> {
+            MediaIndex.Entry entry = mediaIndex.lookup(mediaUri);
+            handler.post(() -> {
+                if (serial == player1PickSerial && !isDestroyed()) {
+                    playMediaInPlayer1(mediaUri, entry);
+                }
+            });
+        });
+    }
+
+    // 优先使用索引中的媒体信息，未命中时按扩展名判断类型，同时在后台探测文件写入索引
+    private void playMediaInPlayer1(Uri mediaUri, MediaIndex.Entry entry) {
+        player1MediaEntry = entry;
+        if (player1MediaEntry == null) {
+            probeMediaInBackground(1, mediaUri);
+        }
+        String fileExtension = PlaybackLogic.getFileExtension(mediaUri.toString());
+        boolean isAudio = player1MediaEntry != null ? !player1MediaEntry.hasVideo : PlaybackLogic.isAudioFile(fileExtension);
+        if (!isAudio && player1AudioOnly) {
+            // 按音频播放：不设置Surface，播放器不会实例化视频解码器
+            Log.d("MPDemo", "Player1 仅音频模式播放视频文件");
+            isAudio = true;
+        }
+
+        if (isAudio) {
+            // 停止并释放当前的视频播放器
+            if (player1VideoView != null) {
+                player1VideoView.stopPlayback();
+            }
+            // 停止并释放当前的音频播放器（如果存在）
+            if (player1MediaPlayer != null) {
+                player1MediaPlayer.stop();
+                player1MediaPlayer.release();
+                player1MediaPlayer = null;
+            }
+
+            // 播放音频文件在Player 1
+            playAudioInPlayer1(mediaUri);
+        } else {
+            // 停止并释放当前的音频播放器
+            if (player1MediaPlayer != null) {
+                player1MediaPlayer.stop();
+                player1MediaPlayer.release();
+                player1MediaPlayer = null;
+            }
+            // 停止当前的视频播放
+            if (player1VideoView != null) {
+                player1VideoView.stopPlayback();
+            }
+
+            // 播放视频文件在Player 1
+            playVideoInPlayer1(mediaUri);
+        }
+    }
+
+    private void playMediaInPlayer2(Uri mediaUri) {
+        playbackMetrics.onPick(2);
+        player2Prebuffer.release(); // 非预缓冲的切换，丢弃已准备的下一条
+        // 保存上一个文件的播放位置
+        if (player2CurrentMediaUri != null) {
+            savePositionInBackground(player2CurrentMediaUri, getPlayer2CurrentPosition());
+        }
+        if (player2PcmPlayback != null) {
+            player2PcmPlayback.release();
+            player2PcmPlayback = null;
+        }
+
+        // 查询索引要读取文件信息和数据库，放到后台线程，完成后回到主线程继续；期间又选择了其他媒体时结果作废
+        final int serial = ++player2PickSerial;
+        indexExecutor.execute(() -> {
+            MediaIndex.Entry entry = mediaIndex.lookup(mediaUri);
+            handler.post(() -> {
+                if (serial == player2PickSerial && !isDestroyed()) {
+                    playMediaInPlayer2(mediaUri, entry);
+                }
+            });
+        });
+    }
+
+    // 优先使用索引中的媒体信息，未命中时按扩展名判断类型，同时在后台探测文件写入索引
+    private void playMediaInPlayer2(Uri mediaUri, MediaIndex.Entry entry) {
+        player2MediaEntry = entry;
+        if (player2MediaEntry == null) {
+            probeMediaInBackground(2, mediaUri);
+        }
+        String fileExtension = PlaybackLogic.getFileExtension(mediaUri.toString());
+        boolean isAudio = player2MediaEntry != null ? !player2MediaEntry.hasVideo : PlaybackLogic.isAudioFile(fileExtension);
+        if (!isAudio && player2AudioOnly) {
+            // 按音频播放：不设置Surface，播放器不会实例化视频解码器
+            Log.d("MPDemo", "Player2 仅音频模式播放视频文件");
+            isAudio = true;
+        }
+
+        if (isAudio) {
+            // 停止并释放当前的视频播放器
+            if (player2VideoView != null) {
+                player2VideoView.stopPlayback();
+            }
+            // 停止并释放当前的音频播放器（如果存在）
+            if (player2MediaPlayer != null) {
+                player2MediaPlayer.stop();
+                player2MediaPlayer.release();
+                player2MediaPlayer = null;
+            }
+
+            // 播放音频文件在Player 2
+            playAudioInPlayer2(mediaUri);
+        } else {
+            // 停止并释放当前的音频播放器
+            if (player2MediaPlayer != null) {
+                player2MediaPlayer.stop();
+                player2MediaPlayer.release();
+                player2MediaPlayer = null;
+            }
+            // 停止当前的视频播放
+            if (player2VideoView != null) {
+                player2VideoView.stopPlayback();
+            }
+
+            // 播放视频文件在Player 2
+            playVideoInPlayer2(mediaUri);
+        }
+    }
+
+    private void playVideoInPlayer1(Uri videoUri) {
+        Log.d("MPDemo", "Player1 开始播放视频: " + videoUri.toString());
+        player1CurrentMediaUri = videoUri;
+        player1VideoView.setVisibility(View.VISIBLE); // 确保视频视图可见
+
+        // 隐藏专辑封面和黑胶唱片视图，因为正在播放视频
+        player1AlbumArt.setVisibility(View.GONE);
+        hideWaveform(player1Waveform, player1WaveformGenerator);
+        player1RecordView.setVisibility(View.GONE);
+        // 停止黑胶唱片旋转动画
+        player1RecordView.stopRotation();
+
+        player1VideoView.setVideoURI(videoUri);
+
+        // 设置循环播放
+        player1VideoView.setOnCompletionListener(new MediaPlayer.OnCompletionListener() {
             @Override
             public void onCompletion(MediaPlayer mp) {
-                Log.d("MPDemo", "Player1 视频播放完成，循环状态: " + isPlayer1Looping);
+                EventJournal.record(EventJournal.Type.COMPLETION, 1, 0, 0);
+                if (PlaybackTrace.isDebugLogging()) {
+                    Log.d("MPDemo", "Player1 视频播放完成，循环状态: " + isPlayer1Looping);
+                }
+                // 播放列表中有下一条时切换到下一条
+                if (playNextInPlaylist(1)) {
+                    return;
+                }
                 if (isPlayer1Looping) {
+                    PlaybackTrace.begin("Player1 loop");
+                    EventJournal.record(EventJournal.Type.LOOP, 1, EventJournal.SOURCE_ACTIVITY, 0);
                     // 应用首选设备，确保在循环播放时保持输出设备设置
                     if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M && player1SelectedDevice != null) {
                         try {
@@ -1020,7 +2263,9 @@ public class MainActivity extends AppCompatActivity {
 
                             // 使用setPreferredDevice设置输出设备
                             boolean success = mp.setPreferredDevice(player1SelectedDevice);
-                            Log.d("MPDemo", "Player1 循环播放时重新设置设备 " + (success ? "成功" : "失败") + ": " + getDeviceName(player1SelectedDevice));
+                            if (PlaybackTrace.isDebugLogging()) {
+                                Log.d("MPDemo", "Player1 循环播放时重新设置设备 " + (success ? "成功" : "失败") + ": " + getDeviceName(player1SelectedDevice));
+                            }
                         } catch (Exception e) {
                             Log.e("MPDemo", "Player1 循环播放时设置音频属性失败: " + e.getMessage());
                         }
@@ -1029,10 +2274,16 @@ public class MainActivity extends AppCompatActivity {
                     // 应用之前保存的音量设置
                     float volume = player1Volume / 100.0f;
                     player1VideoView.setVideoVolume(volume);
-                    Log.d("MPDemo", "Player1 循环播放时重新应用音量: " + player1Volume + "%");
+                    if (PlaybackTrace.isDebugLogging()) {
+                        Log.d("MPDemo", "Player1 循环播放时重新应用音量: " + player1Volume + "%");
+                    }
 
                     player1VideoView.start(); // 重新开始播放
-                    Log.d("MPDemo", "Player1 循环播放已启动");
+                    if (PlaybackTrace.isDebugLogging()) {
+                        Log.d("MPDemo", "Player1 循环播放已启动");
+                    }
+                    PlaybackTrace.end();
+                    onSlotLooped(1, player1VideoView::getCurrentPosition);
                 } else {
                     if (player1PlayPauseButton != null) {
                         player1PlayPauseButton.setImageResource(R.drawable.ic_play_arrow);
@@ -1044,10 +2295,27 @@ public class MainActivity extends AppCompatActivity {
         });
 
         // 如果已经选择了输出设备，在视频准备完成后设置
+        player1VideoView.setOnErrorListener((mp, what, extra) -> {
+            Log.e("MPDemo", "Player1 视频播放错误: what=" + what + ", extra=" + extra);
+            EventJournal.record(EventJournal.Type.ERROR, 1, what, extra);
+            if (soakTest != null) {
+                soakTest.onError(1);
+            }
+            return false; // 继续使用VideoView默认的错误处理
+        });
+        player1VideoView.setOnInfoListener((mp, what, extra) -> {
+            if (what == MediaPlayer.MEDIA_INFO_VIDEO_RENDERING_START) {
+                playbackMetrics.onFirstFrame(1);
+            }
+            return false;
+        });
+
         player1VideoView.setOnPreparedListener(new MediaPlayer.OnPreparedListener() {
             @Override
             public void onPrepared(MediaPlayer mp) {
                 Log.d("MPDemo", "Player1 视频准备就绪");
+                playbackMetrics.onPrepared(1);
+                mp.setOnSeekCompleteListener(p -> playbackMetrics.onSeekComplete(1));
                 // 应用首选设备
                 if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M && player1SelectedDevice != null) {
                     try {
@@ -1071,7 +2339,22 @@ public class MainActivity extends AppCompatActivity {
                 player1VideoView.setVideoVolume(volume);
                 Log.d("MPDemo", "Player1 视频音量设置为: " + player1Volume + "%");
 
+                // 按内容帧率设置Surface帧率和显示模式
+                matchVideoFrameRate(1, videoUri);
+                if (player1Presentation != null || glCompositor != null) {
+                    routeVideoOutput(1);
+                }
+
+                // 同步启动模式下等待所有播放器准备完成后统一启动
+                if (syncGroup.holdUntilGroupReady(1, player1VideoView::start)) {
+                    return;
+                }
+
+                restoreSavedPosition(mp, player1MediaEntry);
+                PlaybackTrace.begin("Player1 start");
                 player1VideoView.start();
+                PlaybackTrace.end();
+                playbackMetrics.watchFirstAudio(1, mp::getCurrentPosition);
                 isPlayer1Playing = true;
                 if (player1PlayPauseButton != null) {
                     player1PlayPauseButton.setImageResource(R.drawable.ic_pause);
@@ -1082,6 +2365,10 @@ public class MainActivity extends AppCompatActivity {
                 handler.removeCallbacks(updateSeekBars); // 先停止之前的更新任务
                 handler.post(updateSeekBars); // 开始新的更新任务
                 Log.d("MPDemo", "Player1 播放已启动");
+                prebufferNext(1);
+
+                // 后台低优先级生成拖动预览缩略图
+                player1Thumbnailer.start(videoUri, mp.getDuration());
             }
         });
 
@@ -1095,6 +2382,7 @@ public class MainActivity extends AppCompatActivity {
 
         // 隐藏专辑封面和黑胶唱片视图，因为正在播放视频
         player2AlbumArt.setVisibility(View.GONE);
+        hideWaveform(player2Waveform, player2WaveformGenerator);
         player2RecordView.setVisibility(View.GONE);
         // 停止黑胶唱片旋转动画
         player2RecordView.stopRotation();
@@ -1105,8 +2393,17 @@ public class MainActivity extends AppCompatActivity {
         player2VideoView.setOnCompletionListener(new MediaPlayer.OnCompletionListener() {
             @Override
             public void onCompletion(MediaPlayer mp) {
-                Log.d("MPDemo", "Player2 视频播放完成，循环状态: " + isPlayer2Looping);
+                EventJournal.record(EventJournal.Type.COMPLETION, 2, 0, 0);
+                if (PlaybackTrace.isDebugLogging()) {
+                    Log.d("MPDemo", "Player2 视频播放完成，循环状态: " + isPlayer2Looping);
+                }
+                // 播放列表中有下一条时切换到下一条
+                if (playNextInPlaylist(2)) {
+                    return;
+                }
                 if (isPlayer2Looping) {
+                    PlaybackTrace.begin("Player2 loop");
+                    EventJournal.record(EventJournal.Type.LOOP, 2, EventJournal.SOURCE_ACTIVITY, 0);
                     // 应用首选设备，确保在循环播放时保持输出设备设置
                     if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M && player2SelectedDevice != null) {
                         try {
@@ -1119,7 +2416,9 @@ public class MainActivity extends AppCompatActivity {
 
                             // 使用setPreferredDevice设置输出设备
                             boolean success = mp.setPreferredDevice(player2SelectedDevice);
-                            Log.d("MPDemo", "Player2 循环播放时重新设置设备 " + (success ? "成功" : "失败") + ": " + getDeviceName(player2SelectedDevice));
+                            if (PlaybackTrace.isDebugLogging()) {
+                                Log.d("MPDemo", "Player2 循环播放时重新设置设备 " + (success ? "成功" : "失败") + ": " + getDeviceName(player2SelectedDevice));
+                            }
                         } catch (Exception e) {
                             Log.e("MPDemo", "Player2 循环播放时设置音频属性失败: " + e.getMessage());
                         }
@@ -1128,10 +2427,16 @@ public class MainActivity extends AppCompatActivity {
                     // 应用之前保存的音量设置
                     float volume = player2Volume / 100.0f;
                     player2VideoView.setVideoVolume(volume);
-                    Log.d("MPDemo", "Player2 循环播放时重新应用音量: " + player2Volume + "%");
+                    if (PlaybackTrace.isDebugLogging()) {
+                        Log.d("MPDemo", "Player2 循环播放时重新应用音量: " + player2Volume + "%");
+                    }
 
                     player2VideoView.start(); // 重新开始播放
-                    Log.d("MPDemo", "Player2 循环播放已启动");
+                    if (PlaybackTrace.isDebugLogging()) {
+                        Log.d("MPDemo", "Player2 循环播放已启动");
+                    }
+                    PlaybackTrace.end();
+                    onSlotLooped(2, player2VideoView::getCurrentPosition);
                 } else {
                     if (player2PlayPauseButton != null) {
                         player2PlayPauseButton.setImageResource(R.drawable.ic_play_arrow);
@@ -1143,10 +2448,27 @@ public class MainActivity extends AppCompatActivity {
         });
 
         // 如果已经选择了输出设备，在视频准备完成后设置
+        player2VideoView.setOnErrorListener((mp, what, extra) -> {
+            Log.e("MPDemo", "Player2 视频播放错误: what=" + what + ", extra=" + extra);
+            EventJournal.record(EventJournal.Type.ERROR, 2, what, extra);
+            if (soakTest != null) {
+                soakTest.onError(2);
+            }
+            return false; // 继续使用VideoView默认的错误处理
+        });
+        player2VideoView.setOnInfoListener((mp, what, extra) -> {
+            if (what == MediaPlayer.MEDIA_INFO_VIDEO_RENDERING_START) {
+                playbackMetrics.onFirstFrame(2);
+            }
+            return false;
+        });
+
         player2VideoView.setOnPreparedListener(new MediaPlayer.OnPreparedListener() {
             @Override
             public void onPrepared(MediaPlayer mp) {
                 Log.d("MPDemo", "Player2 视频准备就绪");
+                playbackMetrics.onPrepared(2);
+                mp.setOnSeekCompleteListener(p -> playbackMetrics.onSeekComplete(2));
                 // 应用首选设备
                 if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M && player2SelectedDevice != null) {
                     try {
@@ -1170,7 +2492,22 @@ public class MainActivity extends AppCompatActivity {
                 player2VideoView.setVideoVolume(volume);
                 Log.d("MPDemo", "Player2 视频音量设置为: " + player2Volume + "%");
 
+                // 按内容帧率设置Surface帧率和显示模式
+                matchVideoFrameRate(2, videoUri);
+                if (player2Presentation != null || glCompositor != null) {
+                    routeVideoOutput(2);
+                }
+
+                // 同步启动模式下等待所有播放器准备完成后统一启动
+                if (syncGroup.holdUntilGroupReady(2, player2VideoView::start)) {
+                    return;
+                }
+
+                restoreSavedPosition(mp, player2MediaEntry);
+                PlaybackTrace.begin("Player2 start");
                 player2VideoView.start();
+                PlaybackTrace.end();
+                playbackMetrics.watchFirstAudio(2, mp::getCurrentPosition);
                 isPlayer2Playing = true;
                 if (player2PlayPauseButton != null) {
                     player2PlayPauseButton.setImageResource(R.drawable.ic_pause);
@@ -1181,6 +2518,10 @@ public class MainActivity extends AppCompatActivity {
                 handler.removeCallbacks(updateSeekBars); // 先停止之前的更新任务
                 handler.post(updateSeekBars); // 开始新的更新任务
                 Log.d("MPDemo", "Player2 播放已启动");
+                prebufferNext(2);
+
+                // 后台低优先级生成拖动预览缩略图
+                player2Thumbnailer.start(videoUri, mp.getDuration());
             }
         });
 
@@ -1191,26 +2532,25 @@ public class MainActivity extends AppCompatActivity {
         Log.d("MPDemo", "Player1 开始播放音频: " + audioUri.toString());
         player1CurrentMediaUri = audioUri;
         isPlayer1Playing = true;
+        player1Thumbnailer.cancel(); // 音频没有画面，停止生成缩略图
+
+        // 流式解码生成波形概览，边解码边显示；仅音频模式下的视频文件不额外解码
+        if (player1AudioOnly && player1MediaEntry != null && player1MediaEntry.hasVideo) {
+            hideWaveform(player1Waveform, player1WaveformGenerator);
+        } else if (player1Waveform != null) {
+            player1Waveform.clear();
+            player1Waveform.setVisibility(View.VISIBLE);
+            player1WaveformGenerator.start(audioUri, player1Waveform);
+        }
 
         // 隐藏Player 1的视频视图，因为正在播放音频
         if (player1VideoView != null) {
             player1VideoView.setVisibility(View.GONE);
         }
+        frameRateMatcher.onVideoStopped(1);
 
         // 显示专辑封面或黑胶唱片
-        Bitmap albumArt = extractAlbumArt(audioUri);
-        if (albumArt != null) {
-            // 有专辑封面，显示在ImageView上
-            player1AlbumArt.setImageBitmap(albumArt);
-            player1AlbumArt.setVisibility(View.VISIBLE);
-            player1RecordView.setVisibility(View.GONE);
-        } else {
-            // 没有专辑封面，显示黑胶唱片效果
-            player1AlbumArt.setVisibility(View.GONE);
-            player1RecordView.setAlbumArt(BitmapFactory.decodeResource(getResources(), R.drawable.ic_audio_device));
-            player1RecordView.setVisibility(View.VISIBLE);
-            player1RecordView.startRotation();
-        }
+        showAlbumArtForPlayer1(audioUri);
 
         // 释放之前的Player1的MediaPlayer实例
         if (player1MediaPlayer != null) {
@@ -1218,6 +2558,13 @@ public class MainActivity extends AppCompatActivity {
             player1MediaPlayer = null;
         }
 
+        // 启用了应用内解码的播放方式时不再创建MediaPlayer
+        PcmPlayback pcmPlayback = createPcmPlayback(1, audioUri);
+        if (pcmPlayback != null) {
+            startPcmPlaybackInPlayer1(pcmPlayback);
+            return;
+        }
+
         player1MediaPlayer = new MediaPlayer();
         player1MediaPlayer.setAudioAttributes(
             new AudioAttributes.Builder()
@@ -1238,109 +2585,237 @@ public class MainActivity extends AppCompatActivity {
                 applyPreferredDevice(player1MediaPlayer, player1SelectedDevice);
             }
 
-            player1MediaPlayer.setOnPreparedListener(new MediaPlayer.OnPreparedListener() {
-                @Override
-                public void onPrepared(MediaPlayer mp) {
-                    Log.d("MPDemo", "Player1 音频准备就绪");
-                    // 应用之前保存的音量设置
-                    float volume = player1Volume / 100.0f;
-                    mp.setVolume(volume, volume);
-                    Log.d("MPDemo", "Player1 音频音量设置为: " + player1Volume + "%");
+            player1MediaPlayer.setOnPreparedListener(new MediaPlayer.OnPreparedListener() {
+                @Override
+                public void onPrepared(MediaPlayer mp) {
+                    Log.d("MPDemo", "Player1 音频准备就绪");
+                    playbackMetrics.onPrepared(1);
+                    // 应用之前保存的音量设置
+                    float volume = player1Volume / 100.0f;
+                    mp.setVolume(volume, volume);
+                    Log.d("MPDemo", "Player1 音频音量设置为: " + player1Volume + "%");
+
+                    // 同步启动模式下等待所有播放器准备完成后统一启动
+                    if (syncGroup.holdUntilGroupReady(1, mp::start)) {
+                        return;
+                    }
+
+                    restoreSavedPosition(mp, player1MediaEntry);
+                    PlaybackTrace.begin("Player1 start");
+                    mp.start();
+                    PlaybackTrace.end();
+                    playbackMetrics.watchFirstAudio(1, mp::getCurrentPosition);
+                    isPlayer1Playing = true;
+                    if (player1PlayPauseButton != null) {
+                        player1PlayPauseButton.setImageResource(R.drawable.ic_pause);
+                    }
+
+                    // 开始更新进度条
+                    player1SeekBar.setMax(100);
+                    handler.removeCallbacks(updateSeekBars); // 先停止之前的更新任务
+                    handler.post(updateSeekBars); // 开始新的更新任务
+                    Log.d("MPDemo", "Player1 音频播放已启动");
+
+                    // 预缓冲播放列表中的下一条
+                    prebufferNext(1);
+                }
+            });
+
+            setupAudioListenersPlayer1(player1MediaPlayer);
+        } catch (IOException e) {
+            Log.e("MPDemo", "Player1 设置音频数据源失败: " + e.getMessage());
+            e.printStackTrace();
+            // 停止黑胶旋转并隐藏视图
+            player1RecordView.stopRotation();
+            player1AlbumArt.setVisibility(View.GONE);
+            player1RecordView.setVisibility(View.GONE);
+        }
+    }
+
+    // 启动应用内解码的播放，完成回调与MediaPlayer的处理保持一致
+    private void startPcmPlaybackInPlayer1(PcmPlayback playback) {
+        player1PcmPlayback = playback;
+        playback.setVolume(player1Volume / 100.0f);
+        playback.setLooping(isPlayer1Looping && player1Playlist.size() <= 1);
+        playback.setOnCompletionListener(p -> {
+            if (p != player1PcmPlayback) {
+                return;
+            }
+            Log.d("MPDemo", "Player1 PCM播放完成");
+            if (playNextInPlaylist(1)) {
+                return;
+            }
+            isPlayer1Playing = false;
+            if (player1PlayPauseButton != null) {
+                player1PlayPauseButton.setImageResource(R.drawable.ic_play_arrow);
+            }
+            player1RecordView.stopRotation();
+            savePositionInBackground(player1CurrentMediaUri, 0);
+        });
+        restoreSavedPosition(playback, player1MediaEntry);
+        playbackMetrics.onPrepared(1);
+        PlaybackTrace.begin("Player1 start");
+        playback.start();
+        PlaybackTrace.end();
+        playbackMetrics.watchFirstAudio(1, playback::getCurrentPosition);
+        isPlayer1Playing = true;
+        if (player1PlayPauseButton != null) {
+            player1PlayPauseButton.setImageResource(R.drawable.ic_pause);
+        }
+        player1SeekBar.setMax(100);
+        handler.removeCallbacks(updateSeekBars);
+        handler.post(updateSeekBars);
+        Log.d("MPDemo", "Player1 " + playback.getStatsSummary());
+    }
+
+    private void showAlbumArtForPlayer1(Uri audioUri) {
+        // 索引中已有封面信息时无需再次提取
+        PlaybackTrace.begin("Player1 albumArt");
+        Bitmap albumArt = player1MediaEntry != null ? player1MediaEntry.decodeArt() : extractAlbumArt(audioUri);
+        PlaybackTrace.end();
+        if (albumArt != null) {
+            // 有专辑封面，显示在ImageView上
+            player1AlbumArt.setImageBitmap(albumArt);
+            player1AlbumArt.setVisibility(View.VISIBLE);
+            player1RecordView.setVisibility(View.GONE);
+        } else {
+            // 没有专辑封面，显示黑胶唱片效果
+            player1AlbumArt.setVisibility(View.GONE);
+            player1RecordView.setAlbumArt(BitmapFactory.decodeResource(getResources(), R.drawable.ic_audio_device));
+            player1RecordView.setVisibility(View.VISIBLE);
+            player1RecordView.startRotation();
+        }
+    }
 
-                    mp.start();
-                    isPlayer1Playing = true;
-                    if (player1PlayPauseButton != null) {
-                        player1PlayPauseButton.setImageResource(R.drawable.ic_pause);
-                    }
+    // 切换到已预缓冲的下一条音频，只需要交换播放器引用
+    private void adoptPrebufferedAudioInPlayer1(Uri audioUri, MediaPlayer nextPlayer) {
+        Log.d("MPDemo", "Player1 切换到预缓冲的下一条: " + audioUri.toString());
+        if (player1MediaPlayer != null && player1MediaPlayer != nextPlayer) {
+            player1MediaPlayer.release();
+        }
+        player1MediaPlayer = nextPlayer;
+        player1CurrentMediaUri = audioUri;
+        player1MediaEntry = null;
+        ++player1PickSerial; // 尚未完成的选择作废
+        setupAudioListenersPlayer1(nextPlayer);
+        if (!nextPlayer.isPlaying()) {
+            // setNextMediaPlayer未能挂接时在这里启动
+            nextPlayer.start();
+        }
+        isPlayer1Playing = true;
 
-                    // 开始更新进度条
-                    player1SeekBar.setMax(100);
-                    handler.removeCallbacks(updateSeekBars); // 先停止之前的更新任务
-                    handler.post(updateSeekBars); // 开始新的更新任务
-                    Log.d("MPDemo", "Player1 音频播放已启动");
+        // prebufferNext已在后台探测过，这里只查询索引，得到记录后再显示封面
+        indexExecutor.execute(() -> {
+            MediaIndex.Entry entry = mediaIndex.lookup(audioUri);
+            handler.post(() -> {
+                if (player1MediaPlayer == nextPlayer && audioUri.equals(player1CurrentMediaUri) && !isDestroyed()) {
+                    player1MediaEntry = entry;
+                    showAlbumArtForPlayer1(audioUri);
                 }
             });
+        });
+        if (player1Waveform != null) {
+            player1Waveform.clear();
+            player1WaveformGenerator.start(audioUri, player1Waveform);
+        }
+        prebufferNext(1);
+    }
 
-            // 监听播放完成事件（用于实现自定义循环逻辑）
-            player1MediaPlayer.setOnCompletionListener(new MediaPlayer.OnCompletionListener() {
-                @Override
-                public void onCompletion(MediaPlayer mp) {
+    // 设置音频播放器的完成和错误监听，预缓冲的下一条接管播放时同样需要
+    private void setupAudioListenersPlayer1(MediaPlayer player) {
+        player.setOnSeekCompleteListener(mp -> playbackMetrics.onSeekComplete(1));
+        // 监听播放完成事件（用于实现自定义循环逻辑）
+        player.setOnCompletionListener(new MediaPlayer.OnCompletionListener() {
+            @Override
+            public void onCompletion(MediaPlayer mp) {
+                EventJournal.record(EventJournal.Type.COMPLETION, 1, 0, 0);
+                if (PlaybackTrace.isDebugLogging()) {
                     Log.d("MPDemo", "Player1 音频播放完成，循环状态: " + isPlayer1Looping);
-                    if (isPlayer1Looping) {
-                        // 在自定义循环中重新应用首选设备
-                        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M && player1SelectedDevice != null) {
+                }
+                // 播放列表中有下一条时切换到下一条
+                if (playNextInPlaylist(1)) {
+                    return;
+                }
+                if (isPlayer1Looping) {
+                    PlaybackTrace.begin("Player1 loop");
+                    EventJournal.record(EventJournal.Type.LOOP, 1, EventJournal.SOURCE_ACTIVITY, 0);
+                    // 在自定义循环中重新应用首选设备
+                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M && player1SelectedDevice != null) {
+                        if (PlaybackTrace.isDebugLogging()) {
                             Log.d("MPDemo", "Player1 循环播放时重新应用首选设备");
-                            applyPreferredDevice(mp, player1SelectedDevice);
                         }
+                        applyPreferredDevice(mp, player1SelectedDevice);
+                    }
 
-                        // 手动循环播放
-                        mp.seekTo(0); // 重新定位到开始位置
-                        mp.start();   // 重新开始播放
+                    // 手动循环播放
+                    mp.seekTo(0); // 重新定位到开始位置
+                    mp.start();   // 重新开始播放
+                    if (PlaybackTrace.isDebugLogging()) {
                         Log.d("MPDemo", "Player1 循环播放已启动");
-                    } else {
-                        isPlayer1Playing = false;
-                        if (player1PlayPauseButton != null) {
-                            player1PlayPauseButton.setImageResource(R.drawable.ic_play_arrow);
-                        }
-                        handler.removeCallbacks(updateSeekBars); // 停止更新进度条
+                    }
+                    PlaybackTrace.end();
+                    onSlotLooped(1, mp::getCurrentPosition);
+                } else {
+                    isPlayer1Playing = false;
+                    if (player1PlayPauseButton != null) {
+                        player1PlayPauseButton.setImageResource(R.drawable.ic_play_arrow);
+                    }
+                    handler.removeCallbacks(updateSeekBars); // 停止更新进度条
 
-                        // 停止黑胶旋转并隐藏视图
-                        player1RecordView.stopRotation();
-                        player1AlbumArt.setVisibility(View.GONE);
-                        player1RecordView.setVisibility(View.GONE);
+                    // 停止黑胶旋转并隐藏视图
+                    player1RecordView.stopRotation();
+                    player1AlbumArt.setVisibility(View.GONE);
+                    player1RecordView.setVisibility(View.GONE);
 
-                        Log.d("MPDemo", "Player1 音频播放完成，未启用循环");
-                    }
+                    // 已播放完毕，下次从头开始
+                    savePositionInBackground(player1CurrentMediaUri, 0);
+                    Log.d("MPDemo", "Player1 音频播放完成，未启用循环");
                 }
-            });
+            }
+        });
 
-            player1MediaPlayer.setOnErrorListener(new MediaPlayer.OnErrorListener() {
-                @Override
-                public boolean onError(MediaPlayer mp, int what, int extra) {
-                    Log.e("MPDemo", "Player1 播放错误: what=" + what + ", extra=" + extra);
-                    //TODO: 处理播放错误
-                    // handler.removeCallbacks(updateSeekBars); // 停止更新进度条
-                    // // 停止黑胶旋转并隐藏视图
-                    // player1RecordView.stopRotation();
-                    // player1AlbumArt.setVisibility(View.GONE);
-                    // player1RecordView.setVisibility(View.GONE);
-                    return false;
+        player.setOnErrorListener(new MediaPlayer.OnErrorListener() {
+            @Override
+            public boolean onError(MediaPlayer mp, int what, int extra) {
+                Log.e("MPDemo", "Player1 播放错误: what=" + what + ", extra=" + extra);
+                EventJournal.record(EventJournal.Type.ERROR, 1, what, extra);
+                if (soakTest != null) {
+                    soakTest.onError(1);
                 }
-            });
-        } catch (IOException e) {
-            Log.e("MPDemo", "Player1 设置音频数据源失败: " + e.getMessage());
-            e.printStackTrace();
-            // 停止黑胶旋转并隐藏视图
-            player1RecordView.stopRotation();
-            player1AlbumArt.setVisibility(View.GONE);
-            player1RecordView.setVisibility(View.GONE);
-        }
+                //TODO: 处理播放错误
+                // handler.removeCallbacks(updateSeekBars); // 停止更新进度条
+                // // 停止黑胶旋转并隐藏视图
+                // player1RecordView.stopRotation();
+                // player1AlbumArt.setVisibility(View.GONE);
+                // player1RecordView.setVisibility(View.GONE);
+                return false;
+            }
+        });
     }
 
     private void playAudioInPlayer2(Uri audioUri) {
         Log.d("MPDemo", "Player2 开始播放音频: " + audioUri.toString());
         player2CurrentMediaUri = audioUri;
         isPlayer2Playing = true;
+        player2Thumbnailer.cancel(); // 音频没有画面，停止生成缩略图
+
+        // 流式解码生成波形概览，边解码边显示；仅音频模式下的视频文件不额外解码
+        if (player2AudioOnly && player2MediaEntry != null && player2MediaEntry.hasVideo) {
+            hideWaveform(player2Waveform, player2WaveformGenerator);
+        } else if (player2Waveform != null) {
+            player2Waveform.clear();
+            player2Waveform.setVisibility(View.VISIBLE);
+            player2WaveformGenerator.start(audioUri, player2Waveform);
+        }
 
         // 隐藏Player 2的视频视图，因为正在播放音频
         if (player2VideoView != null) {
             player2VideoView.setVisibility(View.GONE);
         }
+        frameRateMatcher.onVideoStopped(2);
 
         // 显示专辑封面或黑胶唱片
-        Bitmap albumArt = extractAlbumArt(audioUri);
-        if (albumArt != null) {
-            // 有专辑封面，显示在ImageView上
-            player2AlbumArt.setImageBitmap(albumArt);
-            player2AlbumArt.setVisibility(View.VISIBLE);
-            player2RecordView.setVisibility(View.GONE);
-        } else {
-            // 没有专辑封面，显示黑胶唱片效果
-            player2AlbumArt.setVisibility(View.GONE);
-            player2RecordView.setAlbumArt(BitmapFactory.decodeResource(getResources(), R.drawable.ic_audio_device));
-            player2RecordView.setVisibility(View.VISIBLE);
-            player2RecordView.startRotation();
-        }
+        showAlbumArtForPlayer2(audioUri);
 
         // 释放之前的Player2的MediaPlayer实例
         if (player2MediaPlayer != null) {
@@ -1348,6 +2823,13 @@ public class MainActivity extends AppCompatActivity {
             player2MediaPlayer = null;
         }
 
+        // 启用了应用内解码的播放方式时不再创建MediaPlayer
+        PcmPlayback pcmPlayback = createPcmPlayback(2, audioUri);
+        if (pcmPlayback != null) {
+            startPcmPlaybackInPlayer2(pcmPlayback);
+            return;
+        }
+
         player2MediaPlayer = new MediaPlayer();
         player2MediaPlayer.setAudioAttributes(
             new AudioAttributes.Builder()
@@ -1372,12 +2854,22 @@ public class MainActivity extends AppCompatActivity {
                 @Override
                 public void onPrepared(MediaPlayer mp) {
                     Log.d("MPDemo", "Player2 音频准备就绪");
+                    playbackMetrics.onPrepared(2);
                     // 应用之前保存的音量设置
                     float volume = player2Volume / 100.0f;
                     mp.setVolume(volume, volume);
                     Log.d("MPDemo", "Player2 音频音量设置为: " + player2Volume + "%");
 
+                    // 同步启动模式下等待所有播放器准备完成后统一启动
+                    if (syncGroup.holdUntilGroupReady(2, mp::start)) {
+                        return;
+                    }
+
+                    restoreSavedPosition(mp, player2MediaEntry);
+                    PlaybackTrace.begin("Player2 start");
                     mp.start();
+                    PlaybackTrace.end();
+                    playbackMetrics.watchFirstAudio(2, mp::getCurrentPosition);
                     isPlayer2Playing = true;
                     if (player2PlayPauseButton != null) {
                         player2PlayPauseButton.setImageResource(R.drawable.ic_pause);
@@ -1388,68 +2880,195 @@ public class MainActivity extends AppCompatActivity {
                     handler.removeCallbacks(updateSeekBars); // 先停止之前的更新任务
                     handler.post(updateSeekBars); // 开始新的更新任务
                     Log.d("MPDemo", "Player2 音频播放已启动");
+
+                    // 预缓冲播放列表中的下一条
+                    prebufferNext(2);
                 }
             });
 
-            // 监听播放完成事件（用于实现自定义循环逻辑）
-            player2MediaPlayer.setOnCompletionListener(new MediaPlayer.OnCompletionListener() {
-                @Override
-                public void onCompletion(MediaPlayer mp) {
+            setupAudioListenersPlayer2(player2MediaPlayer);
+        } catch (IOException e) {
+            Log.e("MPDemo", "Player2 设置音频数据源失败: " + e.getMessage());
+            e.printStackTrace();
+            // 停止黑胶旋转并隐藏视图
+            player2RecordView.stopRotation();
+            player2AlbumArt.setVisibility(View.GONE);
+            player2RecordView.setVisibility(View.GONE);
+        }
+    }
+
+    // 启动应用内解码的播放，完成回调与MediaPlayer的处理保持一致
+    private void startPcmPlaybackInPlayer2(PcmPlayback playback) {
+        player2PcmPlayback = playback;
+        playback.setVolume(player2Volume / 100.0f);
+        playback.setLooping(isPlayer2Looping && player2Playlist.size() <= 1);
+        playback.setOnCompletionListener(p -> {
+            if (p != player2PcmPlayback) {
+                return;
+            }
+            Log.d("MPDemo", "Player2 PCM播放完成");
+            if (playNextInPlaylist(2)) {
+                return;
+            }
+            isPlayer2Playing = false;
+            if (player2PlayPauseButton != null) {
+                player2PlayPauseButton.setImageResource(R.drawable.ic_play_arrow);
+            }
+            player2RecordView.stopRotation();
+            savePositionInBackground(player2CurrentMediaUri, 0);
+        });
+        restoreSavedPosition(playback, player2MediaEntry);
+        playbackMetrics.onPrepared(2);
+        PlaybackTrace.begin("Player2 start");
+        playback.start();
+        PlaybackTrace.end();
+        playbackMetrics.watchFirstAudio(2, playback::getCurrentPosition);
+        isPlayer2Playing = true;
+        if (player2PlayPauseButton != null) {
+            player2PlayPauseButton.setImageResource(R.drawable.ic_pause);
+        }
+        player2SeekBar.setMax(100);
+        handler.removeCallbacks(updateSeekBars);
+        handler.post(updateSeekBars);
+        Log.d("MPDemo", "Player2 " + playback.getStatsSummary());
+    }
+
+    private void showAlbumArtForPlayer2(Uri audioUri) {
+        // 索引中已有封面信息时无需再次提取
+        PlaybackTrace.begin("Player2 albumArt");
+        Bitmap albumArt = player2MediaEntry != null ? player2MediaEntry.decodeArt() : extractAlbumArt(audioUri);
+        PlaybackTrace.end();
+        if (albumArt != null) {
+            // 有专辑封面，显示在ImageView上
+            player2AlbumArt.setImageBitmap(albumArt);
+            player2AlbumArt.setVisibility(View.VISIBLE);
+            player2RecordView.setVisibility(View.GONE);
+        } else {
+            // 没有专辑封面，显示黑胶唱片效果
+            player2AlbumArt.setVisibility(View.GONE);
+            player2RecordView.setAlbumArt(BitmapFactory.decodeResource(getResources(), R.drawable.ic_audio_device));
+            player2RecordView.setVisibility(View.VISIBLE);
+            player2RecordView.startRotation();
+        }
+    }
+
+    // 切换到已预缓冲的下一条音频，只需要交换播放器引用
+    private void adoptPrebufferedAudioInPlayer2(Uri audioUri, MediaPlayer nextPlayer) {
+        Log.d("MPDemo", "Player2 切换到预缓冲的下一条: " + audioUri.toString());
+        if (player2MediaPlayer != null && player2MediaPlayer != nextPlayer) {
+            player2MediaPlayer.release();
+        }
+        player2MediaPlayer = nextPlayer;
+        player2CurrentMediaUri = audioUri;
+        player2MediaEntry = null;
+        ++player2PickSerial; // 尚未完成的选择作废
+        setupAudioListenersPlayer2(nextPlayer);
+        if (!nextPlayer.isPlaying()) {
+            // setNextMediaPlayer未能挂接时在这里启动
+            nextPlayer.start();
+        }
+        isPlayer2Playing = true;
+
+        // prebufferNext已在后台探测过，这里只查询索引，得到记录后再显示封面
+        indexExecutor.execute(() -> {
+            MediaIndex.Entry entry = mediaIndex.lookup(audioUri);
+            handler.post(() -> {
+                if (player2MediaPlayer == nextPlayer && audioUri.equals(player2CurrentMediaUri) && !isDestroyed()) {
+                    player2MediaEntry = entry;
+                    showAlbumArtForPlayer2(audioUri);
+                }
+            });
+        });
+        if (player2Waveform != null) {
+            player2Waveform.clear();
+            player2WaveformGenerator.start(audioUri, player2Waveform);
+        }
+        prebufferNext(2);
+    }
+
+    // 设置音频播放器的完成和错误监听，预缓冲的下一条接管播放时同样需要
+    private void setupAudioListenersPlayer2(MediaPlayer player) {
+        player.setOnSeekCompleteListener(mp -> playbackMetrics.onSeekComplete(2));
+        // 监听播放完成事件（用于实现自定义循环逻辑）
+        player.setOnCompletionListener(new MediaPlayer.OnCompletionListener() {
+            @Override
+            public void onCompletion(MediaPlayer mp) {
+                EventJournal.record(EventJournal.Type.COMPLETION, 2, 0, 0);
+                if (PlaybackTrace.isDebugLogging()) {
                     Log.d("MPDemo", "Player2 音频播放完成，循环状态: " + isPlayer2Looping);
-                    if (isPlayer2Looping) {
-                        // 在自定义循环中重新应用首选设备
-                        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M && player2SelectedDevice != null) {
+                }
+                // 播放列表中有下一条时切换到下一条
+                if (playNextInPlaylist(2)) {
+                    return;
+                }
+                if (isPlayer2Looping) {
+                    PlaybackTrace.begin("Player2 loop");
+                    EventJournal.record(EventJournal.Type.LOOP, 2, EventJournal.SOURCE_ACTIVITY, 0);
+                    // 在自定义循环中重新应用首选设备
+                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M && player2SelectedDevice != null) {
+                        if (PlaybackTrace.isDebugLogging()) {
                             Log.d("MPDemo", "Player2 循环播放时重新应用首选设备");
-                            applyPreferredDevice(mp, player2SelectedDevice);
                         }
+                        applyPreferredDevice(mp, player2SelectedDevice);
+                    }
 
-                        // 手动循环播放
-                        mp.seekTo(0); // 回到开头
-                        mp.start();   // 重新开始播放
+                    // 手动循环播放
+                    mp.seekTo(0); // 回到开头
+                    mp.start();   // 重新开始播放
+                    if (PlaybackTrace.isDebugLogging()) {
                         Log.d("MPDemo", "Player2 循环播放已启动");
-                    } else {
-                        isPlayer2Playing = false;
-                        if (player2PlayPauseButton != null) {
-                            player2PlayPauseButton.setImageResource(R.drawable.ic_play_arrow);
-                        }
-                        handler.removeCallbacks(updateSeekBars); // 停止更新进度条
+                    }
+                    PlaybackTrace.end();
+                    onSlotLooped(2, mp::getCurrentPosition);
+                } else {
+                    isPlayer2Playing = false;
+                    if (player2PlayPauseButton != null) {
+                        player2PlayPauseButton.setImageResource(R.drawable.ic_play_arrow);
+                    }
+                    handler.removeCallbacks(updateSeekBars); // 停止更新进度条
 
-                        // 停止黑胶旋转并隐藏视图
-                        player2RecordView.stopRotation();
-                        player2AlbumArt.setVisibility(View.GONE);
-                        player2RecordView.setVisibility(View.GONE);
+                    // 停止黑胶旋转并隐藏视图
+                    player2RecordView.stopRotation();
+                    player2AlbumArt.setVisibility(View.GONE);
+                    player2RecordView.setVisibility(View.GONE);
 
-                        Log.d("MPDemo", "Player2 音频播放完成，未启用循环");
-                    }
+                    // 已播放完毕，下次从头开始
+                    savePositionInBackground(player2CurrentMediaUri, 0);
+                    Log.d("MPDemo", "Player2 音频播放完成，未启用循环");
                 }
-            });
+            }
+        });
 
-            player2MediaPlayer.setOnErrorListener(new MediaPlayer.OnErrorListener() {
-                @Override
-                public boolean onError(MediaPlayer mp, int what, int extra) {
-                    Log.e("MPDemo", "Player2 播放错误: what=" + what + ", extra=" + extra);
-                    //TODO: 处理播放错误
-                    // handler.removeCallbacks(updateSeekBars); // 停止更新进度条
-                    // // 停止黑胶旋转并隐藏视图
-                    // player2RecordView.stopRotation();
-                    // player2AlbumArt.setVisibility(View.GONE);
-                    // player2RecordView.setVisibility(View.GONE);
-                    return false;
+        player.setOnErrorListener(new MediaPlayer.OnErrorListener() {
+            @Override
+            public boolean onError(MediaPlayer mp, int what, int extra) {
+                Log.e("MPDemo", "Player2 播放错误: what=" + what + ", extra=" + extra);
+                EventJournal.record(EventJournal.Type.ERROR, 2, what, extra);
+                if (soakTest != null) {
+                    soakTest.onError(2);
                 }
-            });
-        } catch (IOException e) {
-            Log.e("MPDemo", "Player2 设置音频数据源失败: " + e.getMessage());
-            e.printStackTrace();
-            // 停止黑胶旋转并隐藏视图
-            player2RecordView.stopRotation();
-            player2AlbumArt.setVisibility(View.GONE);
-            player2RecordView.setVisibility(View.GONE);
-        }
+                //TODO: 处理播放错误
+                // handler.removeCallbacks(updateSeekBars); // 停止更新进度条
+                // // 停止黑胶旋转并隐藏视图
+                // player2RecordView.stopRotation();
+                // player2AlbumArt.setVisibility(View.GONE);
+                // player2RecordView.setVisibility(View.GONE);
+                return false;
+            }
+        });
     }
 
     private void togglePlayer1PlayPause() {
         if (isPlayer1Playing) {
-            if (player1MediaPlayer != null) {
+            if (player1PcmPlayback != null) {
+                player1PcmPlayback.pause();
+                isPlayer1Playing = false;
+                player1RecordView.stopRotation();
+
+                if (player1PlayPauseButton != null) {
+                    player1PlayPauseButton.setImageResource(R.drawable.ic_play_arrow);
+                }
+            } else if (player1MediaPlayer != null) {
                 player1MediaPlayer.pause();
                 isPlayer1Playing = false;
 
@@ -1466,7 +3085,19 @@ public class MainActivity extends AppCompatActivity {
             }
         } else {
             // 检查当前是否正在播放音频
-            if (player1MediaPlayer != null) {
+            if (player1PcmPlayback != null) {
+                if (player1RecordView.getVisibility() == View.VISIBLE) {
+                    player1RecordView.startRotation();
+                }
+                player1PcmPlayback.start();
+                isPlayer1Playing = true;
+                handler.removeCallbacks(updateSeekBars);
+                handler.post(updateSeekBars);
+
+                if (player1PlayPauseButton != null) {
+                    player1PlayPauseButton.setImageResource(R.drawable.ic_pause);
+                }
+            } else if (player1MediaPlayer != null) {
                 // 如果当前是音频播放，检查是否需要显示黑胶唱片
                 if (player1AlbumArt.getVisibility() == View.GONE && player1RecordView.getVisibility() == View.VISIBLE) {
                     // 如果正在显示黑胶唱片，需要确保它在继续播放时仍在旋转
@@ -1494,7 +3125,15 @@ public class MainActivity extends AppCompatActivity {
 
     private void togglePlayer2PlayPause() {
         if (isPlayer2Playing) {
-            if (player2MediaPlayer != null) {
+            if (player2PcmPlayback != null) {
+                player2PcmPlayback.pause();
+                isPlayer2Playing = false;
+                player2RecordView.stopRotation();
+
+                if (player2PlayPauseButton != null) {
+                    player2PlayPauseButton.setImageResource(R.drawable.ic_play_arrow);
+                }
+            } else if (player2MediaPlayer != null) {
                 player2MediaPlayer.pause();
                 isPlayer2Playing = false;
 
@@ -1511,7 +3150,19 @@ public class MainActivity extends AppCompatActivity {
             }
         } else {
             // 检查当前是否正在播放音频
-            if (player2MediaPlayer != null) {
+            if (player2PcmPlayback != null) {
+                if (player2RecordView.getVisibility() == View.VISIBLE) {
+                    player2RecordView.startRotation();
+                }
+                player2PcmPlayback.start();
+                isPlayer2Playing = true;
+                handler.removeCallbacks(updateSeekBars);
+                handler.post(updateSeekBars);
+
+                if (player2PlayPauseButton != null) {
+                    player2PlayPauseButton.setImageResource(R.drawable.ic_pause);
+                }
+            } else if (player2MediaPlayer != null) {
                 // 如果当前是音频播放，检查是否需要显示黑胶唱片
                 if (player2AlbumArt.getVisibility() == View.GONE && player2RecordView.getVisibility() == View.VISIBLE) {
                     // 如果正在显示黑胶唱片，需要确保它在继续播放时仍在旋转
@@ -1544,13 +3195,17 @@ public class MainActivity extends AppCompatActivity {
             int totalDuration = player1VideoView.getDuration();
 
             if (totalDuration > 0) {
-                int progress = (currentPosition * 100) / totalDuration;
+                int progress = PlaybackLogic.progressPercent(currentPosition, totalDuration);
                 player1SeekBar.setProgress(progress);
 
                 // 如果当前播放位置到达末尾，且开启了循环播放，则重新开始播放
-                if (currentPosition >= totalDuration - 1000 && isPlayer1Looping) { // -1000ms容差
+                if (PlaybackLogic.shouldLoop(currentPosition, totalDuration, isPlayer1Looping, player1Playlist.size())) {
+                    PlaybackTrace.begin("Player1 loop");
+                    EventJournal.record(EventJournal.Type.LOOP, 1, EventJournal.SOURCE_ACTIVITY, 0);
                     player1VideoView.seekTo(0); // 重新定位到开始位置
                     player1VideoView.start(); // 开始播放
+                    PlaybackTrace.end();
+                    onSlotLooped(1, player1VideoView::getCurrentPosition);
 
                     // 更新播放状态
                     isPlayer1Playing = true;
@@ -1563,19 +3218,38 @@ public class MainActivity extends AppCompatActivity {
             }
         }
 
+        // 应用内解码的播放方式，循环由其内部处理
+        if (player1PcmPlayback != null && player1PcmPlayback.isPlaying()) {
+            int currentPosition = player1PcmPlayback.getCurrentPosition();
+            int totalDuration = player1PcmPlayback.getDuration();
+            if (totalDuration > 0) {
+                player1SeekBar.setProgress(PlaybackLogic.progressPercent(currentPosition, totalDuration));
+                if (player1Waveform != null) {
+                    player1Waveform.setProgress((float) currentPosition / totalDuration);
+                }
+            }
+        }
+
         // 对于MediaPlayer的情况
         if (player1MediaPlayer != null && player1MediaPlayer.isPlaying()) {
             int currentPosition = player1MediaPlayer.getCurrentPosition();
             int totalDuration = player1MediaPlayer.getDuration();
 
             if (totalDuration > 0) {
-                int progress = (currentPosition * 100) / totalDuration;
+                int progress = PlaybackLogic.progressPercent(currentPosition, totalDuration);
                 player1SeekBar.setProgress(progress);
+                if (player1Waveform != null) {
+                    player1Waveform.setProgress((float) currentPosition / totalDuration);
+                }
 
                 // 如果当前播放位置到达末尾，且开启了循环播放，则重新开始播放
-                if (currentPosition >= totalDuration - 1000 && isPlayer1Looping) { // -1000ms容差
+                if (PlaybackLogic.shouldLoop(currentPosition, totalDuration, isPlayer1Looping, player1Playlist.size())) {
+                    PlaybackTrace.begin("Player1 loop");
+                    EventJournal.record(EventJournal.Type.LOOP, 1, EventJournal.SOURCE_ACTIVITY, 0);
                     player1MediaPlayer.seekTo(0); // 重新定位到开始位置
                     player1MediaPlayer.start(); // 开始播放
+                    PlaybackTrace.end();
+                    onSlotLooped(1, player1MediaPlayer::getCurrentPosition);
 
                     // 更新播放状态
                     isPlayer1Playing = true;
@@ -1596,13 +3270,17 @@ public class MainActivity extends AppCompatActivity {
             int totalDuration = player2VideoView.getDuration();
 
             if (totalDuration > 0) {
-                int progress = (currentPosition * 100) / totalDuration;
+                int progress = PlaybackLogic.progressPercent(currentPosition, totalDuration);
                 player2SeekBar.setProgress(progress);
 
                 // 如果当前播放位置到达末尾，且开启了循环播放，则重新开始播放
-                if (currentPosition >= totalDuration - 1000 && isPlayer2Looping) { // -1000ms容差
+                if (PlaybackLogic.shouldLoop(currentPosition, totalDuration, isPlayer2Looping, player2Playlist.size())) {
+                    PlaybackTrace.begin("Player2 loop");
+                    EventJournal.record(EventJournal.Type.LOOP, 2, EventJournal.SOURCE_ACTIVITY, 0);
                     player2VideoView.seekTo(0); // 重新定位到开始位置
                     player2VideoView.start(); // 开始播放
+                    PlaybackTrace.end();
+                    onSlotLooped(2, player2VideoView::getCurrentPosition);
 
                     // 更新播放状态
                     isPlayer2Playing = true;
@@ -1615,19 +3293,38 @@ public class MainActivity extends AppCompatActivity {
             }
         }
 
+        // 应用内解码的播放方式，循环由其内部处理
+        if (player2PcmPlayback != null && player2PcmPlayback.isPlaying()) {
+            int currentPosition = player2PcmPlayback.getCurrentPosition();
+            int totalDuration = player2PcmPlayback.getDuration();
+            if (totalDuration > 0) {
+                player2SeekBar.setProgress(PlaybackLogic.progressPercent(currentPosition, totalDuration));
+                if (player2Waveform != null) {
+                    player2Waveform.setProgress((float) currentPosition / totalDuration);
+                }
+            }
+        }
+
         // 对于MediaPlayer的情况
         if (player2MediaPlayer != null && player2MediaPlayer.isPlaying()) {
             int currentPosition = player2MediaPlayer.getCurrentPosition();
             int totalDuration = player2MediaPlayer.getDuration();
 
             if (totalDuration > 0) {
-                int progress = (currentPosition * 100) / totalDuration;
+                int progress = PlaybackLogic.progressPercent(currentPosition, totalDuration);
                 player2SeekBar.setProgress(progress);
+                if (player2Waveform != null) {
+                    player2Waveform.setProgress((float) currentPosition / totalDuration);
+                }
 
                 // 如果当前播放位置到达末尾，且开启了循环播放，则重新开始播放
-                if (currentPosition >= totalDuration - 1000 && isPlayer2Looping) { // -1000ms容差
+                if (PlaybackLogic.shouldLoop(currentPosition, totalDuration, isPlayer2Looping, player2Playlist.size())) {
+                    PlaybackTrace.begin("Player2 loop");
+                    EventJournal.record(EventJournal.Type.LOOP, 2, EventJournal.SOURCE_ACTIVITY, 0);
                     player2MediaPlayer.seekTo(0); // 重新定位到开始位置
                     player2MediaPlayer.start(); // 开始播放
+                    PlaybackTrace.end();
+                    onSlotLooped(2, player2MediaPlayer::getCurrentPosition);
 
                     // 更新播放状态
                     isPlayer2Playing = true;
@@ -1652,15 +3349,27 @@ public class MainActivity extends AppCompatActivity {
         // 暂停时保存播放位置
         if (player1VideoView != null) {
             player1PausedPosition = player1VideoView.getCurrentPosition();
+        } else if (player1PcmPlayback != null) {
+            player1PausedPosition = player1PcmPlayback.getCurrentPosition();
         } else if (player1MediaPlayer != null) {
             player1PausedPosition = player1MediaPlayer.getCurrentPosition();
         }
 
         if (player2VideoView != null) {
             player2PausedPosition = player2VideoView.getCurrentPosition();
+        } else if (player2PcmPlayback != null) {
+            player2PausedPosition = player2PcmPlayback.getCurrentPosition();
         } else if (player2MediaPlayer != null) {
             player2PausedPosition = player2MediaPlayer.getCurrentPosition();
         }
+
+        // 记录播放位置到索引
+        if (player1CurrentMediaUri != null) {
+            savePositionInBackground(player1CurrentMediaUri, getPlayer1CurrentPosition());
+        }
+        if (player2CurrentMediaUri != null) {
+            savePositionInBackground(player2CurrentMediaUri, getPlayer2CurrentPosition());
+        }
     }
 
     @Override
@@ -1705,12 +3414,37 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    // adb shell dumpsys activity com.example.mpdemo 时输出播放延迟统计
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        playbackMetrics.dump(prefix, writer);
+        frameDropMonitor.dump(prefix, writer);
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
         handler.removeCallbacks(updateSeekBars); // 清理定时任务
+        handler.removeCallbacks(snapshotMetrics);
+        frameDropMonitor.stop();
+        if (soakTest != null) {
+            soakTest.stop();
+        }
+        EventJournal.close();
+        stopCompositor();
+        if (player1Presentation != null) {
+            player1Presentation.dismiss();
+        }
+        if (player2Presentation != null) {
+            player2Presentation.dismiss();
+        }
 
         // 释放Player 1的MediaPlayer
+        if (player1PcmPlayback != null) {
+            player1PcmPlayback.release();
+            player1PcmPlayback = null;
+        }
         if (player1MediaPlayer != null) {
             player1MediaPlayer.release();
             player1MediaPlayer = null;
@@ -1720,6 +3454,10 @@ public class MainActivity extends AppCompatActivity {
         }
 
         // 释放Player 2的MediaPlayer
+        if (player2PcmPlayback != null) {
+            player2PcmPlayback.release();
+            player2PcmPlayback = null;
+        }
         if (player2MediaPlayer != null) {
             player2MediaPlayer.release();
             player2MediaPlayer = null;
@@ -1727,6 +3465,70 @@ public class MainActivity extends AppCompatActivity {
         if (player2VideoView != null) {
             player2VideoView.stopPlayback();
         }
+
+        player1Thumbnailer.release();
+        player2Thumbnailer.release();
+        player1WaveformGenerator.release();
+        player2WaveformGenerator.release();
+        // onPause提交的位置写入完成后再关闭索引
+        indexExecutor.execute(mediaIndex::close);
+        indexExecutor.shutdown();
+        player1FolderScanner.cancel();
+        player2FolderScanner.cancel();
+        player1Prebuffer.release();
+        player2Prebuffer.release();
+        mixerPool.release();
+        syncGroup.disable();
+        stopNetworkSync();
+        backgroundExecutor.shutdownNow();
+    }
+
+    // 从索引中保存的位置继续播放，只在首次准备完成时生效
+    private void restoreSavedPosition(MediaPlayer mp, MediaIndex.Entry entry) {
+        if (entry == null || entry.lastPositionMs <= 0) return;
+
+        int duration = mp.getDuration();
+        // 已接近结尾时从头播放
+        if (duration > 0 && entry.lastPositionMs < duration - 1000) {
+            Log.d("MPDemo", "从上次位置继续播放: " + entry.lastPositionMs + "ms");
+            mp.seekTo(entry.lastPositionMs);
+        }
+        entry.lastPositionMs = 0;
+    }
+
+    private void restoreSavedPosition(PcmPlayback playback, MediaIndex.Entry entry) {
+        if (entry == null || entry.lastPositionMs <= 0) return;
+
+        // 播放器尚未打开文件，使用索引中的时长判断
+        if (entry.durationMs > 0 && entry.lastPositionMs < entry.durationMs - 1000) {
+            Log.d("MPDemo", "从上次位置继续播放: " + entry.lastPositionMs + "ms");
+            playback.seekTo(entry.lastPositionMs);
+        }
+        entry.lastPositionMs = 0;
+    }
+
+    // 停止波形生成并隐藏波形视图
+    private void hideWaveform(WaveformView waveformView, WaveformGenerator generator) {
+        generator.cancel();
+        if (waveformView != null) {
+            waveformView.clear();
+            waveformView.setVisibility(View.GONE);
+        }
+    }
+
+    // 显示拖动位置对应的预览缩略图，缩略图尚未生成时不显示
+    private void showSeekPreview(ImageView previewView, SeekPreviewThumbnailer thumbnailer, int positionMs) {
+        if (previewView == null || thumbnailer == null) return;
+
+        Bitmap frame = thumbnailer.getFrameAt(positionMs);
+        if (frame != null) {
+            previewView.setImageBitmap(frame);
+            // 复用的Bitmap内容已变化，需要强制重绘
+            previewView.invalidate();
+            previewView.setVisibility(View.VISIBLE);
+        } else {
+            previewView.setVisibility(View.GONE);
+        }
     }
 
     /**
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.net.Uri;
+import android.util.Log;
+
+import java.io.FileInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+
+/**
+ * 媒体文件内容摘要，用作磁盘缓存文件名
+ *
+ * 只读取文件头尾各64KB加上文件长度计算SHA-1，几GB的视频也能在毫秒级完成，
+ * 同一文件换了Uri（例如从不同的文件管理器选择）仍然命中同一份缓存。
+ */
+public final class MediaCacheKey {
+    private static final int SAMPLE_BYTES = 64 * 1024;
+
+    private MediaCacheKey() {}
+
+    /**
+     * 计算内容摘要，失败时返回null
+     */
+    public static String compute(Context context, Uri uri) {
+        try (AssetFileDescriptor afd = context.getContentResolver().openAssetFileDescriptor(uri, "r");
+             FileInputStream in = afd.createInputStream()) {
+            FileChannel channel = in.getChannel();
+            long start = afd.getStartOffset();
+            long length = afd.getLength();
+            if (length == AssetFileDescriptor.UNKNOWN_LENGTH) {
+                length = channel.size() - start;
+            }
+
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            ByteBuffer lengthBytes = ByteBuffer.allocate(8);
+            lengthBytes.putLong(length);
+            digest.update(lengthBytes.array());
+
+            ByteBuffer buffer = ByteBuffer.allocate(SAMPLE_BYTES);
+            readAt(channel, start, buffer);
+            digest.update(buffer.array(), 0, buffer.position());
+            if (length > SAMPLE_BYTES) {
+                buffer.clear();
+                readAt(channel, start + Math.max(SAMPLE_BYTES, length - SAMPLE_BYTES), buffer);
+                digest.update(buffer.array(), 0, buffer.position());
+            }
+
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+                hex.append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (Exception e) {
+            Log.e("MediaCacheKey", "计算内容摘要失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void readAt(FileChannel channel, long position, ByteBuffer buffer) throws java.io.IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                break;
+            }
+        }
+    }
+}
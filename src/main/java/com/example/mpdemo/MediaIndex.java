@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.media.MediaMetadataRetriever;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+import android.provider.OpenableColumns;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+/**
+ * 已播放媒体的元数据索引
+ *
+ * 以Uri为键，同时记录文件大小和修改时间，两者任一变化即视为新文件重新探测。
+ * 保存类型、时长、音视频轨道信息、缩小后的封面和上次播放位置，
+ * 再次选择同一文件时无需再用MediaMetadataRetriever探测。
+ */
+public class MediaIndex extends SQLiteOpenHelper {
+    private static final String TAG = "MediaIndex";
+    private static final String DB_NAME = "media_index.db";
+    private static final int DB_VERSION = 1;
+    private static final String TABLE = "media";
+    private static final int ART_MAX_SIZE = 512; // 封面缩略图最大边长
+
+    /**
+     * 索引中的一条记录
+     */
+    public static class Entry {
+        public String mimeType;
+        public long durationMs;
+        public boolean hasVideo;
+        public boolean hasAudio;
+        public int videoWidth;
+        public int videoHeight;
+        public int trackCount;
+        public byte[] art;          // JPEG编码的封面缩略图，可能为null
+        public int lastPositionMs;  // 上次播放位置
+
+        public Bitmap decodeArt() {
+            return art != null ? BitmapFactory.decodeByteArray(art, 0, art.length) : null;
+        }
+    }
+
+    private final Context context;
+
+    public MediaIndex(Context context) {
+        super(context.getApplicationContext(), DB_NAME, null, DB_VERSION);
+        this.context = context.getApplicationContext();
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + "uri TEXT PRIMARY KEY, "
+                + "size INTEGER, "
+                + "mtime INTEGER, "
+                + "mime TEXT, "
+                + "duration INTEGER, "
+                + "has_video INTEGER, "
+                + "has_audio INTEGER, "
+                + "width INTEGER, "
+                + "height INTEGER, "
+                + "tracks INTEGER, "
+                + "art BLOB, "
+                + "last_position INTEGER DEFAULT 0)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // 索引只是缓存，升级时直接重建
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE);
+        onCreate(db);
+    }
+
+    /**
+     * 只查询索引，不探测文件；未命中或无法访问文件时返回null。
+     * 仍会查询文件信息和读取数据库，应在后台线程调用
+     */
+    public Entry lookup(Uri uri) {
+        long[] stat = stat(uri);
+        return stat != null ? lookup(uri, stat[0], stat[1]) : null;
+    }
+
+    /**
+     * 查询索引，未命中时探测文件并写入索引；无法访问文件时返回null。
+     * 探测可能耗时数百毫秒，应在后台线程调用
+     */
+    public Entry lookupOrProbe(Uri uri) {
+        long[] stat = stat(uri);
+        if (stat == null) {
+            return null;
+        }
+        Entry entry = lookup(uri, stat[0], stat[1]);
+        if (entry != null) {
+            Log.d(TAG, "索引命中: " + uri);
+            return entry;
+        }
+        entry = probe(uri);
+        if (entry != null) {
+            insert(uri, stat[0], stat[1], entry);
+        }
+        return entry;
+    }
+
+    /**
+     * 记录播放位置，下次选择同一文件时从该位置继续。写入数据库，应在后台线程调用
+     */
+    public void savePosition(Uri uri, int positionMs) {
+        if (uri == null) return;
+        try {
+            ContentValues values = new ContentValues();
+            values.put("last_position", positionMs);
+            getWritableDatabase().update(TABLE, values, "uri = ?", new String[]{uri.toString()});
+        } catch (Exception e) {
+            Log.e(TAG, "保存播放位置失败: " + e.getMessage());
+        }
+    }
+
+    private Entry lookup(Uri uri, long size, long mtime) {
+        try (Cursor cursor = getReadableDatabase().query(TABLE, null,
+                "uri = ? AND size = ? AND mtime = ?",
+                new String[]{uri.toString(), String.valueOf(size), String.valueOf(mtime)},
+                null, null, null)) {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            Entry entry = new Entry();
+            entry.mimeType = cursor.getString(cursor.getColumnIndexOrThrow("mime"));
+            entry.durationMs = cursor.getLong(cursor.getColumnIndexOrThrow("duration"));
+            entry.hasVideo = cursor.getInt(cursor.getColumnIndexOrThrow("has_video")) != 0;
+            entry.hasAudio = cursor.getInt(cursor.getColumnIndexOrThrow("has_audio")) != 0;
+            entry.videoWidth = cursor.getInt(cursor.getColumnIndexOrThrow("width"));
+            entry.videoHeight = cursor.getInt(cursor.getColumnIndexOrThrow("height"));
+            entry.trackCount = cursor.getInt(cursor.getColumnIndexOrThrow("tracks"));
+            entry.art = cursor.getBlob(cursor.getColumnIndexOrThrow("art"));
+            entry.lastPositionMs = cursor.getInt(cursor.getColumnIndexOrThrow("last_position"));
+            return entry;
+        } catch (Exception e) {
+            Log.e(TAG, "查询索引失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void insert(Uri uri, long size, long mtime, Entry entry) {
+        try {
+            ContentValues values = new ContentValues();
+            values.put("uri", uri.toString());
+            values.put("size", size);
+            values.put("mtime", mtime);
+            values.put("mime", entry.mimeType);
+            values.put("duration", entry.durationMs);
+            values.put("has_video", entry.hasVideo ? 1 : 0);
+            values.put("has_audio", entry.hasAudio ? 1 : 0);
+            values.put("width", entry.videoWidth);
+            values.put("height", entry.videoHeight);
+            values.put("tracks", entry.trackCount);
+            values.put("art", entry.art);
+            values.put("last_position", 0);
+            getWritableDatabase().insertWithOnConflict(TABLE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        } catch (Exception e) {
+            Log.e(TAG, "写入索引失败: " + e.getMessage());
+        }
+    }
+
+    // 使用MediaMetadataRetriever探测媒体信息
+    private Entry probe(Uri uri) {
+        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        try {
+            if (uri.toString().startsWith("content")) {
+                retriever.setDataSource(context, uri);
+            } else {
+                retriever.setDataSource(uri.getPath());
+            }
+
+            Entry entry = new Entry();
+            entry.mimeType = retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_MIMETYPE);
+            entry.durationMs = parseLong(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION));
+            entry.hasVideo = "yes".equals(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_HAS_VIDEO));
+            entry.hasAudio = "yes".equals(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_HAS_AUDIO));
+            entry.videoWidth = (int) parseLong(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_WIDTH));
+            entry.videoHeight = (int) parseLong(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_HEIGHT));
+            entry.trackCount = (int) parseLong(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_NUM_TRACKS));
+
+            byte[] picture = retriever.getEmbeddedPicture();
+            if (picture != null) {
+                entry.art = compressArt(picture);
+            }
+            Log.d(TAG, "探测完成: " + uri + " mime=" + entry.mimeType + " video=" + entry.hasVideo);
+            return entry;
+        } catch (Exception e) {
+            Log.e(TAG, "探测媒体信息失败: " + e.getMessage());
+            return null;
+        } finally {
+            try {
+                retriever.release();
+            } catch (Exception e) {
+                Log.e(TAG, "释放MediaMetadataRetriever失败: " + e.getMessage());
+            }
+        }
+    }
+
+    // 把内嵌封面缩小后重新编码，控制索引体积
+    private static byte[] compressArt(byte[] picture) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(picture, 0, picture.length, options);
+        int sampleSize = 1;
+        while (Math.max(options.outWidth, options.outHeight) / sampleSize > ART_MAX_SIZE) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        Bitmap bitmap = BitmapFactory.decodeByteArray(picture, 0, picture.length, options);
+        if (bitmap == null) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.JPEG, 85, out);
+        bitmap.recycle();
+        return out.toByteArray();
+    }
+
+    // 获取文件大小和修改时间，返回 {size, mtime}
+    private long[] stat(Uri uri) {
+        if ("file".equals(uri.getScheme())) {
+            File file = new File(uri.getPath());
+            return file.exists() ? new long[]{file.length(), file.lastModified()} : null;
+        }
+
+        try (Cursor cursor = context.getContentResolver().query(uri, null, null, null, null)) {
+            if (cursor == null || !cursor.moveToFirst()) {
+                return null;
+            }
+            long size = -1;
+            long mtime = 0;
+            int sizeIndex = cursor.getColumnIndex(OpenableColumns.SIZE);
+            if (sizeIndex >= 0 && !cursor.isNull(sizeIndex)) {
+                size = cursor.getLong(sizeIndex);
+            }
+            int mtimeIndex = cursor.getColumnIndex(DocumentsContract.Document.COLUMN_LAST_MODIFIED);
+            if (mtimeIndex >= 0 && !cursor.isNull(mtimeIndex)) {
+                mtime = cursor.getLong(mtimeIndex);
+            }
+            return new long[]{size, mtime};
+        } catch (Exception e) {
+            Log.e(TAG, "获取文件信息失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return value != null ? Long.parseLong(value) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
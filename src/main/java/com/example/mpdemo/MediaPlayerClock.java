@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.media.MediaPlayer;
+import android.media.PlaybackParams;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+/**
+ * 把某个播放器的MediaPlayer包装成NetworkClockSync使用的媒体时钟
+ *
+ * 位置读取在同步线程中直接进行，速度调整和seek投递到主线程执行，
+ * 与界面上的播放控制保持在同一线程。
+ *
+ * 主线程可能在读取期间释放或替换该播放器的MediaPlayer，此时调用已释放的MediaPlayer会抛出
+ * IllegalStateException，这是预期的竞争结果：位置按不可用(-1)、播放状态按未播放处理，
+ * 同步线程跳过这一次校正，下一次读取会拿到新的MediaPlayer。
+ */
+public class MediaPlayerClock implements NetworkClockSync.MediaClock {
+    private static final String TAG = "MediaPlayerClock";
+
+    private final PlaybackSyncGroup.PlayerProvider provider;
+    private final int slot;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    public MediaPlayerClock(PlaybackSyncGroup.PlayerProvider provider, int slot) {
+        this.provider = provider;
+        this.slot = slot;
+    }
+
+    @Override
+    public long nowNanos() {
+        return System.nanoTime();
+    }
+
+    // mediaTimeNowUs内部捕获IllegalStateException并返回-1
+    @Override
+    public long getPositionUs() {
+        return PlaybackSyncGroup.mediaTimeNowUs(provider.getMediaPlayer(slot));
+    }
+
+    @Override
+    public long getDurationUs() {
+        MediaPlayer player = provider.getMediaPlayer(slot);
+        return player != null ? PlaybackSyncGroup.safeDurationMs(player) * 1000L : 0;
+    }
+
+    @Override
+    public boolean isPlaying() {
+        MediaPlayer player = provider.getMediaPlayer(slot);
+        try {
+            return player != null && player.isPlaying();
+        } catch (IllegalStateException e) {
+            // 主线程刚释放了该MediaPlayer
+            return false;
+        }
+    }
+
+    @Override
+    public void setRate(float rate) {
+        handler.post(() -> {
+            MediaPlayer player = provider.getMediaPlayer(slot);
+            try {
+                // 暂停状态下设置非零速度会开始播放，只在播放中调整
+                if (player != null && player.isPlaying()) {
+                    PlaybackParams params = player.getPlaybackParams();
+                    player.setPlaybackParams(params.setSpeed(rate));
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Player" + slot + " 调整播放速度失败: " + e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void seekToUs(long positionUs) {
+        handler.post(() -> {
+            MediaPlayer player = provider.getMediaPlayer(slot);
+            try {
+                if (player != null) {
+                    Log.d(TAG, "Player" + slot + " 网络同步seek到 " + positionUs / 1000 + "ms");
+                    player.seekTo((int) (positionUs / 1000));
+                }
+            } catch (IllegalStateException e) {
+                Log.w(TAG, "Player" + slot + " seek失败: " + e.getMessage());
+            }
+        });
+    }
+}
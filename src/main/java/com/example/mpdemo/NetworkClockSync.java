@@ -0,0 +1,396 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多台设备之间基于UDP的播放时钟同步
+ *
+ * 主机(LEADER)周期性广播媒体时钟信标：{主机本地时间, 该时刻的媒体位置, 是否播放}。
+ * 从机(FOLLOWER)通过PING/PONG按NTP方式估计与主机的本地时钟偏差，
+ * 取最近若干次中往返时间最短的一次以滤除网络抖动，再把信标换算成此刻主机的媒体位置，
+ * 与本地媒体位置比较得到漂移，用PI控制器微调本地播放速度，漂移过大时直接seek。
+ *
+ * 本类只依赖java.net，不依赖Android框架，可以在Linux主机上用多个回环实例测试。
+ */
+public class NetworkClockSync {
+    public static final int DEFAULT_PORT = 47000;
+
+    private static final int MAGIC = 0x4D504353; // "MPCS"
+    private static final byte TYPE_BEACON = 1;
+    private static final byte TYPE_PING = 2;
+    private static final byte TYPE_PONG = 3;
+    private static final int PACKET_SIZE = 48;
+
+    private static final long BEACON_INTERVAL_MS = 100;
+    private static final long PING_INTERVAL_MS = 200;
+    private static final long FOLLOWER_TIMEOUT_NS = 5000000000L;
+    private static final int OFFSET_WINDOW = 8;            // 保留最近多少次时钟偏差测量
+
+    private static final long RESYNC_THRESHOLD_US = 100000; // 漂移超过100ms直接seek
+    private static final long RESYNC_HOLDOFF_NS = 1000000000L; // seek后等待1秒再测量
+    private static final double KP = 0.5;                   // 比例系数(1/s)
+    private static final double KI = 0.05;                  // 积分系数(1/s^2)
+    private static final double MAX_RATE_ADJUST = 0.005;    // 速度最多调整±0.5%
+
+    public enum Role {
+        LEADER,
+        FOLLOWER
+    }
+
+    /**
+     * 被同步的媒体时钟，由播放器或模拟器实现。方法会在同步线程中调用。
+     */
+    public interface MediaClock {
+        /** 本地单调时钟(纳秒)，真实设备上就是System.nanoTime() */
+        long nowNanos();
+
+        /** nowNanos()对应时刻的媒体位置(微秒)，不可用时返回负数 */
+        long getPositionUs();
+
+        /** 媒体时长(微秒)，循环播放时用于跨越循环边界的漂移计算，未知时返回0 */
+        long getDurationUs();
+
+        boolean isPlaying();
+
+        void setRate(float rate);
+
+        void seekToUs(long positionUs);
+    }
+
+    private final Role role;
+    private final MediaClock clock;
+    private final int localPort;
+    private final SocketAddress broadcastAddress;
+    private volatile SocketAddress leaderAddress;
+
+    private DatagramSocket socket;
+    private Thread receiveThread;
+    private Thread sendThread;
+    private volatile boolean running;
+
+    // 主机：最近发来PING的从机及其最后活跃时间，信标同时单播给它们
+    private final Map<SocketAddress, Long> followers = new ConcurrentHashMap<>();
+
+    // 从机：时钟偏差测量窗口
+    private final long[] offsetSamples = new long[OFFSET_WINDOW];
+    private final long[] rttSamples = new long[OFFSET_WINDOW];
+    private int sampleCount;
+    private int pingSeq;
+
+    // 从机：控制器状态和统计，只在接收线程中修改
+    private double integral;
+    private long lastControlNanos;
+    private long holdoffUntilNanos;
+    private float currentRate = 1.0f;
+    private volatile long lastDriftUs;
+    private volatile long lastRttNs;
+    private volatile long lastOffsetNs;
+    private long driftSamples;
+    private double sumSquareDriftUs;
+    private long maxAbsDriftUs;
+    private long resyncs;
+    private final AtomicLong packetErrors = new AtomicLong(); // 发送和接收线程都会累加
+
+    /**
+     * @param localPort        本地绑定端口，0表示任意端口
+     * @param leaderOrBroadcast 从机：主机地址，null表示从收到的第一个信标中获取；
+     *                          主机：信标广播地址，null表示只单播给已连接的从机
+     */
+    public NetworkClockSync(Role role, MediaClock clock, int localPort, SocketAddress leaderOrBroadcast) {
+        this.role = role;
+        this.clock = clock;
+        this.localPort = localPort;
+        if (role == Role.LEADER) {
+            this.broadcastAddress = leaderOrBroadcast;
+        } else {
+            this.broadcastAddress = null;
+            this.leaderAddress = leaderOrBroadcast;
+        }
+    }
+
+    public void start() throws SocketException {
+        socket = new DatagramSocket(null);
+        socket.setReuseAddress(true);
+        socket.setBroadcast(true);
+        socket.bind(new InetSocketAddress(localPort));
+        running = true;
+
+        receiveThread = new Thread(this::receiveLoop, "ClockSync-recv");
+        receiveThread.setDaemon(true);
+        receiveThread.start();
+        sendThread = new Thread(this::sendLoop, "ClockSync-send");
+        sendThread.setDaemon(true);
+        sendThread.start();
+    }
+
+    public void stop() {
+        running = false;
+        if (socket != null) {
+            socket.close();
+        }
+        if (sendThread != null) {
+            sendThread.interrupt();
+        }
+        if (role == Role.FOLLOWER && currentRate != 1.0f) {
+            clock.setRate(1.0f);
+        }
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    public int getLocalPort() {
+        return socket != null ? socket.getLocalPort() : localPort;
+    }
+
+    private void sendLoop() {
+        ByteBuffer buffer = ByteBuffer.allocate(PACKET_SIZE);
+        while (running) {
+            try {
+                if (role == Role.LEADER) {
+                    sendBeacons(buffer);
+                    Thread.sleep(BEACON_INTERVAL_MS);
+                } else {
+                    sendPing(buffer);
+                    Thread.sleep(PING_INTERVAL_MS);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                packetErrors.incrementAndGet();
+            }
+        }
+    }
+
+    private void sendBeacons(ByteBuffer buffer) throws IOException {
+        long now = clock.nowNanos();
+        buffer.clear();
+        buffer.putInt(MAGIC);
+        buffer.put(TYPE_BEACON);
+        buffer.put((byte) (clock.isPlaying() ? 1 : 0));
+        buffer.putShort((short) 0);
+        buffer.putLong(now);
+        buffer.putLong(clock.getPositionUs());
+
+        if (broadcastAddress != null) {
+            send(buffer, broadcastAddress);
+        }
+        for (Map.Entry<SocketAddress, Long> follower : followers.entrySet()) {
+            if (now - follower.getValue() > FOLLOWER_TIMEOUT_NS) {
+                followers.remove(follower.getKey());
+            } else {
+                send(buffer, follower.getKey());
+            }
+        }
+    }
+
+    private void sendPing(ByteBuffer buffer) throws IOException {
+        SocketAddress leader = leaderAddress;
+        if (leader == null) {
+            return; // 还没有收到信标
+        }
+        buffer.clear();
+        buffer.putInt(MAGIC);
+        buffer.put(TYPE_PING);
+        buffer.put((byte) 0);
+        buffer.putShort((short) (pingSeq++));
+        buffer.putLong(clock.nowNanos()); // t0
+        send(buffer, leader);
+    }
+
+    private void send(ByteBuffer buffer, SocketAddress target) throws IOException {
+        socket.send(new DatagramPacket(buffer.array(), buffer.position(), target));
+    }
+
+    private void receiveLoop() {
+        byte[] data = new byte[PACKET_SIZE];
+        DatagramPacket packet = new DatagramPacket(data, data.length);
+        ByteBuffer reply = ByteBuffer.allocate(PACKET_SIZE);
+        while (running) {
+            try {
+                packet.setLength(data.length);
+                socket.receive(packet);
+                long receivedAt = clock.nowNanos();
+                ByteBuffer in = ByteBuffer.wrap(data, 0, packet.getLength());
+                if (packet.getLength() < 8 || in.getInt() != MAGIC) {
+                    continue;
+                }
+                byte type = in.get();
+                byte flags = in.get();
+                in.getShort();
+
+                if (type == TYPE_PING && role == Role.LEADER) {
+                    long t0 = in.getLong();
+                    followers.put(packet.getSocketAddress(), receivedAt);
+                    reply.clear();
+                    reply.putInt(MAGIC);
+                    reply.put(TYPE_PONG);
+                    reply.put((byte) 0);
+                    reply.putShort((short) 0);
+                    reply.putLong(t0);
+                    reply.putLong(receivedAt);       // t1
+                    reply.putLong(clock.nowNanos()); // t2
+                    send(reply, packet.getSocketAddress());
+                } else if (type == TYPE_PONG && role == Role.FOLLOWER) {
+                    onPong(in.getLong(), in.getLong(), in.getLong(), receivedAt);
+                } else if (type == TYPE_BEACON && role == Role.FOLLOWER) {
+                    if (leaderAddress == null) {
+                        leaderAddress = packet.getSocketAddress();
+                    }
+                    onBeacon(flags != 0, in.getLong(), in.getLong());
+                }
+            } catch (IOException e) {
+                if (running) {
+                    packetErrors.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    // NTP方式计算时钟偏差：offset = 主机时间 - 本地时间
+    private void onPong(long t0, long t1, long t2, long t3) {
+        long rtt = (t3 - t0) - (t2 - t1);
+        long offset = ((t1 - t0) + (t2 - t3)) / 2;
+        int slot = sampleCount % OFFSET_WINDOW;
+        offsetSamples[slot] = offset;
+        rttSamples[slot] = rtt;
+        sampleCount++;
+        lastRttNs = rtt;
+    }
+
+    // 取窗口内往返时间最短的测量，排队延迟最小，偏差估计最准确
+    private boolean bestOffset(long[] out) {
+        int count = Math.min(sampleCount, OFFSET_WINDOW);
+        if (count == 0) {
+            return false;
+        }
+        int best = 0;
+        for (int i = 1; i < count; i++) {
+            if (rttSamples[i] < rttSamples[best]) {
+                best = i;
+            }
+        }
+        out[0] = offsetSamples[best];
+        return true;
+    }
+
+    private final long[] offsetResult = new long[1];
+
+    private void onBeacon(boolean leaderPlaying, long leaderNanos, long leaderPositionUs) {
+        if (!bestOffset(offsetResult) || !leaderPlaying || !clock.isPlaying()) {
+            lastControlNanos = 0;
+            return;
+        }
+        long offset = offsetResult[0];
+        lastOffsetNs = offset;
+
+        long now = clock.nowNanos();
+        if (now < holdoffUntilNanos) {
+            return; // 等待上一次seek完成
+        }
+        long localPositionUs = clock.getPositionUs();
+        if (localPositionUs < 0 || leaderPositionUs < 0) {
+            return;
+        }
+        // 把信标时刻换算到本地时钟，推算此刻主机的媒体位置
+        long leaderNowUs = leaderPositionUs + ((now + offset) - leaderNanos) / 1000;
+        long driftUs = localPositionUs - leaderNowUs;
+        long durationUs = clock.getDurationUs();
+        if (durationUs > 0) {
+            // 两端各自循环播放，推算位置和漂移都按时长取模
+            leaderNowUs %= durationUs;
+            driftUs %= durationUs;
+            if (Math.abs(driftUs) > durationUs / 2) {
+                driftUs = driftUs > 0 ? driftUs - durationUs : driftUs + durationUs;
+            }
+        }
+        lastDriftUs = driftUs;
+        driftSamples++;
+        sumSquareDriftUs += (double) driftUs * driftUs;
+        maxAbsDriftUs = Math.max(maxAbsDriftUs, Math.abs(driftUs));
+
+        if (Math.abs(driftUs) > RESYNC_THRESHOLD_US) {
+            clock.seekToUs(leaderNowUs);
+            holdoffUntilNanos = now + RESYNC_HOLDOFF_NS;
+            integral = 0;
+            lastControlNanos = 0;
+            resyncs++;
+            applyRate(1.0f);
+            return;
+        }
+
+        double driftSec = driftUs / 1e6;
+        double dt = lastControlNanos > 0 ? (now - lastControlNanos) / 1e9 : 0;
+        lastControlNanos = now;
+        double adjust = -(KP * driftSec + KI * (integral + driftSec * dt));
+        if (Math.abs(adjust) < MAX_RATE_ADJUST) {
+            // 速度未饱和时才积分，避免积分饱和
+            integral += driftSec * dt;
+        }
+        adjust = Math.max(-MAX_RATE_ADJUST, Math.min(MAX_RATE_ADJUST, adjust));
+        applyRate((float) (1.0 + adjust));
+    }
+
+    private void applyRate(float rate) {
+        // 速度变化小于十万分之一时不下发，减少播放器调用
+        if (Math.abs(rate - currentRate) >= 0.00001f) {
+            currentRate = rate;
+            clock.setRate(rate);
+        }
+    }
+
+    public long getLastDriftUs() {
+        return lastDriftUs;
+    }
+
+    public double getRmsDriftUs() {
+        return driftSamples > 0 ? Math.sqrt(sumSquareDriftUs / driftSamples) : 0;
+    }
+
+    /**
+     * 清空漂移统计，用于排除收敛过程
+     */
+    public void resetStats() {
+        driftSamples = 0;
+        sumSquareDriftUs = 0;
+        maxAbsDriftUs = 0;
+    }
+
+    public String getStatsSummary() {
+        if (role == Role.LEADER) {
+            return String.format(Locale.US, "网络同步(主机): 从机 %d 台 发送错误 %d",
+                    followers.size(), packetErrors.get());
+        }
+        return String.format(Locale.US,
+                "网络同步(从机): 漂移 %.2fms RMS %.2fms 最大 %.2fms 时钟偏差 %.3fms RTT %.3fms 速度 %.5f 重新对齐 %d 次",
+                lastDriftUs / 1000.0, getRmsDriftUs() / 1000.0, maxAbsDriftUs / 1000.0,
+                lastOffsetNs / 1e6, lastRttNs / 1e6, currentRate, resyncs);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.AudioDeviceInfo;
+import android.media.MediaPlayer;
+import android.net.Uri;
+import android.os.Build;
+import android.util.Log;
+
+/**
+ * 播放列表下一条音频的预缓冲
+ *
+ * 当前条目播放时提前创建并准备好下一条的MediaPlayer，准备完成后通过
+ * setNextMediaPlayer挂到当前播放器上，当前条目结束时由框架直接切换，
+ * 应用层只需要交换引用。
+ */
+public class NextItemPrebuffer {
+    private static final String TAG = "NextItemPrebuffer";
+
+    private MediaPlayer player;
+    private MediaPlayer attachedTo;     // 通过setNextMediaPlayer持有player的当前播放器
+    private Uri uri;
+    private boolean prepared;
+
+    /**
+     * 为uri准备下一个播放器，current为正在播放的播放器；同一uri重复调用会被忽略
+     */
+    public void prepare(Context context, Uri nextUri, MediaPlayer current,
+                        AudioDeviceInfo device, float volume) {
+        if (nextUri == null || current == null) {
+            return;
+        }
+        if (nextUri.equals(uri) && player != null) {
+            return;
+        }
+        release();
+
+        uri = nextUri;
+        player = new MediaPlayer();
+        player.setAudioAttributes(
+            new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_MEDIA)
+                .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
+                .build()
+        );
+        player.setLooping(false);
+        player.setVolume(volume, volume);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M && device != null) {
+            player.setPreferredDevice(device);
+        }
+
+        final MediaPlayer next = player;
+        player.setOnPreparedListener(mp -> {
+            if (mp != player) {
+                return; // 已被新的预缓冲替换
+            }
+            prepared = true;
+            try {
+                current.setNextMediaPlayer(next);
+                attachedTo = current;
+                Log.d(TAG, "下一条已预缓冲: " + uri);
+            } catch (IllegalStateException e) {
+                // 当前播放器已经被释放，等切换时直接使用已准备好的播放器
+                Log.w(TAG, "挂接下一个播放器失败: " + e.getMessage());
+            }
+        });
+        player.setOnErrorListener((mp, what, extra) -> {
+            Log.e(TAG, "预缓冲失败: what=" + what + ", extra=" + extra);
+            if (mp == player) {
+                release();
+            }
+            return true;
+        });
+
+        try {
+            player.setDataSource(context, nextUri);
+            player.prepareAsync();
+        } catch (Exception e) {
+            Log.e(TAG, "预缓冲设置数据源失败: " + e.getMessage());
+            release();
+        }
+    }
+
+    /**
+     * 取出已准备好的播放器，uri不匹配或尚未准备好时返回null并释放预缓冲
+     */
+    public MediaPlayer take(Uri expected) {
+        if (player != null && prepared && expected != null && expected.equals(uri)) {
+            MediaPlayer result = player;
+            result.setOnPreparedListener(null);
+            player = null;
+            attachedTo = null;
+            uri = null;
+            prepared = false;
+            return result;
+        }
+        release();
+        return null;
+    }
+
+    /**
+     * 释放预缓冲的播放器，在列表或播放顺序改变时调用
+     */
+    public void release() {
+        if (attachedTo != null) {
+            // 先从当前播放器上解除挂接，避免框架在结束时切换到已释放的播放器
+            try {
+                attachedTo.setNextMediaPlayer(null);
+            } catch (IllegalStateException e) {
+                // 当前播放器已经被释放
+            }
+            attachedTo = null;
+        }
+        if (player != null) {
+            player.release();
+            player = null;
+        }
+        uri = null;
+        prepared = false;
+    }
+}
@@ -0,0 +1,588 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.AudioDeviceInfo;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioTrack;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * 压缩音频卸载播放
+ *
+ * 路由的设备支持该格式的卸载时(AudioManager.isOffloadedPlaybackSupported)，
+ * 直接把MediaExtractor读出的MP3帧写入卸载模式的AudioTrack，由音频DSP解码，
+ * 应用处理器只负责搬运数据。不支持卸载、或播放过程中被系统拆除卸载通路(切换设备等)时，
+ * 从当前位置改用PcmDecoder软件解码继续播放，对调用方透明。
+ * 只处理MP3：MediaExtractor给出的AAC是不带ADTS头的裸帧，不能直接送给卸载通路。
+ */
+public class OffloadPlayer implements PcmPlayback {
+    private static final String TAG = "OffloadPlayer";
+
+    private static final int PCM_CHUNK = 4096;
+    private static final long BENCHMARK_US = 5000000; // 用5秒音频估算软件解码的CPU占用
+
+    private final Context context;
+    private final Uri uri;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Object lock = new Object();
+    private final int playerNumber;
+    private final UnderrunCounter underruns; // 只在写入线程使用
+
+    private Thread thread;
+    private volatile AudioTrack track;
+    private volatile AudioDeviceInfo device;
+    private volatile boolean running;
+    private volatile boolean playing;
+    private volatile boolean looping;
+    private volatile boolean tornDown;
+    private volatile long pendingSeekUs = -1;
+    private volatile float volume = 1.0f;
+    private volatile int sampleRate;
+    private volatile long durationUs;
+    private volatile long segmentStartUs;
+    private long tearDownPositionUs;
+    private boolean offloadStartFailed;  // 卸载AudioTrack创建或首次写入失败，只在播放线程访问
+    private OnCompletionListener completionListener;
+
+    // 状态和统计
+    private volatile boolean offloadActive;
+    private volatile String mode = "准备中";
+    private volatile String outputPath;    // 软件解码时的输出格式选择
+    private long cpuStartNs;
+    private long wallStartNs;
+    private volatile long threadCpuNs;
+    private volatile long threadWallNs;
+    private volatile double softwareDecodePercent = -1; // 软件解码一秒音频所需CPU的百分比
+
+    public OffloadPlayer(Context context, int playerNumber, Uri uri) {
+        this.context = context.getApplicationContext();
+        this.playerNumber = playerNumber;
+        this.underruns = new UnderrunCounter(playerNumber, EventJournal.SOURCE_OFFLOAD);
+        this.uri = uri;
+    }
+
+    @Override
+    public void start() {
+        synchronized (lock) {
+            playing = true;
+            if (thread == null || !thread.isAlive()) {
+                running = true;
+                if (pendingSeekUs < 0) {
+                    segmentStartUs = 0;
+                }
+                thread = new Thread(this::playLoop, "OffloadPlayer");
+                thread.start();
+            } else {
+                AudioTrack current = track;
+                if (current != null) {
+                    current.play();
+                }
+            }
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public void pause() {
+        synchronized (lock) {
+            playing = false;
+            AudioTrack current = track;
+            if (current != null) {
+                current.pause();
+            }
+        }
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        long played;
+        // 播放线程在同一个锁内释放AudioTrack，这里不会用到已释放的AudioTrack
+        synchronized (lock) {
+            AudioTrack current = track;
+            if (current == null || sampleRate == 0) {
+                return (int) (segmentStartUs / 1000);
+            }
+            played = current.getPlaybackHeadPosition() & 0xFFFFFFFFL;
+        }
+        long positionUs = segmentStartUs + played * 1000000L / sampleRate;
+        if (durationUs > 0) {
+            positionUs = looping ? positionUs % durationUs : Math.min(positionUs, durationUs);
+        }
+        return (int) (positionUs / 1000);
+    }
+
+    @Override
+    public int getDuration() {
+        return (int) (durationUs / 1000);
+    }
+
+    @Override
+    public void seekTo(int positionMs) {
+        synchronized (lock) {
+            pendingSeekUs = positionMs * 1000L;
+            AudioTrack current = track;
+            if (current != null) {
+                // 丢弃已写入的数据，阻塞中的write立即返回
+                current.pause();
+                current.flush();
+            }
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public void setVolume(float volume) {
+        this.volume = volume;
+        synchronized (lock) {
+            AudioTrack current = track;
+            if (current != null) {
+                current.setVolume(volume);
+            }
+        }
+    }
+
+    @Override
+    public void setLooping(boolean looping) {
+        this.looping = looping;
+    }
+
+    @Override
+    public void setPreferredDevice(AudioDeviceInfo device) {
+        // 新设备不支持卸载时系统会拆除卸载通路，由onTearDown切换到软件解码
+        this.device = device;
+        synchronized (lock) {
+            AudioTrack current = track;
+            if (current != null) {
+                current.setPreferredDevice(device);
+            }
+        }
+    }
+
+    @Override
+    public void setOnCompletionListener(OnCompletionListener listener) {
+        this.completionListener = listener;
+    }
+
+    @Override
+    public void release() {
+        synchronized (lock) {
+            running = false;
+            playing = false;
+            AudioTrack current = track;
+            if (current != null) {
+                current.pause();
+                current.flush();
+            }
+            lock.notifyAll();
+        }
+        if (thread != null) {
+            try {
+                thread.join(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+        completionListener = null;
+    }
+
+    private void playLoop() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+        cpuStartNs = Debug.threadCpuTimeNanos();
+        wallStartNs = SystemClock.elapsedRealtimeNanos();
+        try {
+            long startUs = pendingSeekUs >= 0 ? pendingSeekUs : 0;
+            pendingSeekUs = -1;
+            boolean completed = false;
+            AudioFormat offloadFormat = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q ? probeOffloadFormat() : null;
+            if (offloadFormat != null) {
+                startBenchmark();
+                completed = playOffload(offloadFormat, startUs);
+                if (!completed && running && !offloadStartFailed) {
+                    // 卸载通路被拆除，从当前位置改用软件解码
+                    startUs = tearDownPositionUs;
+                    Log.w(TAG, "卸载通路被拆除，改用软件解码: " + startUs / 1000 + "ms");
+                    mode = "PCM(卸载通路被拆除)";
+                }
+            }
+            if (!completed && running) {
+                completed = playPcm(startUs);
+            }
+            if (completed) {
+                playing = false;
+                mainHandler.post(() -> {
+                    if (completionListener != null) {
+                        completionListener.onCompletion(this);
+                    }
+                });
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "播放失败: " + e.getMessage());
+        } finally {
+            updateCpuStats();
+        }
+    }
+
+    // 播放线程自身的CPU占用，卸载模式下只有搬运数据的开销
+    private void updateCpuStats() {
+        threadCpuNs = Debug.threadCpuTimeNanos() - cpuStartNs;
+        threadWallNs = SystemClock.elapsedRealtimeNanos() - wallStartNs;
+    }
+
+    // 检查格式和系统是否支持卸载，返回卸载使用的格式，不支持时返回null
+    private AudioFormat probeOffloadFormat() {
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(context, uri, null);
+            MediaFormat format = selectAudioTrack(extractor);
+            if (format == null) {
+                return null;
+            }
+            String mime = format.getString(MediaFormat.KEY_MIME);
+            durationUs = format.containsKey(MediaFormat.KEY_DURATION) ? format.getLong(MediaFormat.KEY_DURATION) : 0;
+            if (!MediaFormat.MIMETYPE_AUDIO_MPEG.equals(mime)) {
+                mode = "PCM(" + mime + " 不支持卸载)";
+                return null;
+            }
+            int channels = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+            AudioFormat audioFormat = new AudioFormat.Builder()
+                    .setEncoding(AudioFormat.ENCODING_MP3)
+                    .setSampleRate(format.getInteger(MediaFormat.KEY_SAMPLE_RATE))
+                    .setChannelMask(PcmDecoder.channelMaskFor(channels))
+                    .build();
+            if (!AudioManager.isOffloadedPlaybackSupported(audioFormat, buildAttributes())) {
+                mode = "PCM(设备不支持MP3卸载)";
+                return null;
+            }
+            return audioFormat;
+        } catch (IOException e) {
+            Log.e(TAG, "读取格式失败: " + e.getMessage());
+            return null;
+        } finally {
+            extractor.release();
+        }
+    }
+
+    private static MediaFormat selectAudioTrack(MediaExtractor extractor) {
+        for (int i = 0; i < extractor.getTrackCount(); i++) {
+            MediaFormat format = extractor.getTrackFormat(i);
+            String mime = format.getString(MediaFormat.KEY_MIME);
+            if (mime != null && mime.startsWith("audio/")) {
+                extractor.selectTrack(i);
+                return format;
+            }
+        }
+        return null;
+    }
+
+    private static AudioAttributes buildAttributes() {
+        return new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_MEDIA)
+                .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
+                .build();
+    }
+
+    // 卸载播放，返回true表示正常播放完毕，false表示被释放或卸载通路被拆除
+    private boolean playOffload(AudioFormat format, long startUs) throws IOException, InterruptedException {
+        MediaExtractor extractor = new MediaExtractor();
+        AudioTrack created = null;
+        try {
+            extractor.setDataSource(context, uri, null);
+            selectAudioTrack(extractor);
+            extractor.seekTo(startUs, MediaExtractor.SEEK_TO_CLOSEST_SYNC);
+            segmentStartUs = startUs;
+            sampleRate = format.getSampleRate();
+
+            offloadStartFailed = false;
+            try {
+                created = new AudioTrack.Builder()
+                        .setAudioAttributes(buildAttributes())
+                        .setAudioFormat(format)
+                        .setTransferMode(AudioTrack.MODE_STREAM)
+                        .setOffloadedPlayback(true)
+                        .build();
+            } catch (UnsupportedOperationException | IllegalArgumentException e) {
+                // isOffloadedPlaybackSupported通过但仍可能创建失败，改用软件解码
+                onOffloadStartFailed("创建卸载AudioTrack失败: " + e.getMessage());
+                return false;
+            }
+            tornDown = false;
+            created.registerStreamEventCallback(Runnable::run, new AudioTrack.StreamEventCallback() {
+                @Override
+                public void onTearDown(AudioTrack track) {
+                    tornDown = true;
+                }
+            });
+            created.setVolume(volume);
+            if (device != null) {
+                created.setPreferredDevice(device);
+            }
+            track = created;
+            offloadActive = true;
+            mode = String.format(Locale.US, "压缩音频卸载(MP3 %dHz)", sampleRate);
+            Log.d(TAG, mode);
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+            boolean wroteAny = false;
+            while (running && !tornDown) {
+                if (!waitWhilePaused(created)) {
+                    return false;
+                }
+                long seekUs = pendingSeekUs;
+                if (seekUs >= 0) {
+                    pendingSeekUs = -1;
+                    extractor.seekTo(seekUs, MediaExtractor.SEEK_TO_CLOSEST_SYNC);
+                    segmentStartUs = seekUs;
+                }
+                buffer.clear();
+                int size = extractor.readSampleData(buffer, 0);
+                if (size < 0) {
+                    if (looping) {
+                        extractor.seekTo(0, MediaExtractor.SEEK_TO_CLOSEST_SYNC);
+                        continue;
+                    }
+                    drain(created);
+                    return !tornDown;
+                }
+                buffer.limit(size);
+                while (buffer.hasRemaining() && running && !tornDown && pendingSeekUs < 0) {
+                    int written;
+                    try {
+                        written = created.write(buffer, buffer.remaining(), AudioTrack.WRITE_BLOCKING);
+                    } catch (IllegalStateException e) {
+                        written = AudioTrack.ERROR_INVALID_OPERATION;
+                    }
+                    if (written < 0 && !wroteAny) {
+                        onOffloadStartFailed("卸载AudioTrack首次写入失败: " + written);
+                        return false;
+                    } else if (written < 0) {
+                        tornDown = true;
+                    } else {
+                        wroteAny = true;
+                    }
+                }
+                extractor.advance();
+                underruns.check(created);
+                updateCpuStats();
+            }
+            return false;
+        } finally {
+            offloadActive = false;
+            extractor.release();
+            // 释放前记录位置，软件解码从这里继续
+            tearDownPositionUs = getCurrentPosition() * 1000L;
+            if (created != null) {
+                synchronized (lock) {
+                    track = null;
+                    created.release();
+                }
+            }
+        }
+    }
+
+    // 卸载通路没有建立起来，从起点改用软件解码
+    private void onOffloadStartFailed(String reason) {
+        Log.w(TAG, reason + "，改用软件解码");
+        offloadStartFailed = true;
+        mode = "PCM(卸载启动失败)";
+    }
+
+    // 软件解码播放，返回true表示正常播放完毕
+    private boolean playPcm(long startUs) throws IOException, InterruptedException {
+        PcmDecoder decoder = new PcmDecoder();
+        AudioTrack created = null;
+        try {
+            decoder.open(context, uri);
+            durationUs = decoder.getDurationUs();
+            if (startUs > 0) {
+                decoder.seekTo(startUs);
+            }
+            segmentStartUs = startUs;
+            short[] chunk = new short[PCM_CHUNK];
+            int count = decoder.read(chunk, 0, chunk.length);
+            int channels = decoder.getChannelCount();
+            OutputFormatMatcher.Decision decision = OutputFormatMatcher.choose(context, device,
+                    decoder.getSampleRate(), channels);
+            sampleRate = decision.outputRate;
+            outputPath = decision.describe();
+            SincResampler resampler = decision.needsResample()
+                    ? new SincResampler(decision.sourceRate, decision.outputRate, channels) : null;
+            short[] resampled = resampler != null ? new short[resampler.maxOutputSamples(PCM_CHUNK)] : null;
+            int channelMask = PcmDecoder.channelMaskFor(channels);
+            created = new AudioTrack.Builder()
+                    .setAudioAttributes(buildAttributes())
+                    .setAudioFormat(new AudioFormat.Builder()
+                            .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                            .setSampleRate(sampleRate)
+                            .setChannelMask(channelMask)
+                            .build())
+                    .setBufferSizeInBytes(Math.max(AudioTrack.getMinBufferSize(sampleRate, channelMask,
+                            AudioFormat.ENCODING_PCM_16BIT), PCM_CHUNK * 2) * 2)
+                    .setTransferMode(AudioTrack.MODE_STREAM)
+                    .build();
+            created.setVolume(volume);
+            if (device != null) {
+                created.setPreferredDevice(device);
+            }
+            track = created;
+            if (mode.equals("准备中")) {
+                mode = "PCM(系统版本不支持卸载)";
+            }
+            Log.d(TAG, mode + " " + outputPath);
+
+            while (running) {
+                if (!waitWhilePaused(created)) {
+                    return false;
+                }
+                long seekUs = pendingSeekUs;
+                if (seekUs >= 0) {
+                    pendingSeekUs = -1;
+                    decoder.seekTo(seekUs);
+                    segmentStartUs = seekUs;
+                    count = 0;
+                    if (resampler != null) {
+                        resampler.reset();
+                    }
+                }
+                if (count > 0) {
+                    if (resampler != null) {
+                        created.write(resampled, 0, resampler.process(chunk, count, resampled));
+                    } else {
+                        created.write(chunk, 0, count);
+                    }
+                    underruns.check(created);
+                    updateCpuStats();
+                }
+                count = decoder.read(chunk, 0, chunk.length);
+                if (count < 0) {
+                    if (looping) {
+                        decoder.seekTo(0);
+                        count = 0;
+                        continue;
+                    }
+                    drain(created);
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            decoder.release();
+            if (created != null) {
+                synchronized (lock) {
+                    track = null;
+                    created.release();
+                }
+            }
+        }
+    }
+
+    // 暂停时等待，返回false表示已释放
+    private boolean waitWhilePaused(AudioTrack created) throws InterruptedException {
+        synchronized (lock) {
+            while (running && !playing && pendingSeekUs < 0 && !tornDown) {
+                lock.wait(200);
+            }
+            if (playing && created.getPlayState() != AudioTrack.PLAYSTATE_PLAYING) {
+                created.play();
+            }
+        }
+        return running;
+    }
+
+    // 等待已写入的数据播放完
+    private void drain(AudioTrack created) throws InterruptedException {
+        long targetFrames = Math.max(0, durationUs - segmentStartUs) * sampleRate / 1000000;
+        created.stop();
+        long deadline = SystemClock.uptimeMillis() + 5000;
+        while (running && (created.getPlaybackHeadPosition() & 0xFFFFFFFFL) < targetFrames
+                && created.getPlayState() != AudioTrack.PLAYSTATE_STOPPED
+                && SystemClock.uptimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+
+    // 后台低优先级解码5秒音频，估算软件解码的CPU占用，用于计算卸载节省的CPU
+    private void startBenchmark() {
+        if (softwareDecodePercent >= 0) {
+            return;
+        }
+        Thread benchmark = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_LOWEST);
+            PcmDecoder decoder = new PcmDecoder();
+            try {
+                decoder.open(context, uri);
+                short[] chunk = new short[PCM_CHUNK];
+                long cpuStart = Debug.threadCpuTimeNanos();
+                while (decoder.getPositionUs() < BENCHMARK_US && decoder.read(chunk, 0, chunk.length) >= 0) {
+                    // 只统计解码耗时
+                }
+                long audioUs = Math.max(1, decoder.getPositionUs());
+                softwareDecodePercent = (Debug.threadCpuTimeNanos() - cpuStart) / 1000.0 / audioUs * 100;
+            } catch (IOException e) {
+                Log.w(TAG, "解码CPU估算失败: " + e.getMessage());
+            } finally {
+                decoder.release();
+            }
+        }, "OffloadBenchmark");
+        benchmark.start();
+    }
+
+    public boolean isOffloadActive() {
+        return offloadActive;
+    }
+
+    @Override
+    public String getStatsSummary() {
+        double threadPercent = threadWallNs > 0 ? threadCpuNs * 100.0 / threadWallNs : 0;
+        StringBuilder builder = new StringBuilder("播放方式: ").append(mode);
+        if (!offloadActive && outputPath != null) {
+            builder.append("\n输出格式: ").append(outputPath);
+        }
+        builder.append(String.format(Locale.US, "\n播放线程CPU %.2f%%", threadPercent));
+        if (softwareDecodePercent >= 0) {
+            // 软件解码的估算值减去当前实际占用，即卸载节省的应用处理器CPU
+            builder.append(String.format(Locale.US, " 软件解码约需 %.2f%%", softwareDecodePercent));
+            if (offloadActive) {
+                builder.append(String.format(Locale.US, " 节省约 %.2f%%",
+                        Math.max(0, softwareDecodePercent - threadPercent)));
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.content.Context;
+import android.media.AudioDeviceInfo;
+import android.media.AudioManager;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * 根据输出设备支持的格式选择AudioTrack的采样率
+ *
+ * 源采样率(常见44.1kHz)和设备采样率(HDMI常见48kHz)不一致时，系统混音器会在输出通路上重采样。
+ * 这里读取AudioDeviceInfo.getSampleRates()/getChannelCounts()：设备支持源采样率时按源格式直接输出；
+ * 不支持时在应用内用SincResampler做一次高质量重采样，以设备支持的采样率输出，通路上不再有额外的重采样。
+ * 设备没有报告采样率列表时表示可以接受任意采样率，按源格式输出。
+ */
+public final class OutputFormatMatcher {
+
+    private static final int PREFERRED_RATE = 48000;
+
+    /**
+     * 选择结果
+     */
+    public static final class Decision {
+        public final int sourceRate;
+        public final int sourceChannels;
+        public final int outputRate;
+        public final boolean channelsSupported;
+        final String reason;
+
+        Decision(int sourceRate, int sourceChannels, int outputRate, boolean channelsSupported, String reason) {
+            this.sourceRate = sourceRate;
+            this.sourceChannels = sourceChannels;
+            this.outputRate = outputRate;
+            this.channelsSupported = channelsSupported;
+            this.reason = reason;
+        }
+
+        public boolean needsResample() {
+            return outputRate != sourceRate;
+        }
+
+        /**
+         * 诊断信息中显示的输出方式
+         */
+        public String describe() {
+            String path = needsResample()
+                    ? String.format(Locale.US, "应用内重采样 %d→%dHz", sourceRate, outputRate)
+                    : String.format(Locale.US, "原生输出 %dHz", outputRate);
+            String channels = channelsSupported ? sourceChannels + "声道" : sourceChannels + "声道(设备未列出，由系统转换)";
+            return path + " " + channels + " (" + reason + ")";
+        }
+    }
+
+    private OutputFormatMatcher() {
+    }
+
+    /**
+     * 为一个或多个输出设备选择共同的输出采样率，devices中的null表示默认路由
+     */
+    public static Decision choose(Context context, AudioDeviceInfo[] devices, int sourceRate, int sourceChannels) {
+        int[] common = null;      // 所有设备都支持的采样率，null表示不受限制
+        boolean channelsSupported = true;
+        for (AudioDeviceInfo device : devices) {
+            int[] rates = device != null ? device.getSampleRates() : defaultOutputRates(context);
+            if (device != null) {
+                int[] counts = device.getChannelCounts();
+                if (counts.length > 0 && !contains(counts, sourceChannels)) {
+                    channelsSupported = false;
+                }
+            }
+            if (rates.length == 0) {
+                continue;
+            }
+            common = common == null ? rates.clone() : intersect(common, rates);
+        }
+
+        if (common == null) {
+            return new Decision(sourceRate, sourceChannels, sourceRate, channelsSupported, "设备接受任意采样率");
+        }
+        if (contains(common, sourceRate)) {
+            return new Decision(sourceRate, sourceChannels, sourceRate, channelsSupported, "设备支持源采样率");
+        }
+        if (common.length == 0) {
+            // 各设备没有共同的采样率，只能交给各自的通路转换
+            return new Decision(sourceRate, sourceChannels, sourceRate, channelsSupported, "设备间没有共同采样率");
+        }
+        return new Decision(sourceRate, sourceChannels, pickRate(common, sourceRate), channelsSupported,
+                "设备支持 " + Arrays.toString(common));
+    }
+
+    public static Decision choose(Context context, AudioDeviceInfo device, int sourceRate, int sourceChannels) {
+        return choose(context, new AudioDeviceInfo[] {device}, sourceRate, sourceChannels);
+    }
+
+    /**
+     * 混音器等固定输出格式的场景：选择设备最合适的采样率
+     */
+    public static int preferredRate(Context context, AudioDeviceInfo device) {
+        int[] rates = device != null ? device.getSampleRates() : defaultOutputRates(context);
+        if (rates.length == 0 || contains(rates, PREFERRED_RATE)) {
+            return PREFERRED_RATE;
+        }
+        return pickRate(rates, PREFERRED_RATE);
+    }
+
+    // 优先整数倍关系，其次48kHz，再次不低于源采样率的最小值，都没有时取最大值
+    private static int pickRate(int[] rates, int sourceRate) {
+        int[] sorted = rates.clone();
+        Arrays.sort(sorted);
+        for (int rate : sorted) {
+            if (rate > sourceRate && rate % sourceRate == 0) {
+                return rate;
+            }
+        }
+        if (contains(sorted, PREFERRED_RATE)) {
+            return PREFERRED_RATE;
+        }
+        for (int rate : sorted) {
+            if (rate >= sourceRate) {
+                return rate;
+            }
+        }
+        return sorted[sorted.length - 1];
+    }
+
+    // 默认路由没有AudioDeviceInfo，取主输出的采样率
+    private static int[] defaultOutputRates(Context context) {
+        AudioManager audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
+        String property = audioManager != null
+                ? audioManager.getProperty(AudioManager.PROPERTY_OUTPUT_SAMPLE_RATE) : null;
+        if (property == null) {
+            return new int[0];
+        }
+        try {
+            return new int[] {Integer.parseInt(property)};
+        } catch (NumberFormatException e) {
+            return new int[0];
+        }
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        for (int v : a) {
+            if (contains(b, v)) {
+                result[count++] = v;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
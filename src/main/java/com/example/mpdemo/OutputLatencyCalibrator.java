@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.media.AudioAttributes;
+import android.media.AudioDeviceInfo;
+import android.media.AudioFormat;
+import android.media.AudioTimestamp;
+import android.media.AudioTrack;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 各输出设备的输出延迟校准
+ *
+ * 在目标设备上用AudioTrack持续写入静音，根据AudioTrack.getTimestamp()给出的
+ * 已播放帧位置和时间戳，计算一帧从写入到实际输出的时间，多次测量取中位数。
+ * 结果按设备id和设备类型分别保存，设备id在重新插拔后可能变化，此时退回按类型查找。
+ */
+public class OutputLatencyCalibrator {
+    private static final String TAG = "LatencyCalibrator";
+    private static final String PREFS_NAME = "output_latency";
+
+    private static final int SAMPLE_RATE = 48000;
+    private static final int CHANNELS = 2;
+    private static final long WARMUP_MS = 500;   // 等待输出通路稳定
+    private static final long MEASURE_MS = 1500; // 测量时长
+    private static final int MIN_SAMPLES = 5;
+
+    private final SharedPreferences prefs;
+
+    public OutputLatencyCalibrator(Context context) {
+        this.prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * 已保存的输出延迟(微秒)，device为null表示默认路由，未校准时返回0
+     */
+    public long getLatencyUs(AudioDeviceInfo device) {
+        if (device == null) {
+            return prefs.getLong("default", 0);
+        }
+        long byId = prefs.getLong(idKey(device), -1);
+        return byId >= 0 ? byId : prefs.getLong(typeKey(device), 0);
+    }
+
+    /**
+     * 测量device的输出延迟并保存，耗时约2秒，需要在后台线程调用；失败时返回-1
+     */
+    public long calibrate(AudioDeviceInfo device) {
+        int channelMask = AudioFormat.CHANNEL_OUT_STEREO;
+        int encoding = AudioFormat.ENCODING_PCM_16BIT;
+        int minBuffer = AudioTrack.getMinBufferSize(SAMPLE_RATE, channelMask, encoding);
+        AudioTrack track;
+        try {
+            track = new AudioTrack.Builder()
+                    .setAudioAttributes(new AudioAttributes.Builder()
+                            .setUsage(AudioAttributes.USAGE_MEDIA)
+                            .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
+                            .build())
+                    .setAudioFormat(new AudioFormat.Builder()
+                            .setSampleRate(SAMPLE_RATE)
+                            .setChannelMask(channelMask)
+                            .setEncoding(encoding)
+                            .build())
+                    .setBufferSizeInBytes(minBuffer * 2)
+                    .setTransferMode(AudioTrack.MODE_STREAM)
+                    .build();
+        } catch (Exception e) {
+            Log.e(TAG, "创建AudioTrack失败: " + e.getMessage());
+            return -1;
+        }
+
+        List<Long> latencies = new ArrayList<>();
+        try {
+            if (device != null) {
+                track.setPreferredDevice(device);
+            }
+            track.play();
+
+            short[] silence = new short[minBuffer / 2];
+            AudioTimestamp timestamp = new AudioTimestamp();
+            long framesWritten = 0;
+            long begin = SystemClock.elapsedRealtime();
+            long elapsed;
+            while ((elapsed = SystemClock.elapsedRealtime() - begin) < WARMUP_MS + MEASURE_MS) {
+                int written = track.write(silence, 0, silence.length);
+                if (written < 0) {
+                    Log.e(TAG, "写入失败: " + written);
+                    break;
+                }
+                framesWritten += written / CHANNELS;
+                if (elapsed < WARMUP_MS || !track.getTimestamp(timestamp)) {
+                    continue;
+                }
+                // 已写入但未播放的帧换算成时间，再减去时间戳之后已经过去的时间
+                long pendingNs = (framesWritten - timestamp.framePosition) * 1000000000L / SAMPLE_RATE;
+                long latencyNs = pendingNs - (System.nanoTime() - timestamp.nanoTime);
+                if (latencyNs > 0) {
+                    latencies.add(latencyNs / 1000);
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "测量输出延迟失败: " + e.getMessage());
+        } finally {
+            try {
+                track.stop();
+            } catch (IllegalStateException e) {
+                // 未启动时忽略
+            }
+            track.release();
+        }
+
+        if (latencies.size() < MIN_SAMPLES) {
+            Log.w(TAG, "有效时间戳不足: " + latencies.size());
+            return -1;
+        }
+        Collections.sort(latencies);
+        long latencyUs = latencies.get(latencies.size() / 2);
+
+        SharedPreferences.Editor editor = prefs.edit();
+        if (device == null) {
+            editor.putLong("default", latencyUs);
+        } else {
+            editor.putLong(idKey(device), latencyUs);
+            editor.putLong(typeKey(device), latencyUs);
+        }
+        editor.apply();
+        Log.d(TAG, "输出延迟: " + latencyUs / 1000.0 + "ms 采样 " + latencies.size()
+                + (device != null ? " 设备类型 " + device.getType() + " id " + device.getId() : " 默认路由"));
+        return latencyUs;
+    }
+
+    private static String idKey(AudioDeviceInfo device) {
+        return "id_" + device.getType() + "_" + device.getId();
+    }
+
+    private static String typeKey(AudioDeviceInfo device) {
+        return "type_" + device.getType();
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 短音频片段的PCM内存缓存
+ *
+ * 时长不超过阈值的片段整体解码一次，16位PCM存放在堆外的direct ByteBuffer中，
+ * 之后循环播放直接从内存读取，不再占用解码器。缓存按内容摘要索引，
+ * 总大小受全局预算限制，超出时按最近最少使用淘汰。
+ * 被淘汰的片段如果仍在播放，播放器持有的引用在释放前继续有效。
+ */
+public class PcmClipCache {
+    private static final String TAG = "PcmClipCache";
+
+    public static final long MAX_CLIP_DURATION_MS = 30000;
+    private static final long DEFAULT_BUDGET_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * 解码好的片段，data为只读视图，position为0、limit为数据长度
+     */
+    public static class Clip {
+        public final ByteBuffer data;
+        public final int sampleRate;
+        public final int channelCount;
+        public final long frameCount;
+
+        Clip(ByteBuffer data, int sampleRate, int channelCount) {
+            this.data = data;
+            this.sampleRate = sampleRate;
+            this.channelCount = channelCount;
+            this.frameCount = data.limit() / (2L * channelCount);
+        }
+
+        public long getDurationUs() {
+            return frameCount * 1000000L / sampleRate;
+        }
+    }
+
+    private final Context context;
+    private final long budgetBytes;
+    private final LinkedHashMap<String, Clip> clips = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+
+    // 统计
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long decodeMs;
+
+    public PcmClipCache(Context context) {
+        this(context, DEFAULT_BUDGET_BYTES);
+    }
+
+    public PcmClipCache(Context context, long budgetBytes) {
+        this.context = context.getApplicationContext();
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * 是否适合缓存，durationMs来自媒体索引
+     */
+    public boolean accepts(long durationMs) {
+        return durationMs > 0 && durationMs <= MAX_CLIP_DURATION_MS;
+    }
+
+    /**
+     * 取得片段，未缓存时在调用线程中解码；片段过长或解码失败时返回null
+     */
+    public Clip getOrDecode(Uri uri) {
+        String key = MediaCacheKey.compute(context, uri);
+        if (key == null) {
+            key = uri.toString();
+        }
+        synchronized (this) {
+            Clip clip = clips.get(key);
+            if (clip != null) {
+                hits++;
+                return clip;
+            }
+            misses++;
+        }
+
+        Clip clip = decode(uri);
+        if (clip == null) {
+            return null;
+        }
+        synchronized (this) {
+            Clip existing = clips.get(key);
+            if (existing != null) {
+                return existing; // 其他播放器同时解码了同一片段
+            }
+            long size = clip.data.capacity();
+            if (size > budgetBytes) {
+                return clip; // 超出预算的片段只给本次播放使用，不进入缓存
+            }
+            evictUntil(budgetBytes - size);
+            clips.put(key, clip);
+            usedBytes += size;
+        }
+        return clip;
+    }
+
+    private void evictUntil(long limit) {
+        Iterator<Map.Entry<String, Clip>> iterator = clips.entrySet().iterator();
+        while (usedBytes > limit && iterator.hasNext()) {
+            Clip victim = iterator.next().getValue();
+            usedBytes -= victim.data.capacity();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    private Clip decode(Uri uri) {
+        long begin = SystemClock.elapsedRealtime();
+        PcmDecoder decoder = new PcmDecoder();
+        try {
+            decoder.open(context, uri);
+            if (decoder.getDurationUs() > MAX_CLIP_DURATION_MS * 1000) {
+                return null;
+            }
+            short[] chunk = new short[8192];
+            ByteBuffer buffer = null;
+            int count;
+            while ((count = decoder.read(chunk, 0, chunk.length)) >= 0) {
+                if (buffer == null) {
+                    // 第一块数据之后采样率和声道数才确定，按时长预估容量并留出余量
+                    long estimate = (decoder.getDurationUs() + 100000) * decoder.getSampleRate() / 1000000
+                            * decoder.getChannelCount() * 2;
+                    buffer = ByteBuffer.allocateDirect((int) Math.max(estimate, 65536))
+                            .order(ByteOrder.nativeOrder());
+                }
+                if (buffer.remaining() < count * 2) {
+                    buffer = grow(buffer, count * 2);
+                }
+                buffer.asShortBuffer().put(chunk, 0, count);
+                buffer.position(buffer.position() + count * 2);
+            }
+            if (buffer == null) {
+                return null;
+            }
+            // 去掉多余容量，避免预估过大浪费预算
+            buffer.flip();
+            ByteBuffer exact = ByteBuffer.allocateDirect(buffer.limit()).order(ByteOrder.nativeOrder());
+            exact.put(buffer);
+            exact.flip();
+
+            Clip clip = new Clip(exact.asReadOnlyBuffer().order(ByteOrder.nativeOrder()),
+                    decoder.getSampleRate(), decoder.getChannelCount());
+            long elapsed = SystemClock.elapsedRealtime() - begin;
+            synchronized (this) {
+                decodeMs += elapsed;
+            }
+            Log.d(TAG, "解码片段: " + clip.getDurationUs() / 1000 + "ms " + exact.capacity() / 1024
+                    + "KB 耗时 " + elapsed + "ms");
+            return clip;
+        } catch (IOException e) {
+            Log.e(TAG, "解码片段失败: " + e.getMessage());
+            return null;
+        } finally {
+            decoder.release();
+        }
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int needed) {
+        int capacity = Math.max(buffer.capacity() * 3 / 2, buffer.position() + needed);
+        ByteBuffer larger = ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+
+    public synchronized void clear() {
+        clips.clear();
+        usedBytes = 0;
+    }
+
+    public synchronized String getStatsSummary() {
+        return String.format(Locale.US, "PCM缓存: %d 个片段 %.1f/%.1fMB 命中 %d 未命中 %d 淘汰 %d 解码耗时 %dms",
+                clips.size(), usedBytes / 1048576.0, budgetBytes / 1048576.0, hits, misses, evictions, decodeMs);
+    }
+}
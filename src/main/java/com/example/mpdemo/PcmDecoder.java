@@ -0,0 +1,249 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.content.Context;
+import android.media.AudioFormat;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.net.Uri;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+/**
+ * 基于MediaExtractor + MediaCodec的流式音频解码器
+ *
+ * 采用拉取方式：调用方反复调用read()取得交织的16位PCM样本，
+ * 解码器内部只持有当前一个输出缓冲区，内存占用与音频长度无关。
+ * 非线程安全，同一实例只能在一个线程中使用。
+ */
+public class PcmDecoder {
+    private static final String TAG = "PcmDecoder";
+    private static final long TIMEOUT_US = 10000;
+
+    private MediaExtractor extractor;
+    private MediaCodec codec;
+    private final MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+
+    private int sampleRate;
+    private int channelCount;
+    private long durationUs;
+
+    private int currentIndex = -1;        // 当前正在读取的输出缓冲区
+    private ShortBuffer currentSamples;
+    private long currentPtsUs;
+    private boolean inputDone;
+    private boolean outputDone;
+
+    /**
+     * 按声道数取AudioTrack的声道掩码，与MediaCodec输出的交错顺序一致(前左、前右、中置、低音、后左、后右…)
+     */
+    public static int channelMaskFor(int channelCount) {
+        switch (channelCount) {
+            case 1:
+                return AudioFormat.CHANNEL_OUT_MONO;
+            case 2:
+                return AudioFormat.CHANNEL_OUT_STEREO;
+            case 3:
+                return AudioFormat.CHANNEL_OUT_STEREO | AudioFormat.CHANNEL_OUT_FRONT_CENTER;
+            case 4:
+                return AudioFormat.CHANNEL_OUT_QUAD;
+            case 5:
+                return AudioFormat.CHANNEL_OUT_QUAD | AudioFormat.CHANNEL_OUT_FRONT_CENTER;
+            case 6:
+                return AudioFormat.CHANNEL_OUT_5POINT1;
+            case 7:
+                return AudioFormat.CHANNEL_OUT_5POINT1 | AudioFormat.CHANNEL_OUT_BACK_CENTER;
+            case 8:
+                return AudioFormat.CHANNEL_OUT_7POINT1_SURROUND;
+            default:
+                throw new IllegalArgumentException("不支持的声道数: " + channelCount);
+        }
+    }
+
+    /**
+     * 打开媒体文件中的第一条音轨
+     */
+    public void open(Context context, Uri uri) throws IOException {
+        extractor = new MediaExtractor();
+        extractor.setDataSource(context, uri, null);
+
+        MediaFormat format = null;
+        for (int i = 0; i < extractor.getTrackCount(); i++) {
+            MediaFormat trackFormat = extractor.getTrackFormat(i);
+            String mime = trackFormat.getString(MediaFormat.KEY_MIME);
+            if (mime != null && mime.startsWith("audio/")) {
+                extractor.selectTrack(i);
+                format = trackFormat;
+                break;
+            }
+        }
+        if (format == null) {
+            release();
+            throw new IOException("没有找到音轨: " + uri);
+        }
+
+        sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+        channelCount = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+        durationUs = format.containsKey(MediaFormat.KEY_DURATION) ? format.getLong(MediaFormat.KEY_DURATION) : 0;
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            // 统一要求16位整数输出，避免部分解码器默认输出float
+            format.setInteger(MediaFormat.KEY_PCM_ENCODING, AudioFormat.ENCODING_PCM_16BIT);
+        }
+        codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+        codec.configure(format, null, null, 0);
+        codec.start();
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannelCount() {
+        return channelCount;
+    }
+
+    public long getDurationUs() {
+        return durationUs;
+    }
+
+    /**
+     * 最近一次读取位置对应的时间戳(微秒)
+     */
+    public long getPositionUs() {
+        if (currentSamples == null || sampleRate == 0 || channelCount == 0) {
+            return currentPtsUs;
+        }
+        long consumedFrames = currentSamples.position() / channelCount;
+        return currentPtsUs + consumedFrames * 1000000L / sampleRate;
+    }
+
+    public boolean isEndOfStream() {
+        return outputDone && currentSamples == null;
+    }
+
+    /**
+     * 读取交织的PCM样本，返回实际读取的样本数，流结束时返回-1
+     */
+    public int read(short[] dst, int offset, int length) {
+        int total = 0;
+        while (total < length) {
+            if (currentSamples == null || !currentSamples.hasRemaining()) {
+                releaseCurrentBuffer();
+                if (outputDone) {
+                    break;
+                }
+                dequeueOutput();
+                continue;
+            }
+            int count = Math.min(length - total, currentSamples.remaining());
+            currentSamples.get(dst, offset + total, count);
+            total += count;
+        }
+        return (total == 0 && outputDone) ? -1 : total;
+    }
+
+    /**
+     * 跳转到指定位置(就近的同步帧)
+     */
+    public void seekTo(long timeUs) {
+        releaseCurrentBuffer();
+        extractor.seekTo(timeUs, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+        codec.flush();
+        inputDone = false;
+        outputDone = false;
+        currentPtsUs = timeUs;
+    }
+
+    public void release() {
+        releaseCurrentBuffer();
+        if (codec != null) {
+            try {
+                codec.stop();
+            } catch (IllegalStateException e) {
+                Log.w(TAG, "停止解码器失败: " + e.getMessage());
+            }
+            codec.release();
+            codec = null;
+        }
+        if (extractor != null) {
+            extractor.release();
+            extractor = null;
+        }
+    }
+
+    private void feedInput() {
+        if (inputDone) {
+            return;
+        }
+        int index = codec.dequeueInputBuffer(TIMEOUT_US);
+        if (index < 0) {
+            return;
+        }
+        ByteBuffer buffer = codec.getInputBuffer(index);
+        int size = extractor.readSampleData(buffer, 0);
+        if (size < 0) {
+            codec.queueInputBuffer(index, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+            inputDone = true;
+        } else {
+            codec.queueInputBuffer(index, 0, size, extractor.getSampleTime(), 0);
+            extractor.advance();
+        }
+    }
+
+    private void dequeueOutput() {
+        feedInput();
+        int index = codec.dequeueOutputBuffer(bufferInfo, TIMEOUT_US);
+        if (index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+            MediaFormat format = codec.getOutputFormat();
+            sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+            channelCount = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+            return;
+        }
+        if (index < 0) {
+            return;
+        }
+        if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+            outputDone = true;
+        }
+        if (bufferInfo.size <= 0) {
+            codec.releaseOutputBuffer(index, false);
+            return;
+        }
+        ByteBuffer buffer = codec.getOutputBuffer(index);
+        buffer.position(bufferInfo.offset);
+        buffer.limit(bufferInfo.offset + bufferInfo.size);
+        currentIndex = index;
+        currentSamples = buffer.order(ByteOrder.nativeOrder()).asShortBuffer();
+        currentPtsUs = bufferInfo.presentationTimeUs;
+    }
+
+    private void releaseCurrentBuffer() {
+        if (currentIndex >= 0 && codec != null) {
+            codec.releaseOutputBuffer(currentIndex, false);
+        }
+        currentIndex = -1;
+        currentSamples = null;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.media.AudioDeviceInfo;
+
+/**
+ * 应用自己解码、通过AudioTrack输出的播放方式
+ *
+ * 方法命名与MediaPlayer保持一致，MainActivity中作为与MediaPlayer、VideoView并列的分支使用。
+ * 除回调外所有方法都在主线程调用，完成回调也投递到主线程。
+ */
+public interface PcmPlayback {
+
+    interface OnCompletionListener {
+        void onCompletion(PcmPlayback playback);
+    }
+
+    void start();
+
+    void pause();
+
+    boolean isPlaying();
+
+    int getCurrentPosition();
+
+    int getDuration();
+
+    void seekTo(int positionMs);
+
+    void setVolume(float volume);
+
+    void setLooping(boolean looping);
+
+    void setPreferredDevice(AudioDeviceInfo device);
+
+    void setOnCompletionListener(OnCompletionListener listener);
+
+    void release();
+
+    /**
+     * 播放方式和运行统计，用于提示和日志
+     */
+    String getStatsSummary();
+}
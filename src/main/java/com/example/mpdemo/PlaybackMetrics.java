@@ -0,0 +1,351 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.media.MediaPlayer;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PersistableBundle;
+import android.os.SystemClock;
+import android.util.SparseArray;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各播放器的播放延迟统计
+ *
+ * 记录选择媒体到准备完成、准备完成到首帧画面、准备完成到首个音频输出、seek到完成、循环重新开始的间隙，
+ * 每项按对数分桶累计直方图，并保留最近的样本用于计算百分位。
+ * 准备和seek过程同时输出为trace异步区段。另外定期保存MediaPlayer.getMetrics()的快照。通过dump()输出，
+ * 可以用 adb shell dumpsys activity com.example.mpdemo 查看。除dump()外所有方法在主线程调用。
+ */
+public class PlaybackMetrics {
+    private static final long POSITION_POLL_MS = 5;
+    private static final long POSITION_TIMEOUT_MS = 5000;
+    private static final long DUMP_TIMEOUT_MS = 2000;
+
+    /**
+     * 统计的阶段
+     */
+    public enum Stage {
+        PICK_TO_PREPARED("选择→准备完成"),
+        PREPARED_TO_FIRST_FRAME("准备完成→首帧画面"),
+        PREPARED_TO_FIRST_AUDIO("准备完成→首个音频"),
+        SEEK("seek→完成"),
+        LOOP_GAP("循环间隙");
+
+        final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * 读取播放位置，用于判断音频是否已经开始输出
+     */
+    public interface PositionSource {
+        int getPositionMs();
+    }
+
+    static class Histogram {
+        private static final long[] BOUNDS_MS = {5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000};
+        private static final int RECENT = 128;
+
+        private final long[] buckets = new long[BOUNDS_MS.length + 1];
+        private final long[] recent = new long[RECENT];
+        private long count;
+        private long sumMs;
+        private long maxMs;
+        private long lastMs;
+
+        void add(long ms) {
+            int index = 0;
+            while (index < BOUNDS_MS.length && ms >= BOUNDS_MS[index]) {
+                index++;
+            }
+            buckets[index]++;
+            recent[(int) (count % RECENT)] = ms;
+            count++;
+            sumMs += ms;
+            maxMs = Math.max(maxMs, ms);
+            lastMs = ms;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        long getMaxMs() {
+            return maxMs;
+        }
+
+        long getLastMs() {
+            return lastMs;
+        }
+
+        // 最近样本的百分位
+        long percentile(int percent) {
+            int size = (int) Math.min(count, RECENT);
+            if (size == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(recent, size);
+            Arrays.sort(sorted);
+            return sorted[Math.min(size - 1, size * percent / 100)];
+        }
+
+        void dump(String prefix, PrintWriter writer) {
+            if (count == 0) {
+                writer.println(prefix + "无样本");
+                return;
+            }
+            writer.println(String.format(Locale.US, "%sn=%d 平均=%dms p50=%dms p90=%dms p99=%dms 最大=%dms",
+                    prefix, count, sumMs / count, percentile(50), percentile(90), percentile(99), maxMs));
+            StringBuilder builder = new StringBuilder(prefix);
+            for (int i = 0; i < buckets.length; i++) {
+                String range = i < BOUNDS_MS.length ? "<" + BOUNDS_MS[i] : ">=" + BOUNDS_MS[BOUNDS_MS.length - 1];
+                builder.append(range).append("ms:").append(buckets[i]).append(' ');
+            }
+            writer.println(builder.toString().trim());
+        }
+    }
+
+    private static class SlotState {
+        final Histogram[] histograms = new Histogram[Stage.values().length];
+        long pickMs = -1;
+        long preparedMs = -1;
+        long seekStartMs = -1;
+        int watchToken;         // 每次开始新的等待时递增，旧的轮询自行结束
+        String snapshot;
+        long snapshotMs;
+
+        SlotState() {
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new Histogram();
+            }
+        }
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final SparseArray<SlotState> slots = new SparseArray<>();
+
+    private SlotState slot(int playerNumber) {
+        SlotState state = slots.get(playerNumber);
+        if (state == null) {
+            state = new SlotState();
+            slots.put(playerNumber, state);
+        }
+        return state;
+    }
+
+    private void record(SlotState state, Stage stage, long ms) {
+        state.histograms[stage.ordinal()].add(ms);
+    }
+
+    /**
+     * 选择了新的媒体，开始计时
+     */
+    public void onPick(int playerNumber) {
+        SlotState state = slot(playerNumber);
+        if (state.pickMs >= 0) {
+            PlaybackTrace.endAsync(PlaybackTrace.ASYNC_PREPARE, playerNumber);
+        }
+        PlaybackTrace.beginAsync(PlaybackTrace.ASYNC_PREPARE, playerNumber);
+        EventJournal.record(EventJournal.Type.PICK, playerNumber, 0, 0);
+        state.pickMs = SystemClock.elapsedRealtime();
+        state.preparedMs = -1;
+        state.watchToken++;
+    }
+
+    public void onPrepared(int playerNumber) {
+        SlotState state = slot(playerNumber);
+        long now = SystemClock.elapsedRealtime();
+        if (state.pickMs >= 0) {
+            PlaybackTrace.endAsync(PlaybackTrace.ASYNC_PREPARE, playerNumber);
+            record(state, Stage.PICK_TO_PREPARED, now - state.pickMs);
+            EventJournal.record(EventJournal.Type.PREPARED, playerNumber, 0, now - state.pickMs);
+            state.pickMs = -1;
+        }
+        state.preparedMs = now;
+    }
+
+    /**
+     * 收到MEDIA_INFO_VIDEO_RENDERING_START
+     */
+    public void onFirstFrame(int playerNumber) {
+        SlotState state = slot(playerNumber);
+        if (state.preparedMs >= 0) {
+            record(state, Stage.PREPARED_TO_FIRST_FRAME, SystemClock.elapsedRealtime() - state.preparedMs);
+        }
+    }
+
+    /**
+     * 开始播放后轮询播放位置，位置开始前进时视为首个音频已经输出
+     */
+    public void watchFirstAudio(int playerNumber, PositionSource source) {
+        SlotState state = slot(playerNumber);
+        if (state.preparedMs >= 0) {
+            watchAdvance(state, source, state.preparedMs, Stage.PREPARED_TO_FIRST_AUDIO);
+        }
+    }
+
+    /**
+     * 循环回到开头并重新开始播放后调用，位置重新开始前进的耗时记为循环间隙
+     */
+    public void onLoop(int playerNumber, PositionSource source) {
+        watchAdvance(slot(playerNumber), source, SystemClock.elapsedRealtime(), Stage.LOOP_GAP);
+    }
+
+    private void watchAdvance(SlotState state, PositionSource source, long fromMs, Stage stage) {
+        final int token = ++state.watchToken;
+        final int startPosition = source.getPositionMs();
+        handler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                if (state.watchToken != token) {
+                    return;
+                }
+                long now = SystemClock.elapsedRealtime();
+                int position;
+                try {
+                    position = source.getPositionMs();
+                } catch (IllegalStateException e) {
+                    return; // 播放器已释放
+                }
+                if (position != startPosition) {
+                    record(state, stage, now - fromMs);
+                } else if (now - fromMs < POSITION_TIMEOUT_MS) {
+                    handler.postDelayed(this, POSITION_POLL_MS);
+                }
+            }
+        }, POSITION_POLL_MS);
+    }
+
+    /**
+     * 某个阶段的直方图，没有记录过时返回null
+     */
+    Histogram getHistogram(int playerNumber, Stage stage) {
+        SlotState state = slots.get(playerNumber);
+        return state != null ? state.histograms[stage.ordinal()] : null;
+    }
+
+    public void onSeekStarted(int playerNumber) {
+        SlotState state = slot(playerNumber);
+        if (state.seekStartMs >= 0) {
+            PlaybackTrace.endAsync(PlaybackTrace.ASYNC_SEEK, playerNumber);
+        }
+        PlaybackTrace.beginAsync(PlaybackTrace.ASYNC_SEEK, playerNumber);
+        state.seekStartMs = SystemClock.elapsedRealtime();
+    }
+
+    public void onSeekComplete(int playerNumber) {
+        SlotState state = slot(playerNumber);
+        if (state.seekStartMs >= 0) {
+            PlaybackTrace.endAsync(PlaybackTrace.ASYNC_SEEK, playerNumber);
+            long elapsed = SystemClock.elapsedRealtime() - state.seekStartMs;
+            record(state, Stage.SEEK, elapsed);
+            EventJournal.record(EventJournal.Type.SEEK, playerNumber, 0, elapsed);
+            state.seekStartMs = -1;
+        }
+    }
+
+    /**
+     * 保存MediaPlayer.getMetrics()的快照
+     */
+    public void snapshot(int playerNumber, MediaPlayer mediaPlayer) {
+        if (mediaPlayer == null || Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return;
+        }
+        PersistableBundle metrics;
+        try {
+            metrics = mediaPlayer.getMetrics();
+        } catch (IllegalStateException e) {
+            return;
+        }
+        if (metrics == null) {
+            return;
+        }
+        StringBuilder builder = new StringBuilder();
+        for (String key : new TreeSet<>(metrics.keySet())) {
+            builder.append(key).append('=').append(metrics.get(key)).append(' ');
+        }
+        SlotState state = slot(playerNumber);
+        state.snapshot = builder.toString().trim();
+        state.snapshotMs = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * 输出统计。dumpsys在binder线程调用，统计数据在主线程修改，因此转到主线程生成后再输出
+     */
+    public void dump(String prefix, PrintWriter writer) {
+        StringWriter buffer = new StringWriter();
+        if (runOnMainThread(handler, () -> dumpOnMain(prefix, new PrintWriter(buffer)))) {
+            writer.print(buffer);
+        } else {
+            writer.println(prefix + "PlaybackMetrics: 主线程" + DUMP_TIMEOUT_MS + "ms内没有响应");
+        }
+    }
+
+    /**
+     * 在主线程执行task，从其他线程调用时等待执行完，超时返回false
+     */
+    static boolean runOnMainThread(Handler handler, Runnable task) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            task.run();
+            return true;
+        }
+        CountDownLatch done = new CountDownLatch(1);
+        handler.post(() -> {
+            try {
+                task.run();
+            } finally {
+                done.countDown();
+            }
+        });
+        try {
+            return done.await(DUMP_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void dumpOnMain(String prefix, PrintWriter writer) {
+        writer.println(prefix + "PlaybackMetrics:");
+        long now = SystemClock.elapsedRealtime();
+        for (int i = 0; i < slots.size(); i++) {
+            SlotState state = slots.valueAt(i);
+            writer.println(prefix + "  Player " + slots.keyAt(i) + ":");
+            for (Stage stage : Stage.values()) {
+                writer.println(prefix + "    " + stage.label + ":");
+                state.histograms[stage.ordinal()].dump(prefix + "      ", writer);
+            }
+            if (state.snapshot != null) {
+                writer.println(prefix + "    getMetrics() " + (now - state.snapshotMs) / 1000 + "秒前: " + state.snapshot);
+            }
+        }
+        writer.flush();
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.media.MediaPlayer;
+import android.media.MediaTimestamp;
+import android.media.PlaybackParams;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.Locale;
+
+/**
+ * 多个播放器的同步启动和漂移校正
+ *
+ * 启用后各播放器准备完成时先不启动，全部准备好之后在同一个时间点依次启动。
+ * 播放过程中周期性地用MediaPlayer.getTimestamp()换算出各播放器此刻的媒体位置，
+ * 以第一个播放器为基准计算其余播放器的漂移，通过PlaybackParams微调播放速度追赶；
+ * 漂移过大(例如单独循环或缓冲卡顿)时直接seek对齐。
+ * 各播放器可以设置输出设备延迟，延迟较小的播放器会晚启动相应时间，
+ * 漂移也按扣除延迟后的实际输出位置计算，使不同设备上的声音和画面对齐。
+ * 所有方法都需要在主线程调用。
+ */
+public class PlaybackSyncGroup {
+    private static final String TAG = "PlaybackSyncGroup";
+
+    private static final long START_LEAD_MS = 100;          // 全部准备好之后延迟多久统一启动
+    private static final long MONITOR_INTERVAL_MS = 500;    // 漂移测量周期
+    private static final long DEAD_BAND_US = 3000;          // 小于此漂移不调整速度
+    private static final long RESYNC_THRESHOLD_US = 200000; // 大于此漂移直接seek
+    private static final float CORRECTION_HORIZON_US = 5000000f; // 期望在约5秒内消除漂移
+    private static final float MAX_SPEED_ADJUST = 0.005f;   // 速度最多调整±0.5%
+
+    /**
+     * 由调用方提供各播放器当前的MediaPlayer，播放器可能在播放过程中被替换
+     */
+    public interface PlayerProvider {
+        MediaPlayer getMediaPlayer(int slot);
+    }
+
+    /**
+     * 同步启动完成回调，用于更新界面状态
+     */
+    public interface Listener {
+        void onSlotStarted(int slot);
+    }
+
+    private final PlayerProvider provider;
+    private final Listener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private int[] slots = new int[0];          // 参与同步的播放器编号，slots[0]为基准
+    private Runnable[] pendingStarts;          // 已准备好、等待统一启动的播放器
+    private boolean enabled;
+    private boolean running;
+    private final float[] currentSpeed = new float[8];
+    private final long[] outputLatencyUs = new long[8];
+
+    // 漂移统计
+    private long samples;
+    private double sumDriftUs;
+    private double sumSquareDriftUs;
+    private long maxAbsDriftUs;
+    private long lastDriftUs;
+    private long speedCorrections;
+    private long resyncs;
+
+    private final Runnable monitor = new Runnable() {
+        @Override
+        public void run() {
+            measureAndCorrect();
+            handler.postDelayed(this, MONITOR_INTERVAL_MS);
+        }
+    };
+
+    public PlaybackSyncGroup(PlayerProvider provider, Listener listener) {
+        this.provider = provider;
+        this.listener = listener;
+    }
+
+    /**
+     * 启用同步并指定参与的播放器，之后各播放器准备完成时需要调用holdUntilGroupReady
+     */
+    public void enable(int... slots) {
+        disable();
+        this.slots = slots.clone();
+        this.pendingStarts = new Runnable[slots.length];
+        this.enabled = true;
+        resetStats();
+        Log.d(TAG, "同步启动已启用，播放器数: " + slots.length);
+    }
+
+    public void disable() {
+        handler.removeCallbacks(monitor);
+        if (running) {
+            // 恢复正常速度
+            for (int slot : slots) {
+                setSpeed(slot, 1.0f);
+            }
+        }
+        enabled = false;
+        running = false;
+        pendingStarts = null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 设置播放器当前输出设备的延迟(微秒)，由OutputLatencyCalibrator测得
+     */
+    public void setOutputLatencyUs(int slot, long latencyUs) {
+        outputLatencyUs[slot] = Math.max(0, latencyUs);
+    }
+
+    /**
+     * 播放器准备完成时调用。返回true表示已被同步组接管，调用方不要自行启动；
+     * 同步组已经在运行时(例如某个播放器中途换了文件)返回false，由漂移校正负责对齐。
+     */
+    public boolean holdUntilGroupReady(int slot, Runnable start) {
+        if (!enabled || running) {
+            return false;
+        }
+        int index = indexOf(slot);
+        if (index < 0) {
+            return false;
+        }
+        pendingStarts[index] = start;
+        for (Runnable pending : pendingStarts) {
+            if (pending == null) {
+                Log.d(TAG, "Player" + slot + " 已准备好，等待其他播放器");
+                return true;
+            }
+        }
+        scheduleGroupStart();
+        return true;
+    }
+
+    // 在共同的时间点启动所有播放器，输出延迟较小的播放器推迟相应的时间
+    private void scheduleGroupStart() {
+        final Runnable[] starts = pendingStarts.clone();
+        long maxLatencyUs = 0;
+        for (int slot : slots) {
+            maxLatencyUs = Math.max(maxLatencyUs, outputLatencyUs[slot]);
+        }
+        long startAt = SystemClock.uptimeMillis() + START_LEAD_MS;
+        for (int i = 0; i < starts.length; i++) {
+            final Runnable start = starts[i];
+            long delayMs = (maxLatencyUs - outputLatencyUs[slots[i]]) / 1000;
+            if (delayMs > 0) {
+                Log.d(TAG, "Player" + slots[i] + " 延迟补偿 " + delayMs + "ms");
+            }
+            handler.postAtTime(() -> {
+                if (enabled) {
+                    start.run();
+                }
+            }, startAt + delayMs);
+        }
+        handler.postAtTime(() -> {
+            if (!enabled) {
+                return;
+            }
+            Log.d(TAG, "同步启动完成");
+            running = true;
+            for (int slot : slots) {
+                currentSpeed[slot] = 1.0f;
+                listener.onSlotStarted(slot);
+            }
+            handler.postDelayed(monitor, MONITOR_INTERVAL_MS);
+        }, startAt + maxLatencyUs / 1000);
+    }
+
+    private void measureAndCorrect() {
+        MediaPlayer leader = provider.getMediaPlayer(slots[0]);
+        long leaderUs = mediaTimeNowUs(leader);
+        if (leaderUs < 0) {
+            return;
+        }
+        long leaderDurationUs = safeDurationMs(leader) * 1000L;
+
+        for (int i = 1; i < slots.length; i++) {
+            int slot = slots[i];
+            MediaPlayer follower = provider.getMediaPlayer(slot);
+            long followerUs = mediaTimeNowUs(follower);
+            if (followerUs < 0) {
+                continue;
+            }
+
+            // 比较的是扣除输出延迟后实际输出的位置
+            long driftUs = (followerUs - outputLatencyUs[slot]) - (leaderUs - outputLatencyUs[slots[0]]);
+            // 播放器各自循环时，跨越循环边界的差值按时长取模
+            if (leaderDurationUs > 0 && Math.abs(driftUs) > leaderDurationUs / 2) {
+                driftUs = driftUs > 0 ? driftUs - leaderDurationUs : driftUs + leaderDurationUs;
+            }
+            record(driftUs);
+
+            if (Math.abs(driftUs) > RESYNC_THRESHOLD_US) {
+                long targetMs = (followerUs - driftUs) / 1000;
+                Log.d(TAG, "Player" + slot + " 漂移过大(" + driftUs / 1000 + "ms)，seek对齐到 " + targetMs + "ms");
+                follower.seekTo((int) targetMs);
+                setSpeed(slot, 1.0f);
+                resyncs++;
+            } else if (Math.abs(driftUs) > DEAD_BAND_US) {
+                // 超前则放慢，落后则加快
+                float adjust = -driftUs / CORRECTION_HORIZON_US;
+                adjust = Math.max(-MAX_SPEED_ADJUST, Math.min(MAX_SPEED_ADJUST, adjust));
+                setSpeed(slot, 1.0f + adjust);
+            } else {
+                setSpeed(slot, 1.0f);
+            }
+        }
+    }
+
+    // 根据MediaTimestamp推算此刻的媒体位置(微秒)，不可用时退回getCurrentPosition
+    // MediaPlayerClock会在网络同步线程调用，MediaPlayer已被主线程释放时按不可用返回-1
+    static long mediaTimeNowUs(MediaPlayer player) {
+        if (player == null) {
+            return -1;
+        }
+        try {
+            if (!player.isPlaying()) {
+                return -1;
+            }
+            MediaTimestamp timestamp = player.getTimestamp();
+            if (timestamp != null) {
+                long elapsedUs = (System.nanoTime() - timestamp.getAnchorSystemNanoTime()) / 1000;
+                return timestamp.getAnchorMediaTimeUs() + (long) (elapsedUs * timestamp.getMediaClockRate());
+            }
+            return player.getCurrentPosition() * 1000L;
+        } catch (IllegalStateException e) {
+            return -1;
+        }
+    }
+
+    static int safeDurationMs(MediaPlayer player) {
+        try {
+            return player.getDuration();
+        } catch (IllegalStateException e) {
+            return 0;
+        }
+    }
+
+    private void setSpeed(int slot, float speed) {
+        if (Math.abs(currentSpeed[slot] - speed) < 0.0001f) {
+            return;
+        }
+        MediaPlayer player = provider.getMediaPlayer(slot);
+        if (player == null) {
+            return;
+        }
+        try {
+            // 暂停状态下设置非零速度会开始播放，只在播放中调整
+            if (!player.isPlaying()) {
+                return;
+            }
+            PlaybackParams params = player.getPlaybackParams();
+            player.setPlaybackParams(params.setSpeed(speed));
+            currentSpeed[slot] = speed;
+            if (speed != 1.0f) {
+                speedCorrections++;
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Player" + slot + " 调整播放速度失败: " + e.getMessage());
+        }
+    }
+
+    private void record(long driftUs) {
+        samples++;
+        sumDriftUs += driftUs;
+        sumSquareDriftUs += (double) driftUs * driftUs;
+        maxAbsDriftUs = Math.max(maxAbsDriftUs, Math.abs(driftUs));
+        lastDriftUs = driftUs;
+    }
+
+    private void resetStats() {
+        samples = 0;
+        sumDriftUs = 0;
+        sumSquareDriftUs = 0;
+        maxAbsDriftUs = 0;
+        lastDriftUs = 0;
+        speedCorrections = 0;
+        resyncs = 0;
+    }
+
+    private int indexOf(int slot) {
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] == slot) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 漂移统计摘要，单位毫秒
+     */
+    public String getStatsSummary() {
+        if (samples == 0) {
+            return enabled ? "同步启动: 等待播放器准备" : "同步启动: 未启用";
+        }
+        double mean = sumDriftUs / samples;
+        double rms = Math.sqrt(sumSquareDriftUs / samples);
+        return String.format(Locale.US,
+                "同步漂移: 当前 %.1fms 平均 %.1fms RMS %.1fms 最大 %.1fms 采样 %d 调速 %d 次 重新对齐 %d 次",
+                lastDriftUs / 1000.0, mean / 1000.0, rms / 1000.0, maxAbsDriftUs / 1000.0,
+                samples, speedCorrections, resyncs);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.os.Build;
+import android.os.Trace;
+import android.util.Log;
+
+/**
+ * systrace/Perfetto打点和调试日志开关
+ *
+ * 同步区段用begin()/end()成对包住，跨回调的过程(准备、seek)用异步区段，cookie为播放器编号。
+ * 区段和计数器名称都传常量字符串，未抓取trace时不产生任何字符串拼接。
+ * 热路径上的Log.d先判断isDebugLogging()：debuggable构建或
+ * adb shell setprop log.tag.MPDemo DEBUG 时才输出。
+ * 抓取方法: python3 record_android_trace -a com.example.mpdemo -o trace.pftrace gfx view audio
+ */
+public final class PlaybackTrace {
+    public static final String LOG_TAG = "MPDemo";
+
+    // 异步区段名称，cookie为播放器编号
+    public static final String ASYNC_PREPARE = "MPDemo prepare";
+    public static final String ASYNC_SEEK = "MPDemo seek";
+
+    private static volatile boolean debugLogging = Log.isLoggable(LOG_TAG, Log.DEBUG);
+
+    private PlaybackTrace() {
+    }
+
+    /**
+     * 按应用是否debuggable决定调试日志开关，在Activity.onCreate()中调用
+     */
+    public static void init(Context context) {
+        boolean debuggable = (context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        debugLogging = debuggable || Log.isLoggable(LOG_TAG, Log.DEBUG);
+    }
+
+    public static boolean isDebugLogging() {
+        return debugLogging;
+    }
+
+    /**
+     * 当前是否正在抓取trace，计数器的值需要额外计算时先判断
+     */
+    public static boolean isTracing() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && Trace.isEnabled();
+    }
+
+    public static void begin(String name) {
+        Trace.beginSection(name);
+    }
+
+    public static void end() {
+        Trace.endSection();
+    }
+
+    public static void beginAsync(String name, int cookie) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(name, cookie);
+        }
+    }
+
+    public static void endAsync(String name, int cookie) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(name, cookie);
+        }
+    }
+
+    public static void counter(String name, long value) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.setCounter(name, value);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.net.Uri;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 单个播放器的播放列表，支持随机播放和列表循环
+ *
+ * items保持加入顺序，order是实际播放顺序(items的下标)。
+ * 随机模式下新加入的条目随机插入到当前位置之后，已播放的条目不受影响；
+ * 列表循环时沿用同一个随机顺序，保证peekNext()与advance()结果一致。
+ */
+public class PlaylistQueue {
+    private final List<Uri> items = new ArrayList<>();
+    private final List<Integer> order = new ArrayList<>();
+    private final Random random = new Random();
+    private int position = -1; // 当前条目在order中的位置
+    private boolean shuffle;
+
+    /**
+     * 清空列表并只保留一个条目，用于单文件选择
+     */
+    public void setSingle(Uri uri) {
+        clear();
+        items.add(uri);
+        order.add(0);
+        position = 0;
+    }
+
+    public void clear() {
+        items.clear();
+        order.clear();
+        position = -1;
+    }
+
+    /**
+     * 追加条目，返回追加前列表是否为空
+     */
+    public boolean addAll(Collection<Uri> uris) {
+        boolean wasEmpty = items.isEmpty();
+        for (Uri uri : uris) {
+            int index = items.size();
+            items.add(uri);
+            if (shuffle && position >= 0) {
+                // 插入到当前条目之后的随机位置
+                int insertAt = position + 1 + random.nextInt(order.size() - position);
+                order.add(insertAt, index);
+            } else {
+                order.add(index);
+            }
+        }
+        if (wasEmpty && !items.isEmpty()) {
+            position = 0;
+        }
+        return wasEmpty;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public boolean isShuffle() {
+        return shuffle;
+    }
+
+    /**
+     * 切换随机播放，当前条目保持不变，只重排其余条目
+     */
+    public void setShuffle(boolean shuffle) {
+        if (this.shuffle == shuffle) {
+            return;
+        }
+        this.shuffle = shuffle;
+        if (items.isEmpty()) {
+            return;
+        }
+        int currentIndex = order.get(position);
+        order.clear();
+        for (int i = 0; i < items.size(); i++) {
+            if (i != currentIndex) {
+                order.add(i);
+            }
+        }
+        if (shuffle) {
+            // Fisher-Yates洗牌
+            for (int i = order.size() - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                Integer tmp = order.get(i);
+                order.set(i, order.get(j));
+                order.set(j, tmp);
+            }
+            order.add(0, currentIndex);
+            position = 0;
+        } else {
+            order.add(currentIndex, currentIndex);
+            position = currentIndex;
+        }
+    }
+
+    public Uri current() {
+        return position >= 0 && position < order.size() ? items.get(order.get(position)) : null;
+    }
+
+    /**
+     * 查看下一个条目但不移动，用于预缓冲
+     */
+    public Uri peekNext(boolean repeatAll) {
+        int next = nextPosition(repeatAll);
+        return next >= 0 ? items.get(order.get(next)) : null;
+    }
+
+    /**
+     * 移动到下一个条目，到达末尾时若repeatAll为true则回到开头，否则返回null
+     */
+    public Uri advance(boolean repeatAll) {
+        int next = nextPosition(repeatAll);
+        if (next < 0) {
+            return null;
+        }
+        position = next;
+        return items.get(order.get(position));
+    }
+
+    private int nextPosition(boolean repeatAll) {
+        if (order.isEmpty()) {
+            return -1;
+        }
+        int next = position + 1;
+        if (next >= order.size()) {
+            return repeatAll ? 0 : -1;
+        }
+        return next;
+    }
+}
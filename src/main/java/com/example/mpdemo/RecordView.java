@@ -25,6 +25,7 @@ public class RecordView extends View {
     private ValueAnimator animator; // 旋转动画器
     private float rotationAngle = 0; // 旋转角度
     private Paint paint; // 绘制画笔
+    private final RecordGeometry geometry = new RecordGeometry(); // 唱片、中心盖的尺寸
 
     public RecordView(Context context) {
         super(context);
@@ -48,6 +49,19 @@ public class RecordView extends View {
         paint.setDither(true);
     }
 
+    /**
+     * 当前持有的位图占用的字节数
+     */
+    public long getBitmapBytes() {
+        long bytes = 0;
+        for (Bitmap bitmap : new Bitmap[] {recordBitmap, centerCapBitmap, defaultAlbumArt}) {
+            if (bitmap != null && !bitmap.isRecycled()) {
+                bytes += bitmap.getAllocationByteCount();
+            }
+        }
+        return bytes;
+    }
+
     /**
      * 设置专辑封面
      */
@@ -90,15 +104,27 @@ public class RecordView extends View {
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
+        PlaybackTrace.begin("RecordView.onDraw");
+        try {
+            drawRecord(canvas);
+        } finally {
+            PlaybackTrace.end();
+        }
+    }
 
-        if (getWidth() == 0 || getHeight() == 0) {
+    private void drawRecord(Canvas canvas) {
+        if (geometry.update(getWidth(), getHeight())) {
+            // 视图大小变化后按新的尺寸重新生成唱片和中心盖位图
+            recycleRecordBitmaps();
+        }
+        if (geometry.isEmpty()) {
             return; // 如果视图大小为0，则直接返回
         }
 
-        int size = Math.min(getWidth(), getHeight());
-        float radius = size / 2f * 0.8f; // 唱片半径占视图大小的80%
-        int centerX = getWidth() / 2;
-        int centerY = getHeight() / 2;
+        int size = geometry.size;
+        float radius = geometry.radius;
+        int centerX = geometry.centerX;
+        int centerY = geometry.centerY;
 
         // 保存画布状态
         canvas.save();
@@ -126,16 +152,15 @@ public class RecordView extends View {
             groovePaint.setColor(0x33FFFFFF); // 半透明白色
 
             // 绘制同心圆沟槽
-            for (int i = 1; i <= 15; i++) {
-                float grooveRadius = radius * (0.9f - 0.05f * i);
+            for (float grooveRadius : geometry.grooveRadii) {
                 recordCanvas.drawCircle(size/2, size/2, grooveRadius, groovePaint);
             }
         }
 
         // 将唱片绘制到主画布上
         canvas.drawBitmap(recordBitmap,
-                         centerX - recordBitmap.getWidth()/2,
-                         centerY - recordBitmap.getHeight()/2,
+                         geometry.centeredLeft(recordBitmap.getWidth()),
+                         geometry.centeredTop(recordBitmap.getHeight()),
                          paint);
 
         // 如果有专辑封面，绘制到唱片上
@@ -149,7 +174,7 @@ public class RecordView extends View {
         // 绘制中心盖，不参与旋转
         if (centerCapBitmap == null || centerCapBitmap.isRecycled()) {
             // 创建中心盖位图
-            int capSize = size / 8; // 中心盖大小为视图的1/8
+            int capSize = geometry.capSize; // 中心盖大小为视图的1/8
             centerCapBitmap = Bitmap.createBitmap(capSize, capSize, Bitmap.Config.ARGB_8888);
             Canvas capCanvas = new Canvas(centerCapBitmap);
 
@@ -167,16 +192,15 @@ public class RecordView extends View {
 
         // 绘制中心盖到主画布上
         canvas.drawBitmap(centerCapBitmap,
-                         centerX - centerCapBitmap.getWidth()/2,
-                         centerY - centerCapBitmap.getHeight()/2,
+                         geometry.centeredLeft(centerCapBitmap.getWidth()),
+                         geometry.centeredTop(centerCapBitmap.getHeight()),
                          paint);
     }
 
     private void drawAlbumArtOnRecord(Canvas canvas, int centerX, int centerY) {
         if (defaultAlbumArt == null) return;
 
-        int size = Math.min(getWidth(), getHeight());
-        float radius = size / 2f * 0.8f; // 专辑封面半径略小于黑胶半径
+        float radius = geometry.radius; // 专辑封面与黑胶半径相同
 
         // 创建圆形遮罩
         Bitmap circleBitmap = Bitmap.createBitmap((int)(radius*2), (int)(radius*2), Bitmap.Config.ARGB_8888);
@@ -213,6 +237,14 @@ public class RecordView extends View {
     }
 
     private void releaseBitmaps() {
+        recycleRecordBitmaps();
+        if (defaultAlbumArt != null && !defaultAlbumArt.isRecycled()) {
+            defaultAlbumArt.recycle();
+            defaultAlbumArt = null;
+        }
+    }
+
+    private void recycleRecordBitmaps() {
         if (recordBitmap != null && !recordBitmap.isRecycled()) {
             recordBitmap.recycle();
             recordBitmap = null;
@@ -221,10 +253,6 @@ public class RecordView extends View {
             centerCapBitmap.recycle();
             centerCapBitmap = null;
         }
-        if (defaultAlbumArt != null && !defaultAlbumArt.isRecycled()) {
-            defaultAlbumArt.recycle();
-            defaultAlbumArt = null;
-        }
     }
 
     /**
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.util.Size;
+
+import java.util.Locale;
+
+/**
+ * 视频Surface缓冲区尺寸策略
+ *
+ * FULL用于实际输出(HDMI、副屏)，缓冲区保持源分辨率；PREVIEW用于面板上的小窗口预览，
+ * 缓冲区按宽高比缩小到不超过显示区域和上限尺寸，合成时不再缩放大尺寸缓冲区。
+ * 缓冲区数量没有公开接口可以设置，内存估算按BufferQueue默认的三缓冲计算。
+ * setFixedSize只缩小窗口(BufferQueue)缓冲区，解码器自己的输出缓冲区不受影响，
+ * 估算值不是实测的内存变化。
+ */
+public enum RenderResolutionPolicy {
+    FULL,
+    PREVIEW;
+
+    public static final int PREVIEW_MAX_LONG_EDGE = 1280;
+    public static final int BUFFER_COUNT = 3;
+
+    /**
+     * 按策略选择缓冲区尺寸，viewWidth/viewHeight为显示区域，未知时传0
+     */
+    public Size bufferSize(int sourceWidth, int sourceHeight, int viewWidth, int viewHeight) {
+        if (this == FULL || sourceWidth <= 0 || sourceHeight <= 0) {
+            return new Size(sourceWidth, sourceHeight);
+        }
+        float scale = Math.min(1f, (float) PREVIEW_MAX_LONG_EDGE / Math.max(sourceWidth, sourceHeight));
+        if (viewWidth > 0 && viewHeight > 0) {
+            scale = Math.min(scale, Math.min((float) viewWidth / sourceWidth, (float) viewHeight / sourceHeight));
+        }
+        // 宽高取偶数，YUV格式要求
+        int width = Math.max(2, Math.round(sourceWidth * scale) & ~1);
+        int height = Math.max(2, Math.round(sourceHeight * scale) & ~1);
+        return new Size(width, height);
+    }
+
+    /**
+     * 按bytesPerPixel估算一组缓冲区的内存
+     */
+    public static long estimateBytes(Size size, float bytesPerPixel) {
+        return (long) (size.getWidth() * (long) size.getHeight() * bytesPerPixel) * BUFFER_COUNT;
+    }
+
+    /**
+     * 全分辨率与预览尺寸的缓冲区内存对比
+     */
+    public static String describeSaving(String label, Size full, Size preview, float bytesPerPixel) {
+        long fullBytes = estimateBytes(full, bytesPerPixel);
+        long previewBytes = estimateBytes(preview, bytesPerPixel);
+        return String.format(Locale.US, "%s(估算，仅窗口缓冲区): %dx%d %.1fMB → %dx%d %.1fMB 约节省 %.1fMB(%d缓冲)",
+                label, full.getWidth(), full.getHeight(), fullBytes / 1048576.0,
+                preview.getWidth(), preview.getHeight(), previewBytes / 1048576.0,
+                (fullBytes - previewBytes) / 1048576.0, BUFFER_COUNT);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.os.Debug;
+import android.os.Process;
+import android.os.SystemClock;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * 在一段时间内采样本进程的资源占用，用于比较不同播放方式的开销
+ *
+ * CPU为进程CPU时间占墙钟时间的百分比(多核时可以超过100%)；内存取PSS总量和其中的图形部分；
+ * GPU负载读取devfreq中GPU节点的load(Rockchip平台格式为"负载@频率")，读不到时不显示。
+ * 解码器实际运行在mediaserver/codec进程中，进程内的数字只反映应用自身的节省。
+ */
+public class ResourceSampler {
+    private static final long SAMPLE_INTERVAL_MS = 500;
+    private static final File DEVFREQ_DIR = new File("/sys/class/devfreq");
+
+    /**
+     * 一次测量的平均值
+     */
+    public static class Result {
+        public final double cpuPercent;
+        public final int pssKb;
+        public final int graphicsKb;
+        public final double gpuLoad;    // 未知时为-1
+
+        Result(double cpuPercent, int pssKb, int graphicsKb, double gpuLoad) {
+            this.cpuPercent = cpuPercent;
+            this.pssKb = pssKb;
+            this.graphicsKb = graphicsKb;
+            this.gpuLoad = gpuLoad;
+        }
+
+        @Override
+        public String toString() {
+            String gpu = gpuLoad >= 0 ? String.format(Locale.US, " GPU %.0f%%", gpuLoad) : "";
+            return String.format(Locale.US, "CPU %.1f%% PSS %dMB 图形内存 %dMB%s",
+                    cpuPercent, pssKb / 1024, graphicsKb / 1024, gpu);
+        }
+    }
+
+    private ResourceSampler() {
+    }
+
+    /**
+     * 采样durationMs毫秒，阻塞调用线程，不能在主线程调用
+     */
+    public static Result measure(long durationMs) throws InterruptedException {
+        File gpuLoadFile = findGpuLoadFile();
+        Debug.MemoryInfo memoryInfo = new Debug.MemoryInfo();
+        long cpuStart = Process.getElapsedCpuTime();
+        long wallStart = SystemClock.elapsedRealtime();
+        long pssTotal = 0;
+        long graphicsTotal = 0;
+        double gpuTotal = 0;
+        int gpuSamples = 0;
+        int samples = 0;
+        while (SystemClock.elapsedRealtime() - wallStart < durationMs) {
+            Thread.sleep(SAMPLE_INTERVAL_MS);
+            Debug.getMemoryInfo(memoryInfo);
+            pssTotal += memoryInfo.getTotalPss();
+            graphicsTotal += parseKb(memoryInfo.getMemoryStat("summary.graphics"));
+            int load = readGpuLoad(gpuLoadFile);
+            if (load >= 0) {
+                gpuTotal += load;
+                gpuSamples++;
+            }
+            samples++;
+        }
+        long cpuMs = Process.getElapsedCpuTime() - cpuStart;
+        long wallMs = SystemClock.elapsedRealtime() - wallStart;
+        return new Result(wallMs > 0 ? cpuMs * 100.0 / wallMs : 0,
+                samples > 0 ? (int) (pssTotal / samples) : 0,
+                samples > 0 ? (int) (graphicsTotal / samples) : 0,
+                gpuSamples > 0 ? gpuTotal / gpuSamples : -1);
+    }
+
+    /**
+     * 两次测量的差值说明，before为完整播放，after为优化后的播放方式
+     */
+    public static String compare(String beforeName, Result before, String afterName, Result after) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(beforeName).append(": ").append(before).append('\n');
+        builder.append(afterName).append(": ").append(after).append('\n');
+        builder.append(String.format(Locale.US, "节省: CPU %.1f%% PSS %dMB 图形内存 %dMB",
+                before.cpuPercent - after.cpuPercent,
+                (before.pssKb - after.pssKb) / 1024,
+                (before.graphicsKb - after.graphicsKb) / 1024));
+        if (before.gpuLoad >= 0 && after.gpuLoad >= 0) {
+            builder.append(String.format(Locale.US, " GPU %.0f%%", before.gpuLoad - after.gpuLoad));
+        }
+        return builder.toString();
+    }
+
+    private static int parseKb(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static File findGpuLoadFile() {
+        File[] nodes = DEVFREQ_DIR.listFiles();
+        if (nodes == null) {
+            return null;
+        }
+        for (File node : nodes) {
+            File load = new File(node, "load");
+            if (node.getName().contains("gpu") && load.canRead()) {
+                return load;
+            }
+        }
+        return null;
+    }
+
+    private static int readGpuLoad(File file) {
+        if (file == null) {
+            return -1;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line = reader.readLine();
+            if (line == null) {
+                return -1;
+            }
+            int end = line.indexOf('@');
+            return Integer.parseInt((end >= 0 ? line.substring(0, end) : line).trim());
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+    }
+}
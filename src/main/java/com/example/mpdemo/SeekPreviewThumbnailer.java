@@ -0,0 +1,330 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.media.MediaMetadataRetriever;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 拖动进度条时的预览缩略图
+ *
+ * 后台线程按固定间隔抽取缩小的视频帧，以RGB565格式顺序写入一个精灵文件
+ * (cacheDir/seek_preview/内容摘要.spr)。文件头记录已完成的帧数，
+ * 中断后再次打开同一文件会从断点继续生成。
+ *
+ * 文件格式(大端)：
+ *   int magic, int frameWidth, int frameHeight, int intervalMs, int frameCount, int framesDone
+ *   frameCount个 frameWidth*frameHeight*2 字节的RGB565帧
+ */
+public class SeekPreviewThumbnailer {
+    private static final String TAG = "SeekPreview";
+    private static final int MAGIC = 0x4D505350; // "MPSP"
+    private static final int HEADER_SIZE = 24;
+    private static final int OFFSET_FRAMES_DONE = 20;
+
+    private static final int FRAME_WIDTH = 160;   // 缩略图宽度
+    private static final int MAX_FRAMES = 100;    // 单个文件最多帧数
+    private static final int MIN_INTERVAL_MS = 2000;
+    private static final long THROTTLE_MS = 50;   // 每帧之间让出CPU，避免抢占正在播放的解码器
+
+    private final Context context;
+    private final ExecutorService executor;
+    private Future<?> currentJob;
+
+    // 当前精灵文件的信息，由后台线程写入、UI线程读取
+    private volatile File spriteFile;
+    private volatile int frameWidth;
+    private volatile int frameHeight;
+    private volatile int intervalMs;
+    private volatile int framesDone;
+
+    private RandomAccessFile readerFile; // UI线程读取帧使用
+    private File readerSource;
+    private ByteBuffer frameBuffer;
+    private Bitmap frameBitmap;          // 复用同一个Bitmap，避免拖动时频繁分配
+
+    public SeekPreviewThumbnailer(Context context) {
+        this.context = context.getApplicationContext();
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(() -> {
+                // 最低调度优先级，只使用空闲CPU
+                Process.setThreadPriority(Process.THREAD_PRIORITY_LOWEST);
+                r.run();
+            }, "SeekPreviewThumbnailer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 为新的视频开始(或继续)生成缩略图，会取消之前未完成的任务
+     */
+    public synchronized void start(Uri uri, int durationMs) {
+        cancel();
+        if (uri == null || durationMs <= 0) {
+            return;
+        }
+        currentJob = executor.submit(() -> generate(uri, durationMs));
+    }
+
+    /**
+     * 取消正在进行的生成任务，已写入的帧保留在磁盘上
+     */
+    public synchronized void cancel() {
+        if (currentJob != null) {
+            currentJob.cancel(true);
+            currentJob = null;
+        }
+        spriteFile = null;
+        framesDone = 0;
+    }
+
+    /**
+     * 获取指定播放位置附近的缩略图，尚未生成时返回null
+     * 返回的Bitmap会被下一次调用复用，调用方不要持有或回收它
+     */
+    public Bitmap getFrameAt(int positionMs) {
+        File file = spriteFile;
+        int done = framesDone;
+        if (file == null || done <= 0 || intervalMs <= 0) {
+            return null;
+        }
+        int index = Math.min(positionMs / intervalMs, done - 1);
+        int frameBytes = frameWidth * frameHeight * 2;
+
+        try {
+            if (readerFile == null || !file.equals(readerSource)) {
+                closeReader();
+                readerFile = new RandomAccessFile(file, "r");
+                readerSource = file;
+            }
+            if (frameBitmap == null || frameBitmap.getWidth() != frameWidth
+                    || frameBitmap.getHeight() != frameHeight) {
+                frameBitmap = Bitmap.createBitmap(frameWidth, frameHeight, Bitmap.Config.RGB_565);
+                frameBuffer = ByteBuffer.allocateDirect(frameBytes);
+            }
+
+            FileChannel channel = readerFile.getChannel();
+            frameBuffer.clear();
+            long offset = HEADER_SIZE + (long) index * frameBytes;
+            while (frameBuffer.hasRemaining()) {
+                if (channel.read(frameBuffer, offset + frameBuffer.position()) < 0) {
+                    return null;
+                }
+            }
+            frameBuffer.rewind();
+            frameBitmap.copyPixelsFromBuffer(frameBuffer);
+            return frameBitmap;
+        } catch (IOException e) {
+            Log.e(TAG, "读取缩略图失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 释放线程和文件句柄
+     */
+    public synchronized void release() {
+        cancel();
+        executor.shutdownNow();
+        closeReader();
+    }
+
+    private void closeReader() {
+        if (readerFile != null) {
+            try {
+                readerFile.close();
+            } catch (IOException ignored) {
+            }
+            readerFile = null;
+            readerSource = null;
+        }
+    }
+
+    private void generate(Uri uri, int durationMs) {
+        String key = MediaCacheKey.compute(context, uri);
+        if (key == null) {
+            return;
+        }
+        File dir = new File(context.getCacheDir(), "seek_preview");
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.e(TAG, "无法创建缓存目录: " + dir);
+            return;
+        }
+        File file = new File(dir, key + ".spr");
+
+        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            retriever.setDataSource(context, uri);
+
+            if (!readHeader(out)) {
+                int videoWidth = parseInt(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_WIDTH));
+                int videoHeight = parseInt(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_HEIGHT));
+                int rotation = parseInt(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_ROTATION));
+                if (rotation == 90 || rotation == 270) {
+                    int tmp = videoWidth;
+                    videoWidth = videoHeight;
+                    videoHeight = tmp;
+                }
+                if (videoWidth <= 0 || videoHeight <= 0) {
+                    return;
+                }
+                int width = FRAME_WIDTH;
+                // RGB565要求宽高为偶数以保证行对齐
+                int height = Math.max(2, (FRAME_WIDTH * videoHeight / videoWidth) & ~1);
+                int interval = Math.max(MIN_INTERVAL_MS, durationMs / MAX_FRAMES);
+                int count = durationMs / interval + 1;
+
+                out.setLength(0);
+                out.writeInt(MAGIC);
+                out.writeInt(width);
+                out.writeInt(height);
+                out.writeInt(interval);
+                out.writeInt(count);
+                out.writeInt(0);
+                frameWidth = width;
+                frameHeight = height;
+                intervalMs = interval;
+                framesDone = 0;
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            spriteFile = file;
+
+            int count = readInt(out, 16);
+            int frameBytes = frameWidth * frameHeight * 2;
+            ByteBuffer pixels = ByteBuffer.allocate(frameBytes);
+
+            for (int i = framesDone; i < count; i++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    Log.d(TAG, "缩略图生成已取消，已完成 " + i + "/" + count);
+                    return;
+                }
+                long timeUs = (long) i * intervalMs * 1000L;
+                Bitmap frame = extractFrame(retriever, timeUs);
+                if (frame == null) {
+                    // 无法解码的位置用黑帧占位，保持帧序号和时间一一对应
+                    frame = Bitmap.createBitmap(frameWidth, frameHeight, Bitmap.Config.RGB_565);
+                }
+
+                pixels.clear();
+                frame.copyPixelsToBuffer(pixels);
+                frame.recycle();
+
+                out.seek(HEADER_SIZE + (long) i * frameBytes);
+                out.write(pixels.array(), 0, frameBytes);
+                out.seek(OFFSET_FRAMES_DONE);
+                out.writeInt(i + 1);
+                framesDone = i + 1;
+
+                Thread.sleep(THROTTLE_MS);
+            }
+            Log.d(TAG, "缩略图生成完成: " + count + " 帧");
+        } catch (InterruptedException e) {
+            Log.d(TAG, "缩略图生成被中断");
+        } catch (Exception e) {
+            Log.e(TAG, "生成缩略图失败: " + e.getMessage());
+        } finally {
+            try {
+                retriever.release();
+            } catch (Exception e) {
+                Log.e(TAG, "释放MediaMetadataRetriever失败: " + e.getMessage());
+            }
+        }
+    }
+
+    // 读取已有文件头，文件不存在或损坏时返回false
+    private boolean readHeader(RandomAccessFile file) throws IOException {
+        if (file.length() < HEADER_SIZE) {
+            return false;
+        }
+        file.seek(0);
+        if (file.readInt() != MAGIC) {
+            return false;
+        }
+        int width = file.readInt();
+        int height = file.readInt();
+        int interval = file.readInt();
+        int count = file.readInt();
+        int done = file.readInt();
+        if (width <= 0 || height <= 0 || interval <= 0 || done < 0 || done > count) {
+            return false;
+        }
+        frameWidth = width;
+        frameHeight = height;
+        intervalMs = interval;
+        framesDone = done;
+        return true;
+    }
+
+    private Bitmap extractFrame(MediaMetadataRetriever retriever, long timeUs) {
+        Bitmap frame;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
+            frame = retriever.getScaledFrameAtTime(timeUs, MediaMetadataRetriever.OPTION_CLOSEST_SYNC,
+                    frameWidth, frameHeight);
+        } else {
+            Bitmap full = retriever.getFrameAtTime(timeUs, MediaMetadataRetriever.OPTION_CLOSEST_SYNC);
+            frame = full != null ? Bitmap.createScaledBitmap(full, frameWidth, frameHeight, true) : null;
+            if (full != null && full != frame) {
+                full.recycle();
+            }
+        }
+        if (frame == null) {
+            return null;
+        }
+        // getScaledFrameAtTime会保持宽高比，尺寸或格式不一致时统一转换
+        if (frame.getWidth() != frameWidth || frame.getHeight() != frameHeight
+                || frame.getConfig() != Bitmap.Config.RGB_565) {
+            Bitmap converted = Bitmap.createBitmap(frameWidth, frameHeight, Bitmap.Config.RGB_565);
+            Canvas canvas = new Canvas(converted);
+            canvas.drawBitmap(frame, null, new Rect(0, 0, frameWidth, frameHeight), null);
+            frame.recycle();
+            frame = converted;
+        }
+        return frame;
+    }
+
+    private static int readInt(RandomAccessFile file, long offset) throws IOException {
+        file.seek(offset);
+        return file.readInt();
+    }
+
+    private static int parseInt(String value) {
+        try {
+            return value != null ? Integer.parseInt(value) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
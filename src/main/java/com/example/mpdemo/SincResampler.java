@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import java.util.Arrays;
+
+/**
+ * 流式的窗函数sinc重采样，输入输出都是交织的16位PCM
+ *
+ * 滤波器为32阶Kaiser窗sinc，预先按每个采样间隔256个相位制表，相位之间线性插值，
+ * 可用于任意采样率比例。降采样时截止频率随比例降低，避免混叠。
+ * 内部保留上一块末尾的样本作为滤波历史，连续调用process()时块边界处没有断点；
+ * seek或循环回到开头时调用reset()清空历史。非线程安全。
+ */
+public class SincResampler {
+    private static final int HALF_TAPS = 16;
+    private static final int PHASES = 256;
+    private static final double KAISER_BETA = 8.0;
+
+    private final int inRate;
+    private final int outRate;
+    private final int channels;
+    private final double step;        // 每个输出帧前进的输入帧数
+    private final float[] table;      // 滤波器右半边，table[i] = h(i / PHASES)
+    private final float[] weights = new float[HALF_TAPS * 2];
+
+    private float[] history;          // 交织的float输入样本
+    private int historyFrames;
+    private double position;          // 下一个输出帧对应的输入位置(相对history开头)
+
+    public SincResampler(int inRate, int outRate, int channels) {
+        this.inRate = inRate;
+        this.outRate = outRate;
+        this.channels = channels;
+        this.step = (double) inRate / outRate;
+        this.table = buildTable(Math.min(1.0, (double) outRate / inRate) * 0.95);
+        this.history = new float[(4096 + HALF_TAPS * 2) * channels];
+        reset();
+    }
+
+    public int getInputRate() {
+        return inRate;
+    }
+
+    public int getOutputRate() {
+        return outRate;
+    }
+
+    /**
+     * 处理count个输入样本所需的最大输出样本数
+     */
+    public int maxOutputSamples(int count) {
+        return ((int) Math.ceil(count / channels / step) + 2) * channels;
+    }
+
+    /**
+     * 清空滤波历史，下一块输入从头开始
+     */
+    public void reset() {
+        // 前面补一半阶数的静音，第一个输出帧对齐第一个输入帧
+        historyFrames = HALF_TAPS;
+        Arrays.fill(history, 0, HALF_TAPS * channels, 0f);
+        position = HALF_TAPS;
+    }
+
+    /**
+     * 重采样count个输入样本，结果写入out，返回输出的样本数
+     */
+    public int process(short[] in, int count, short[] out) {
+        int frames = count / channels;
+        ensureCapacity(historyFrames + frames);
+        int base = historyFrames * channels;
+        for (int i = 0; i < frames * channels; i++) {
+            history[base + i] = in[i] / 32768f;
+        }
+        historyFrames += frames;
+
+        int written = 0;
+        while (position + HALF_TAPS < historyFrames) {
+            int center = (int) position;
+            computeWeights(position - center);
+            int first = (center - HALF_TAPS + 1) * channels;
+            for (int c = 0; c < channels; c++) {
+                float sum = 0f;
+                int index = first + c;
+                for (int k = 0; k < weights.length; k++) {
+                    sum += history[index] * weights[k];
+                    index += channels;
+                }
+                int sample = Math.round(sum * 32768f);
+                out[written++] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sample));
+            }
+            position += step;
+        }
+
+        // 丢弃之后不再用到的样本，只保留滤波需要的历史
+        int keepFrom = Math.max(0, (int) position - HALF_TAPS + 1);
+        if (keepFrom > 0) {
+            System.arraycopy(history, keepFrom * channels, history, 0, (historyFrames - keepFrom) * channels);
+            historyFrames -= keepFrom;
+            position -= keepFrom;
+        }
+        return written;
+    }
+
+    // 输出帧位于center + frac处，对center-HALF_TAPS+1 ~ center+HALF_TAPS的输入帧加权
+    private void computeWeights(double frac) {
+        for (int k = 0; k < weights.length; k++) {
+            double t = Math.abs(k - HALF_TAPS + 1 - frac) * PHASES;
+            int index = (int) t;
+            if (index >= table.length - 1) {
+                weights[k] = 0f;
+                continue;
+            }
+            float f = (float) (t - index);
+            weights[k] = table[index] + (table[index + 1] - table[index]) * f;
+        }
+    }
+
+    private void ensureCapacity(int frames) {
+        if (frames * channels > history.length) {
+            float[] larger = new float[frames * channels * 3 / 2];
+            System.arraycopy(history, 0, larger, 0, historyFrames * channels);
+            history = larger;
+        }
+    }
+
+    private static float[] buildTable(double cutoff) {
+        float[] result = new float[HALF_TAPS * PHASES + 1];
+        double denominator = besselI0(KAISER_BETA);
+        for (int i = 0; i < result.length; i++) {
+            double t = (double) i / PHASES;
+            double x = Math.PI * cutoff * t;
+            double sinc = i == 0 ? 1.0 : Math.sin(x) / x;
+            double r = t / HALF_TAPS;
+            double window = besselI0(KAISER_BETA * Math.sqrt(Math.max(0, 1 - r * r))) / denominator;
+            result[i] = (float) (cutoff * sinc * window);
+        }
+        return result;
+    }
+
+    // 第一类零阶修正贝塞尔函数，级数展开
+    private static double besselI0(double x) {
+        double sum = 1.0;
+        double term = 1.0;
+        double half = x / 2;
+        for (int k = 1; k < 50; k++) {
+            term *= (half / k) * (half / k);
+            sum += term;
+            if (term < sum * 1e-12) {
+                break;
+            }
+        }
+        return sum;
+    }
+}
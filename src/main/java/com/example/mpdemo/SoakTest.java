@@ -0,0 +1,384 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.content.Intent;
+import android.media.AudioDeviceInfo;
+import android.net.Uri;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 由intent参数驱动的无人值守拷机测试
+ *
+ * 每个播放器可以指定媒体、输出设备、循环次数和测试时长，启动后自动播放并循环，
+ * 达到循环次数或时长后停止该播放器，所有播放器都停止时测试结束。
+ * 测试期间按固定间隔把内存(PSS、native堆、Java堆、图形、位图)、进程CPU、
+ * 每个播放器的循环次数、循环间隙和错误次数追加到CSV报告，结束时追加汇总。
+ *
+ * adb shell am start -n com.example.mpdemo/.MainActivity \
+ *     --es soak.uri1 file:///sdcard/Movies/a.mp4 --es soak.device1 hdmi --el soak.seconds1 86400 \
+ *     --es soak.uri2 file:///sdcard/Music/b.mp3 --es soak.device2 speaker --ei soak.loops2 5000 \
+ *     --ei soak.interval_s 60
+ */
+public class SoakTest {
+    private static final String TAG = "SoakTest";
+
+    // 每个播放器的参数在名称后加播放器编号，例如soak.uri1
+    public static final String EXTRA_URI = "soak.uri";
+    public static final String EXTRA_DEVICE = "soak.device";    // 设备类型关键字(hdmi/speaker/headphone/usb/bluetooth)或产品名
+    public static final String EXTRA_LOOPS = "soak.loops";      // 循环次数，0或不指定为不限
+    public static final String EXTRA_SECONDS = "soak.seconds";  // 测试时长，0或不指定为不限
+    public static final String EXTRA_INTERVAL = "soak.interval_s";
+    private static final int DEFAULT_INTERVAL_S = 60;
+    private static final int MAX_SLOTS = 2;
+
+    /**
+     * 拷机测试需要宿主完成的操作，都在主线程调用
+     */
+    public interface Host {
+        // 该播放器达到循环次数或时长，停止播放
+        void stopSlot(int slot);
+
+        long getBitmapBytes();
+
+        void onSoakFinished(SoakTest test);
+    }
+
+    /**
+     * 一个播放器的测试参数和运行状态
+     */
+    public static class SlotConfig {
+        public final int slot;
+        public final Uri uri;
+        public final String device;
+        public final int loops;
+        public final long durationMs;
+
+        int loopCount;
+        int errorCount;
+        boolean finished;
+
+        SlotConfig(int slot, Uri uri, String device, int loops, long durationMs) {
+            this.slot = slot;
+            this.uri = uri;
+            this.device = device;
+            this.loops = loops;
+            this.durationMs = durationMs;
+        }
+    }
+
+    private final List<SlotConfig> slots;
+    private final long intervalMs;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+    private Host host;
+    private PlaybackMetrics metrics;
+    private BufferedWriter report;
+    private File reportFile;
+    private long startMs;
+    private long lastCpuMs;
+    private long lastWallMs;
+    private volatile int maxPssKb;
+    private boolean running;
+
+    private final Runnable sampler = new Runnable() {
+        @Override
+        public void run() {
+            sample();
+            handler.postDelayed(this, intervalMs);
+        }
+    };
+
+    private SoakTest(List<SlotConfig> slots, long intervalMs) {
+        this.slots = slots;
+        this.intervalMs = intervalMs;
+    }
+
+    /**
+     * 解析intent中的拷机参数，没有指定任何媒体时返回null
+     */
+    public static SoakTest fromIntent(Intent intent) {
+        if (intent == null) {
+            return null;
+        }
+        List<SlotConfig> slots = new ArrayList<>();
+        for (int slot = 1; slot <= MAX_SLOTS; slot++) {
+            String uri = intent.getStringExtra(EXTRA_URI + slot);
+            if (uri == null || uri.isEmpty()) {
+                continue;
+            }
+            slots.add(new SlotConfig(slot, Uri.parse(uri), intent.getStringExtra(EXTRA_DEVICE + slot),
+                    intent.getIntExtra(EXTRA_LOOPS + slot, 0),
+                    readLong(intent, EXTRA_SECONDS + slot) * 1000));
+        }
+        if (slots.isEmpty()) {
+            return null;
+        }
+        int interval = intent.getIntExtra(EXTRA_INTERVAL, DEFAULT_INTERVAL_S);
+        return new SoakTest(slots, Math.max(1, interval) * 1000L);
+    }
+
+    // --ei和--el都可以用来指定时长
+    private static long readLong(Intent intent, String name) {
+        Object value = intent.getExtras() != null ? intent.getExtras().get(name) : null;
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Long.parseLong((String) value);
+            } catch (NumberFormatException e) {
+                Log.w(TAG, "无效的参数 " + name + "=" + value);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 设备关键字可以是类型(hdmi/speaker/headphone/usb/bluetooth)，也可以是产品名的一部分
+     */
+    public static boolean matchesDevice(AudioDeviceInfo device, String keyword) {
+        String key = keyword.toLowerCase(Locale.US);
+        switch (device.getType()) {
+            case AudioDeviceInfo.TYPE_HDMI:
+                if (key.equals("hdmi")) {
+                    return true;
+                }
+                break;
+            case AudioDeviceInfo.TYPE_BUILTIN_SPEAKER:
+                if (key.equals("speaker")) {
+                    return true;
+                }
+                break;
+            case AudioDeviceInfo.TYPE_WIRED_HEADPHONES:
+            case AudioDeviceInfo.TYPE_WIRED_HEADSET:
+                if (key.equals("headphone")) {
+                    return true;
+                }
+                break;
+            case AudioDeviceInfo.TYPE_USB_DEVICE:
+            case AudioDeviceInfo.TYPE_USB_HEADSET:
+                if (key.equals("usb")) {
+                    return true;
+                }
+                break;
+            case AudioDeviceInfo.TYPE_BLUETOOTH_A2DP:
+                if (key.equals("bluetooth")) {
+                    return true;
+                }
+                break;
+            default:
+                break;
+        }
+        CharSequence product = device.getProductName();
+        return product != null && product.toString().toLowerCase(Locale.US).contains(key);
+    }
+
+    public List<SlotConfig> getSlots() {
+        return slots;
+    }
+
+    /**
+     * 开始记录报告并按时长安排各播放器的停止，播放由宿主在调用前启动
+     */
+    public void start(Host host, PlaybackMetrics metrics, File reportFile) throws IOException {
+        this.host = host;
+        this.metrics = metrics;
+        this.reportFile = reportFile;
+        report = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(reportFile), StandardCharsets.UTF_8));
+        StringBuilder header = new StringBuilder("elapsed_s,pss_kb,native_heap_kb,java_heap_kb,graphics_kb,bitmap_kb,cpu_percent");
+        for (SlotConfig config : slots) {
+            int n = config.slot;
+            header.append(",loops").append(n).append(",loop_gap_p50_ms").append(n)
+                    .append(",loop_gap_max_ms").append(n).append(",errors").append(n);
+        }
+        for (SlotConfig config : slots) {
+            header.insert(0, "# Player" + config.slot + ": " + config.uri + " 设备=" + config.device
+                    + " 循环=" + config.loops + " 时长=" + config.durationMs / 1000 + "s\n");
+        }
+        writeLine(header.toString());
+
+        running = true;
+        startMs = SystemClock.elapsedRealtime();
+        lastWallMs = startMs;
+        lastCpuMs = Process.getElapsedCpuTime();
+        for (SlotConfig config : slots) {
+            if (config.durationMs > 0) {
+                handler.postDelayed(() -> finishSlot(config, "达到测试时长"), config.durationMs);
+            }
+        }
+        handler.postDelayed(sampler, intervalMs);
+        Log.d(TAG, "拷机测试开始: " + slots.size() + " 个播放器，报告 " + reportFile);
+    }
+
+    public void onLoop(int slot) {
+        SlotConfig config = find(slot);
+        if (config == null || config.finished) {
+            return;
+        }
+        config.loopCount++;
+        if (config.loops > 0 && config.loopCount >= config.loops) {
+            finishSlot(config, "达到循环次数");
+        }
+    }
+
+    public void onError(int slot) {
+        SlotConfig config = find(slot);
+        if (config != null) {
+            config.errorCount++;
+        }
+    }
+
+    private SlotConfig find(int slot) {
+        for (SlotConfig config : slots) {
+            if (config.slot == slot) {
+                return config;
+            }
+        }
+        return null;
+    }
+
+    private void finishSlot(SlotConfig config, String reason) {
+        if (!running || config.finished) {
+            return;
+        }
+        config.finished = true;
+        Log.d(TAG, "Player" + config.slot + " " + reason + "，已循环 " + config.loopCount + " 次");
+        host.stopSlot(config.slot);
+        for (SlotConfig other : slots) {
+            if (!other.finished) {
+                return;
+            }
+        }
+        stop();
+        host.onSoakFinished(this);
+    }
+
+    // 主线程读取播放统计，内存和CPU在写入线程读取，不阻塞界面
+    private void sample() {
+        long elapsedS = (SystemClock.elapsedRealtime() - startMs) / 1000;
+        long bitmapKb = host.getBitmapBytes() / 1024;
+        StringBuilder slotColumns = new StringBuilder();
+        for (SlotConfig config : slots) {
+            PlaybackMetrics.Histogram gaps = metrics.getHistogram(config.slot, PlaybackMetrics.Stage.LOOP_GAP);
+            boolean hasGaps = gaps != null && gaps.getCount() > 0;
+            slotColumns.append(',').append(config.loopCount)
+                    .append(',').append(hasGaps ? gaps.percentile(50) : -1)
+                    .append(',').append(hasGaps ? gaps.getMaxMs() : -1)
+                    .append(',').append(config.errorCount);
+        }
+        writer.execute(() -> {
+            Debug.MemoryInfo memoryInfo = new Debug.MemoryInfo();
+            Debug.getMemoryInfo(memoryInfo);
+            long now = SystemClock.elapsedRealtime();
+            long cpuMs = Process.getElapsedCpuTime();
+            double cpuPercent = now > lastWallMs ? (cpuMs - lastCpuMs) * 100.0 / (now - lastWallMs) : 0;
+            lastCpuMs = cpuMs;
+            lastWallMs = now;
+            int pssKb = memoryInfo.getTotalPss();
+            maxPssKb = Math.max(maxPssKb, pssKb);
+            writeLine(String.format(Locale.US, "%d,%d,%d,%d,%d,%d,%.1f%s", elapsedS, pssKb,
+                    Debug.getNativeHeapAllocatedSize() / 1024, parseKb(memoryInfo.getMemoryStat("summary.java-heap")),
+                    parseKb(memoryInfo.getMemoryStat("summary.graphics")), bitmapKb, cpuPercent, slotColumns));
+        });
+    }
+
+    private static long parseKb(String value) {
+        try {
+            return value != null ? Long.parseLong(value) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // 只在写入线程调用(start时写入线程尚未使用)，每行立即刷新，进程被杀时报告仍然完整
+    private void writeLine(String line) {
+        try {
+            report.write(line);
+            report.newLine();
+            report.flush();
+        } catch (IOException e) {
+            Log.e(TAG, "写入报告失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 停止采样，追加汇总并关闭报告。可以重复调用
+     */
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        handler.removeCallbacksAndMessages(null);
+        sample();
+        String summary = getStatsSummary();
+        writer.execute(() -> {
+            for (String line : summary.split("\n")) {
+                writeLine("# " + line);
+            }
+            try {
+                report.close();
+            } catch (IOException e) {
+                Log.e(TAG, "关闭报告失败: " + e.getMessage());
+            }
+        });
+        writer.shutdown();
+        Log.d(TAG, summary);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public File getReportFile() {
+        return reportFile;
+    }
+
+    public String getStatsSummary() {
+        StringBuilder builder = new StringBuilder(String.format(Locale.US, "拷机测试: 已运行 %d 秒 最大PSS %dMB",
+                (SystemClock.elapsedRealtime() - startMs) / 1000, maxPssKb / 1024));
+        for (SlotConfig config : slots) {
+            builder.append(String.format(Locale.US, "\nPlayer%d: 循环 %d 次 错误 %d 次%s", config.slot,
+                    config.loopCount, config.errorCount, config.finished ? " 已结束" : ""));
+            PlaybackMetrics.Histogram gaps = metrics.getHistogram(config.slot, PlaybackMetrics.Stage.LOOP_GAP);
+            if (gaps != null && gaps.getCount() > 0) {
+                builder.append(String.format(Locale.US, " 循环间隙 p50 %dms p99 %dms 最大 %dms",
+                        gaps.percentile(50), gaps.percentile(99), gaps.getMaxMs()));
+            }
+        }
+        builder.append("\n报告: ").append(reportFile);
+        return builder.toString();
+    }
+}
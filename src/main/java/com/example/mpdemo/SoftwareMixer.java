@@ -0,0 +1,630 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.AudioDeviceInfo;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.net.Uri;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.SparseArray;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 应用内软件混音：输出到同一设备的多个播放器合并成一个AudioTrack
+ *
+ * 每个输出设备对应一个混音器，混音器只有一个线程和一个AudioTrack(立体声float)，
+ * 采样率按设备支持的采样率选择(优先48kHz)，混音结果不再经过系统混音器重采样。
+ * 每个通道有自己的解码线程，把解码结果放入预先分配的PCM块队列；混音线程只从队列取数据，
+ * 线性插值到混音采样率，乘以通道增益后累加到float缓冲区，再经过峰值限幅器写入AudioTrack。
+ * 混音器的锁内不做解码等阻塞操作，主线程的start/release不会被解码拖住。
+ * 所有缓冲区在创建时分配，混音过程中不分配内存。
+ * 通过Pool按设备管理混音器，通道切换输出设备时移动到对应的混音器，解码状态保持不变。
+ */
+public class SoftwareMixer {
+    private static final String TAG = "SoftwareMixer";
+
+    private static final int MIX_CHANNELS = 2;
+    private static final int MIX_BLOCKS_PER_SECOND = 100;  // 每次混音10ms
+    private static final int MAX_CHANNELS = 8;
+    private static final float LIMIT_THRESHOLD = 0.98f;
+    private static final float LIMIT_RELEASE = 0.0002f;  // 限幅后增益恢复速度(每帧)
+
+    /**
+     * 按输出设备管理混音器，所有方法在主线程调用
+     */
+    public static class Pool {
+        private final Context context;
+        private final SparseArray<SoftwareMixer> mixers = new SparseArray<>();
+
+        public Pool(Context context) {
+            this.context = context.getApplicationContext();
+        }
+
+        /**
+         * 为uri创建一个通道，输出到device(null表示默认设备)
+         */
+        public Channel openChannel(Uri uri, AudioDeviceInfo device) {
+            Channel channel = new Channel(this, context, uri);
+            mixerFor(device).add(channel);
+            return channel;
+        }
+
+        private SoftwareMixer mixerFor(AudioDeviceInfo device) {
+            int key = device != null ? device.getId() : 0;
+            SoftwareMixer mixer = mixers.get(key);
+            if (mixer == null) {
+                mixer = new SoftwareMixer(this, device, key, OutputFormatMatcher.preferredRate(context, device));
+                mixers.put(key, mixer);
+            }
+            return mixer;
+        }
+
+        void move(Channel channel, AudioDeviceInfo device) {
+            SoftwareMixer target = mixerFor(device);
+            if (channel.mixer == target) {
+                return;
+            }
+            channel.mixer.remove(channel);
+            // 两个混音器的采样率可能不同，以当前位置为新的起点重新计数
+            channel.rebase();
+            target.add(channel);
+        }
+
+        void onMixerEmpty(SoftwareMixer mixer) {
+            mixers.remove(mixer.key);
+            mixer.shutdown();
+        }
+
+        public void release() {
+            for (int i = 0; i < mixers.size(); i++) {
+                mixers.valueAt(i).shutdown();
+            }
+            mixers.clear();
+        }
+
+        public String getStatsSummary() {
+            StringBuilder builder = new StringBuilder("软件混音: 混音器 " + mixers.size() + " 个");
+            for (int i = 0; i < mixers.size(); i++) {
+                builder.append('\n').append(mixers.valueAt(i).getStatsSummary());
+            }
+            return builder.toString();
+        }
+    }
+
+    private final Pool pool;
+    private final AudioDeviceInfo device;
+    private final int key;
+    private final int mixRate;
+    private final Object lock = new Object();
+    private final UnderrunCounter underruns = new UnderrunCounter(0, EventJournal.SOURCE_MIXER); // 只在写入线程使用，混音输出由多个播放器共用
+    private final Channel[] channels = new Channel[MAX_CHANNELS];
+    private int channelCount;
+
+    private final int mixFrames;        // 混音采样率下10ms的帧数
+    private final float[] mixBuffer;
+    private float limiterGain = 1.0f;
+    private Thread thread;
+    private volatile boolean running;
+    private volatile AudioTrack track;
+    private volatile long framesWritten;
+
+    // 统计
+    private volatile long limitedBuffers;
+    private volatile long mixCpuNs;
+    private volatile long mixWallNs;
+
+    private SoftwareMixer(Pool pool, AudioDeviceInfo device, int key, int mixRate) {
+        this.pool = pool;
+        this.device = device;
+        this.key = key;
+        this.mixRate = mixRate;
+        this.mixFrames = mixRate / MIX_BLOCKS_PER_SECOND;
+        this.mixBuffer = new float[mixFrames * MIX_CHANNELS];
+    }
+
+    private void add(Channel channel) {
+        synchronized (lock) {
+            if (channelCount == MAX_CHANNELS) {
+                throw new IllegalStateException("混音通道已满");
+            }
+            channels[channelCount++] = channel;
+            channel.mixer = this;
+            lock.notifyAll();
+        }
+        if (thread == null) {
+            running = true;
+            thread = new Thread(this::mixLoop, "SoftwareMixer-" + key);
+            thread.start();
+        }
+    }
+
+    private void remove(Channel channel) {
+        boolean empty;
+        synchronized (lock) {
+            for (int i = 0; i < channelCount; i++) {
+                if (channels[i] == channel) {
+                    channels[i] = channels[--channelCount];
+                    channels[channelCount] = null;
+                    break;
+                }
+            }
+            empty = channelCount == 0;
+        }
+        if (empty) {
+            pool.onMixerEmpty(this);
+        }
+    }
+
+    // 在主线程调用，不等待混音线程结束：混音线程退出循环后自行释放AudioTrack
+    private void shutdown() {
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+            AudioTrack current = track;
+            if (current != null) {
+                current.pause();
+                current.flush();
+            }
+        }
+        thread = null;
+    }
+
+    /**
+     * 已写入但尚未播放的帧数，用于换算通道的实际播放位置
+     */
+    long getPendingFrames() {
+        long played;
+        // 混音线程在同一个锁内释放AudioTrack，这里不会用到已释放的AudioTrack
+        synchronized (lock) {
+            AudioTrack current = track;
+            if (current == null) {
+                return 0;
+            }
+            played = current.getPlaybackHeadPosition() & 0xFFFFFFFFL;
+        }
+        return Math.max(0, framesWritten - played);
+    }
+
+    private void mixLoop() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+        AudioTrack created = createTrack();
+        if (created == null) {
+            return;
+        }
+        track = created;
+        long cpuStart = Debug.threadCpuTimeNanos();
+        long wallStart = SystemClock.elapsedRealtimeNanos();
+        boolean trackPlaying = false;
+        try {
+            while (running) {
+                boolean anyActive;
+                synchronized (lock) {
+                    anyActive = mixLocked();
+                    if (!anyActive && running) {
+                        // 所有通道暂停时停止输出，等待通道恢复
+                        if (trackPlaying) {
+                            created.pause();
+                            trackPlaying = false;
+                        }
+                        lock.wait(100);
+                        continue;
+                    }
+                }
+                if (!running) {
+                    break;
+                }
+                if (!trackPlaying) {
+                    created.play();
+                    trackPlaying = true;
+                }
+                int written = created.write(mixBuffer, 0, mixBuffer.length, AudioTrack.WRITE_BLOCKING);
+                if (written > 0) {
+                    framesWritten += written / MIX_CHANNELS;
+                }
+                underruns.check(created);
+                mixCpuNs = Debug.threadCpuTimeNanos() - cpuStart;
+                mixWallNs = SystemClock.elapsedRealtimeNanos() - wallStart;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            synchronized (lock) {
+                track = null;
+                created.release();
+            }
+        }
+    }
+
+    // 在锁内累加所有正在播放的通道，返回是否有通道参与混音
+    private boolean mixLocked() {
+        Arrays.fill(mixBuffer, 0f);
+        boolean anyActive = false;
+        for (int i = 0; i < channelCount; i++) {
+            Channel channel = channels[i];
+            if (channel.playing && channel.ready) {
+                channel.mixInto(mixBuffer, mixFrames, mixRate);
+                anyActive = true;
+            }
+        }
+        if (anyActive) {
+            limit(mixBuffer, mixFrames);
+        }
+        return anyActive;
+    }
+
+    // 峰值限幅：超过阈值时立即压低增益，之后缓慢恢复
+    private void limit(float[] buffer, int frames) {
+        boolean limited = false;
+        float gain = limiterGain;
+        for (int f = 0; f < frames; f++) {
+            int base = f * MIX_CHANNELS;
+            float peak = Math.max(Math.abs(buffer[base]), Math.abs(buffer[base + 1]));
+            if (peak * gain > LIMIT_THRESHOLD) {
+                gain = LIMIT_THRESHOLD / peak;
+                limited = true;
+            }
+            buffer[base] *= gain;
+            buffer[base + 1] *= gain;
+            gain += (1.0f - gain) * LIMIT_RELEASE;
+        }
+        limiterGain = gain;
+        if (limited) {
+            limitedBuffers++;
+        }
+    }
+
+    private AudioTrack createTrack() {
+        try {
+            int minBuffer = AudioTrack.getMinBufferSize(mixRate, AudioFormat.CHANNEL_OUT_STEREO,
+                    AudioFormat.ENCODING_PCM_FLOAT);
+            AudioTrack created = new AudioTrack.Builder()
+                    .setAudioAttributes(new AudioAttributes.Builder()
+                            .setUsage(AudioAttributes.USAGE_MEDIA)
+                            .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
+                            .build())
+                    .setAudioFormat(new AudioFormat.Builder()
+                            .setSampleRate(mixRate)
+                            .setChannelMask(AudioFormat.CHANNEL_OUT_STEREO)
+                            .setEncoding(AudioFormat.ENCODING_PCM_FLOAT)
+                            .build())
+                    .setBufferSizeInBytes(Math.max(minBuffer, mixBuffer.length * 4) * 2)
+                    .setTransferMode(AudioTrack.MODE_STREAM)
+                    .build();
+            if (device != null) {
+                created.setPreferredDevice(device);
+            }
+            Log.d(TAG, "创建混音输出: 设备 " + key + " " + mixRate + "Hz");
+            return created;
+        } catch (Exception e) {
+            Log.e(TAG, "创建混音AudioTrack失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    String getStatsSummary() {
+        double cpuPercent = mixWallNs > 0 ? mixCpuNs * 100.0 / mixWallNs : 0;
+        int count;
+        synchronized (lock) {
+            count = channelCount;
+        }
+        return String.format(Locale.US, "  设备 %d: %dHz 通道 %d 个 混音线程CPU %.1f%% 限幅 %d 次",
+                key, mixRate, count, cpuPercent, limitedBuffers);
+    }
+
+    /**
+     * 混音器中的一个通道，对应一个播放器
+     */
+    public static class Channel implements PcmPlayback {
+        private static final int SOURCE_CHUNK = 4096;
+        private static final int BLOCK_COUNT = 8;
+        private static final long ENDED_POLL_NS = TimeUnit.MILLISECONDS.toNanos(10);
+
+        // 解码线程填充、混音线程消费的PCM块，创建通道时分配，在两个队列之间循环使用
+        private static final class Block {
+            final short[] data = new short[SOURCE_CHUNK];
+            int length;
+            int channels;
+            int rate;
+            int epoch;
+            long startUs;           // 所在seek段的起点
+            boolean endOfStream;
+        }
+
+        private final Pool pool;
+        private final Handler mainHandler = new Handler(Looper.getMainLooper());
+        volatile SoftwareMixer mixer;
+
+        private final PcmDecoder decoder = new PcmDecoder();   // 只在解码线程访问
+        private final ArrayBlockingQueue<Block> freeBlocks = new ArrayBlockingQueue<>(BLOCK_COUNT);
+        private final ArrayBlockingQueue<Block> filledBlocks = new ArrayBlockingQueue<>(BLOCK_COUNT);
+        private final Thread decodeThread;
+        private volatile int decodeEpoch;   // 每次seek加1，混音线程丢弃之前的块
+
+        // 以下只在混音线程访问
+        private Block block;
+        private int blockIndex;
+        private int mixEpoch;
+        private int sourceChannels = 1;
+        private volatile int sourceRate;
+        private volatile int mixRate;    // 最近一次混音的采样率，用于换算播放位置
+        private double fraction = 1.0;   // 线性插值的位置，>=1时取下一帧
+        private float prevLeft, prevRight, curLeft, curRight;
+
+        volatile boolean ready;
+        volatile boolean playing;
+        private volatile boolean looping;
+        private volatile boolean released;
+        private volatile float gain = 1.0f;
+        private final AtomicLong pendingSeekUs = new AtomicLong(-1);
+        private volatile long durationUs;
+        private volatile long segmentStartUs;
+        private volatile long mixedFrames;  // 当前片段已混入的帧数(混音采样率)
+        private OnCompletionListener completionListener;
+
+        private Channel(Pool pool, Context context, Uri uri) {
+            this.pool = pool;
+            for (int i = 0; i < BLOCK_COUNT; i++) {
+                freeBlocks.add(new Block());
+            }
+            // 打开文件和解码可能较慢，都放在通道自己的线程中，不能阻塞混音线程
+            decodeThread = new Thread(() -> decodeLoop(context, uri), "MixerChannel-decode");
+            decodeThread.start();
+        }
+
+        private void decodeLoop(Context context, Uri uri) {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+            try {
+                decoder.open(context, uri);
+                durationUs = decoder.getDurationUs();
+                sourceRate = decoder.getSampleRate();
+                ready = true;
+                wakeMixer();
+
+                int epoch = 0;
+                long epochStartUs = 0;
+                boolean ended = false;
+                while (!released) {
+                    long seekUs = pendingSeekUs.getAndSet(-1);
+                    if (seekUs >= 0) {
+                        decoder.seekTo(seekUs);
+                        epoch++;
+                        decodeEpoch = epoch;
+                        epochStartUs = seekUs;
+                        ended = false;
+                    }
+                    if (ended) {
+                        // 已播放到结尾，等待seek或释放
+                        LockSupport.parkNanos(ENDED_POLL_NS);
+                        continue;
+                    }
+                    Block next = freeBlocks.take();  // 队列满时在这里等待混音线程消费
+                    int channels = Math.max(1, decoder.getChannelCount());
+                    int count = decoder.read(next.data, 0, SOURCE_CHUNK - SOURCE_CHUNK % channels);
+                    if (count < 0 && looping) {
+                        decoder.seekTo(0);
+                        freeBlocks.put(next);
+                        continue;
+                    }
+                    next.length = Math.max(0, count);
+                    next.channels = decoder.getChannelCount();
+                    next.rate = decoder.getSampleRate();
+                    next.epoch = epoch;
+                    next.startUs = epochStartUs;
+                    next.endOfStream = count < 0;
+                    ended = next.endOfStream;
+                    filledBlocks.put(next);
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "打开混音通道失败: " + e.getMessage());
+            } catch (InterruptedException e) {
+                // release()中断了等待
+            } finally {
+                decoder.release();
+            }
+        }
+
+        private void wakeMixer() {
+            SoftwareMixer current = mixer;
+            if (current != null) {
+                synchronized (current.lock) {
+                    current.lock.notifyAll();
+                }
+            }
+        }
+
+        // 在混音线程中调用(持有混音器的锁)，只读取已解码的块，不会阻塞
+        void mixInto(float[] out, int frames, int rate) {
+            mixRate = rate;
+            float g = gain;
+            for (int f = 0; f < frames; f++) {
+                while (fraction >= 1.0) {
+                    if (!nextSourceFrame()) {
+                        return;
+                    }
+                    fraction -= 1.0;
+                }
+                float left = prevLeft + (curLeft - prevLeft) * (float) fraction;
+                float right = prevRight + (curRight - prevRight) * (float) fraction;
+                out[f * MIX_CHANNELS] += left * g;
+                out[f * MIX_CHANNELS + 1] += right * g;
+                fraction += (double) sourceRate / rate;  // 源采样率与混音采样率相同时逐帧直通
+                mixedFrames++;
+            }
+        }
+
+        private boolean nextSourceFrame() {
+            int epoch = decodeEpoch;
+            if (block != null && block.epoch < epoch) {
+                recycleBlock(); // seek之前解码的数据
+            }
+            while (block == null || blockIndex >= block.length) {
+                recycleBlock();
+                Block next = filledBlocks.poll();
+                if (next == null) {
+                    return false; // 解码线程暂时没有跟上，本次少混一些
+                }
+                if (next.epoch < epoch) {
+                    freeBlocks.offer(next);
+                    continue;
+                }
+                if (next.epoch != mixEpoch) {
+                    // seek后的第一块：以seek位置为新的起点
+                    mixEpoch = next.epoch;
+                    segmentStartUs = next.startUs;
+                    mixedFrames = 0;
+                    fraction = 1.0;
+                }
+                if (next.endOfStream) {
+                    freeBlocks.offer(next);
+                    onEndOfStream();
+                    return false;
+                }
+                block = next;
+                blockIndex = 0;
+                sourceChannels = next.channels;
+                sourceRate = next.rate;
+            }
+            prevLeft = curLeft;
+            prevRight = curRight;
+            curLeft = block.data[blockIndex] / 32768f;
+            curRight = sourceChannels > 1 ? block.data[blockIndex + 1] / 32768f : curLeft;
+            blockIndex += sourceChannels;
+            return true;
+        }
+
+        private void recycleBlock() {
+            if (block != null) {
+                freeBlocks.offer(block);
+                block = null;
+            }
+        }
+
+        // 不在任何混音器中时调用，把已混入的帧折算进起点
+        void rebase() {
+            int rate = mixRate;
+            if (rate > 0) {
+                segmentStartUs += mixedFrames * 1000000L / rate;
+            }
+            mixedFrames = 0;
+        }
+
+        // 循环播放时解码线程直接回到开头，这里只处理播放结束
+        private void onEndOfStream() {
+            playing = false;
+            mainHandler.post(() -> {
+                if (completionListener != null) {
+                    completionListener.onCompletion(this);
+                }
+            });
+        }
+
+        @Override
+        public void start() {
+            playing = true;
+            wakeMixer();
+        }
+
+        @Override
+        public void pause() {
+            playing = false;
+        }
+
+        @Override
+        public boolean isPlaying() {
+            return playing;
+        }
+
+        @Override
+        public int getCurrentPosition() {
+            SoftwareMixer current = mixer;
+            long pending = current != null ? current.getPendingFrames() : 0;
+            int rate = mixRate;
+            long positionUs = segmentStartUs
+                    + (rate > 0 ? Math.max(0, mixedFrames - pending) * 1000000L / rate : 0);
+            if (durationUs > 0) {
+                positionUs = looping ? positionUs % durationUs : Math.min(positionUs, durationUs);
+            }
+            return (int) (positionUs / 1000);
+        }
+
+        @Override
+        public int getDuration() {
+            return (int) (durationUs / 1000);
+        }
+
+        @Override
+        public void seekTo(int positionMs) {
+            pendingSeekUs.set(positionMs * 1000L);
+        }
+
+        @Override
+        public void setVolume(float volume) {
+            gain = volume;
+        }
+
+        @Override
+        public void setLooping(boolean looping) {
+            this.looping = looping;
+        }
+
+        @Override
+        public void setPreferredDevice(AudioDeviceInfo device) {
+            pool.move(this, device);
+        }
+
+        @Override
+        public void setOnCompletionListener(OnCompletionListener listener) {
+            this.completionListener = listener;
+        }
+
+        @Override
+        public void release() {
+            released = true;
+            playing = false;
+            ready = false;
+            SoftwareMixer current = mixer;
+            if (current != null) {
+                // 移出混音器之后混音线程不会再访问这个通道
+                current.remove(this);
+                mixer = null;
+            }
+            // 解码器由解码线程退出时释放，这里不等待
+            decodeThread.interrupt();
+            completionListener = null;
+        }
+
+        @Override
+        public String getStatsSummary() {
+            return pool.getStatsSummary();
+        }
+    }
+}
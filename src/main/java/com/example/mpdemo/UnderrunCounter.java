@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.media.AudioTrack;
+import android.os.Build;
+
+/**
+ * 在写入线程中检查AudioTrack的underrun次数，有新增时记录到EventJournal
+ *
+ * getUnderrunCount()只读取共享内存中的计数，每次写入后调用的开销固定。
+ * 重新创建AudioTrack后计数从0开始，此时只更新基准不记录。
+ * playerNumber为0表示多个播放器共用的输出(软件混音器)。
+ */
+final class UnderrunCounter {
+    private final int playerNumber;
+    private final int source;
+    private int lastCount;
+
+    UnderrunCounter(int playerNumber, int source) {
+        this.playerNumber = playerNumber;
+        this.source = source;
+    }
+
+    void check(AudioTrack track) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            return;
+        }
+        update(track.getUnderrunCount());
+    }
+
+    void check(AudioTrack[] tracks) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            return;
+        }
+        int total = 0;
+        for (AudioTrack track : tracks) {
+            total += track.getUnderrunCount();
+        }
+        update(total);
+    }
+
+    private void update(int count) {
+        if (count > lastCount) {
+            EventJournal.record(EventJournal.Type.UNDERRUN, playerNumber, source, count - lastCount);
+        }
+        lastCount = count;
+    }
+}
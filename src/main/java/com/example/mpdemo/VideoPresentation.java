@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.app.Presentation;
+import android.content.Context;
+import android.graphics.Color;
+import android.os.Bundle;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import android.view.Display;
+import android.view.Gravity;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+import android.widget.FrameLayout;
+
+/**
+ * 在副屏上全屏显示视频的Presentation
+ *
+ * 副屏窗口中只有一个SurfaceView，尺寸为副屏的原生分辨率(按视频宽高比居中)。
+ * 播放器通过setDisplay()直接输出到这个Surface，视频只在副屏上合成一次，
+ * 主屏上的VideoView不再收到视频帧。副屏断开时Presentation自动关闭，由调用方把输出切回主屏。
+ */
+public class VideoPresentation extends Presentation implements SurfaceHolder.Callback {
+    private static final String TAG = "VideoPresentation";
+
+    /**
+     * Surface可用或销毁时在主线程回调
+     */
+    public interface Listener {
+        void onSurfaceReady(VideoPresentation presentation, SurfaceHolder holder);
+
+        void onSurfaceGone(VideoPresentation presentation);
+    }
+
+    private final Listener listener;
+    private SurfaceView surfaceView;
+    private SurfaceHolder readyHolder;
+    private int videoWidth;
+    private int videoHeight;
+
+    public VideoPresentation(Context outerContext, Display display, Listener listener) {
+        super(outerContext, display);
+        this.listener = listener;
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        FrameLayout root = new FrameLayout(getContext());
+        root.setBackgroundColor(Color.BLACK);
+        surfaceView = new SurfaceView(getContext());
+        surfaceView.getHolder().addCallback(this);
+        root.addView(surfaceView, new FrameLayout.LayoutParams(
+                FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.MATCH_PARENT, Gravity.CENTER));
+        setContentView(root);
+        applyVideoSize();
+    }
+
+    /**
+     * 按视频宽高比在副屏上居中显示
+     */
+    public void setVideoSize(int width, int height) {
+        videoWidth = width;
+        videoHeight = height;
+        applyVideoSize();
+    }
+
+    private void applyVideoSize() {
+        if (surfaceView == null || videoWidth <= 0 || videoHeight <= 0) {
+            return;
+        }
+        DisplayMetrics metrics = new DisplayMetrics();
+        getDisplay().getRealMetrics(metrics);
+        int width = metrics.widthPixels;
+        int height = metrics.heightPixels;
+        if ((long) videoWidth * height > (long) videoHeight * width) {
+            height = (int) ((long) width * videoHeight / videoWidth);
+        } else {
+            width = (int) ((long) height * videoWidth / videoHeight);
+        }
+        surfaceView.setLayoutParams(new FrameLayout.LayoutParams(width, height, Gravity.CENTER));
+    }
+
+    /**
+     * Surface已经可用时返回其SurfaceHolder，否则返回null
+     */
+    public SurfaceHolder getReadyHolder() {
+        return readyHolder;
+    }
+
+    public String getDescription() {
+        DisplayMetrics metrics = new DisplayMetrics();
+        getDisplay().getRealMetrics(metrics);
+        return getDisplay().getName() + " " + metrics.widthPixels + "x" + metrics.heightPixels;
+    }
+
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+        Log.d(TAG, "副屏Surface已创建: " + getDescription());
+        readyHolder = holder;
+        listener.onSurfaceReady(this, holder);
+    }
+
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        Log.d(TAG, "副屏Surface尺寸: " + width + "x" + height);
+    }
+
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        Log.d(TAG, "副屏Surface已销毁");
+        readyHolder = null;
+        listener.onSurfaceGone(this);
+    }
+}
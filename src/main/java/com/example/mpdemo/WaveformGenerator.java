@@ -0,0 +1,271 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 音频波形概览生成器
+ *
+ * 整条音轨固定划分为BUCKET_COUNT个区间，每个区间只保存最小/最大峰值，
+ * 因此无论音频多长内存占用都是固定的几KB。解码边进行边把已完成的区间
+ * 写入缓存文件(cacheDir/waveform/内容摘要.wf)并通知界面刷新；
+ * 再次播放同一文件时直接读取缓存，不需要重新解码。
+ *
+ * 缓存文件格式(大端)：int magic, int bucketCount, int bucketsDone,
+ * 之后每个区间依次为 short min, short max
+ */
+public class WaveformGenerator {
+    private static final String TAG = "WaveformGenerator";
+    private static final int MAGIC = 0x4D505746; // "MPWF"
+    private static final int HEADER_SIZE = 12;
+    public static final int BUCKET_COUNT = 1024;
+    private static final int FLUSH_INTERVAL = 32; // 每完成多少个区间写一次文件并刷新界面
+
+    /**
+     * 波形数据更新回调，在主线程调用
+     */
+    public interface Listener {
+        void onWaveformUpdated(short[] mins, short[] maxs, int bucketsDone);
+    }
+
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor;
+    private Future<?> currentJob;
+    private int generation; // 每次start/cancel加一，丢弃已取消任务排队中的回调
+
+    public WaveformGenerator(Context context) {
+        this.context = context.getApplicationContext();
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                r.run();
+            }, "WaveformGenerator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 开始为音频生成波形，已有缓存时直接加载
+     */
+    public synchronized void start(Uri uri, Listener listener) {
+        cancel();
+        int job = generation;
+        currentJob = executor.submit(() -> generate(uri, listener, job));
+    }
+
+    public synchronized void cancel() {
+        generation++;
+        if (currentJob != null) {
+            currentJob.cancel(true);
+            currentJob = null;
+        }
+    }
+
+    public synchronized void release() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    private synchronized boolean isCurrent(int job) {
+        return job == generation;
+    }
+
+    // 每个任务使用自己的数组，不会与下一个任务互相覆盖
+    private void generate(Uri uri, Listener listener, int job) {
+        String key = MediaCacheKey.compute(context, uri);
+        if (key == null) {
+            return;
+        }
+        File dir = new File(context.getCacheDir(), "waveform");
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.e(TAG, "无法创建缓存目录: " + dir);
+            return;
+        }
+        File file = new File(dir, key + ".wf");
+
+        short[] mins = new short[BUCKET_COUNT];
+        short[] maxs = new short[BUCKET_COUNT];
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            long startMs = System.currentTimeMillis();
+            if (loadCache(out, mins, maxs) == BUCKET_COUNT) {
+                Log.d(TAG, "波形缓存命中，加载耗时 " + (System.currentTimeMillis() - startMs) + "ms");
+                publish(listener, job, mins, maxs, BUCKET_COUNT);
+                return;
+            }
+            decode(uri, out, listener, job, mins, maxs);
+        } catch (IOException e) {
+            Log.e(TAG, "波形缓存读写失败: " + e.getMessage());
+        }
+    }
+
+    // 读取缓存文件，返回已完成的区间数
+    private int loadCache(RandomAccessFile file, short[] mins, short[] maxs) throws IOException {
+        if (file.length() < HEADER_SIZE) {
+            return 0;
+        }
+        FileChannel channel = file.getChannel();
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(file.length(), HEADER_SIZE + BUCKET_COUNT * 4L));
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+            // 读满为止
+        }
+        buffer.flip();
+        if (buffer.getInt() != MAGIC || buffer.getInt() != BUCKET_COUNT) {
+            return 0;
+        }
+        int done = buffer.getInt();
+        if (done != BUCKET_COUNT || buffer.remaining() < BUCKET_COUNT * 4) {
+            // 只缓存了一部分时重新解码，解码器无法从任意区间精确续接
+            return 0;
+        }
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mins[i] = buffer.getShort();
+            maxs[i] = buffer.getShort();
+        }
+        return done;
+    }
+
+    private void decode(Uri uri, RandomAccessFile out, Listener listener, int job, short[] mins, short[] maxs)
+            throws IOException {
+        PcmDecoder decoder = new PcmDecoder();
+        try {
+            decoder.open(context, uri);
+            int channels = decoder.getChannelCount();
+            long totalFrames = decoder.getDurationUs() * decoder.getSampleRate() / 1000000L;
+            if (totalFrames <= 0 || channels <= 0) {
+                Log.w(TAG, "无法获取音频时长，跳过波形生成");
+                return;
+            }
+            long framesPerBucket = Math.max(1, (totalFrames + BUCKET_COUNT - 1) / BUCKET_COUNT);
+
+            out.setLength(0);
+            out.writeInt(MAGIC);
+            out.writeInt(BUCKET_COUNT);
+            out.writeInt(0);
+            ByteBuffer record = ByteBuffer.allocate(FLUSH_INTERVAL * 4);
+
+            short[] samples = new short[4096 * channels];
+            int bucket = 0;
+            int flushedBuckets = 0;
+            long framesInBucket = 0;
+            short min = 0;
+            short max = 0;
+
+            while (bucket < BUCKET_COUNT) {
+                if (Thread.currentThread().isInterrupted()) {
+                    Log.d(TAG, "波形生成已取消，已完成 " + bucket + "/" + BUCKET_COUNT);
+                    return;
+                }
+                int count = decoder.read(samples, 0, samples.length);
+                if (count < 0) {
+                    break;
+                }
+                for (int i = 0; i < count; i++) {
+                    short sample = samples[i];
+                    if (sample < min) min = sample;
+                    if (sample > max) max = sample;
+                    // 每个完整帧(所有声道)计数一次
+                    if ((i + 1) % channels == 0 && ++framesInBucket >= framesPerBucket) {
+                        mins[bucket] = min;
+                        maxs[bucket] = max;
+                        bucket++;
+                        framesInBucket = 0;
+                        min = 0;
+                        max = 0;
+                        if (bucket >= BUCKET_COUNT) {
+                            break;
+                        }
+                    }
+                }
+                if (bucket - flushedBuckets >= FLUSH_INTERVAL) {
+                    flushedBuckets = flush(out, record, mins, maxs, flushedBuckets, bucket);
+                    publish(listener, job, mins, maxs, bucket);
+                }
+            }
+
+            // 时长估计偏长时最后几个区间可能未填满，用最后的峰值补齐
+            if (framesInBucket > 0 && bucket < BUCKET_COUNT) {
+                mins[bucket] = min;
+                maxs[bucket] = max;
+                bucket++;
+            }
+            while (bucket < BUCKET_COUNT) {
+                mins[bucket] = 0;
+                maxs[bucket] = 0;
+                bucket++;
+            }
+            flush(out, record, mins, maxs, flushedBuckets, bucket);
+            publish(listener, job, mins, maxs, bucket);
+            Log.d(TAG, "波形生成完成: " + uri);
+        } finally {
+            decoder.release();
+        }
+    }
+
+    // 把[from, to)区间追加到缓存文件并更新头部计数，返回新的已写入区间数
+    private int flush(RandomAccessFile out, ByteBuffer record, short[] mins, short[] maxs, int from, int to)
+            throws IOException {
+        FileChannel channel = out.getChannel();
+        int position = from;
+        while (position < to) {
+            record.clear();
+            int end = Math.min(to, position + FLUSH_INTERVAL);
+            for (int i = position; i < end; i++) {
+                record.putShort(mins[i]);
+                record.putShort(maxs[i]);
+            }
+            record.flip();
+            long offset = HEADER_SIZE + position * 4L;
+            while (record.hasRemaining()) {
+                offset += channel.write(record, offset);
+            }
+            position = end;
+        }
+        out.seek(8);
+        out.writeInt(to);
+        return to;
+    }
+
+    // 解码线程会继续写入数组，交给界面的是当前的副本；任务已取消时不再回调
+    private void publish(Listener listener, int job, short[] mins, short[] maxs, int bucketsDone) {
+        if (listener != null) {
+            short[] minsCopy = mins.clone();
+            short[] maxsCopy = maxs.clone();
+            mainHandler.post(() -> {
+                if (isCurrent(job)) {
+                    listener.onWaveformUpdated(minsCopy, maxsCopy, bucketsDone);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.mpdemo;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+/**
+ * 音频波形概览视图，显示在进度条上方
+ */
+public class WaveformView extends View implements WaveformGenerator.Listener {
+    private short[] mins; // 各区间最小峰值
+    private short[] maxs; // 各区间最大峰值
+    private int bucketsDone; // 已生成的区间数
+    private float progress; // 播放进度 0~1
+
+    private float[] lines; // drawLines使用的坐标数组，只在尺寸变化时分配
+    private Paint playedPaint; // 已播放部分画笔
+    private Paint pendingPaint; // 未播放部分画笔
+
+    public WaveformView(Context context) {
+        super(context);
+        init();
+    }
+
+    public WaveformView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        init();
+    }
+
+    public WaveformView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init();
+    }
+
+    private void init() {
+        playedPaint = new Paint();
+        playedPaint.setColor(0xFF4CAF50); // 绿色
+        playedPaint.setStrokeWidth(1f);
+
+        pendingPaint = new Paint();
+        pendingPaint.setColor(0x804CAF50); // 半透明绿色
+        pendingPaint.setStrokeWidth(1f);
+    }
+
+    @Override
+    public void onWaveformUpdated(short[] mins, short[] maxs, int bucketsDone) {
+        this.mins = mins;
+        this.maxs = maxs;
+        this.bucketsDone = bucketsDone;
+        invalidate(); // 解码过程中逐步刷新
+    }
+
+    /**
+     * 清空波形，用于切换媒体
+     */
+    public void clear() {
+        mins = null;
+        maxs = null;
+        bucketsDone = 0;
+        invalidate();
+    }
+
+    /**
+     * 设置播放进度 (0~1)
+     */
+    public void setProgress(float progress) {
+        if (this.progress != progress) {
+            this.progress = progress;
+            invalidate();
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+
+        int width = getWidth();
+        int height = getHeight();
+        if (width == 0 || height == 0 || mins == null || bucketsDone == 0) {
+            return;
+        }
+
+        // 每个像素列一条竖线
+        if (lines == null || lines.length != width * 4) {
+            lines = new float[width * 4];
+        }
+
+        int total = mins.length;
+        float centerY = height / 2f;
+        float scale = centerY / 32768f;
+        int columns = 0;
+        for (int x = 0; x < width; x++) {
+            int bucket = (int) ((long) x * total / width);
+            if (bucket >= bucketsDone) {
+                break; // 尚未解码到的部分不绘制
+            }
+            int offset = x * 4;
+            lines[offset] = x;
+            lines[offset + 1] = centerY - maxs[bucket] * scale;
+            lines[offset + 2] = x;
+            lines[offset + 3] = centerY - mins[bucket] * scale;
+            columns++;
+        }
+
+        int playedColumns = Math.min(columns, (int) (progress * width));
+        if (playedColumns > 0) {
+            canvas.drawLines(lines, 0, playedColumns * 4, playedPaint);
+        }
+        if (columns > playedColumns) {
+            canvas.drawLines(lines, playedColumns * 4, (columns - playedColumns) * 4, pendingPaint);
+        }
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeFalse;
+
+/**
+ * 播放路径的宏基准测试：启动、切换音源、循环间隙、seek
+ *
+ * 通过MainActivity中@VisibleForTesting的入口走与界面操作相同的流程，
+ * 切换、循环和seek的单次耗时取自应用内的PlaybackMetrics(与dumpsys中看到的统计口径一致)，
+ * 启动耗时在测试进程中从startActivity计到主线程首次空闲，进程由instrumentation拉起，
+ * 因此不包含进程创建，要测真正的冷启动请用 am start -W。
+ * 测试素材由TestMediaGenerator在应用缓存目录生成。
+ * 结果写入 /sdcard/Android/data/com.example.mpdemo/files/benchmark/benchmark-*.json，
+ * 每项包含样本数、p50/p90/p99、最小、最大和平均值(毫秒)。
+ *
+ * 运行: atest MPDemoBenchmark
+ *   或 adb shell am instrument -w com.example.mpdemo.benchmark/androidx.test.runner.AndroidJUnitRunner
+ */
+@RunWith(AndroidJUnit4.class)
+@FixMethodOrder(MethodSorters.NAME_ASCENDING) // launch排在最前，保证launch_first是进程中第一次启动
+public class PlaybackBenchmark {
+    private static final String TAG = "PlaybackBenchmark";
+    private static final int LAUNCH_ITERATIONS = 10;
+    private static final int SWITCH_ITERATIONS = 30;
+    private static final int LOOP_ITERATIONS = 15;
+    private static final int SEEK_ITERATIONS = 30;
+    private static final long STEP_TIMEOUT_MS = 10000;
+    private static final long POLL_MS = 5;
+    private static final int SLOT = 1;
+
+    // 按测试执行顺序保存各项的样本
+    private static final Map<String, List<Long>> results = new LinkedHashMap<>();
+    private static File mediaDir;
+    private static Uri toneA;
+    private static Uri toneB;
+    private static Uri loopClip;
+    private static Uri video;
+
+    @BeforeClass
+    public static void generateMedia() throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        mediaDir = new File(context.getCacheDir(), "benchmark-media");
+        mediaDir.mkdirs();
+        toneA = Uri.fromFile(TestMediaGenerator.sineWav(mediaDir, "tone-440.wav", 440, 12000));
+        toneB = Uri.fromFile(TestMediaGenerator.sineWav(mediaDir, "tone-660.wav", 660, 12000));
+        loopClip = Uri.fromFile(TestMediaGenerator.sineWav(mediaDir, "loop-1s.wav", 880, 1000));
+        video = Uri.fromFile(TestMediaGenerator.avcMp4(mediaDir, "avc-640x360.mp4", 640, 360, 30, 5000));
+    }
+
+    @AfterClass
+    public static void writeReport() throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        File dir = new File(context.getExternalFilesDir(null), "benchmark");
+        dir.mkdirs();
+        String name = "benchmark-" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date()) + ".json";
+        File file = new File(dir, name);
+        String json = toJson();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(json);
+        }
+        Log.i(TAG, "基准测试结果: " + file.getAbsolutePath() + "\n" + json);
+        Bundle status = new Bundle();
+        status.putString("mpdemo_benchmark_report", file.getAbsolutePath());
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, status);
+    }
+
+    /**
+     * 启动到主线程首次空闲(首帧已提交)。第一次启动前应用进程中还没有Activity，记为launch_first，
+     * 之后的启动进程和类已加载，记为launch_warm
+     */
+    @Test
+    public void launch() {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        for (int i = 0; i < LAUNCH_ITERATIONS; i++) {
+            long start = SystemClock.elapsedRealtime();
+            Activity activity = instrumentation.startActivitySync(newLaunchIntent());
+            instrumentation.waitForIdleSync();
+            add(i == 0 ? "launch_first" : "launch_warm", SystemClock.elapsedRealtime() - start);
+            finishAndWait(activity);
+        }
+    }
+
+    /**
+     * 在音频和视频之间轮流切换，单次耗时为选择到准备完成加上准备完成到播放位置开始前进
+     */
+    @Test
+    public void sourceSwitch() throws Exception {
+        MainActivity activity = launchMainActivity();
+        try {
+            Uri[] sources = {toneA, video, toneB};
+            for (int i = 0; i < SWITCH_ITERATIONS; i++) {
+                Uri source = sources[i % sources.length];
+                PlaybackMetrics metrics = onMain(activity::getPlaybackMetrics);
+                long before = count(metrics, PlaybackMetrics.Stage.PREPARED_TO_FIRST_AUDIO);
+                onMain(() -> {
+                    activity.playMedia(SLOT, source);
+                    return null;
+                });
+                waitForCount(metrics, PlaybackMetrics.Stage.PREPARED_TO_FIRST_AUDIO, before + 1);
+                long total = onMain(() -> metrics.getHistogram(SLOT, PlaybackMetrics.Stage.PICK_TO_PREPARED).getLastMs()
+                        + metrics.getHistogram(SLOT, PlaybackMetrics.Stage.PREPARED_TO_FIRST_AUDIO).getLastMs());
+                add(source == video ? "switch_to_video" : "switch_to_audio", total);
+            }
+        } finally {
+            finishAndWait(activity);
+        }
+    }
+
+    /**
+     * 播放1秒的短音频并循环，单次耗时为回到开头到位置重新前进
+     */
+    @Test
+    public void loopGap() throws Exception {
+        MainActivity activity = launchMainActivity();
+        try {
+            PlaybackMetrics metrics = onMain(activity::getPlaybackMetrics);
+            long before = count(metrics, PlaybackMetrics.Stage.LOOP_GAP);
+            onMain(() -> {
+                activity.playMedia(SLOT, loopClip);
+                return null;
+            });
+            for (int i = 1; i <= LOOP_ITERATIONS; i++) {
+                waitForCount(metrics, PlaybackMetrics.Stage.LOOP_GAP, before + i);
+                add("loop_gap", onMain(() -> metrics.getHistogram(SLOT, PlaybackMetrics.Stage.LOOP_GAP).getLastMs()));
+            }
+        } finally {
+            finishAndWait(activity);
+        }
+    }
+
+    /**
+     * 在12秒的音频中随机seek，单次耗时为发起seek到OnSeekComplete
+     * PCM引擎没有seek完成回调，设置中启用了PCM引擎时跳过
+     */
+    @Test
+    public void seek() throws Exception {
+        MainActivity activity = launchMainActivity();
+        try {
+            PlaybackMetrics metrics = onMain(activity::getPlaybackMetrics);
+            long started = count(metrics, PlaybackMetrics.Stage.PREPARED_TO_FIRST_AUDIO);
+            onMain(() -> {
+                activity.playMedia(SLOT, toneA);
+                return null;
+            });
+            waitForCount(metrics, PlaybackMetrics.Stage.PREPARED_TO_FIRST_AUDIO, started + 1);
+            assumeFalse("PCM引擎没有seek完成回调", onMain(() -> activity.isPcmSlot(SLOT)));
+            Random random = new Random(49);
+            for (int i = 0; i < SEEK_ITERATIONS; i++) {
+                int target = 500 + random.nextInt(9000);
+                long before = count(metrics, PlaybackMetrics.Stage.SEEK);
+                onMain(() -> {
+                    activity.seekSlot(SLOT, target);
+                    return null;
+                });
+                waitForCount(metrics, PlaybackMetrics.Stage.SEEK, before + 1);
+                add("seek", onMain(() -> metrics.getHistogram(SLOT, PlaybackMetrics.Stage.SEEK).getLastMs()));
+            }
+        } finally {
+            finishAndWait(activity);
+        }
+    }
+
+    private static Intent newLaunchIntent() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        Intent intent = new Intent(context, MainActivity.class);
+        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+        return intent;
+    }
+
+    private static MainActivity launchMainActivity() {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        MainActivity activity = (MainActivity) instrumentation.startActivitySync(newLaunchIntent());
+        instrumentation.waitForIdleSync();
+        assertNotNull(activity);
+        return activity;
+    }
+
+    private static void finishAndWait(Activity activity) {
+        activity.finish();
+        long deadline = SystemClock.elapsedRealtime() + STEP_TIMEOUT_MS;
+        while (!activity.isDestroyed() && SystemClock.elapsedRealtime() < deadline) {
+            SystemClock.sleep(POLL_MS * 10);
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+    }
+
+    private static <T> T onMain(Callable<T> callable) throws Exception {
+        AtomicReference<T> result = new AtomicReference<>();
+        AtomicReference<Exception> error = new AtomicReference<>();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            try {
+                result.set(callable.call());
+            } catch (Exception e) {
+                error.set(e);
+            }
+        });
+        if (error.get() != null) {
+            throw error.get();
+        }
+        return result.get();
+    }
+
+    private static long count(PlaybackMetrics metrics, PlaybackMetrics.Stage stage) throws Exception {
+        return onMain(() -> {
+            PlaybackMetrics.Histogram histogram = metrics.getHistogram(SLOT, stage);
+            return histogram != null ? histogram.getCount() : 0L;
+        });
+    }
+
+    private static void waitForCount(PlaybackMetrics metrics, PlaybackMetrics.Stage stage, long expected)
+            throws Exception {
+        long deadline = SystemClock.elapsedRealtime() + STEP_TIMEOUT_MS;
+        while (count(metrics, stage) < expected) {
+            if (SystemClock.elapsedRealtime() > deadline) {
+                fail(stage + " 在 " + STEP_TIMEOUT_MS + "ms 内没有新的记录");
+            }
+            SystemClock.sleep(POLL_MS);
+        }
+    }
+
+    private static void add(String name, long ms) {
+        Log.d(TAG, name + ": " + ms + "ms");
+        List<Long> samples = results.get(name);
+        if (samples == null) {
+            samples = new ArrayList<>();
+            results.put(name, samples);
+        }
+        samples.add(ms);
+    }
+
+    private static String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"device\": \"").append(Build.MANUFACTURER).append(' ').append(Build.MODEL)
+                .append("\",\n  \"build\": \"").append(Build.FINGERPRINT).append("\",\n  \"results\": {");
+        String separator = "\n";
+        for (Map.Entry<String, List<Long>> entry : results.entrySet()) {
+            List<Long> samples = new ArrayList<>(entry.getValue());
+            Collections.sort(samples);
+            long sum = 0;
+            for (long sample : samples) {
+                sum += sample;
+            }
+            json.append(separator).append(String.format(Locale.US,
+                    "    \"%s\": {\"count\": %d, \"p50\": %d, \"p90\": %d, \"p99\": %d, \"min\": %d, \"max\": %d, \"mean\": %.1f}",
+                    entry.getKey(), samples.size(), percentile(samples, 50), percentile(samples, 90),
+                    percentile(samples, 99), samples.get(0), samples.get(samples.size() - 1),
+                    (double) sum / samples.size()));
+            separator = ",\n";
+        }
+        json.append("\n  }\n}\n");
+        return json.toString();
+    }
+
+    // 最近秩法，samples已排序
+    private static long percentile(List<Long> samples, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * samples.size());
+        return samples.get(Math.max(0, rank - 1));
+    }
+}
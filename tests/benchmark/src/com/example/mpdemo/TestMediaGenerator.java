@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import android.media.Image;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.os.SystemClock;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 生成基准测试用的媒体文件，避免在仓库中放二进制素材
+ *
+ * 音频为16位立体声正弦波WAV，视频为MediaCodec编码的AVC，用MediaMuxer封装为MP4，
+ * 每帧亮度不同，保证编码器每帧都输出有效数据。文件已存在时直接复用。
+ */
+final class TestMediaGenerator {
+    private static final int SAMPLE_RATE = 48000;
+    private static final int CHANNELS = 2;
+    private static final long CODEC_TIMEOUT_US = 10000;
+    private static final long ENCODE_TIMEOUT_PER_FRAME_MS = 4 * CODEC_TIMEOUT_US / 1000;  // 每帧最多等待4次超时
+
+    private TestMediaGenerator() {
+    }
+
+    static File sineWav(File dir, String name, int frequencyHz, int durationMs) throws IOException {
+        File file = new File(dir, name);
+        if (file.length() > 0) {
+            return file;
+        }
+        int frames = SAMPLE_RATE * durationMs / 1000;
+        int dataSize = frames * CHANNELS * 2;
+        ByteBuffer buffer = ByteBuffer.allocate(44 + dataSize).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(new byte[] {'R', 'I', 'F', 'F'}).putInt(36 + dataSize);
+        buffer.put(new byte[] {'W', 'A', 'V', 'E', 'f', 'm', 't', ' '}).putInt(16);
+        buffer.putShort((short) 1).putShort((short) CHANNELS).putInt(SAMPLE_RATE)
+                .putInt(SAMPLE_RATE * CHANNELS * 2).putShort((short) (CHANNELS * 2)).putShort((short) 16);
+        buffer.put(new byte[] {'d', 'a', 't', 'a'}).putInt(dataSize);
+        for (int i = 0; i < frames; i++) {
+            short sample = (short) (Math.sin(2 * Math.PI * frequencyHz * i / SAMPLE_RATE) * 8000);
+            for (int c = 0; c < CHANNELS; c++) {
+                buffer.putShort(sample);
+            }
+        }
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(buffer.array());
+        }
+        return file;
+    }
+
+    static File avcMp4(File dir, String name, int width, int height, int fps, int durationMs) throws IOException {
+        File file = new File(dir, name);
+        if (file.length() > 0) {
+            return file;
+        }
+        MediaFormat format = MediaFormat.createVideoFormat(MediaFormat.MIMETYPE_VIDEO_AVC, width, height);
+        format.setInteger(MediaFormat.KEY_COLOR_FORMAT, MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420Flexible);
+        format.setInteger(MediaFormat.KEY_BIT_RATE, width * height * 2);
+        format.setInteger(MediaFormat.KEY_FRAME_RATE, fps);
+        format.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, 1);
+
+        MediaCodec encoder = MediaCodec.createEncoderByType(MediaFormat.MIMETYPE_VIDEO_AVC);
+        MediaMuxer muxer = null;
+        try {
+            encoder.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            encoder.start();
+            muxer = new MediaMuxer(file.getAbsolutePath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+            int totalFrames = fps * durationMs / 1000;
+            int frameIndex = 0;
+            int track = -1;
+            boolean inputDone = false;
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            // 编码器卡住时不会输出EOS，按帧数限制总时长，避免测试一直挂起
+            long deadline = SystemClock.elapsedRealtime() + (totalFrames + 1) * ENCODE_TIMEOUT_PER_FRAME_MS;
+            while (true) {
+                if (SystemClock.elapsedRealtime() > deadline) {
+                    throw new IOException("编码超时: " + name + ", 已送入" + frameIndex + "/" + totalFrames + "帧");
+                }
+                if (!inputDone) {
+                    int inputIndex = encoder.dequeueInputBuffer(CODEC_TIMEOUT_US);
+                    if (inputIndex >= 0) {
+                        long ptsUs = frameIndex * 1000000L / fps;
+                        if (frameIndex == totalFrames) {
+                            encoder.queueInputBuffer(inputIndex, 0, 0, ptsUs, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            fillFrame(encoder.getInputImage(inputIndex), frameIndex);
+                            encoder.queueInputBuffer(inputIndex, 0, width * height * 3 / 2, ptsUs, 0);
+                            frameIndex++;
+                        }
+                    }
+                }
+                int outputIndex = encoder.dequeueOutputBuffer(info, CODEC_TIMEOUT_US);
+                if (outputIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    track = muxer.addTrack(encoder.getOutputFormat());
+                    muxer.start();
+                } else if (outputIndex >= 0) {
+                    ByteBuffer data = encoder.getOutputBuffer(outputIndex);
+                    if (track >= 0 && info.size > 0 && (info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) == 0) {
+                        muxer.writeSampleData(track, data, info);
+                    }
+                    encoder.releaseOutputBuffer(outputIndex, false);
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                        break;
+                    }
+                }
+            }
+            muxer.stop();
+        } catch (IOException | RuntimeException e) {
+            file.delete();
+            throw e;
+        } finally {
+            encoder.release();
+            if (muxer != null) {
+                muxer.release();
+            }
+        }
+        return file;
+    }
+
+    // 亮度随帧号变化的纯色画面，色度固定为灰
+    private static void fillFrame(Image image, int frameIndex) {
+        Image.Plane[] planes = image.getPlanes();
+        int width = image.getWidth();
+        int height = image.getHeight();
+        byte luma = (byte) (16 + (frameIndex * 7) % 220);
+        for (int p = 0; p < planes.length; p++) {
+            ByteBuffer plane = planes[p].getBuffer();
+            int rowStride = planes[p].getRowStride();
+            int pixelStride = planes[p].getPixelStride();
+            int planeWidth = p == 0 ? width : width / 2;
+            int planeHeight = p == 0 ? height : height / 2;
+            byte value = p == 0 ? luma : (byte) 128;
+            for (int y = 0; y < planeHeight; y++) {
+                for (int x = 0; x < planeWidth; x++) {
+                    plane.put(y * rowStride + x * pixelStride, value);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MPDemoCore中每次界面刷新都会执行的逻辑的JMH基准测试，在主机JVM上运行，不需要连接设备
+ *
+ * 输入在Setup中预先生成，每次调用按下标轮换，避免JIT把固定输入的结果常量折叠。
+ * 用法: MPDemoCoreBench                    每项操作的平均耗时
+ *       MPDemoCoreBench -prof gc           同时输出每项操作的分配字节数(gc.alloc.rate.norm)
+ *       MPDemoCoreBench CoreBenchmark.deviceCategory   只运行名称匹配的项
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CoreBenchmark {
+    private static final int INPUTS = 1024;  // 2的幂，按位与取下标
+    private static final String[] SAMPLE_URIS = {
+            "file:///sdcard/Music/track01.mp3",
+            "file:///sdcard/Movies/demo.MP4",
+            "content://com.android.externalstorage.documents/document/primary%3AMusic%2Fsong.flac",
+            "content://media/external/audio/media/1234",
+            "file:///storage/usb0/video/test_pattern.mkv",
+            "file:///sdcard/Music/loop.wav",
+    };
+    private static final int[] DEVICE_TYPES = {
+            PlaybackLogic.TYPE_BUILTIN_SPEAKER, PlaybackLogic.TYPE_WIRED_HEADSET, PlaybackLogic.TYPE_WIRED_HEADPHONES,
+            PlaybackLogic.TYPE_BLUETOOTH_SCO, PlaybackLogic.TYPE_BLUETOOTH_A2DP, PlaybackLogic.TYPE_HDMI,
+            PlaybackLogic.TYPE_USB_DEVICE, PlaybackLogic.TYPE_USB_HEADSET, 1, 15,
+    };
+
+    private final int[] positions = new int[INPUTS];
+    private final int[] durations = new int[INPUTS];
+    private final String[] uris = new String[INPUTS];
+    private final String[] extensions = new String[INPUTS];
+    private final int[] deviceTypes = new int[INPUTS];
+    private final int[] viewSizes = new int[INPUTS];
+    private final RecordGeometry geometry = new RecordGeometry();
+    private int index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(50);
+        for (int i = 0; i < INPUTS; i++) {
+            durations[i] = 1000 + random.nextInt(3 * 60 * 60 * 1000);  // 最长3小时，覆盖int溢出的情况
+            positions[i] = random.nextInt(durations[i]);
+            uris[i] = SAMPLE_URIS[random.nextInt(SAMPLE_URIS.length)];
+            extensions[i] = PlaybackLogic.getFileExtension(uris[i]);
+            deviceTypes[i] = DEVICE_TYPES[random.nextInt(DEVICE_TYPES.length)];
+            viewSizes[i] = 200 + random.nextInt(800);
+        }
+    }
+
+    private int next() {
+        index = (index + 1) & (INPUTS - 1);
+        return index;
+    }
+
+    @Benchmark
+    public int progressPercent() {
+        int i = next();
+        return PlaybackLogic.progressPercent(positions[i], durations[i]);
+    }
+
+    @Benchmark
+    public int positionForProgress() {
+        int i = next();
+        return PlaybackLogic.positionForProgress(i % 101, durations[i]);
+    }
+
+    @Benchmark
+    public boolean shouldLoop() {
+        int i = next();
+        return PlaybackLogic.shouldLoop(positions[i], durations[i], true, 1);
+    }
+
+    /**
+     * 进度条刷新一次的全部计算：进度、循环判断
+     */
+    @Benchmark
+    public void seekBarTick(Blackhole blackhole) {
+        int i = next();
+        blackhole.consume(PlaybackLogic.progressPercent(positions[i], durations[i]));
+        blackhole.consume(PlaybackLogic.shouldLoop(positions[i], durations[i], true, 1));
+    }
+
+    @Benchmark
+    public String getFileExtension() {
+        return PlaybackLogic.getFileExtension(uris[next()]);
+    }
+
+    @Benchmark
+    public boolean isAudioFile() {
+        return PlaybackLogic.isAudioFile(extensions[next()]);
+    }
+
+    /**
+     * 按扩展名判断类型的完整流程，包括截取子串和转小写的分配
+     */
+    @Benchmark
+    public boolean detectMediaType() {
+        return PlaybackLogic.isAudioFile(PlaybackLogic.getFileExtension(uris[next()]));
+    }
+
+    @Benchmark
+    public PlaybackLogic.DeviceCategory deviceCategory() {
+        return PlaybackLogic.getDeviceCategory(deviceTypes[next()]);
+    }
+
+    /**
+     * 视图大小不变时每帧的开销
+     */
+    @Benchmark
+    public float recordGeometryUnchanged() {
+        geometry.update(1080, 720);
+        return geometry.radius;
+    }
+
+    /**
+     * 每次都按新的大小重新计算
+     */
+    @Benchmark
+    public float recordGeometryResize() {
+        int i = next();
+        geometry.update(viewSizes[i], viewSizes[(i + 1) & (INPUTS - 1)]);
+        return geometry.grooveRadii[RecordGeometry.GROOVE_COUNT - 1];
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * EventJournal二进制日志转换为CSV
+ *
+ * 每条事件输出一行：序号、距日志打开的毫秒数、墙上时间、类型、播放器编号、arg、value。
+ * 文件头中的事件数之后的内容是预先映射但尚未写入的区域，不输出。
+ *
+ * 用法: MPDemoJournalDecode events.bin [events.csv]   (不指定输出文件时写到标准输出)
+ *   adb pull /sdcard/Android/data/com.example.mpdemo/files/journal/
+ */
+public class JournalDecoder {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("用法: MPDemoJournalDecode events.bin [events.csv]");
+            System.exit(2);
+        }
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(Paths.get(args[0])));
+        data.order(ByteOrder.LITTLE_ENDIAN);
+        PrintWriter out = args.length > 1
+                ? new PrintWriter(new OutputStreamWriter(new FileOutputStream(args[1]), StandardCharsets.UTF_8))
+                : new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        try {
+            long count = decode(data, out);
+            System.err.println("已转换 " + count + " 条事件");
+        } catch (IllegalArgumentException e) {
+            System.err.println("无法解析 " + args[0] + ": " + e.getMessage());
+            System.exit(1);
+        } finally {
+            out.flush();
+            if (args.length > 1) {
+                out.close();
+            }
+        }
+    }
+
+    static long decode(ByteBuffer data, PrintWriter out) {
+        if (data.remaining() < EventJournal.HEADER_SIZE || data.getInt(0) != EventJournal.MAGIC) {
+            throw new IllegalArgumentException("不是事件日志文件");
+        }
+        short version = data.getShort(4);
+        int recordSize = data.getShort(6);
+        if (version != EventJournal.VERSION || recordSize != EventJournal.RECORD_SIZE) {
+            throw new IllegalArgumentException("不支持的版本 " + version + " 事件大小 " + recordSize);
+        }
+        long wallClockMs = data.getLong(EventJournal.OFFSET_WALL_CLOCK_MS);
+        long baseNanos = data.getLong(EventJournal.OFFSET_BASE_NANOS);
+        long count = data.getLong(EventJournal.OFFSET_RECORD_COUNT);
+        long available = (data.remaining() - EventJournal.HEADER_SIZE) / recordSize;
+        if (count > available) {
+            System.err.println("文件被截断: 文件头记录 " + count + " 条，实际只有 " + available + " 条");
+            count = available;
+        }
+
+        EventJournal.Type[] types = EventJournal.Type.values();
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+        out.println("seq,elapsed_ms,wall_time,type,slot,arg,value");
+        for (long i = 0; i < count; i++) {
+            int offset = (int) (EventJournal.HEADER_SIZE + i * recordSize);
+            long time = data.getLong(offset);
+            int type = data.getShort(offset + 8) & 0xFFFF;
+            int slot = data.getShort(offset + 10);
+            int arg = data.getInt(offset + 12);
+            long value = data.getLong(offset + 16);
+            double elapsedMs = (time - baseNanos) / 1e6;
+            String typeName = type < types.length ? types[type].name() : "TYPE_" + type;
+            out.printf(Locale.US, "%d,%.3f,%s,%s,%d,%d,%d%n", i, elapsedMs,
+                    format.format(new Date(wallClockMs + (long) elapsedMs)), typeName, slot, arg, value);
+        }
+        return count;
+    }
+}
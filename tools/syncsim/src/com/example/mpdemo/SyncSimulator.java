@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2026 Rockchip Electronics Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.mpdemo;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NetworkClockSync的回环模拟器
+ *
+ * 在一台Linux主机上启动一个主机实例和多个从机实例，每个从机与主机之间经过一个
+ * UDP中继，中继对每个包加入随机延迟(指数分布)并按比例丢包，模拟真实网络抖动。
+ * 每个实例使用独立的模拟时钟：本地时钟有固定偏差和晶振误差(ppm)，媒体位置按播放速度推进。
+ * 模拟器直接比较各实例的真实媒体位置统计漂移，收敛之后的最大漂移需要小于一帧。
+ *
+ * 用法: MPDemoSyncSim [--followers N] [--jitter-ms MS] [--loss-percent P] [--seconds S] [--fps F]
+ */
+public class SyncSimulator {
+    private static final long MEDIA_DURATION_US = 60000000L; // 模拟60秒的循环片段
+    private static final long SAMPLE_INTERVAL_MS = 50;
+
+    private final Random random = new Random(1234);
+
+    /**
+     * 模拟的播放器时钟：本地时钟 = 真实时钟 * (1 + ppm) + 偏差
+     */
+    static class SimClock implements NetworkClockSync.MediaClock {
+        private final long epochNanos;
+        private final long offsetNanos;
+        private final double skew;
+        private long anchorLocalNanos;
+        private long anchorPositionUs;
+        private double rate = 1.0;
+
+        SimClock(long epochNanos, long offsetNanos, double skewPpm, long startPositionUs) {
+            this.epochNanos = epochNanos;
+            this.offsetNanos = offsetNanos;
+            this.skew = 1.0 + skewPpm * 1e-6;
+            this.anchorLocalNanos = nowNanos();
+            this.anchorPositionUs = startPositionUs;
+        }
+
+        @Override
+        public long nowNanos() {
+            return localAt(System.nanoTime());
+        }
+
+        private long localAt(long realNanos) {
+            return offsetNanos + (long) ((realNanos - epochNanos) * skew);
+        }
+
+        @Override
+        public synchronized long getPositionUs() {
+            return positionAtLocal(nowNanos());
+        }
+
+        synchronized long positionAtReal(long realNanos) {
+            return positionAtLocal(localAt(realNanos));
+        }
+
+        private long positionAtLocal(long localNanos) {
+            long position = anchorPositionUs + (long) ((localNanos - anchorLocalNanos) / 1000 * rate);
+            return Math.floorMod(position, MEDIA_DURATION_US);
+        }
+
+        @Override
+        public long getDurationUs() {
+            return MEDIA_DURATION_US;
+        }
+
+        @Override
+        public boolean isPlaying() {
+            return true;
+        }
+
+        @Override
+        public synchronized void setRate(float rate) {
+            long now = nowNanos();
+            anchorPositionUs = positionAtLocal(now);
+            anchorLocalNanos = now;
+            this.rate = rate;
+        }
+
+        @Override
+        public synchronized void seekToUs(long positionUs) {
+            anchorPositionUs = positionUs;
+            anchorLocalNanos = nowNanos();
+        }
+    }
+
+    /**
+     * 从机与主机之间的UDP中继，双向加入随机延迟和丢包
+     */
+    class JitterRelay {
+        private final DatagramSocket front = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        private final DatagramSocket back = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        private final SocketAddress leader;
+        private final double meanJitterMs;
+        private final double lossRate;
+        private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        private volatile SocketAddress follower;
+        private volatile boolean running = true;
+
+        JitterRelay(SocketAddress leader, double meanJitterMs, double lossRate) throws IOException {
+            this.leader = leader;
+            this.meanJitterMs = meanJitterMs;
+            this.lossRate = lossRate;
+            startForwarding(front, back, true);
+            startForwarding(back, front, false);
+        }
+
+        SocketAddress getFrontAddress() {
+            return front.getLocalSocketAddress();
+        }
+
+        private void startForwarding(DatagramSocket from, DatagramSocket to, boolean towardLeader) {
+            Thread thread = new Thread(() -> {
+                byte[] buffer = new byte[256];
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                while (running) {
+                    try {
+                        packet.setLength(buffer.length);
+                        from.receive(packet);
+                        if (towardLeader) {
+                            follower = packet.getSocketAddress();
+                        }
+                        SocketAddress target = towardLeader ? leader : follower;
+                        if (target == null || nextDouble() < lossRate) {
+                            continue;
+                        }
+                        byte[] copy = Arrays.copyOf(buffer, packet.getLength());
+                        // 1ms固定延迟加指数分布的排队延迟
+                        long delayUs = 1000 + (long) (-Math.log(1 - nextDouble()) * meanJitterMs * 1000);
+                        scheduler.schedule(() -> {
+                            try {
+                                to.send(new DatagramPacket(copy, copy.length, target));
+                            } catch (IOException e) {
+                                // 中继已关闭
+                            }
+                        }, delayUs, TimeUnit.MICROSECONDS);
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            }, "JitterRelay");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void close() {
+            running = false;
+            front.close();
+            back.close();
+            scheduler.shutdownNow();
+        }
+    }
+
+    private synchronized double nextDouble() {
+        return random.nextDouble();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int followers = 3;
+        double jitterMs = 5;
+        double lossPercent = 1;
+        int seconds = 40;
+        double fps = 60;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--followers": followers = Integer.parseInt(args[i + 1]); break;
+                case "--jitter-ms": jitterMs = Double.parseDouble(args[i + 1]); break;
+                case "--loss-percent": lossPercent = Double.parseDouble(args[i + 1]); break;
+                case "--seconds": seconds = Integer.parseInt(args[i + 1]); break;
+                case "--fps": fps = Double.parseDouble(args[i + 1]); break;
+                default:
+                    System.err.println("未知参数: " + args[i]);
+                    System.exit(2);
+            }
+        }
+        boolean passed = new SyncSimulator().run(followers, jitterMs, lossPercent / 100, seconds, fps);
+        System.exit(passed ? 0 : 1);
+    }
+
+    boolean run(int followerCount, double jitterMs, double lossRate, int seconds, double fps)
+            throws Exception {
+        long epoch = System.nanoTime();
+        SimClock leaderClock = new SimClock(epoch, 0, 0, 0);
+        NetworkClockSync leader = new NetworkClockSync(NetworkClockSync.Role.LEADER, leaderClock, 0, null);
+        leader.start();
+        SocketAddress leaderAddress = new InetSocketAddress(InetAddress.getLoopbackAddress(), leader.getLocalPort());
+
+        List<SimClock> clocks = new ArrayList<>();
+        List<NetworkClockSync> syncs = new ArrayList<>();
+        List<JitterRelay> relays = new ArrayList<>();
+        for (int i = 0; i < followerCount; i++) {
+            // 本地时钟偏差±1秒，晶振误差±100ppm，起始位置偏差±30ms，最后一个从机偏差3秒用于测试seek对齐
+            long offsetNanos = (long) ((random.nextDouble() * 2 - 1) * 1e9);
+            double skewPpm = (random.nextDouble() * 2 - 1) * 100;
+            long startUs = i == followerCount - 1 && followerCount > 1
+                    ? 3000000 : (long) ((random.nextDouble() * 2 - 1) * 30000);
+            SimClock clock = new SimClock(epoch, offsetNanos, skewPpm, Math.floorMod(startUs, MEDIA_DURATION_US));
+            JitterRelay relay = new JitterRelay(leaderAddress, jitterMs, lossRate);
+            NetworkClockSync sync = new NetworkClockSync(NetworkClockSync.Role.FOLLOWER, clock, 0,
+                    relay.getFrontAddress());
+            sync.start();
+            clocks.add(clock);
+            syncs.add(sync);
+            relays.add(relay);
+            System.out.printf(Locale.US, "从机%d: 时钟偏差 %.1fms 晶振误差 %.1fppm 起始偏差 %.1fms%n",
+                    i + 1, offsetNanos / 1e6, skewPpm, startUs / 1000.0);
+        }
+
+        // 前一半时间用于收敛，后一半统计真实漂移
+        long warmupMs = seconds * 1000L / 2;
+        long frameUs = (long) (1e6 / fps);
+        long[] maxDrift = new long[followerCount];
+        double[] sumSquare = new double[followerCount];
+        long samples = 0;
+        long start = System.currentTimeMillis();
+        while (System.currentTimeMillis() - start < seconds * 1000L) {
+            Thread.sleep(SAMPLE_INTERVAL_MS);
+            if (System.currentTimeMillis() - start < warmupMs) {
+                continue;
+            }
+            long real = System.nanoTime();
+            long leaderUs = leaderClock.positionAtReal(real);
+            for (int i = 0; i < followerCount; i++) {
+                long drift = Math.floorMod(clocks.get(i).positionAtReal(real) - leaderUs, MEDIA_DURATION_US);
+                if (drift > MEDIA_DURATION_US / 2) {
+                    drift -= MEDIA_DURATION_US;
+                }
+                maxDrift[i] = Math.max(maxDrift[i], Math.abs(drift));
+                sumSquare[i] += (double) drift * drift;
+            }
+            samples++;
+        }
+
+        boolean passed = samples > 0;
+        for (int i = 0; i < followerCount; i++) {
+            double rmsMs = samples > 0 ? Math.sqrt(sumSquare[i] / samples) / 1000 : 0;
+            boolean ok = maxDrift[i] < frameUs;
+            passed &= ok;
+            System.out.printf(Locale.US, "从机%d: 真实漂移 RMS %.3fms 最大 %.3fms %s%n",
+                    i + 1, rmsMs, maxDrift[i] / 1000.0, ok ? "OK" : "超过一帧");
+            System.out.println("    " + syncs.get(i).getStatsSummary());
+        }
+        System.out.printf(Locale.US, "目标: 最大漂移 < %.2fms (%.0ffps 一帧)  结果: %s%n",
+                frameUs / 1000.0, fps, passed ? "通过" : "失败");
+
+        for (NetworkClockSync sync : syncs) {
+            sync.stop();
+        }
+        for (JitterRelay relay : relays) {
+            relay.close();
+        }
+        leader.stop();
+        return passed;
+    }
+}